@@ -92,13 +92,44 @@ public class ReadUtils {
         this(DEFAULT_NUMBER_FORMAT, DEFAULT_MEASURES_TO_IGNORE, headers);
     }
     
+    /**
+     * Handles monitoring units while streaming a monitoring log.
+     */
+    public interface IMonitoringUnitHandler {
+        
+        /**
+         * Handles a monitoring unit. Units are passed in log sequence.
+         * @param unit the unit, <b>null</b> if the respective line cannot be parsed
+         */
+        public void handle(MonitoringUnit unit);
+        
+    }
+    
     /**
      * Parses a whole monitoring log and extracts one monitoring unit from each line.
      * @param filePath The path of the file (monitoring log) to be parsed.
      * @return A list of <code>MonitoringUnit</code> objects.
      */
     public ArrayList<MonitoringUnit> readMonitoringUnits(String filePath){
-        ArrayList<MonitoringUnit> units = new ArrayList<>();
+        final ArrayList<MonitoringUnit> units = new ArrayList<>();
+        boolean success = readMonitoringUnits(filePath, new IMonitoringUnitHandler() {
+            
+            @Override
+            public void handle(MonitoringUnit unit) {
+                units.add(unit);
+            }
+        });
+        return success ? units : null;
+    }
+    
+    /**
+     * Parses a whole monitoring log and passes one monitoring unit per line to <code>handler</code>
+     * without keeping the units in memory.
+     * @param filePath The path of the file (monitoring log) to be parsed.
+     * @param handler The handler receiving the units.
+     * @return <code>true</code> if the log was read successfully, <code>false</code> else.
+     */
+    public boolean readMonitoringUnits(String filePath, IMonitoringUnitHandler handler){
         BufferedReader reader = null;
         
         try{
@@ -115,15 +146,15 @@ public class ReadUtils {
             
             // read the units
             while((line = reader.readLine()) != null){
-                units.add(readMonitoringUnit(line));
+                handler.handle(readMonitoringUnit(line));
             }
             reader.close();
             
-            return units;
+            return true;
         }
         catch(Exception e){
             e.printStackTrace();
-            return null;
+            return false;
         }
     }
     
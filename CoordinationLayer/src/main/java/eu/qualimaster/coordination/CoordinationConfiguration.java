@@ -199,6 +199,29 @@ public class CoordinationConfiguration extends DataManagementConfiguration {
      * The default value for {@link #COMMAND_COMPLETION_ON_EVENT} ({@value}).
      */
     public static final boolean DEFAULT_COMMAND_COMPLETION_ON_EVENT = false; // TODO change to true
+
+    /**
+     * Denotes the budget of worker slots for concurrent profiling runs of an algorithm (Integer). If positive, 
+     * multiple profiling configurations are executed at the same time as long as the sum of their actual workers 
+     * does not exceed the budget. If not positive, one configuration is profiled after the other.
+     */
+    public static final String PROFILING_SLOTS = "profiling.slots";
+
+    /**
+     * The default value for {@link #PROFILING_SLOTS} (Value {@value}).
+     */
+    public static final int DEFAULT_PROFILING_SLOTS = 0;
+
+    /**
+     * Denotes the folder where the state of profiling campaigns is stored so that an interrupted campaign can be 
+     * resumed. If empty, campaigns are not resumed.
+     */
+    public static final String PROFILING_STATE_LOCATION = "profiling.state.location";
+
+    /**
+     * The default value for {@link #PROFILING_STATE_LOCATION}.
+     */
+    public static final String DEFAULT_PROFILING_STATE_LOCATION = EMPTY_VALUE;
     
     static final PropertyReader<DetailMode> DETAIL_MODE_READER = new PropertyReader<DetailMode>() {
 
@@ -249,6 +272,10 @@ public class CoordinationConfiguration extends DataManagementConfiguration {
         = createStringOption(SPECIFICPIPSETTINGS_ARTIFACT_SPEC, DEFAULT_SPECIFICPIPSETTINGS_ARTIFACT_SPEC);
     private static ConfigurationOption<Boolean> commandCompletionOnEvent 
         = createBooleanOption(COMMAND_COMPLETION_ON_EVENT, DEFAULT_COMMAND_COMPLETION_ON_EVENT);
+    private static ConfigurationOption<Integer> profilingSlots 
+        = createIntegerOption(PROFILING_SLOTS, DEFAULT_PROFILING_SLOTS);
+    private static ConfigurationOption<String> profilingStateLocation 
+        = createStringOption(PROFILING_STATE_LOCATION, DEFAULT_PROFILING_STATE_LOCATION);
 
     /**
      * Reads the configuration settings from the file.
@@ -482,5 +509,23 @@ public class CoordinationConfiguration extends DataManagementConfiguration {
     public static boolean doCommandCompletionOnEvent() {
         return commandCompletionOnEvent.getValue();
     }
+
+    /**
+     * Returns the budget of worker slots for concurrent profiling runs.
+     * 
+     * @return the budget, not positive for profiling one configuration after the other
+     */
+    public static int getProfilingSlots() {
+        return profilingSlots.getValue();
+    }
+
+    /**
+     * Returns the location where the state of profiling campaigns is stored.
+     * 
+     * @return the location, may be empty if campaigns shall not be resumed
+     */
+    public static String getProfilingStateLocation() {
+        return profilingStateLocation.getValue();
+    }
     
 }
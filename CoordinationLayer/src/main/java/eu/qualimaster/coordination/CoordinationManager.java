@@ -213,13 +213,7 @@ public class CoordinationManager {
             ProfileControl control = ProfileControl.getInstance(event.getPipeline());
             if (null != control) {
                 try {
-                    control.killActual();
-                    if (control.hasNext()) {
-                        control.startNext();
-                    } else {
-                        ProfileControl.releaseInstance(control);
-                        // may send message
-                    }
+                    control.endOfData(event.getPipeline()); // may send message if released
                 } catch (IOException e) {
                     LogManager.getLogger(CoordinationManager.class).error("While profiling - EOD: " + e.getMessage());
                 }
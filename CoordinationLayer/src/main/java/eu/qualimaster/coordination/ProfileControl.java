@@ -20,9 +20,13 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.LogManager;
@@ -57,13 +61,21 @@ import net.ssehub.easy.varModel.model.ModelQueryException;
 import net.ssehub.easy.varModel.model.datatypes.Compound;
 
 /**
- * Class for controlling the profiling of an algorithm via its data/profiling script.
+ * Class for controlling the profiling of an algorithm via its data/profiling script. By default, one profiling 
+ * configuration is executed after the other. If {@link CoordinationConfiguration#getProfilingSlots() profiling slots} 
+ * are configured, independent configurations are executed concurrently as renamed pipelines as long as the sum of 
+ * their {@link #getActualWorkers(ProcessingEntry) actual workers} fits into the slots. If a 
+ * {@link CoordinationConfiguration#getProfilingStateLocation() state location} is configured, completed 
+ * configurations are recorded so that an interrupted profiling campaign continues with the remaining ones.
  * 
  * @author Holger Eichelberger
  */
 public class ProfileControl implements IProfile {
 
     public static final int KILL_WAITING_TIME = 3000;
+    public static final String RUN_SEPARATOR = "_run";
+    private static final String STATE_SUFFIX = ".profiling";
+    private static final String STATE_ENCODING = "UTF-8";
     
     /**
      * Encapsulates the profile execution, in particular for testing.
@@ -114,13 +126,14 @@ public class ProfileControl implements IProfile {
         new HashMap<String, ProfileControl>());
 
     //private boolean done = false;
-    private int maxVariants = 1;
     private Configuration config;
     private String familyName;
     private String algorithmName;
     private ProfileData data;
     private INameMapping mapping;
-    private PipelineOptions lastOptions;
+    private List<INameMapping> runMappings = new ArrayList<INameMapping>();
+    private int slots;
+    private File stateFile;
     private boolean useHdfs;
     private List<String> dataPaths;
     private List<File> dataFiles;
@@ -131,7 +144,9 @@ public class ProfileControl implements IProfile {
     private List<Map<String, Serializable>> settings = new ArrayList<>();
 
     private transient int actVariant = 0;
-    private transient List<Position> actPos = new ArrayList<Position>();
+    private transient List<Position> actPos = new ArrayList<Position>(); // pending
+    private transient List<Run> running = new ArrayList<Run>();
+    private transient int usedWorkers;
     
     /**
      * Denotes an iterator position.
@@ -140,6 +155,7 @@ public class ProfileControl implements IProfile {
      */
     private class Position {
         
+        private int index;
         private int position;
         private String dataPath;
         private ProcessingEntry pEnt;
@@ -147,15 +163,27 @@ public class ProfileControl implements IProfile {
         /**
          * Creates a specific iterator position for parameters.
          * 
+         * @param index the index of the position in the sequence of all positions
          * @param pEnt the processing entry
          * @param position the position within {@link ProfileControl#settings}
          * @param dataPath the data path
          */
-        private Position(ProcessingEntry pEnt, int position, String dataPath) {
+        private Position(int index, ProcessingEntry pEnt, int position, String dataPath) {
+            this.index = index;
             this.pEnt = pEnt;
             this.position = position;
             this.dataPath = dataPath;
         }
+
+        /**
+         * Returns a key identifying this position across restarts.
+         * 
+         * @return the key
+         */
+        private String getKey() {
+            Object setting = position >= 0 ? new TreeMap<String, Serializable>(settings.get(position)) : "";
+            return pEnt + " " + setting + " " + dataPath;
+        }
         
         @Override
         public String toString() {
@@ -164,6 +192,42 @@ public class ProfileControl implements IProfile {
         
     }
 
+    /**
+     * Denotes a running profiling pipeline.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class Run {
+
+        private String pipeline;
+        private INameMapping mapping;
+        private PipelineOptions options;
+        private Position position;
+        private int workers;
+
+        /**
+         * Creates a run.
+         * 
+         * @param pipeline the name of the running pipeline
+         * @param mapping the name mapping of the running pipeline
+         * @param options the pipeline start options
+         * @param position the profiled position
+         */
+        private Run(String pipeline, INameMapping mapping, PipelineOptions options, Position position) {
+            this.pipeline = pipeline;
+            this.mapping = mapping;
+            this.options = options;
+            this.position = position;
+            this.workers = getActualWorkers(position.pEnt);
+        }
+
+        @Override
+        public String toString() {
+            return pipeline + " " + position;
+        }
+
+    }
+
     /**
      * Creates the profile control instance. Adds itself to {@link #INSTANCES}.
      * 
@@ -218,6 +282,17 @@ public class ProfileControl implements IProfile {
             getLogger().info("Stored data file " + dataFile + " to " + dataPath);
         }
         calcVariants();
+        slots = CoordinationConfiguration.getProfilingSlots();
+        if (slots > 0) { // first fit decreasing, larger configurations first
+            Collections.sort(actPos, new Comparator<Position>() {
+
+                @Override
+                public int compare(Position o1, Position o2) {
+                    return Integer.compare(getActualWorkers(o2.pEnt), getActualWorkers(o1.pEnt));
+                }
+            });
+        }
+        resume();
         INSTANCES.put(data.getPipelineName(), this);
         getLogger().info("Profile control created/registered for " + data.getPipelineName());
     }
@@ -256,15 +331,59 @@ public class ProfileControl implements IProfile {
         for (ProcessingEntry pEnt : processing) {
             for (String dataPath : dataPaths) {
                 if (settings.isEmpty()) {
-                    actPos.add(new Position(pEnt, -1, dataPath));
+                    actPos.add(new Position(actPos.size(), pEnt, -1, dataPath));
                 } else {
                     for (int s = 0; s < settings.size(); s++) {
-                        actPos.add(new Position(pEnt, s, dataPath));
+                        actPos.add(new Position(actPos.size(), pEnt, s, dataPath));
                     }
                 }
             }
         }
-        maxVariants = actPos.size();
+    }
+
+    /**
+     * Determines the state file and removes the positions recorded as completed in the state file from the 
+     * positions to process.
+     */
+    private void resume() {
+        String location = CoordinationConfiguration.getProfilingStateLocation();
+        if (!CoordinationConfiguration.isEmpty(location)) {
+            stateFile = new File(location, familyName + "-" + algorithmName + STATE_SUFFIX);
+            if (stateFile.exists()) {
+                try {
+                    Set<String> completed = new HashSet<String>(FileUtils.readLines(stateFile, STATE_ENCODING));
+                    int count = actPos.size();
+                    for (int p = actPos.size() - 1; p >= 0; p--) {
+                        if (completed.contains(actPos.get(p).getKey())) {
+                            actPos.remove(p);
+                        }
+                    }
+                    getLogger().info("Resuming profiling of " + familyName + "/" + algorithmName + ", skipping " 
+                        + (count - actPos.size()) + " completed configurations");
+                } catch (IOException e) {
+                    getLogger().error("Cannot read profiling state " + stateFile + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a completed position in the state file. Deletes the state file if the campaign is completed.
+     * 
+     * @param pos the completed position
+     */
+    private void completed(Position pos) {
+        if (null != stateFile) {
+            if (actPos.isEmpty() && running.isEmpty()) {
+                FileUtils.deleteQuietly(stateFile);
+            } else {
+                try {
+                    FileUtils.writeStringToFile(stateFile, pos.getKey() + "\n", STATE_ENCODING, true);
+                } catch (IOException e) {
+                    getLogger().error("Cannot write profiling state " + stateFile + ": " + e.getMessage());
+                }
+            }
+        }
     }
     
     /**
@@ -310,6 +429,13 @@ public class ProfileControl implements IProfile {
             if (null != instance.mapping) {
                 CoordinationManager.unregisterNameMapping(instance.mapping);
             }
+            synchronized (instance) {
+                for (INameMapping runMapping : instance.runMappings) {
+                    CoordinationManager.unregisterNameMapping(runMapping);
+                    INSTANCES.remove(runMapping.getPipelineName());
+                }
+                instance.runMappings.clear();
+            }
             INSTANCES.remove(instance.data.getPipelineName());
         }
     }
@@ -319,21 +445,44 @@ public class ProfileControl implements IProfile {
      * 
      * @return <code>true</code> if there is a next, <code>false</code> else
      */
-    public boolean hasNext() {
-        return actVariant < maxVariants;
+    public synchronized boolean hasNext() {
+        return !actPos.isEmpty();
+    }
+
+    /**
+     * Returns whether profiling pipelines are running.
+     * 
+     * @return <code>true</code> if pipelines are running, <code>false</code> else
+     */
+    public synchronized boolean isRunning() {
+        return !running.isEmpty();
+    }
+
+    /**
+     * Returns the names of the running profiling pipelines.
+     * 
+     * @return the names of the running pipelines
+     */
+    public synchronized List<String> getRunning() {
+        List<String> result = new ArrayList<String>();
+        for (Run run : running) {
+            result.add(run.pipeline);
+        }
+        return result;
     }
     
     /**
      * Sends an {@link AlgorithmProfilingEvent} with the given <code>status</code>.
      * 
+     * @param pipeline the name of the running pipeline
      * @param status the profiling status of the actual profiling pipeline / family / algorithm
      * @param settings the actual profiling settings for information, may be <b>null</b>
      */
-    private void sendAlgorithmProfilingEvent(Status status, Map<String, Serializable> settings) {
+    private void sendAlgorithmProfilingEvent(String pipeline, Status status, Map<String, Serializable> settings) {
         // the family name changes due to the profiling pipeline generation, the pipeline name corresponds to 
-        // getPipeline(), the algorithm name is as in the original configuration (not changed / adapted 
-        // during generation)
-        AlgorithmProfilingEvent evt = new AlgorithmProfilingEvent(getPipeline(), AlgorithmProfileHelper.FAM_NAME, 
+        // getPipeline() or a run of it, the algorithm name is as in the original configuration (not changed / 
+        // adapted during generation)
+        AlgorithmProfilingEvent evt = new AlgorithmProfilingEvent(pipeline, AlgorithmProfileHelper.FAM_NAME, 
             getAlgorithmName(), status, settings);
         considerDetails(evt);
         EventManager.send(evt);
@@ -350,56 +499,93 @@ public class ProfileControl implements IProfile {
     }
     
     /**
-     * Returns the next pipeline options for starting.
+     * Starts the next profiling pipeline. If profiling slots are configured, starts as many pending configurations 
+     * as fit into the slots not used by running pipelines. A configuration exceeding all slots is started if no 
+     * other pipeline is running.
      * 
      * @throws IOException in case that starting the pipeline fails
      */
-    public void startNext() throws IOException {
-        if (hasNext()) {
-            lastOptions = new PipelineOptions(AdaptationEvent.class);
-            Position pos = actPos.get(actVariant);
-            ProcessingEntry proc = pos.pEnt;
-            lastOptions.setNumberOfWorkers(proc.getWorkers() + 1);
-            lastOptions.enableProfilingMode();
-            lastOptions.setWaitTime(0);
-            if (proc.getTasks() > 0) {
-                lastOptions.setTaskParallelism(AlgorithmProfileHelper.FAM_NAME, proc.getTasks());
-            }
-            if (proc.getExecutors() > 0) {
-                lastOptions.setExecutorParallelism(AlgorithmProfileHelper.FAM_NAME, proc.getExecutors());
-            }
-            if (pos.position >= 0) {
-                Map<String, Serializable> args = settings.get(pos.position);
-                for (Map.Entry<String, Serializable> ent : args.entrySet()) {
-                    lastOptions.setExecutorArgument(AlgorithmProfileHelper.FAM_NAME, 
-                        ent.getKey(), ent.getValue());
+    public synchronized void startNext() throws IOException {
+        if (slots > 0) {
+            boolean started = true;
+            while (started) {
+                started = false;
+                for (int p = 0; !started && p < actPos.size(); p++) {
+                    int workers = getActualWorkers(actPos.get(p).pEnt);
+                    if (running.isEmpty() || usedWorkers + workers <= slots) {
+                        start(actPos.remove(p));
+                        started = true;
+                    }
                 }
             }
+        } else if (hasNext()) {
+            start(actPos.remove(0));
+        }
+    }
 
-            lastOptions.setExecutorArgument(AlgorithmProfileHelper.SRC_NAME, 
-                useHdfs ? AlgorithmProfileHelper.PARAM_HDFS_DATAFILE 
-                : AlgorithmProfileHelper.PARAM_DATAFILE, pos.dataPath);
-
-            if (StormUtils.inTesting()) {
-                try {
-                    Map<String, TopologyTestInfo> topologies = new HashMap<String, TopologyTestInfo>();
-                    topologies.put(getPipeline(), new TopologyTestInfo(getPipeline(), data.getPipeline(), 
-                         lastOptions.toMap(), data));
-                    StormUtils.forTesting(StormUtils.getLocalCluster(), topologies);
-                } catch (TopologyTestInfoException e) {
-                    getLogger().error("Testing: " + e.getMessage());
-                }
-            }
-            if (0 == actVariant) { // this is the first execution, notify monitoring but defer until pipeline started
-                considerDetails(CoordinationManager.deferProfilingStart(getPipeline(), AlgorithmProfileHelper.FAM_NAME, 
-                    getAlgorithmName(), lastOptions.toMap()));
-            } else {
-                sendAlgorithmProfilingEvent(Status.NEXT, lastOptions.toMap());
+    /**
+     * Starts the profiling pipeline for the given position. Concurrent runs are started as renamed pipelines.
+     * 
+     * @param pos the position
+     * @throws IOException in case that starting the pipeline fails
+     */
+    private void start(Position pos) throws IOException {
+        boolean concurrent = slots > 0;
+        String pipeline = getPipeline();
+        INameMapping runMapping = mapping;
+        if (concurrent) {
+            pipeline = pipeline + RUN_SEPARATOR + pos.index;
+            runMapping = new RenamedMapping(mapping, pipeline);
+            CoordinationManager.registerNameMapping(runMapping);
+            runMappings.add(runMapping);
+            INSTANCES.put(pipeline, this);
+        }
+        PipelineOptions options = new PipelineOptions(AdaptationEvent.class);
+        ProcessingEntry proc = pos.pEnt;
+        options.setNumberOfWorkers(getActualWorkers(proc));
+        options.enableProfilingMode();
+        options.setWaitTime(0);
+        if (proc.getTasks() > 0) {
+            options.setTaskParallelism(AlgorithmProfileHelper.FAM_NAME, proc.getTasks());
+        }
+        if (proc.getExecutors() > 0) {
+            options.setExecutorParallelism(AlgorithmProfileHelper.FAM_NAME, proc.getExecutors());
+        }
+        if (pos.position >= 0) {
+            Map<String, Serializable> args = settings.get(pos.position);
+            for (Map.Entry<String, Serializable> ent : args.entrySet()) {
+                options.setExecutorArgument(AlgorithmProfileHelper.FAM_NAME, 
+                    ent.getKey(), ent.getValue());
             }
-            execution.start(mapping, data.getPipeline(), lastOptions);
+        }
+
+        options.setExecutorArgument(AlgorithmProfileHelper.SRC_NAME, 
+            useHdfs ? AlgorithmProfileHelper.PARAM_HDFS_DATAFILE 
+            : AlgorithmProfileHelper.PARAM_DATAFILE, pos.dataPath);
 
-            actVariant++;
+        if (StormUtils.inTesting()) {
+            try {
+                Map<String, TopologyTestInfo> topologies = new HashMap<String, TopologyTestInfo>();
+                topologies.put(pipeline, new TopologyTestInfo(pipeline, data.getPipeline(), 
+                     options.toMap(), data));
+                StormUtils.forTesting(StormUtils.getLocalCluster(), topologies);
+            } catch (TopologyTestInfoException e) {
+                getLogger().error("Testing: " + e.getMessage());
+            }
+        }
+        // first execution of a pipeline, notify monitoring but defer until pipeline started
+        if (concurrent || 0 == actVariant) {
+            considerDetails(CoordinationManager.deferProfilingStart(pipeline, AlgorithmProfileHelper.FAM_NAME, 
+                getAlgorithmName(), options.toMap()));
+        } else {
+            sendAlgorithmProfilingEvent(pipeline, Status.NEXT, options.toMap());
         }
+        execution.start(runMapping, data.getPipeline(), options);
+        Run run = new Run(pipeline, runMapping, options, pos);
+        running.add(run);
+        usedWorkers += run.workers;
+
+        actVariant++;
     }
     
     /**
@@ -413,21 +599,100 @@ public class ProfileControl implements IProfile {
     }
     
     /**
-     * Kills the actual pipeline.
+     * Kills all running pipelines. As their data is not necessarily processed completely, the runs are not recorded 
+     * as completed.
+     * 
+     * @throws IOException in case that killing fails
+     */
+    public synchronized void killActual() throws IOException {
+        if (running.isEmpty()) {
+            getLogger().info("Profile control: nothing to kill for " + data.getPipelineName());
+        }
+        while (!running.isEmpty()) {
+            kill(running.get(0), false);
+        }
+    }
+
+    /**
+     * Kills the running pipeline <code>pipeline</code> as its data is completely processed and records the run as 
+     * completed.
      * 
+     * @param pipeline the name of the pipeline (may be the name of a concurrent run)
      * @throws IOException in case that killing fails
      */
-    public void killActual() throws IOException {
-        getLogger().info("Profile control killing " + data.getPipelineName());
-        execution.kill(mapping, lastOptions);
-        lastOptions = null;
+    public synchronized void kill(String pipeline) throws IOException {
+        Run run = null;
+        for (int r = 0; null == run && r < running.size(); r++) {
+            if (running.get(r).pipeline.equals(pipeline)) {
+                run = running.get(r);
+            }
+        }
+        if (null != run) {
+            kill(run, true);
+        } else {
+            getLogger().info("Profile control: nothing to kill for " + pipeline);
+        }
+    }
+
+    /**
+     * Handles the end of data of the running pipeline <code>pipeline</code>, i.e., kills the run, starts the next 
+     * pending configurations and releases this instance if nothing is pending or running anymore. Happens in one 
+     * step as end-of-data events of concurrent runs may be handled in parallel.
+     * 
+     * @param pipeline the name of the pipeline (may be the name of a concurrent run)
+     * @return <code>true</code> if this instance was released, <code>false</code> else
+     * @throws IOException in case that killing or starting fails
+     */
+    public synchronized boolean endOfData(String pipeline) throws IOException {
+        boolean released = false;
+        kill(pipeline);
         if (hasNext()) {
+            startNext();
+        } else if (!isRunning()) {
+            releaseInstance(this);
+            released = true;
+        }
+        return released;
+    }
+
+    /**
+     * Kills a run.
+     * 
+     * @param run the run to kill
+     * @param completed whether the data of the run was completely processed and the run shall be recorded as 
+     *     completed
+     * @throws IOException in case that killing fails
+     */
+    private void kill(Run run, boolean completed) throws IOException {
+        getLogger().info("Profile control killing " + run.pipeline);
+        execution.kill(run.mapping, run.options);
+        running.remove(run);
+        usedWorkers -= run.workers;
+        if (completed) {
+            completed(run.position);
+        }
+        if (slots > 0) { // each run is an own pipeline for monitoring
+            sendAlgorithmProfilingEvent(run.pipeline, Status.END, null);
+            release(run);
+        } else if (hasNext()) {
             try { // sometimes Storm does not get rid of the pipeline -> already exists on cluster
                 Thread.sleep(KILL_WAITING_TIME);
             } catch (InterruptedException e) {
             }
         } else {
-            sendAlgorithmProfilingEvent(Status.END, null); // null may be lastOptions.toMap() but unused
+            sendAlgorithmProfilingEvent(run.pipeline, Status.END, null); // null may be options.toMap() but unused
+        }
+    }
+
+    /**
+     * Releases a concurrent run, i.e., unregisters its name mapping and removes it from {@link #INSTANCES}.
+     * 
+     * @param run the run to release
+     */
+    private void release(Run run) {
+        if (runMappings.remove(run.mapping)) {
+            CoordinationManager.unregisterNameMapping(run.mapping);
+            INSTANCES.remove(run.pipeline);
         }
     }
 
@@ -472,9 +737,10 @@ public class ProfileControl implements IProfile {
     
     /**
      * Sends an initial algorithm change command, in particular for hardware.
+     * 
+     * @param pipelineName the name of the created pipeline (may be the name of a concurrent run)
      */
-    private void sendInitialAlgorithmChangeCommand() {
-        String pipelineName = getPipeline();
+    private void sendInitialAlgorithmChangeCommand(String pipelineName) {
         String familyName = getFamilyName();
         String algorithmName = getAlgorithmName();
         AlgorithmChangeCommand cmd = new AlgorithmChangeCommand(pipelineName, 
@@ -554,7 +820,7 @@ public class ProfileControl implements IProfile {
     static void created(String pipelineName) {
         ProfileControl ctl = INSTANCES.get(pipelineName);
         if (null != ctl) {
-            ctl.sendInitialAlgorithmChangeCommand();
+            ctl.sendInitialAlgorithmChangeCommand(pipelineName);
         }
     }
 
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.coordination;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import eu.qualimaster.monitoring.events.SubTopologyMonitoringEvent;
+
+/**
+ * A mapping which runs the pipeline of a given mapping under a different name, e.g., to execute the same pipeline 
+ * concurrently in multiple profiling runs. All other information is taken from the given mapping.
+ * 
+ * @author Holger Eichelberger
+ */
+public class RenamedMapping implements INameMapping {
+
+    private INameMapping mapping;
+    private String pipeline;
+    private List<String> pipelineNames = new ArrayList<String>();
+
+    /**
+     * Creates a renamed mapping.
+     * 
+     * @param mapping the mapping to rename
+     * @param pipeline the new pipeline name
+     */
+    public RenamedMapping(INameMapping mapping, String pipeline) {
+        this.mapping = mapping;
+        this.pipeline = pipeline;
+        pipelineNames.add(pipeline);
+        for (String name : mapping.getPipelineNames()) {
+            if (!name.equals(mapping.getPipelineName())) {
+                pipelineNames.add(name);
+            }
+        }
+        pipelineNames = Collections.unmodifiableList(pipelineNames);
+    }
+
+    /**
+     * Returns the mapping being renamed.
+     * 
+     * @return the original mapping
+     */
+    public INameMapping getOriginal() {
+        return mapping;
+    }
+
+    @Override
+    public String getPipelineName() {
+        return pipeline;
+    }
+
+    @Override
+    public String getContainerName() {
+        return mapping.getContainerName();
+    }
+
+    @Override
+    public Component getPipelineNodeComponent(String pipelineNodeName) {
+        return mapping.getPipelineNodeComponent(pipelineNodeName);
+    }
+
+    @Override
+    public Collection<String> getPipelineNodeNames() {
+        return mapping.getPipelineNodeNames();
+    }
+
+    @Override
+    public Component getComponentByClassName(String className) {
+        return mapping.getComponentByClassName(className);
+    }
+
+    @Override
+    public Component getComponentByImplName(String implName) {
+        return mapping.getComponentByImplName(implName);
+    }
+
+    @Override
+    public Collection<Component> getComponents() {
+        return mapping.getComponents();
+    }
+
+    @Override
+    public String getPipelineNodeByImplName(String componentName) {
+        return mapping.getPipelineNodeByImplName(componentName);
+    }
+
+    @Override
+    public List<String> getPipelineNames() {
+        return pipelineNames;
+    }
+
+    @Override
+    public List<String> getContainerNames() {
+        return mapping.getContainerNames();
+    }
+
+    @Override
+    public Algorithm getAlgorithm(String algorithmName) {
+        return mapping.getAlgorithm(algorithmName);
+    }
+
+    @Override
+    public Algorithm getAlgorithmByClassName(String className) {
+        return mapping.getAlgorithmByClassName(className);
+    }
+
+    @Override
+    public Algorithm getAlgorithmByImplName(String implName) {
+        return mapping.getAlgorithmByImplName(implName);
+    }
+
+    @Override
+    public Collection<Algorithm> getAlgorithms() {
+        return mapping.getAlgorithms();
+    }
+
+    @Override
+    public boolean isIdentity() {
+        return mapping.isIdentity();
+    }
+
+    @Override
+    public void considerSubStructures(SubTopologyMonitoringEvent event) {
+        mapping.considerSubStructures(event);
+    }
+
+    @Override
+    public String getParameterMapping(String pipelineNodeName, String parameterName) {
+        return mapping.getParameterMapping(pipelineNodeName, parameterName);
+    }
+
+    @Override
+    public String getParameterBackMapping(String pipelineNodeName, String parameterName) {
+        return mapping.getParameterBackMapping(pipelineNodeName, parameterName);
+    }
+
+    @Override
+    public Collection<ISubPipeline> getSubPipelines() {
+        return mapping.getSubPipelines();
+    }
+
+    @Override
+    public ISubPipeline getSubPipelineByAlgorithmName(String algorithmName) {
+        return mapping.getSubPipelineByAlgorithmName(algorithmName);
+    }
+
+    @Override
+    public String toString() {
+        return pipeline + " renaming " + mapping;
+    }
+
+}
@@ -68,6 +68,10 @@ public class CoordinationConfigurationTests extends DataManagementConfigurationT
              CoordinationConfiguration.getInitializationMode());
         Assert.assertEquals(CoordinationConfiguration.DEFAULT_COMMAND_COMPLETION_ON_EVENT, 
              CoordinationConfiguration.doCommandCompletionOnEvent());
+        Assert.assertEquals(CoordinationConfiguration.DEFAULT_PROFILING_SLOTS, 
+             CoordinationConfiguration.getProfilingSlots());
+        Assert.assertEquals(CoordinationConfiguration.DEFAULT_PROFILING_STATE_LOCATION, 
+             CoordinationConfiguration.getProfilingStateLocation());
     }
 
     @Override
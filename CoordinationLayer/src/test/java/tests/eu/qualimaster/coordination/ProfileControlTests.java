@@ -331,7 +331,11 @@ public class ProfileControlTests {
             = new HashMap<String, Map<String, Set<Serializable>>>();
         private List<String> parameterNames = new ArrayList<String>();
         private ParseResult result;
-        private Set<String> running = new HashSet<String>();
+        private Map<String, Integer> running = new HashMap<String, Integer>();
+        private int usedWorkers;
+        private int maxWorkers;
+        private int maxRunning;
+        private int started;
         private final String dataFile = AlgorithmProfileHelper.getDataFile(
             new File(CoordinationConfiguration.getDfsPath())).getAbsolutePath();
         private boolean expectMultiData = false;
@@ -350,7 +354,13 @@ public class ProfileControlTests {
 
         @Override
         public void start(INameMapping mapping, File jarPath, PipelineOptions options) throws IOException {
-            running.add(mapping.getPipelineName());
+            Assert.assertFalse("already running: " + mapping.getPipelineName(), 
+                running.containsKey(mapping.getPipelineName()));
+            running.put(mapping.getPipelineName(), options.getNumberOfWorkers(0));
+            usedWorkers += options.getNumberOfWorkers(0);
+            maxWorkers = Math.max(maxWorkers, usedWorkers);
+            maxRunning = Math.max(maxRunning, running.size());
+            started++;
             String key = getProcessingKey(options.getTaskParallelism(AlgorithmProfileHelper.FAM_NAME, 0),
                 options.getExecutorParallelism(AlgorithmProfileHelper.FAM_NAME, 0), options.getNumberOfWorkers(0));
             Map<String, Set<Serializable>> params = counter.get(key);
@@ -380,7 +390,9 @@ public class ProfileControlTests {
         
         @Override
         public void kill(INameMapping mapping, PipelineOptions options) throws IOException {
-            running.remove(mapping.getPipelineName());
+            Integer workers = running.remove(mapping.getPipelineName());
+            Assert.assertNotNull("not running: " + mapping.getPipelineName(), workers);
+            usedWorkers -= workers;
         }
 
         /**
@@ -484,5 +496,152 @@ public class ProfileControlTests {
         FileUtils.deleteQuietly(AlgorithmProfileHelper.getControlFile(tmp));
         FileUtils.deleteQuietly(AlgorithmProfileHelper.getDataFile(tmp));
     }
+
+    /**
+     * Configures the coordination layer for profiling tests.
+     * 
+     * @param slots the profiling slots
+     * @param stateLocation the profiling state location (may be <b>null</b> for none)
+     */
+    private static void configureProfiling(int slots, File stateLocation) {
+        File tmp = FileUtils.getTempDirectory();
+        Properties prop = new Properties();
+        prop.put(CoordinationConfiguration.PATH_DFS, tmp.getAbsolutePath());
+        prop.put(CoordinationConfiguration.URL_HDFS, CoordinationConfiguration.EMPTY_VALUE);
+        prop.put(CoordinationConfiguration.PROFILING_SLOTS, String.valueOf(slots));
+        if (null != stateLocation) {
+            prop.put(CoordinationConfiguration.PROFILING_STATE_LOCATION, stateLocation.getAbsolutePath());
+        }
+        CoordinationConfiguration.configure(prop);
+    }
+
+    /**
+     * Parses the profile control file.
+     * 
+     * @param ctlFile the control file
+     * @param dataFile the (base) data file
+     * @return the parse result
+     * @throws IOException in case of I/O problems
+     */
+    private ParseResult parse(File ctlFile, File dataFile) throws IOException {
+        Models models = RepositoryConnector.getModels(Phase.MONITORING);
+        IProfile profile = new TestProfile(Naming.NODE_PROCESS_FAMILY, Naming.NODE_PROCESS_ALG1, 
+            models.getConfiguration(), dataFile);
+        IProfileControlParser parser = ProfileControlParserFactory.INSTANCE.getParser(ctlFile);
+        return parser.parseControlFile(ctlFile, profile);
+    }
+
+    /**
+     * Creates a profile control instance.
+     * 
+     * @param pipeline the pipeline name
+     * @param ctlFile the control file
+     * @param dataFile the (base) data file
+     * @param execution the execution instance
+     * @return the profile control instance
+     * @throws IOException in case of I/O problems
+     */
+    private static ProfileControl createControl(String pipeline, File ctlFile, File dataFile, 
+        IProfileExecution execution) throws IOException {
+        ProfileAlgorithmCommand cmd = new ProfileAlgorithmCommand(Naming.NODE_PROCESS_FAMILY, Naming.NODE_PROCESS_ALG1);
+        ProfileData data = new ProfileData(pipeline, new File("test.jar"), dataFile, ctlFile);
+        Models models = RepositoryConnector.getModels(Phase.MONITORING);
+        return new ProfileControl(models.getConfiguration(), cmd, data, execution);
+    }
+
+    /**
+     * Tests running profiling pipelines concurrently within the profiling slots.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test(timeout = 5000) 
+    public void testProfileControlConcurrent() throws IOException {
+        final String pipeline = "TestPip";
+        final int slots = 8;
+        File testDir = Utils.getTestdataDir();
+        File ctlFile = new File(testDir, "profile.ctl");
+        File dataFile = new File(testDir, "profile.data"); 
+        configureProfiling(slots, null);
+
+        ParseResult parseResult = parse(ctlFile, dataFile);
+        TestProfileExecution execution = new TestProfileExecution(parseResult, false);
+        ProfileControl control = createControl(pipeline, ctlFile, dataFile, execution);
+        Assert.assertEquals(control, ProfileControl.getInstance(pipeline));
+
+        control.startNext();
+        boolean released = false;
+        while (control.isRunning()) { // potential endless loop -> timeout
+            List<String> running = control.getRunning();
+            for (String run : running) {
+                Assert.assertTrue(run.startsWith(pipeline + ProfileControl.RUN_SEPARATOR));
+                Assert.assertEquals(control, ProfileControl.getInstance(run));
+            }
+            Assert.assertFalse(released);
+            released = control.endOfData(running.get(0)); // as done by the end of data handler
+            Assert.assertNull(ProfileControl.getInstance(running.get(0))); // released
+        }
+        Assert.assertTrue(released);
+        Assert.assertFalse(control.hasNext());
+        Assert.assertEquals(parseResult.getNumberOfVariations(), execution.started);
+        Assert.assertTrue("no concurrent execution", execution.maxRunning > 1);
+        Assert.assertTrue("slots exceeded: " + execution.maxWorkers, execution.maxWorkers <= slots);
+        execution.assertComplete();
+
+        Assert.assertNull(ProfileControl.getInstance(pipeline));
+        Assert.assertNull(ProfileControl.getInstance(pipeline + ProfileControl.RUN_SEPARATOR + 0));
+
+        File tmp = FileUtils.getTempDirectory();
+        FileUtils.deleteQuietly(AlgorithmProfileHelper.getControlFile(tmp));
+        FileUtils.deleteQuietly(AlgorithmProfileHelper.getDataFile(tmp));
+    }
+
+    /**
+     * Tests resuming an interrupted profiling campaign.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test(timeout = 5000 + 17 * ProfileControl.KILL_WAITING_TIME) 
+    public void testProfileControlResume() throws IOException {
+        final String pipeline = "TestPip";
+        File testDir = Utils.getTestdataDir();
+        File ctlFile = new File(testDir, "profile.ctl");
+        File dataFile = new File(testDir, "profile.data"); 
+        File stateDir = new File(FileUtils.getTempDirectory(), "qmProfileControlState");
+        FileUtils.deleteQuietly(stateDir);
+        stateDir.mkdirs();
+        configureProfiling(0, stateDir);
+
+        ParseResult parseResult = parse(ctlFile, dataFile);
+        int variations = parseResult.getNumberOfVariations();
+        TestProfileExecution execution = new TestProfileExecution(parseResult, false);
+        ProfileControl control = createControl(pipeline, ctlFile, dataFile, execution);
+        int count = 0;
+        while (control.hasNext() && count < variations / 2) {
+            control.startNext();
+            count++;
+            control.kill(pipeline); // data completely processed
+        }
+        control.startNext();
+        control.killActual(); // interrupted, e.g., by a restart, not completed
+        ProfileControl.releaseInstance(control);
+        Assert.assertTrue(stateDir.list().length > 0);
+
+        control = createControl(pipeline, ctlFile, dataFile, execution);
+        while (control.hasNext()) { // potential endless loop -> timeout
+            control.startNext();
+            count++;
+            control.kill(pipeline); // data completely processed
+        }
+        Assert.assertEquals(variations, count);
+        Assert.assertEquals(variations + 1, execution.started); // interrupted run is repeated
+        execution.assertComplete();
+        ProfileControl.releaseInstance(control);
+        Assert.assertEquals(0, stateDir.list().length); // campaign completed
+
+        FileUtils.deleteQuietly(stateDir);
+        File tmp = FileUtils.getTempDirectory();
+        FileUtils.deleteQuietly(AlgorithmProfileHelper.getControlFile(tmp));
+        FileUtils.deleteQuietly(AlgorithmProfileHelper.getDataFile(tmp));
+    }
     
 }
@@ -171,6 +171,48 @@ public class DataManagementConfiguration extends Configuration {
      */
     public static final String DEFAULT_HBASE_ZNODE_PARENT = "";
     
+    /**
+     * Defines the readahead for streaming HDFS replay sources in bytes.
+     */
+    public static final String HDFS_READAHEAD = "hdfs.readahead";
+
+    /**
+     * The default value for {@link #HDFS_READAHEAD}, {@value}.
+     */
+    public static final int DEFAULT_HDFS_READAHEAD = 4 * 1024 * 1024;
+
+    /**
+     * Defines the UNIX domain socket path enabling short-circuit local reads for HDFS replay sources. Short-circuit
+     * reads are disabled if not given.
+     */
+    public static final String HDFS_DOMAIN_SOCKET = "hdfs.domainSocket";
+
+    /**
+     * The default value for {@link #HDFS_DOMAIN_SOCKET}, {@value}.
+     */
+    public static final String DEFAULT_HDFS_DOMAIN_SOCKET = EMPTY_VALUE;
+
+    /**
+     * Defines whether replay rows are stored in the compact packed encoding (binary key, single value column)
+     * rather than one column per field. Replay stores recorded in one encoding cannot be read in the other.
+     */
+    public static final String REPLAY_PACKED_ROWS = "replay.packedRows";
+
+    /**
+     * The default value for {@link #REPLAY_PACKED_ROWS}, {@value}.
+     */
+    public static final boolean DEFAULT_REPLAY_PACKED_ROWS = false;
+
+    /**
+     * Defines the number of rows fetched and decoded at once when scanning the replay store.
+     */
+    public static final String REPLAY_SCAN_BATCH = "replay.scanBatch";
+
+    /**
+     * The default value for {@link #REPLAY_SCAN_BATCH}, {@value}.
+     */
+    public static final int DEFAULT_REPLAY_SCAN_BATCH = 500;
+
     private static ConfigurationOption<String> hdfsUrl = createStringOption(URL_HDFS, DEFAULT_URL_HDFS);
     private static ConfigurationOption<String> hdfsUser = createStringOption(URL_HDFS_USER, DEFAULT_URL_HDFS_USER);
     private static ConfigurationOption<String> hdfsGroupMapping = createStringOption(URL_HDFS_GROUPMAPPING, 
@@ -194,6 +236,14 @@ public class DataManagementConfiguration extends Configuration {
         = createStringOption(HBASE_ZOOKEEPER_QUORUM, DEFAULT_HBASE_ZOOKEEPER_QUORUM);
     private static ConfigurationOption<String> hbaseZnodeParent
         = createStringOption(HBASE_ZNODE_PARENT, DEFAULT_HBASE_ZNODE_PARENT);
+    private static ConfigurationOption<Integer> hdfsReadahead
+        = createIntegerOption(HDFS_READAHEAD, DEFAULT_HDFS_READAHEAD);
+    private static ConfigurationOption<String> hdfsDomainSocket
+        = createStringOption(HDFS_DOMAIN_SOCKET, DEFAULT_HDFS_DOMAIN_SOCKET);
+    private static ConfigurationOption<Boolean> replayPackedRows
+        = createBooleanOption(REPLAY_PACKED_ROWS, DEFAULT_REPLAY_PACKED_ROWS);
+    private static ConfigurationOption<Integer> replayScanBatch
+        = createIntegerOption(REPLAY_SCAN_BATCH, DEFAULT_REPLAY_SCAN_BATCH);
     
     /**
      * Reads the configuration settings from the file.
@@ -269,6 +319,10 @@ public class DataManagementConfiguration extends Configuration {
         options.setOption(EXTERNAL_SERVICE_TUNNELING, getExternalServicePath());
         options.setOption(HBASE_ZNODE_PARENT, getHbaseZnodeParent());
         options.setOption(HBASE_ZOOKEEPER_QUORUM, getHbaseZkeeperQuorum());
+        options.setOption(HDFS_READAHEAD, getHdfsReadahead());
+        options.setOption(HDFS_DOMAIN_SOCKET, getHdfsDomainSocket());
+        options.setOption(REPLAY_PACKED_ROWS, getReplayPackedRows());
+        options.setOption(REPLAY_SCAN_BATCH, getReplayScanBatch());
     }
 
     /**
@@ -290,6 +344,10 @@ public class DataManagementConfiguration extends Configuration {
         transfer(conf, prop, EXTERNAL_SERVICE_TUNNELING, false);
         transfer(conf, prop, HBASE_ZNODE_PARENT, false);
         transfer(conf, prop, HBASE_ZOOKEEPER_QUORUM, false);
+        transfer(conf, prop, HDFS_READAHEAD, false);
+        transfer(conf, prop, HDFS_DOMAIN_SOCKET, false);
+        transfer(conf, prop, REPLAY_PACKED_ROWS, false);
+        transfer(conf, prop, REPLAY_SCAN_BATCH, false);
         transferConfigurationFrom(conf, prop);
     }
     
@@ -439,4 +497,40 @@ public class DataManagementConfiguration extends Configuration {
         return hbaseZnodeParent.getValue();
     }
 
+    /**
+     * Returns the readahead for streaming HDFS replay sources.
+     * 
+     * @return the readahead in bytes
+     */
+    public static int getHdfsReadahead() {
+        return hdfsReadahead.getValue();
+    }
+
+    /**
+     * Returns the UNIX domain socket path for short-circuit local HDFS reads.
+     * 
+     * @return the domain socket path (may be empty if short-circuit reads shall not be used)
+     */
+    public static String getHdfsDomainSocket() {
+        return hdfsDomainSocket.getValue();
+    }
+
+    /**
+     * Returns whether replay rows shall be stored in the compact packed encoding.
+     * 
+     * @return <code>true</code> for the packed encoding, <code>false</code> for one column per field
+     */
+    public static boolean getReplayPackedRows() {
+        return replayPackedRows.getValue();
+    }
+
+    /**
+     * Returns the number of rows fetched and decoded at once when scanning the replay store.
+     * 
+     * @return the number of rows
+     */
+    public static int getReplayScanBatch() {
+        return replayScanBatch.getValue();
+    }
+
 }
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.dataManagement.common.replay;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock pacing replayed items. The clock operates either on the item timestamps scaled by a speed factor, with a
+ * fixed rate of items per second regardless of the item timestamps or as fast as possible. Pacing relies on
+ * {@link System#nanoTime()}, parks the calling thread until shortly before the due time and spins for the remainder
+ * to achieve sub-millisecond accuracy. Pacing is related to the first item (start of the clock), i.e., delays of
+ * individual items do not accumulate. The clock records the achieved and the requested rate. Configuring the clock
+ * resets it, i.e., the next item starts the clock again.
+ *
+ * @author Holger Eichelberger
+ */
+public class ReplayClock {
+
+    /**
+     * The pacing modes.
+     *
+     * @author Holger Eichelberger
+     */
+    public enum Mode {
+
+        /**
+         * Paces according to the item timestamps, scaled by the speed factor.
+         */
+        SPEED,
+
+        /**
+         * Paces with a fixed rate of items per second.
+         */
+        FIXED_RATE,
+
+        /**
+         * Does not pace at all.
+         */
+        AS_FAST_AS_POSSIBLE
+    }
+
+    /**
+     * The remaining time (in nanoseconds) below which the clock spins rather than parks.
+     */
+    public static final long SPIN_THRESHOLD = 200000L;
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+
+    private Mode mode = Mode.SPEED;
+    private double speedFactor = 1;
+    private double fixedRate;
+
+    private boolean started;
+    private long startNanos;
+    private long startMillis;
+    private long startTimestamp;
+    private long lastTimestamp;
+    private long lastNanos;
+    private long count;
+
+    /**
+     * Creates a real-time clock, i.e., speed factor 1.
+     */
+    public ReplayClock() {
+    }
+
+    /**
+     * Changes the speed following the replay signal conventions.
+     *
+     * @param speed the speed, positive values speed up, negative values slow down (e.g., <code>-2</code> halves
+     *   the speed), <code>0</code> switches to {@link Mode#AS_FAST_AS_POSSIBLE}
+     */
+    public void setSpeed(double speed) {
+        if (speed > 0) {
+            setSpeedFactor(speed);
+        } else if (speed < 0) {
+            setSpeedFactor(-1.0 / speed);
+        } else {
+            setAsFastAsPossible();
+        }
+    }
+
+    /**
+     * Changes the speed factor and switches to {@link Mode#SPEED}.
+     *
+     * @param speedFactor the speed factor, e.g., <code>10</code> for ten times faster than the timestamps indicate
+     * @throws IllegalArgumentException if <code>speedFactor</code> is not positive
+     */
+    public synchronized void setSpeedFactor(double speedFactor) {
+        if (speedFactor <= 0) {
+            throw new IllegalArgumentException("speed factor must be positive");
+        }
+        this.mode = Mode.SPEED;
+        this.speedFactor = speedFactor;
+        reset();
+    }
+
+    /**
+     * Switches to {@link Mode#FIXED_RATE}.
+     *
+     * @param itemsPerSecond the rate in items per second
+     * @throws IllegalArgumentException if <code>itemsPerSecond</code> is not positive
+     */
+    public synchronized void setFixedRate(double itemsPerSecond) {
+        if (itemsPerSecond <= 0) {
+            throw new IllegalArgumentException("rate must be positive");
+        }
+        this.mode = Mode.FIXED_RATE;
+        this.fixedRate = itemsPerSecond;
+        reset();
+    }
+
+    /**
+     * Switches to {@link Mode#AS_FAST_AS_POSSIBLE}.
+     */
+    public synchronized void setAsFastAsPossible() {
+        this.mode = Mode.AS_FAST_AS_POSSIBLE;
+        reset();
+    }
+
+    /**
+     * Returns the pacing mode.
+     *
+     * @return the mode
+     */
+    public synchronized Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the speed factor.
+     *
+     * @return the speed factor (relevant in {@link Mode#SPEED})
+     */
+    public synchronized double getSpeedFactor() {
+        return speedFactor;
+    }
+
+    /**
+     * Returns the fixed rate.
+     *
+     * @return the fixed rate in items per second (relevant in {@link Mode#FIXED_RATE})
+     */
+    public synchronized double getFixedRate() {
+        return fixedRate;
+    }
+
+    /**
+     * Resets the clock, i.e., the next item will start the clock.
+     */
+    public synchronized void reset() {
+        started = false;
+        count = 0;
+    }
+
+    /**
+     * Returns whether the clock is started.
+     *
+     * @return <code>true</code> if started, <code>false</code> else
+     */
+    public synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Starts the clock with the given item, i.e., the item is due now.
+     *
+     * @param timestamp the timestamp of the first item
+     */
+    public synchronized void start(long timestamp) {
+        started = true;
+        startNanos = System.nanoTime();
+        startMillis = System.currentTimeMillis();
+        startTimestamp = timestamp;
+        lastTimestamp = timestamp;
+        lastNanos = startNanos;
+        count = 0;
+    }
+
+    /**
+     * Returns the due time of the next item in terms of {@link System#nanoTime()}. Starts the clock if required.
+     *
+     * @param timestamp the timestamp of the next item
+     * @return the due time
+     */
+    private synchronized long nextDueNanos(long timestamp) {
+        long result;
+        if (!started) {
+            start(timestamp);
+            result = startNanos;
+        } else {
+            count++;
+            lastTimestamp = timestamp;
+            result = startNanos + offsetNanos(timestamp, count);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the offset of an item from the start of the clock.
+     *
+     * @param timestamp the timestamp of the item
+     * @param index the index of the item since the start of the clock
+     * @return the offset in nanoseconds
+     */
+    private long offsetNanos(long timestamp, long index) {
+        long result;
+        switch (mode) {
+        case SPEED:
+            result = (long) ((timestamp - startTimestamp) * NANOS_PER_MILLI / speedFactor);
+            break;
+        case FIXED_RATE:
+            result = (long) (index * NANOS_PER_SECOND / fixedRate);
+            break;
+        default:
+            result = 0;
+            break;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the wall-clock time the next item is due, e.g., to adjust the timestamp of the item. Does not modify
+     * the clock.
+     *
+     * @param timestamp the timestamp of the item
+     * @return the due time in milliseconds since the epoch
+     */
+    public synchronized long getDueTime(long timestamp) {
+        long result;
+        if (!started || Mode.AS_FAST_AS_POSSIBLE == mode) {
+            result = System.currentTimeMillis();
+        } else {
+            result = startMillis + (long) (offsetNanos(timestamp, count + 1) / NANOS_PER_MILLI);
+        }
+        return result;
+    }
+
+    /**
+     * Waits until the next item is due. The first item after starting or resetting the clock is due immediately.
+     *
+     * @param timestamp the timestamp of the item
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public void await(long timestamp) throws InterruptedException {
+        parkUntil(nextDueNanos(timestamp)); // due at start if as fast as possible
+        synchronized (this) {
+            lastNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Parks the calling thread until <code>deadline</code> and spins for the last {@link #SPIN_THRESHOLD}
+     * nanoseconds.
+     *
+     * @param deadline the deadline in terms of {@link System#nanoTime()}
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public static void parkUntil(long deadline) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        while (remaining > 0) {
+            if (remaining > SPIN_THRESHOLD) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+            } else {
+                Thread.yield();
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns the achieved rate since the start of the clock.
+     *
+     * @return the achieved rate in items per second, <code>0</code> if not determinable yet
+     */
+    public synchronized double getAchievedRate() {
+        double result = 0;
+        long elapsed = lastNanos - startNanos;
+        if (started && count > 0 && elapsed > 0) {
+            result = count * NANOS_PER_SECOND / elapsed;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the requested rate since the start of the clock.
+     *
+     * @return the requested rate in items per second, <code>0</code> if not determinable yet,
+     *   {@link Double#POSITIVE_INFINITY} in {@link Mode#AS_FAST_AS_POSSIBLE}
+     */
+    public synchronized double getRequestedRate() {
+        double result = 0;
+        switch (mode) {
+        case SPEED:
+            long span = lastTimestamp - startTimestamp;
+            if (started && count > 0 && span > 0) {
+                result = count * 1000.0 * speedFactor / span;
+            }
+            break;
+        case FIXED_RATE:
+            result = fixedRate;
+            break;
+        default:
+            result = Double.POSITIVE_INFINITY;
+            break;
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ReplayClock " + mode + " speed " + speedFactor + " rate " + fixedRate;
+    }
+
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.dataManagement.sinks.replay;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import eu.qualimaster.dataManagement.common.replay.Field;
+import eu.qualimaster.dataManagement.common.replay.Tuple;
+import eu.qualimaster.dataManagement.serialization.IDataInput;
+
+/**
+ * Decodes a packed replay row (see {@link PackedRows}) as written by {@link PackedRowEncoder}. Fields must be read
+ * in the sequence of the schema. Key fields are decoded from the row key, the remaining fields are read
+ * positionally from the packed value column, i.e., no per-field lookup is needed. This class is not thread-safe.
+ *
+ * @author Holger Eichelberger
+ */
+public class PackedRowDecoder implements IDataInput {
+
+    private Field[] fields;
+    private int idx;
+    private long timestamp;
+    private PackedRows.Reader key = new PackedRows.Reader();
+    private PackedRows.Reader value = new PackedRows.Reader();
+    private boolean hasRow;
+
+    /**
+     * Creates a decoder.
+     *
+     * @param schema the schema of the tuples
+     */
+    public PackedRowDecoder(Tuple schema) {
+        fields = schema.getFields().toArray(new Field[schema.getFields().size()]);
+    }
+
+    /**
+     * Defines the row to be decoded next.
+     *
+     * @param key the binary row key
+     * @param value the packed value column (may be <b>null</b> if there are only key and timestamp fields)
+     */
+    public void setRow(byte[] key, byte[] value) {
+        this.key.reset(key);
+        this.value.reset(value);
+        this.timestamp = PackedRows.getTimestamp(key);
+        idx = 0;
+        hasRow = true;
+    }
+
+    /**
+     * Returns the timestamp of the actual row.
+     *
+     * @return the timestamp
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the actual field and moves to the next one.
+     *
+     * @return the actual field
+     * @throws IOException if there is no row to decode
+     */
+    private Field next() throws IOException {
+        if (!hasRow) {
+            throw new IOException("No packed row to decode");
+        }
+        Field result = fields[idx++];
+        if (idx == fields.length) {
+            idx = 0;
+            hasRow = false;
+        }
+        return result;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        Field field = next();
+        int result;
+        if (field.isKey()) {
+            result = key.getInt() ^ Integer.MIN_VALUE;
+        } else if (field.isTimesamp()) {
+            result = (int) timestamp;
+        } else {
+            result = value.getInt();
+        }
+        return result;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        Field field = next();
+        long result;
+        if (field.isKey()) {
+            result = key.getLong() ^ Long.MIN_VALUE;
+        } else if (field.isTimesamp()) {
+            result = timestamp;
+        } else {
+            result = value.getLong();
+        }
+        return result;
+    }
+
+    @Override
+    public short nextShort() throws IOException {
+        Field field = next();
+        short result;
+        if (field.isKey()) {
+            result = (short) (key.getShort() ^ Short.MIN_VALUE);
+        } else if (field.isTimesamp()) {
+            result = (short) timestamp;
+        } else {
+            result = value.getShort();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        return 0 != (next().isKey() ? key : value).getByte();
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        double result;
+        if (next().isKey()) {
+            result = PackedRows.fromOrdered(key.getLong());
+        } else {
+            result = Double.longBitsToDouble(value.getLong());
+        }
+        return result;
+    }
+
+    @Override
+    public float nextFloat() throws IOException {
+        float result;
+        if (next().isKey()) {
+            result = PackedRows.fromOrdered(key.getInt());
+        } else {
+            result = Float.intBitsToFloat(value.getInt());
+        }
+        return result;
+    }
+
+    @Override
+    public char nextChar() throws IOException {
+        return (char) (next().isKey() ? key : value).getShort();
+    }
+
+    @Override
+    public byte nextByte() throws IOException {
+        byte result;
+        if (next().isKey()) {
+            result = (byte) (key.getByte() ^ Byte.MIN_VALUE);
+        } else {
+            result = value.getByte();
+        }
+        return result;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        Field field = next();
+        String result;
+        if (field.isKey()) {
+            result = key.getOrderedString();
+        } else if (field.isTimesamp()) {
+            result = String.valueOf(timestamp); // as in the per-column layout
+        } else {
+            result = value.getString();
+        }
+        return result;
+    }
+
+    @Override
+    public long[] nextLongArray() throws IOException {
+        long[] result;
+        if (next().isKey()) {
+            ElementCollector buf = new ElementCollector();
+            while (key.hasElement()) {
+                buf.add(key.getLong() ^ Long.MIN_VALUE);
+            }
+            result = buf.toLongs();
+        } else {
+            result = new long[value.getInt()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = value.getLong();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int[] nextIntArray() throws IOException {
+        int[] result;
+        if (next().isKey()) {
+            ElementCollector buf = new ElementCollector();
+            while (key.hasElement()) {
+                buf.add(key.getInt() ^ Integer.MIN_VALUE);
+            }
+            result = buf.toInts();
+        } else {
+            result = new int[value.getInt()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = value.getInt();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public short[] nextShortArray() throws IOException {
+        short[] result;
+        if (next().isKey()) {
+            ElementCollector buf = new ElementCollector();
+            while (key.hasElement()) {
+                buf.add(key.getShort() ^ Short.MIN_VALUE);
+            }
+            result = buf.toShorts();
+        } else {
+            result = new short[value.getInt()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = value.getShort();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public char[] nextCharArray() throws IOException {
+        char[] result;
+        if (next().isKey()) {
+            ElementCollector buf = new ElementCollector();
+            while (key.hasElement()) {
+                buf.add(key.getShort() & 0xFFFF);
+            }
+            result = buf.toChars();
+        } else {
+            result = new char[value.getInt()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (char) value.getShort();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public byte[] nextByteArray() throws IOException {
+        byte[] result;
+        if (next().isKey()) {
+            ElementCollector buf = new ElementCollector();
+            while (key.hasElement()) {
+                buf.add(key.getByte() ^ Byte.MIN_VALUE);
+            }
+            result = buf.toBytes();
+        } else {
+            result = value.getBytes();
+        }
+        return result;
+    }
+
+    @Override
+    public String[] nextStringArray() throws IOException {
+        String[] result;
+        if (next().isKey()) {
+            List<String> tmp = new ArrayList<String>();
+            while (key.hasElement()) {
+                tmp.add(key.getOrderedString());
+            }
+            result = tmp.toArray(new String[tmp.size()]);
+        } else {
+            result = new String[value.getInt()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = value.getString();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean[] nextBooleanArray() throws IOException {
+        next();
+        boolean[] result = new boolean[value.getInt()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = 0 != value.getByte();
+        }
+        return result;
+    }
+
+    @Override
+    public double[] nextDoubleArray() throws IOException {
+        next();
+        double[] result = new double[value.getInt()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Double.longBitsToDouble(value.getLong());
+        }
+        return result;
+    }
+
+    @Override
+    public float[] nextFloatArray() throws IOException {
+        next();
+        float[] result = new float[value.getInt()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Float.intBitsToFloat(value.getInt());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isEOD() {
+        return !hasRow;
+    }
+
+    /**
+     * Collects the elements of integral key arrays, whose length is not stored in the key.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class ElementCollector {
+
+        private long[] data = new long[8];
+        private int size;
+
+        /**
+         * Adds an element.
+         *
+         * @param element the element
+         */
+        private void add(long element) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, 2 * size);
+            }
+            data[size++] = element;
+        }
+
+        /**
+         * Returns the elements as long array.
+         *
+         * @return the elements
+         */
+        private long[] toLongs() {
+            return Arrays.copyOf(data, size);
+        }
+
+        /**
+         * Returns the elements as int array.
+         *
+         * @return the elements
+         */
+        private int[] toInts() {
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = (int) data[i];
+            }
+            return result;
+        }
+
+        /**
+         * Returns the elements as short array.
+         *
+         * @return the elements
+         */
+        private short[] toShorts() {
+            short[] result = new short[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = (short) data[i];
+            }
+            return result;
+        }
+
+        /**
+         * Returns the elements as char array.
+         *
+         * @return the elements
+         */
+        private char[] toChars() {
+            char[] result = new char[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = (char) data[i];
+            }
+            return result;
+        }
+
+        /**
+         * Returns the elements as byte array.
+         *
+         * @return the elements
+         */
+        private byte[] toBytes() {
+            byte[] result = new byte[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = (byte) data[i];
+            }
+            return result;
+        }
+
+    }
+
+}
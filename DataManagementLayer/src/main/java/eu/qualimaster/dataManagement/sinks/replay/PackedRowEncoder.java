@@ -0,0 +1,337 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.dataManagement.sinks.replay;
+
+import java.io.IOException;
+
+import eu.qualimaster.dataManagement.common.replay.Field;
+import eu.qualimaster.dataManagement.common.replay.ReplayUtils;
+import eu.qualimaster.dataManagement.common.replay.Tuple;
+import eu.qualimaster.dataManagement.serialization.IDataOutput;
+
+/**
+ * Encodes serialized tuples into packed replay rows (see {@link PackedRows}). Fields must be written in the
+ * sequence of the schema. As in the per-column layout, rows containing <b>null</b> values or unparseable
+ * timestamps are skipped. Only integral and string fields act as timestamp fields, timestamp fields of other types
+ * are stored as values. This class is not thread-safe.
+ *
+ * @author Holger Eichelberger
+ */
+public abstract class PackedRowEncoder implements IDataOutput {
+
+    private Field[] fields;
+    private int idx;
+    private boolean hasNull;
+    private long timestamp;
+    private PackedRows.Buffer key = new PackedRows.Buffer();
+    private PackedRows.Buffer value = new PackedRows.Buffer();
+
+    /**
+     * Creates an encoder.
+     *
+     * @param schema the schema of the tuples
+     */
+    protected PackedRowEncoder(Tuple schema) {
+        fields = schema.getFields().toArray(new Field[schema.getFields().size()]);
+    }
+
+    /**
+     * Called when a row is completely encoded.
+     *
+     * @param key the binary row key
+     * @param value the packed value column
+     * @throws IOException if writing the row fails
+     */
+    protected abstract void writeRow(byte[] key, byte[] value) throws IOException;
+
+    /**
+     * Moves to the next field and writes the row if all fields are encoded.
+     *
+     * @throws IOException if writing the row fails
+     */
+    private void next() throws IOException {
+        idx++;
+        if (idx == fields.length) {
+            if (!hasNull) {
+                key.putLong(timestamp ^ Long.MIN_VALUE);
+                writeRow(key.toByteArray(), value.toByteArray());
+            }
+            hasNull = false;
+            timestamp = 0;
+            key.reset();
+            value.reset();
+            idx = 0;
+        }
+    }
+
+    /**
+     * Marks the actual row as incomplete if <code>object</code> is <b>null</b>.
+     *
+     * @param object the object to check
+     * @return <code>true</code> if <code>object</code> is <b>null</b>, <code>false</code> else
+     */
+    private boolean isNull(Object object) {
+        if (null == object) {
+            hasNull = true;
+        }
+        return hasNull;
+    }
+
+    @Override
+    public void writeInt(int value) throws IOException {
+        Field field = fields[idx];
+        if (field.isKey()) {
+            key.putInt(value ^ Integer.MIN_VALUE);
+        } else if (field.isTimesamp()) {
+            timestamp = ReplayUtils.getTimestamp(field, value);
+        } else {
+            this.value.putInt(value);
+        }
+        next();
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+        Field field = fields[idx];
+        if (field.isKey()) {
+            key.putLong(value ^ Long.MIN_VALUE);
+        } else if (field.isTimesamp()) {
+            timestamp = ReplayUtils.getTimestamp(field, value);
+        } else {
+            this.value.putLong(value);
+        }
+        next();
+    }
+
+    @Override
+    public void writeShort(short value) throws IOException {
+        Field field = fields[idx];
+        if (field.isKey()) {
+            key.putShort(value ^ Short.MIN_VALUE);
+        } else if (field.isTimesamp()) {
+            timestamp = ReplayUtils.getTimestamp(field, value);
+        } else {
+            this.value.putShort(value);
+        }
+        next();
+    }
+
+    @Override
+    public void writeBoolean(boolean value) throws IOException {
+        (fields[idx].isKey() ? key : this.value).putByte(value ? 1 : 0);
+        next();
+    }
+
+    @Override
+    public void writeDouble(double value) throws IOException {
+        if (fields[idx].isKey()) {
+            key.putLong(PackedRows.toOrdered(value));
+        } else {
+            this.value.putLong(Double.doubleToLongBits(value));
+        }
+        next();
+    }
+
+    @Override
+    public void writeFloat(float value) throws IOException {
+        if (fields[idx].isKey()) {
+            key.putInt(PackedRows.toOrdered(value));
+        } else {
+            this.value.putInt(Float.floatToIntBits(value));
+        }
+        next();
+    }
+
+    @Override
+    public void writeChar(char value) throws IOException {
+        (fields[idx].isKey() ? key : this.value).putShort(value);
+        next();
+    }
+
+    @Override
+    public void writeByte(byte value) throws IOException {
+        if (fields[idx].isKey()) {
+            key.putByte(value ^ Byte.MIN_VALUE);
+        } else {
+            this.value.putByte(value);
+        }
+        next();
+    }
+
+    @Override
+    public void writeString(String value) throws IOException {
+        Field field = fields[idx];
+        if (!isNull(value)) {
+            if (field.isKey()) {
+                key.putOrderedString(value);
+            } else if (field.isTimesamp()) {
+                try {
+                    timestamp = ReplayUtils.getTimestamp(field, value);
+                } catch (IllegalArgumentException e) {
+                    hasNull = true;
+                }
+            } else {
+                this.value.putBytes(value.getBytes(PackedRows.CHARSET));
+            }
+        }
+        next();
+    }
+
+    @Override
+    public void writeLongArray(long[] array) throws IOException {
+        if (!isNull(array)) {
+            if (fields[idx].isKey()) {
+                for (int i = 0; i < array.length; i++) {
+                    key.putElement();
+                    key.putLong(array[i] ^ Long.MIN_VALUE);
+                }
+                key.putEnd();
+            } else {
+                value.putInt(array.length);
+                for (int i = 0; i < array.length; i++) {
+                    value.putLong(array[i]);
+                }
+            }
+        }
+        next();
+    }
+
+    @Override
+    public void writeIntArray(int[] array) throws IOException {
+        if (!isNull(array)) {
+            if (fields[idx].isKey()) {
+                for (int i = 0; i < array.length; i++) {
+                    key.putElement();
+                    key.putInt(array[i] ^ Integer.MIN_VALUE);
+                }
+                key.putEnd();
+            } else {
+                value.putInt(array.length);
+                for (int i = 0; i < array.length; i++) {
+                    value.putInt(array[i]);
+                }
+            }
+        }
+        next();
+    }
+
+    @Override
+    public void writeShortArray(short[] array) throws IOException {
+        if (!isNull(array)) {
+            if (fields[idx].isKey()) {
+                for (int i = 0; i < array.length; i++) {
+                    key.putElement();
+                    key.putShort(array[i] ^ Short.MIN_VALUE);
+                }
+                key.putEnd();
+            } else {
+                value.putInt(array.length);
+                for (int i = 0; i < array.length; i++) {
+                    value.putShort(array[i]);
+                }
+            }
+        }
+        next();
+    }
+
+    @Override
+    public void writeCharArray(char[] array) throws IOException {
+        if (!isNull(array)) {
+            if (fields[idx].isKey()) {
+                for (int i = 0; i < array.length; i++) {
+                    key.putElement();
+                    key.putShort(array[i]);
+                }
+                key.putEnd();
+            } else {
+                value.putInt(array.length);
+                for (int i = 0; i < array.length; i++) {
+                    value.putShort(array[i]);
+                }
+            }
+        }
+        next();
+    }
+
+    @Override
+    public void writeStringArray(String[] array) throws IOException {
+        if (!isNull(array)) {
+            if (fields[idx].isKey()) {
+                for (int i = 0; i < array.length; i++) {
+                    key.putElement();
+                    key.putOrderedString(null == array[i] ? "" : array[i]);
+                }
+                key.putEnd();
+            } else {
+                value.putInt(array.length);
+                for (int i = 0; i < array.length; i++) {
+                    value.putBytes((null == array[i] ? "" : array[i]).getBytes(PackedRows.CHARSET));
+                }
+            }
+        }
+        next();
+    }
+
+    @Override
+    public void writeBooleanArray(boolean[] array) throws IOException {
+        if (!isNull(array)) { // neither key nor timestamp as in the per-column layout
+            value.putInt(array.length);
+            for (int i = 0; i < array.length; i++) {
+                value.putByte(array[i] ? 1 : 0);
+            }
+        }
+        next();
+    }
+
+    @Override
+    public void writeDoubleArray(double[] array) throws IOException {
+        if (!isNull(array)) { // neither key nor timestamp as in the per-column layout
+            value.putInt(array.length);
+            for (int i = 0; i < array.length; i++) {
+                value.putLong(Double.doubleToLongBits(array[i]));
+            }
+        }
+        next();
+    }
+
+    @Override
+    public void writeFloatArray(float[] array) throws IOException {
+        if (!isNull(array)) { // neither key nor timestamp as in the per-column layout
+            value.putInt(array.length);
+            for (int i = 0; i < array.length; i++) {
+                value.putInt(Float.floatToIntBits(array[i]));
+            }
+        }
+        next();
+    }
+
+    @Override
+    public void writeByteArray(byte[] array) throws IOException {
+        if (!isNull(array)) {
+            if (fields[idx].isKey()) {
+                for (int i = 0; i < array.length; i++) {
+                    key.putElement();
+                    key.putByte(array[i] ^ Byte.MIN_VALUE);
+                }
+                key.putEnd();
+            } else {
+                value.putBytes(array);
+            }
+        }
+        next();
+    }
+
+}
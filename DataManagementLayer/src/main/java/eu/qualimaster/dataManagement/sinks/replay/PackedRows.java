@@ -0,0 +1,453 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.dataManagement.sinks.replay;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+import eu.qualimaster.dataManagement.common.replay.Field;
+import eu.qualimaster.dataManagement.common.replay.Tuple;
+
+/**
+ * Constants and helpers for the packed replay row encoding. A packed row consists of
+ * <ul>
+ *   <li>a binary, order-preserving row key, i.e., the key fields in schema sequence followed by the timestamp as
+ *     8 bytes so that byte-wise comparison (as done by HBase) corresponds to the natural order of the key values
+ *     and, per key, to the time order,</li>
+ *   <li>a single value column {@link #COLUMN} containing the remaining fields packed in schema sequence (fixed
+ *     width for primitives, length-prefixed for strings and arrays).</li>
+ * </ul>
+ * Order-preserving key encoding: integral numbers are stored big endian with inverted sign bit, floating point
+ * numbers by their IEEE bits with inverted sign bit (all bits inverted for negative numbers), strings as UTF-8
+ * with escaped zero bytes and a two-byte terminator, arrays as sequence of elements marked by a leading
+ * <code>1</code> and terminated by <code>0</code>.
+ *
+ * @author Holger Eichelberger
+ */
+public class PackedRows {
+
+    /**
+     * The column qualifier of the packed value column.
+     */
+    public static final byte[] COLUMN = {'p'};
+
+    static final int TIMESTAMP_LENGTH = 8;
+    static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final byte ESCAPE = 0;
+    private static final byte ESCAPED_ZERO = (byte) 0xFF;
+    private static final byte TERMINATOR = 0;
+    private static final byte ELEMENT = 1;
+
+    /**
+     * Prevents external creation.
+     */
+    private PackedRows() {
+    }
+
+    /**
+     * A growable byte buffer for encoding rows. Instances are intended to be reused.
+     *
+     * @author Holger Eichelberger
+     */
+    static class Buffer {
+
+        private byte[] data = new byte[64];
+        private int length;
+
+        /**
+         * Ensures that <code>count</code> further bytes fit into the buffer.
+         *
+         * @param count the number of bytes
+         */
+        private void ensure(int count) {
+            if (length + count > data.length) {
+                byte[] tmp = new byte[Math.max(data.length * 2, length + count)];
+                System.arraycopy(data, 0, tmp, 0, length);
+                data = tmp;
+            }
+        }
+
+        /**
+         * Appends a byte.
+         *
+         * @param value the value
+         */
+        void putByte(int value) {
+            ensure(1);
+            data[length++] = (byte) value;
+        }
+
+        /**
+         * Appends a short value (big endian).
+         *
+         * @param value the value
+         */
+        void putShort(int value) {
+            ensure(2);
+            data[length++] = (byte) (value >>> 8);
+            data[length++] = (byte) value;
+        }
+
+        /**
+         * Appends an int value (big endian).
+         *
+         * @param value the value
+         */
+        void putInt(int value) {
+            ensure(4);
+            data[length++] = (byte) (value >>> 24);
+            data[length++] = (byte) (value >>> 16);
+            data[length++] = (byte) (value >>> 8);
+            data[length++] = (byte) value;
+        }
+
+        /**
+         * Appends a long value (big endian).
+         *
+         * @param value the value
+         */
+        void putLong(long value) {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        /**
+         * Appends bytes prefixed by their length.
+         *
+         * @param bytes the bytes
+         */
+        void putBytes(byte[] bytes) {
+            putInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, data, length, bytes.length);
+            length += bytes.length;
+        }
+
+        /**
+         * Appends an order-preserving string, i.e., zero bytes are escaped and the string is terminated.
+         *
+         * @param value the value
+         */
+        void putOrderedString(String value) {
+            byte[] bytes = value.getBytes(CHARSET);
+            ensure(2 * bytes.length + 2); // worst case: all bytes escaped
+            for (int b = 0; b < bytes.length; b++) {
+                if (ESCAPE == bytes[b]) {
+                    putByte(ESCAPE);
+                    putByte(ESCAPED_ZERO);
+                } else {
+                    data[length++] = bytes[b];
+                }
+            }
+            putByte(ESCAPE);
+            putByte(TERMINATOR);
+        }
+
+        /**
+         * Appends an order-preserving array element marker.
+         */
+        void putElement() {
+            putByte(ELEMENT);
+        }
+
+        /**
+         * Appends an order-preserving array terminator.
+         */
+        void putEnd() {
+            putByte(TERMINATOR);
+        }
+
+        /**
+         * Returns the number of bytes in this buffer.
+         *
+         * @return the number of bytes
+         */
+        int length() {
+            return length;
+        }
+
+        /**
+         * Returns a copy of the buffer contents.
+         *
+         * @return the contents
+         */
+        byte[] toByteArray() {
+            byte[] result = new byte[length];
+            System.arraycopy(data, 0, result, 0, length);
+            return result;
+        }
+
+        /**
+         * Empties this buffer.
+         */
+        void reset() {
+            length = 0;
+        }
+
+    }
+
+    /**
+     * A sequential reader on a byte array, the counterpart of {@link Buffer}.
+     *
+     * @author Holger Eichelberger
+     */
+    static class Reader {
+
+        private byte[] data;
+        private int pos;
+
+        /**
+         * Resets the reader to the given data.
+         *
+         * @param data the data to read from (may be <b>null</b> for none)
+         */
+        void reset(byte[] data) {
+            this.data = data;
+            this.pos = 0;
+        }
+
+        /**
+         * Reads a byte.
+         *
+         * @return the byte
+         */
+        byte getByte() {
+            return data[pos++];
+        }
+
+        /**
+         * Reads a short value (big endian).
+         *
+         * @return the value
+         */
+        short getShort() {
+            return (short) (((data[pos++] & 0xFF) << 8) | (data[pos++] & 0xFF));
+        }
+
+        /**
+         * Reads an int value (big endian).
+         *
+         * @return the value
+         */
+        int getInt() {
+            return ((data[pos++] & 0xFF) << 24) | ((data[pos++] & 0xFF) << 16) | ((data[pos++] & 0xFF) << 8)
+                | (data[pos++] & 0xFF);
+        }
+
+        /**
+         * Reads a long value (big endian).
+         *
+         * @return the value
+         */
+        long getLong() {
+            long high = getInt();
+            return (high << 32) | (getInt() & 0xFFFFFFFFL);
+        }
+
+        /**
+         * Reads length-prefixed bytes.
+         *
+         * @return the bytes
+         */
+        byte[] getBytes() {
+            int len = getInt();
+            byte[] result = new byte[len];
+            System.arraycopy(data, pos, result, 0, len);
+            pos += len;
+            return result;
+        }
+
+        /**
+         * Reads a length-prefixed UTF-8 string.
+         *
+         * @return the string
+         */
+        String getString() {
+            int len = getInt();
+            String result = new String(data, pos, len, CHARSET);
+            pos += len;
+            return result;
+        }
+
+        /**
+         * Reads an order-preserving string.
+         *
+         * @return the string
+         */
+        String getOrderedString() {
+            int start = pos;
+            boolean escaped = false;
+            while (!(ESCAPE == data[pos] && TERMINATOR == data[pos + 1])) {
+                if (ESCAPE == data[pos]) {
+                    escaped = true;
+                    pos++;
+                }
+                pos++;
+            }
+            String result;
+            if (escaped) {
+                Buffer tmp = new Buffer();
+                for (int b = start; b < pos; b++) {
+                    tmp.putByte(data[b]);
+                    if (ESCAPE == data[b]) {
+                        b++; // skip ESCAPED_ZERO
+                    }
+                }
+                result = new String(tmp.data, 0, tmp.length, CHARSET);
+            } else {
+                result = new String(data, start, pos - start, CHARSET);
+            }
+            pos += 2;
+            return result;
+        }
+
+        /**
+         * Returns whether a further order-preserving array element follows. Consumes the element marker or the
+         * terminator.
+         *
+         * @return <code>true</code> if an element follows, <code>false</code> if the array ends
+         */
+        boolean hasElement() {
+            return ELEMENT == data[pos++];
+        }
+
+    }
+
+    /**
+     * Turns a double into a long preserving the order under signed comparison of the inverted sign bit.
+     *
+     * @param value the value
+     * @return the ordered bits
+     */
+    static long toOrdered(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    /**
+     * Reverts {@link #toOrdered(double)}.
+     *
+     * @param bits the ordered bits
+     * @return the value
+     */
+    static double fromOrdered(long bits) {
+        return Double.longBitsToDouble(bits ^ (((~bits) >> 63) | Long.MIN_VALUE));
+    }
+
+    /**
+     * Turns a float into an int preserving the order under signed comparison of the inverted sign bit.
+     *
+     * @param value the value
+     * @return the ordered bits
+     */
+    static int toOrdered(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+    }
+
+    /**
+     * Reverts {@link #toOrdered(float)}.
+     *
+     * @param bits the ordered bits
+     * @return the value
+     */
+    static float fromOrdered(int bits) {
+        return Float.intBitsToFloat(bits ^ (((~bits) >> 31) | Integer.MIN_VALUE));
+    }
+
+    /**
+     * Returns the timestamp of a packed row key.
+     *
+     * @param key the row key
+     * @return the timestamp
+     */
+    public static long getTimestamp(byte[] key) {
+        long result = 0;
+        for (int b = key.length - TIMESTAMP_LENGTH; b < key.length; b++) {
+            result = (result << 8) | (key[b] & 0xFF);
+        }
+        return result ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Encodes a packed row key from textual key values, e.g., to turn a replay query into a row range.
+     *
+     * @param schema the schema
+     * @param keys the key values in the sequence of the key fields in <code>schema</code>
+     * @param timestamp the timestamp
+     * @return the packed row key
+     * @throws IllegalArgumentException if the number of key values does not match the schema, if a key value
+     *   cannot be converted or if the type of a key field is not supported
+     */
+    public static byte[] encodeKey(Tuple schema, String[] keys, long timestamp) {
+        Buffer buffer = new Buffer();
+        int k = 0;
+        List<Field> fields = schema.getFields();
+        for (int f = 0; f < fields.size(); f++) {
+            Field field = fields.get(f);
+            if (field.isKey()) {
+                if (k >= keys.length) {
+                    throw new IllegalArgumentException("Too few key values for " + schema.getName());
+                }
+                encodeKey(buffer, field, keys[k++]);
+            }
+        }
+        if (k != keys.length) {
+            throw new IllegalArgumentException("Too many key values for " + schema.getName());
+        }
+        buffer.putLong(timestamp ^ Long.MIN_VALUE);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Encodes a textual key value.
+     *
+     * @param buffer the target buffer
+     * @param field the key field
+     * @param value the value
+     * @throws IllegalArgumentException if the value cannot be converted or the type of <code>field</code> is not
+     *   supported
+     */
+    private static void encodeKey(Buffer buffer, Field field, String value) {
+        Class<?> type = field.getType();
+        if (String.class == type) {
+            buffer.putOrderedString(value);
+        } else if (Integer.class == type || Integer.TYPE == type) {
+            buffer.putInt(Integer.parseInt(value) ^ Integer.MIN_VALUE);
+        } else if (Long.class == type || Long.TYPE == type) {
+            buffer.putLong(Long.parseLong(value) ^ Long.MIN_VALUE);
+        } else if (Short.class == type || Short.TYPE == type) {
+            buffer.putShort(Short.parseShort(value) ^ Short.MIN_VALUE);
+        } else if (Byte.class == type || Byte.TYPE == type) {
+            buffer.putByte(Byte.parseByte(value) ^ Byte.MIN_VALUE);
+        } else if (Double.class == type || Double.TYPE == type) {
+            buffer.putLong(toOrdered(Double.parseDouble(value)));
+        } else if (Float.class == type || Float.TYPE == type) {
+            buffer.putInt(toOrdered(Float.parseFloat(value)));
+        } else if (Character.class == type || Character.TYPE == type) {
+            if (value.length() != 1) {
+                throw new IllegalArgumentException("Not a character: " + value);
+            }
+            buffer.putShort(value.charAt(0));
+        } else if (Boolean.class == type || Boolean.TYPE == type) {
+            buffer.putByte(Boolean.parseBoolean(value) ? 1 : 0);
+        } else {
+            throw new IllegalArgumentException("Unsupported key type " + type + " of " + field.getName());
+        }
+    }
+
+}
@@ -12,5 +12,11 @@ public interface ReplayAggregator {
     /** upon receiving a new message from the stream, update the
      * aggregation and gives back the answer */
     public Result aggregate(String[] key, Result item);
+
+    /** variant for packed rows, where the binary key is not split into
+     * strings. By default, the timestamp is passed as the only key part */
+    public default Result aggregate(long timestamp, Result item) {
+        return aggregate(new String[] {String.valueOf(timestamp)}, item);
+    }
 }
 
@@ -1,5 +1,6 @@
 package eu.qualimaster.dataManagement.sinks.replay;
 
+import eu.qualimaster.dataManagement.DataManagementConfiguration;
 import eu.qualimaster.dataManagement.common.replay.Field;
 import static eu.qualimaster.dataManagement.common.replay.Field.DELIMITER;
 import eu.qualimaster.dataManagement.common.replay.ReplayUtils;
@@ -69,9 +70,22 @@ public class ReplayDataInput implements IDataInput, Closeable {
     /** Keep the isClosed flag to avoid excessive calls to Scanner.close() */
     private boolean isClosed = false;
 
-    private Iterator<Result> iter;
     private Result peekedRow;
 
+    /** The actual scanner batch, rows are fetched and decoded batch-wise */
+    private Result[] batch;
+    private int batchPos;
+    private int batchSize = DataManagementConfiguration.getReplayScanBatch();
+
+    /** Decoder of the packed row layout, null for one column per field */
+    private PackedRowDecoder decoder;
+
+    /** Timestamps of the rows in the actual batch (packed layout only) */
+    private long[] batchTimestamps = new long[0];
+
+    /** The schema, for turning queries into packed row keys */
+    private Tuple schema;
+
     /** Internally cached variables */
     private String[] rowKey;
 
@@ -90,12 +104,24 @@ public class ReplayDataInput implements IDataInput, Closeable {
     private ReplayAggregator aggregator;
 
     public ReplayDataInput(Tuple schema, IStorageSupport db) {
+        this(schema, db, DataManagementConfiguration.getReplayPackedRows());
+    }
+
+    /**
+     * Creates a data input. In the packed layout, each row consists of a binary
+     * key and a single value column, see {@link PackedRows}.
+     */
+    public ReplayDataInput(Tuple schema, IStorageSupport db, boolean packed) {
         if (!(db instanceof HBaseBatchStorageSupport)) {
             throw new RuntimeException("Invalid replay store: "
                     + "Current version only works with HBase");
         }
         this.db = (HBaseBatchStorageSupport)db;
         this.db.connect();
+        this.schema = schema;
+        if (packed) {
+            decoder = new PackedRowDecoder(schema);
+        }
         int n = schema.getFields().size();
         fields = new byte[n][];
 
@@ -119,20 +145,26 @@ public class ReplayDataInput implements IDataInput, Closeable {
     }
 
     public void updateQuery(String query, Date startDate, Date enDate, ReplayAggregator aggregator) {
-        parseQuery(query, startDate, enDate);
+        boolean valid = parseQuery(query, startDate, enDate);
         this.aggregator = aggregator;
         eod = true;
         if (scanner != null)
             scanner.close();
+        scanner = null;
         peekedRow = null;
+        batch = null;
+        if (!valid) {
+            LOG.warn("Ignoring the replay query " + query + " as no valid row range could be built");
+            return;
+        }
         try {
             LOG.info("Querying db with query: " + queryStr);
             Scan obj = new Scan();
             obj.setFilter(filter);
+            obj.setCaching(batchSize);
             scanner = (ResultScanner) db.get(obj);
             isClosed = false;
 
-            iter = scanner.iterator();
             _advance();
         } catch (Exception e) {
             LOG.warn("ERROR processing the query " + query, e);
@@ -218,31 +250,60 @@ public class ReplayDataInput implements IDataInput, Closeable {
             throw new RuntimeException(e);
         }
     }*/
-    private void parseQuery(String query, Date startDate, Date endDate) {
+    /**
+     * Parses the query into row ranges. In the packed layout, the schema must have exactly two key fields, one for
+     * each player of a pair, and the key values must match the types of the key fields. Pairs that cannot be
+     * encoded are logged and skipped.
+     *
+     * @return <code>true</code> if the query is valid, i.e., at least one row range was built, <code>false</code>
+     *   else
+     */
+    private boolean parseQuery(String query, Date startDate, Date endDate) {
         long begin = ReplayUtils.getTimestamp(startDate);
         long end = ReplayUtils.getTimestamp(endDate);
         if (query.indexOf(' ') < 0) {
             LOG.warn("Current replay mechanism only support multiple-player queries");
-            return;
+            return false;
         }
-        List<String> pairs = new ArrayList<>();
+        if (decoder != null && keyIdx[0] != 2) {
+            LOG.error("Packed replay rows of " + schema.getName() + " require two key fields for player pairs, but "
+                + "the schema has " + keyIdx[0]);
+            return false;
+        }
+        List<String[]> pairs = new ArrayList<>();
         String[] items = query.split(" ");
         int n = items.length;
         for (int i = 0; i < n - 1; i++) {
             for (int j = i+1; j < n; j++) {
-                pairs.add(items[i] + DELIMITER + items[j]);
-                pairs.add(items[j] + DELIMITER + items[i]);
+                pairs.add(new String[] {items[i], items[j]});
+                pairs.add(new String[] {items[j], items[i]});
             }
         }
         List<MultiRowRangeFilter.RowRange> ranges = new ArrayList<MultiRowRangeFilter.RowRange>();
         try {
-            for (String item : pairs) {
-                byte[] startRow = (item + DELIMITER + String.valueOf(begin)).getBytes("UTF-8");
-                byte[] endRow = (item + DELIMITER + String.valueOf(end)).getBytes("UTF-8");
+            for (String[] pair : pairs) {
+                String item = pair[0] + DELIMITER + pair[1];
+                byte[] startRow;
+                byte[] endRow;
+                if (decoder != null) {
+                    try {
+                        startRow = PackedRows.encodeKey(schema, pair, begin);
+                        endRow = PackedRows.encodeKey(schema, pair, end);
+                    } catch (IllegalArgumentException e) {
+                        LOG.error("Ignoring pair " + item + " of query " + query + ": " + e.getMessage());
+                        continue;
+                    }
+                } else {
+                    startRow = (item + DELIMITER + String.valueOf(begin)).getBytes("UTF-8");
+                    endRow = (item + DELIMITER + String.valueOf(end)).getBytes("UTF-8");
+                }
                 MultiRowRangeFilter.RowRange range = new MultiRowRangeFilter.RowRange(startRow, true, endRow, true);
                 ranges.add(range);
                 queryStr += (item + DELIMITER + String.valueOf(begin) + DELIMITER + String.valueOf(end) + ",");
             }
+            if (ranges.isEmpty()) {
+                return false;
+            }
             filter = new MultiRowRangeFilter(ranges);
         } catch (UnsupportedEncodingException e) {
             e.printStackTrace();
@@ -253,6 +314,7 @@ public class ReplayDataInput implements IDataInput, Closeable {
             LOG.error("Error processing query: " + queryStr);
             throw new RuntimeException(e);
         }
+        return true;
     }
 
 
@@ -271,15 +333,30 @@ public class ReplayDataInput implements IDataInput, Closeable {
 
     /** Extract timestamp value */
     private long _extractTimestamp() {
+        if (decoder != null) return peekedRow == null ? Long.MAX_VALUE : decoder.getTimestamp();
         if (rowKey == null) return Long.MAX_VALUE;
         return Long.parseLong(rowKey[rowKey.length - 1]);
     }
 
+    /**
+     * Returns the timestamp of the current row, i.e., the row to be read by the next calls.
+     *
+     * @return the timestamp, {@link Long#MAX_VALUE} if there is no current row
+     */
+    public long getTimestamp() {
+        return _extractTimestamp();
+    }
+
     @Override
     public int nextInt() throws IOException {
         // LOG.info("Check integer at index " + idx + "( name: " + new String(fields[idx],Charset.forName("UTF-8")) + " )");
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            int data = decoder.nextInt();
+            _silentPeek();
+            return data;
+        }
         int i = _searchKeyIndex();
         int data = -1;
         if (i > 0) {
@@ -299,6 +376,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public long nextLong() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            long data = decoder.nextLong();
+            _silentPeek();
+            return data;
+        }
         long data = -1L;
         int i = _searchKeyIndex();
         if (i > 0) {
@@ -318,6 +400,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public boolean nextBoolean() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            boolean data = decoder.nextBoolean();
+            _silentPeek();
+            return data;
+        }
         boolean data = false;
         Bytes.toBoolean(peekedRow.getValue(COLUMN_FAMILY_BYTES, fields[idx]));
         _silentPeek();
@@ -328,6 +415,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public double nextDouble() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            double data = decoder.nextDouble();
+            _silentPeek();
+            return data;
+        }
         double data = 0d;
         int i = _searchKeyIndex();
         if (i > 0) {
@@ -347,6 +439,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public String nextString() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            String data = decoder.nextString();
+            _silentPeek();
+            return data;
+        }
         String data = null;
         int i = _searchKeyIndex();
         if (i > 0) {
@@ -364,6 +461,13 @@ public class ReplayDataInput implements IDataInput, Closeable {
 
     @Override
     public char nextChar() throws IOException {
+        if (decoder != null) {
+            if (peekedRow == null) throw new IOException("Corrupted data when reading" +
+                    " from Hbase result for query " + queryStr);
+            char data = decoder.nextChar();
+            _silentPeek();
+            return data;
+        }
         return 0;
     }
 
@@ -371,6 +475,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public float nextFloat() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            float data = decoder.nextFloat();
+            _silentPeek();
+            return data;
+        }
         float data = 0f;
         int i = _searchKeyIndex();
         if (i > 0) {
@@ -390,6 +499,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public short nextShort() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            short data = decoder.nextShort();
+            _silentPeek();
+            return data;
+        }
         short data = 0;
         int i = _searchKeyIndex();
         if (i > 0) {
@@ -409,6 +523,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public byte nextByte() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            byte data = decoder.nextByte();
+            _silentPeek();
+            return data;
+        }
         byte data = Byte.MAX_VALUE;
         int i = _searchKeyIndex();
         if (i > 0) {
@@ -429,6 +548,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public long[] nextLongArray() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            long[] data = decoder.nextLongArray();
+            _silentPeek();
+            return data;
+        }
         long[] data = ReplayUtils.toLongs(peekedRow.getValue(COLUMN_FAMILY_BYTES, fields[idx]));
         _silentPeek();
         return data;
@@ -438,6 +562,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public int[] nextIntArray() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            int[] data = decoder.nextIntArray();
+            _silentPeek();
+            return data;
+        }
         int[] data = ReplayUtils.toInts(peekedRow.getValue(COLUMN_FAMILY_BYTES, fields[idx]));
         _silentPeek();
         return data;
@@ -447,6 +576,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public boolean[] nextBooleanArray() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            boolean[] data = decoder.nextBooleanArray();
+            _silentPeek();
+            return data;
+        }
         boolean[] data = ReplayUtils.toBooleans(peekedRow.getValue(COLUMN_FAMILY_BYTES, fields[idx]));
         _silentPeek();
         return data;
@@ -456,6 +590,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public double[] nextDoubleArray() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            double[] data = decoder.nextDoubleArray();
+            _silentPeek();
+            return data;
+        }
         double[] data = ReplayUtils.toDoubles(peekedRow.getValue(COLUMN_FAMILY_BYTES, fields[idx]));
         _silentPeek();
         return data;
@@ -465,6 +604,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public String[] nextStringArray() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            String[] data = decoder.nextStringArray();
+            _silentPeek();
+            return data;
+        }
         String[] data = ReplayUtils.toStrings(peekedRow.getValue(COLUMN_FAMILY_BYTES, fields[idx]));
         _silentPeek();
         return data;
@@ -474,6 +618,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public char[] nextCharArray() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            char[] data = decoder.nextCharArray();
+            _silentPeek();
+            return data;
+        }
         char[] data = ReplayUtils.toChars(peekedRow.getValue(COLUMN_FAMILY_BYTES, fields[idx]));
         _silentPeek();
         return data;
@@ -483,6 +632,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public float[] nextFloatArray() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            float[] data = decoder.nextFloatArray();
+            _silentPeek();
+            return data;
+        }
         float[] data = ReplayUtils.toFloats(peekedRow.getValue(COLUMN_FAMILY_BYTES, fields[idx]));
         _silentPeek();
         return data;
@@ -492,6 +646,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public short[] nextShortArray() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            short[] data = decoder.nextShortArray();
+            _silentPeek();
+            return data;
+        }
         short[] data = ReplayUtils.toShorts(peekedRow.getValue(COLUMN_FAMILY_BYTES, fields[idx]));
         _silentPeek();
         return data;
@@ -501,6 +660,11 @@ public class ReplayDataInput implements IDataInput, Closeable {
     public byte[] nextByteArray() throws IOException {
         if (peekedRow == null) throw new IOException("Corrupted data when reading" +
                 " from Hbase result for query " + queryStr);
+        if (decoder != null) {
+            byte[] data = decoder.nextByteArray();
+            _silentPeek();
+            return data;
+        }
         byte[] data = peekedRow.getValue(COLUMN_FAMILY_BYTES, fields[idx]);
         _silentPeek();
         return data;
@@ -519,7 +683,7 @@ public class ReplayDataInput implements IDataInput, Closeable {
         return eod;
     }
 
-    private void _silentPeek() {
+    private void _silentPeek() throws IOException {
         idx++;
         if (idx == fields.length) {
             // LOG.info("Going to the next item");
@@ -528,24 +692,60 @@ public class ReplayDataInput implements IDataInput, Closeable {
         }
     }
 
+    /**
+     * Returns the next row, fetches the next batch of rows from the scanner if required. In the
+     * packed layout, the timestamps of the entire batch are decoded at once.
+     */
+    private Result _nextRow() throws IOException {
+        if (batch == null || batchPos >= batch.length) {
+            batch = scanner.next(batchSize);
+            batchPos = 0;
+            if (decoder != null) {
+                if (batchTimestamps.length < batch.length) {
+                    batchTimestamps = new long[batch.length];
+                }
+                for (int i = 0; i < batch.length; i++) {
+                    batchTimestamps[i] = PackedRows.getTimestamp(batch[i].getRow());
+                }
+            }
+        }
+        return batchPos < batch.length ? batch[batchPos++] : null;
+    }
+
+    /** Makes the given row the current one */
+    private void _setRow(Result row) {
+        peekedRow = row;
+        if (decoder != null && row != null) {
+            decoder.setRow(row.getRow(), row.getValue(COLUMN_FAMILY_BYTES, PackedRows.COLUMN));
+        }
+    }
+
     /** Silently iterate and aggregate the items */
-    private void _advance() {
+    private void _advance() throws IOException {
         Result lastRow = null; // Keep the last raw item to emit in case the aggregation does not go the full cycle
-        while (iter.hasNext()) {
-            Result r = iter.next();
-            String[] rKey = new String(r.getRow(), Charset.forName("UTF-8")).split("-");
-            LOG.info("Get data: " + StringUtils.join("-", rKey));
+        Result r;
+        while ((r = _nextRow()) != null) {
             lastRow = r;
-            Result aggregatedRow = aggregator.aggregate(rKey, r);
+            Result aggregatedRow;
+            String[] rKey = null;
+            if (decoder != null) {
+                aggregatedRow = aggregator.aggregate(batchTimestamps[batchPos - 1], r);
+            } else {
+                rKey = new String(r.getRow(), Charset.forName("UTF-8")).split("-");
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Get data: " + StringUtils.join("-", rKey));
+                }
+                aggregatedRow = aggregator.aggregate(rKey, r);
+            }
             if (aggregatedRow != null) {
-                peekedRow = aggregatedRow;
+                _setRow(aggregatedRow);
                 rowKey = rKey;
                 eod = false;
                 return;
             }
         }
-        LOG.info("The iterator is empty or exhausted. Return the last item if any");
-        peekedRow = lastRow;
+        LOG.debug("The iterator is empty or exhausted. Return the last item if any");
+        _setRow(lastRow);
         eod = (lastRow == null);
     }
 
@@ -1,6 +1,8 @@
 package eu.qualimaster.dataManagement.sinks.replay;
 
 import java.io.*;
+
+import eu.qualimaster.dataManagement.DataManagementConfiguration;
 import eu.qualimaster.dataManagement.common.replay.Field;
 import static eu.qualimaster.dataManagement.common.replay.Field.DELIMITER;
 import eu.qualimaster.dataManagement.common.replay.ReplayUtils;
@@ -47,9 +49,20 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	private long timestamp;
 
+	/** Encoder of the packed row layout, null for one column per field */
+	private PackedRowEncoder packer;
+
 	private static final Logger log = LoggerFactory.getLogger(ReplayDataOutput.class);
 
 	public ReplayDataOutput(Tuple schema, IStorageSupport storer) {
+		this(schema, storer, DataManagementConfiguration.getReplayPackedRows());
+	}
+
+	/**
+	 * Creates a data output. In the packed layout, each row consists of a binary
+	 * key and a single value column, see {@link PackedRows}.
+	 */
+	public ReplayDataOutput(Tuple schema, IStorageSupport storer, boolean packed) {
 
 		//log.info("Replay: constructing ReplayDataOutput");
 		// Current version hooks with HBaseBatchStorageSupport
@@ -63,7 +76,21 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 		this.fields = new Field[schema.getFields().size()];
 		this.fields = schema.getFields().toArray(fields);
 		row = new HBaseBatchStorageSupport.HBaseRow();
-		for (Field f : fields) {
+		if (packed) {
+			row.addColumn(PackedRows.COLUMN);
+			packer = new PackedRowEncoder(schema) {
+
+				@Override
+				protected void writeRow(byte[] key, byte[] value) throws IOException {
+					row.setKey(key);
+					row.addValue(value);
+					ReplayDataOutput.this.storer.write(row);
+					row.resetData();
+				}
+			};
+		}
+		for (int i = 0; null == packer && i < fields.length; i++) {
+			Field f = fields[i];
 			if (!f.isKey() && !f.isTimesamp()) {
 				row.addColumn(Bytes.toBytes(f.getName()));
 			}
@@ -179,6 +206,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeInt(int value) throws IOException {
+		if (null != packer) {
+			packer.writeInt(value);
+			return;
+		}
 		byte[] bytes = Bytes.toBytes(value);
 		if (fields[idx].isKey()) {
 			appendToKey(String.valueOf(value));
@@ -199,6 +230,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeLong(long value) throws IOException {
+		if (null != packer) {
+			packer.writeLong(value);
+			return;
+		}
 		byte[] bytes = Bytes.toBytes(value);
 		if (fields[idx].isKey()) {
 			appendToKey(String.valueOf(value));
@@ -212,6 +247,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeShort(short value) throws IOException {
+		if (null != packer) {
+			packer.writeShort(value);
+			return;
+		}
 		byte[] bytes = Bytes.toBytes(value);
 		if (fields[idx].isKey()) {
 			appendToKey(String.valueOf(value));
@@ -225,6 +264,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeBoolean(boolean value) throws IOException {
+		if (null != packer) {
+			packer.writeBoolean(value);
+			return;
+		}
 		byte[] bytes = Bytes.toBytes(value);
 		if (fields[idx].isKey()) {
 			appendToKey(value ? "0" : "1");
@@ -238,6 +281,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeDouble(double value) throws IOException {
+		if (null != packer) {
+			packer.writeDouble(value);
+			return;
+		}
 		byte[] bytes = Bytes.toBytes(value);
 		if (fields[idx].isKey()) {
 			appendToKey(String.valueOf(value));
@@ -251,6 +298,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeFloat(float value) throws IOException {
+		if (null != packer) {
+			packer.writeFloat(value);
+			return;
+		}
 		byte[] bytes = Bytes.toBytes(value);
 		if (fields[idx].isKey()) {
 			appendToKey(String.valueOf(value));
@@ -264,6 +315,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeChar(char value) throws IOException {
+		if (null != packer) {
+			packer.writeChar(value);
+			return;
+		}
 		byte[] bytes = Bytes.toBytes(value);
 		if (fields[idx].isKey()) {
 			appendToKey(value);
@@ -277,6 +332,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeString(String value) throws IOException {
+		if (null != packer) {
+			packer.writeString(value);
+			return;
+		}
 		// log.info("Writing " + value);
 		if (value == null) {
 			log.warn("Data at field " + fields[idx].getName() + " does not have data. Ignore this item");
@@ -303,6 +362,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeByte(byte value) throws IOException {
+		if (null != packer) {
+			packer.writeByte(value);
+			return;
+		}
 		byte[] bytes = new byte[] { value };
 		if (fields[idx].isKey()) {
 			appendToKey(String.valueOf(value));
@@ -316,6 +379,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeLongArray(long[] array) throws IOException {
+		if (null != packer) {
+			packer.writeLongArray(array);
+			return;
+		}
 		if (array == null) {
 			log.warn("Data at field " + fields[idx].getName() + " does not have data. Ignore this item");
 			hasNull = true;
@@ -335,6 +402,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeIntArray(int[] array) throws IOException {
+		if (null != packer) {
+			packer.writeIntArray(array);
+			return;
+		}
 		if (array == null) {
 			log.warn("Data at field " + fields[idx].getName() + " does not have data. Ignore this item");
 			hasNull = true;
@@ -354,6 +425,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeBooleanArray(boolean[] array) throws IOException {
+		if (null != packer) {
+			packer.writeBooleanArray(array);
+			return;
+		}
 		if (array == null) {
 			log.warn("Data at field " + fields[idx].getName() + " does not have data. Ignore this item");
 			hasNull = true;
@@ -370,6 +445,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeDoubleArray(double[] array) throws IOException {
+		if (null != packer) {
+			packer.writeDoubleArray(array);
+			return;
+		}
 		if (array == null) {
 			log.warn("Data at field " + fields[idx].getName() + " does not have data. Ignore this item");
 			hasNull = true;
@@ -386,6 +465,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeFloatArray(float[] array) throws IOException {
+		if (null != packer) {
+			packer.writeFloatArray(array);
+			return;
+		}
 		if (array == null) {
 			log.warn("Data at field " + fields[idx].getName() + " does not have data. Ignore this item");
 			hasNull = true;
@@ -401,6 +484,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeShortArray(short[] array) throws IOException {
+		if (null != packer) {
+			packer.writeShortArray(array);
+			return;
+		}
 		if (array == null) {
 			log.warn("Data at field " + fields[idx].getName() + " does not have data. Ignore this item");
 			hasNull = true;
@@ -420,6 +507,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeCharArray(char[] array) throws IOException {
+		if (null != packer) {
+			packer.writeCharArray(array);
+			return;
+		}
 		if (array == null) {
 			log.warn("Data at field " + fields[idx].getName() + " does not have data. Ignore this item");
 			hasNull = true;
@@ -439,6 +530,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeStringArray(String[] array) throws IOException {
+		if (null != packer) {
+			packer.writeStringArray(array);
+			return;
+		}
 		if (array == null) {
 			log.warn("Data at field " + fields[idx].getName() + " does not have data. Ignore this item");
 			hasNull = true;
@@ -459,6 +554,10 @@ public class ReplayDataOutput implements IDataOutput, Closeable {
 
 	@Override
 	public void writeByteArray(byte[] array) throws IOException {
+		if (null != packer) {
+			packer.writeByteArray(array);
+			return;
+		}
 		if (array == null) {
 			// log.warn("Data at field " + fields[idx].getName() + " does not have data. Ignore this item");
 			hasNull = true;
@@ -1,6 +1,7 @@
 package eu.qualimaster.dataManagement.sinks.replay;
 
 import eu.qualimaster.dataManagement.DataManager;
+import eu.qualimaster.dataManagement.common.replay.ReplayClock;
 import eu.qualimaster.dataManagement.common.replay.ReplayUtils;
 import eu.qualimaster.dataManagement.common.replay.Tuple;
 import eu.qualimaster.dataManagement.serialization.ISerializer;
@@ -8,98 +9,162 @@ import eu.qualimaster.dataManagement.serialization.SerializerRegistry;
 import eu.qualimaster.dataManagement.storage.AbstractStorageTable;
 import eu.qualimaster.dataManagement.storage.support.IStorageSupport;
 import eu.qualimaster.dataManagement.strategies.IStorageStrategyDescriptor;
+import eu.qualimaster.observables.IMeasurable;
+import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.Scalability;
+import eu.qualimaster.observables.TimeBehavior;
 import org.apache.hadoop.hbase.client.Result;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * Simulate the results from the Replay Store (currently HBase) as stream items
- * // TODO 26/10/16: Optimize the easy-checking anti-pattern with native callback readers-writers
+ * Simulate the results from the Replay Store (currently HBase) as stream items.
+ * Each streamer (ticket) has an own fetcher thread, which exclusively owns the
+ * result wrapper, i.e., parameter changes are handed over to the fetcher and
+ * applied there. The fetched items are passed to the consumer through a bounded
+ * lock-free queue, i.e., {@link #poll()} never blocks.
+ *
  * @author tuan
  * @since 03/06/16.
  */
-public class ReplayStreamer<T> {
+public class ReplayStreamer<T> implements IMeasurable {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReplayStreamer.class);
 
-    /** Speed factor */
-    private float speedFactor = -1;
-    private Date startDate, endDate;
+    /** The maximum number of fetched but not yet consumed items */
+    private static final int CAPACITY = 100;
+
+    /** Time to park the fetcher if the buffer is full (ns) */
+    private static final long FULL_PARK_NANOS = 500000L;
+
+    /** Time to wait for new parameters / data if the result wrapper is exhausted (ms) */
+    private static final int EOD_WAIT = 100;
+
+    /** Timeout of the blocking {@link #getData()} (ms) */
+    private static final int GET_DATA_TIMEOUT = 10000;
+
+    /** Speed factor as given by the replay signal, NaN if not set */
+    private volatile float speedFactor = Float.NaN;
+
+    /** Paces the fetched items according to their timestamps and the speed factor */
+    private ReplayClock clock = new ReplayClock();
+    private volatile Date startDate, endDate;
 
     /** the query as passed from the client. So far we only process
      * key query (point or range) */
-    private String query;
-    private String prefix;
-    
-    /** Control the thread of fetching data from HBase */
-    private volatile boolean stopFetchingDataThread = false;
+    private volatile String query;
 
-    /**
-     * Timeout 50 miliseconds for stop querying the database to have
-     * a pseudo-non-blocking call to the getData()
-     */
-    private static final int TIMEOUT = 50;
-    private int counter = 0;
-    
-    private LinkedBlockingQueue<T> buffer;
+    /** The generation of the query parameters, items of older generations are dropped */
+    private AtomicInteger queryGeneration = new AtomicInteger();
+
+    /** The generation of the query parameters applied by the fetcher */
+    private volatile int appliedGeneration = 0;
+
+    /** Whether a query is active and the fetcher has fetched all of its data */
+    private volatile boolean fetchedAll = false;
+
+    /** Whether a query was applied by the fetcher */
+    private volatile boolean queryApplied = false;
+
+    private volatile boolean running = true;
+
+    private ConcurrentLinkedQueue<Item<T>> buffer = new ConcurrentLinkedQueue<Item<T>>();
+    private AtomicInteger bufferSize = new AtomicInteger();
+
+    /** Statistics, reset per query */
+    private AtomicLong polled = new AtomicLong();
+    private AtomicLong lagNanos = new AtomicLong();
 
     private ISerializer<T> serializer;
     private ReplayDataInput resultWrapper;
     private ExecutorService fetcherThread;
     private ReplayAggregator aggregator;
 
+    /**
+     * A fetched item with its fetching time for determining the lag.
+     */
+    private static final class Item<T> {
+
+        private T data;
+        private long fetched;
+        private int generation;
+
+        private Item(T data, long fetched, int generation) {
+            this.data = data;
+            this.fetched = fetched;
+            this.generation = generation;
+        }
+    }
+
     public ReplayStreamer(Class<T> cls, Tuple schema, String location, IStorageStrategyDescriptor d) {
         AbstractStorageTable table = DataManager.REPLAY_STORAGE_MANAGER.getTable(location, schema.getName(), d);
         IStorageSupport storage = table.getStorageSupport();
         resultWrapper = new ReplayDataInput(schema, storage);
         this.serializer = SerializerRegistry.getSerializer(cls.getSimpleName(), cls);
-        buffer = new LinkedBlockingQueue<>(100);
+        aggregator = new OrderCheckingAggregator();
         fetcherThread = Executors.newSingleThreadExecutor();
         fetcherThread.submit(new DataFetcher());
-        aggregator = new LastItemAggregator();
     }
 
-    /* Need to synchronize the speed set with other thread as well ? */
+    /**
+     * Changes all replay parameters at once, i.e., the query is updated only once.
+     *
+     * @param start the start date
+     * @param end the end date
+     * @param speed the replay speed, positive speed up, negative slow down
+     * @param query the query
+     */
+    public void configure(Date start, Date end, float speed, String query) {
+        startDate = start;
+        endDate = end;
+        speedFactor = speed;
+        clock.setSpeed(speed);
+        this.query = query;
+        requestQueryUpdate();
+    }
+
     public void setSpeed(float speed) {
-        stopFetchingDataThread = true;
-        buffer.clear();
         speedFactor = speed;
-        // updateQuery();
-        stopFetchingDataThread = false;
+        clock.setSpeed(speed);
+        requestQueryUpdate();
     }
 
-    public void setStart(Date date) {
-    	stopFetchingDataThread = true;
+    /**
+     * Replays with a fixed rate rather than according to the item timestamps and the speed factor.
+     *
+     * @param itemsPerSecond the rate in items per second, if not positive replay as fast as possible
+     */
+    public void setFixedRate(double itemsPerSecond) {
+        if (itemsPerSecond > 0) {
+            clock.setFixedRate(itemsPerSecond);
+        } else {
+            clock.setAsFastAsPossible();
+        }
+    }
 
-        // the internal fullyLock() method is called inside BlockingQueue's
-        // clear() method code so no race condition here
-        buffer.clear();
+    public void setStart(Date date) {
         startDate = date;
-        updateQuery();
-        stopFetchingDataThread = false;
+        requestQueryUpdate();
     }
 
     public void setEnd(Date date) {
-    	stopFetchingDataThread = true;
-        buffer.clear();
         endDate = date;
-        updateQuery();
-        stopFetchingDataThread = false;
+        requestQueryUpdate();
     }
 
     public void setQuery(String query) {
-    	stopFetchingDataThread = true;
-        buffer.clear();
         this.query = query;
-        updateQuery();
-        stopFetchingDataThread = false;
+        requestQueryUpdate();
     }
 
     /** Note: Mock the test of serializer */
@@ -108,53 +173,84 @@ public class ReplayStreamer<T> {
     }
 
     /**
-     * Get the data of the current parameters. Null value means two things:
+     * Hands the changed parameters over to the fetcher. Items fetched for the
+     * previous parameters are dropped, the buffer is cleared by the fetcher.
+     */
+    private void requestQueryUpdate() {
+        queryGeneration.incrementAndGet();
+    }
+
+    /**
+     * Clears the buffer and keeps the buffer size consistent. Must be called
+     * by the fetcher thread only.
+     */
+    private void clearBuffer() {
+        while (null != buffer.poll()) {
+            bufferSize.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the next fetched item without blocking.
+     *
+     * @return the next item, <b>null</b> if there is currently none
+     */
+    public T poll() {
+        T result = null;
+        int generation = queryGeneration.get();
+        Item<T> item;
+        do {
+            item = buffer.poll();
+            if (null != item) {
+                bufferSize.decrementAndGet();
+                if (item.generation == generation) {
+                    polled.incrementAndGet();
+                    lagNanos.addAndGet(System.nanoTime() - item.fetched);
+                    result = item.data;
+                }
+            }
+        } while (null == result && null != item); // skip items of previous parameters
+        return result;
+    }
+
+    /**
+     * Get the data of the current parameters. Blocks for up to 10 seconds
+     * if no data is available, prefer {@link #poll()}. Null value means two things:
      * - some error happens (server error, parsing of schema, timeout...),
      *  the call still moves on
      * - the current stream is all finished
      */
     public T getData() {
-        try {
-            T result = null;
-            // This is probably very rare: We call getData() right in the
-            // moment between the first and the last lines of code in the
-            // set-parameter methods
-            // We return null
-            // LOG.info("Fetching flag: " + stopFetchingDataThread);
-            while (stopFetchingDataThread && counter < TIMEOUT) {
-                counter++;
-                Thread.sleep(1);
-            }
-            if (counter < TIMEOUT) {
-                LOG.info("Connect buffer to check for available data");
-                result = buffer.poll(10, TimeUnit.SECONDS);
-
-                /** 2016-10-19 Tuan: Test random sink - Note */
-                if (result != null)
-                    LOG.info("Get available data from the buffer: " + result.getClass().getName());
-                else
-                    LOG.info("No available data from the buffer");
-                /** End note */
+        T result = poll();
+        long deadline = System.currentTimeMillis() + GET_DATA_TIMEOUT;
+        while (null == result && running && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+            if (Thread.interrupted()) {
+                LOG.error("Reading-data thread is interrupted while fetching" +
+                        " from buffer (query " + query + "). Return null");
+                break;
             }
-            else {
-                LOG.info("Timeout querying database.. Reset clock");
-                counter = 0;
-            }
-            return result;
-		} catch (InterruptedException e) {
-            LOG.error("Reading-data thread is interrupted while fetching" +
-                    " from buffer (query " + query + "). Return null");
-            return null;
+            result = poll();
         }
+        return result;
     }
 
+    /**
+     * Updates the query of the result wrapper. Must be called by the fetcher
+     * thread only.
+     */
     private void updateQuery() {
         if (startDate == null || endDate == null ||query == null ||
-                query.isEmpty() || speedFactor == -1) {
+                query.isEmpty() || Float.isNaN(speedFactor)) {
             LOG.warn("The streamer is not ready. Set the parameters first !!");
             return;
         }
+        fetchedAll = false;
         resultWrapper.updateQuery(query, startDate, endDate, aggregator);
+        clock.reset();
+        polled.set(0);
+        lagNanos.set(0);
+        queryApplied = true;
     }
 
     /* It's dangerous to override this class */
@@ -164,93 +260,135 @@ public class ReplayStreamer<T> {
 		public void run() {
             LOG.info("Start Runnable of DataFetcher");
             try {
-                while (true) {
-                    if (stopFetchingDataThread) {
-                        LOG.info("The parameters are probably being updated. Wait 10 ms");
-                        Thread.sleep(10);
-                    }
-
-                    while (!resultWrapper.isEOD()) {
-                        try {
-                            LOG.info("Received 1 data item. Will be serialized using " + serializer);
-                            T data = serializer.deserializeFrom(resultWrapper);
-                            LOG.info("Serializer passed");
-                            if (data != null) {
-                                LOG.info("Serialized 1 data item: " + data.toString());
-                                buffer.put(data);
-                            } else {
-                                LOG.info("Cannot serialize data");
-                            }
-                        } catch (IOException e) {
-                            LOG.error("Error getting data from HBase for the query " + query, e);
-                        } catch (Exception e) {
-                            LOG.error("ERROR: ", e);
-                            if (e instanceof InterruptedException) throw new RuntimeException(e);
-                        }
+                while (running) {
+                    int generation = queryGeneration.get();
+                    if (generation != appliedGeneration) {
+                        appliedGeneration = generation;
+                        clearBuffer();
+                        updateQuery();
                     }
-
-                    // Potential gotcha here, since resultWrapper is not thread-safe
                     if (resultWrapper.isEOD()) {
-                        // LOG.info("The result wrapper is empty, wait 90 mi secs before the next ping");
+                        fetchedAll = queryApplied;
                         // Need to tune this according to TSI performance
-                        Thread.sleep(100);
-                    }
-                    else {
-                        // Relax the loading on the TSI cluster
-                        LOG.info("Wait 10 misecs before the next request to the result wrapper");
-                        Thread.sleep(10);
+                        Thread.sleep(EOD_WAIT);
+                    } else if (bufferSize.get() >= CAPACITY) {
+                        LockSupport.parkNanos(FULL_PARK_NANOS);
+                    } else {
+                        fetchedAll = false;
+                        fetch();
                     }
                 }
             }
             catch (InterruptedException e) {
                 LOG.warn("The deading-data thread is interrupted or closed");
-                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * Fetches and paces the next item.
+         *
+         * @throws InterruptedException if the fetcher was interrupted
+         */
+        private void fetch() throws InterruptedException {
+            try {
+                clock.await(resultWrapper.getTimestamp());
+                T data = serializer.deserializeFrom(resultWrapper);
+                if (data == null) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Cannot serialize data");
+                    }
+                } else if (appliedGeneration == queryGeneration.get()) { // else drop, parameters changed meanwhile
+                    buffer.offer(new Item<T>(data, System.nanoTime(), appliedGeneration));
+                    bufferSize.incrementAndGet();
+                }
+            } catch (IOException e) {
+                LOG.error("Error getting data from HBase for the query " + query, e);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                LOG.error("ERROR: ", e);
             }
         }
     }
 
     /**
-     * The current aggregation strategy is removing all
-     * but the last item in the stream
+     * The current aggregation strategy keeps all items and just warns about
+     * items that are not in chronological order. The speed is realized by
+     * the replay clock rather than by dropping items.
      */
-    private class LastItemAggregator implements ReplayAggregator {
+    private class OrderCheckingAggregator implements ReplayAggregator {
 
         private long prevTimestamp = 0L;
 
         @Override
         public Result aggregate(String[] key, Result item) {
-            Result result = null;
-            long timestamp = ReplayUtils.getTimestampFromResult(key);
-            if (prevTimestamp == 0)
-                result = item;
-            else {
-                // get the timestamp from the key
-                long dev = (timestamp - prevTimestamp) / 1000;
-
-                // Strange case: The items are emitted not in chronological order
-                if (dev < 0) {
-                    LOG.warn("The message are not come in order: "
-                             + timestamp + " < " + prevTimestamp);
-                }
-                if (dev >= speedFactor) {
-                    result = item;
-                }
+            // get the timestamp from the key
+            return aggregate(ReplayUtils.getTimestampFromResult(key), item);
+        }
+
+        @Override
+        public Result aggregate(long timestamp, Result item) {
+            // Strange case: The items are emitted not in chronological order
+            if (prevTimestamp != 0 && timestamp < prevTimestamp) {
+                LOG.warn("The message are not come in order: "
+                         + timestamp + " < " + prevTimestamp);
             }
             prevTimestamp = timestamp;
-            return result;
+            return item;
+        }
+    }
+
+    /**
+     * Returns measurements of the replay. Supports the achieved replay rate as
+     * {@link TimeBehavior#THROUGHPUT_ITEMS} and the requested replay rate as
+     * {@link Scalability#VELOCITY}, both in items per second, the average lag
+     * between fetching and polling an item in ms as {@link TimeBehavior#LATENCY}
+     * and the number of polled items as {@link Scalability#ITEMS}. Measurements
+     * are related to the actual query.
+     */
+    @Override
+    public Double getMeasurement(IObservable observable) {
+        Double result = null;
+        if (TimeBehavior.THROUGHPUT_ITEMS == observable) {
+            result = clock.getAchievedRate();
+        } else if (Scalability.VELOCITY == observable) {
+            result = clock.getRequestedRate();
+        } else if (TimeBehavior.LATENCY == observable) {
+            long count = polled.get();
+            result = count > 0 ? lagNanos.get() / (count * 1000000.0) : 0;
+        } else if (Scalability.ITEMS == observable) {
+            result = (double) polled.get();
         }
+        return result;
     }
 
+    /**
+     * Returns the number of fetched items waiting to be polled.
+     *
+     * @return the number of items
+     */
+    public int getBufferSize() {
+        return bufferSize.get();
+    }
 
     /** This method is to checked that the null return values of the getData() is caused
      * by some internal error, or by the complete of the data fetch */
     public boolean isEOD() {
-        return (buffer.isEmpty() || resultWrapper.isEOD());
+        return (bufferSize.get() == 0 || fetchedAll);
+    }
+
+    /**
+     * Returns whether this streamer has finished, i.e., a query was applied,
+     * all its data was fetched and consumed and no parameter change is pending.
+     *
+     * @return <code>true</code> if finished, <code>false</code> else
+     */
+    public boolean isFinished() {
+        return queryApplied && fetchedAll && appliedGeneration == queryGeneration.get() && bufferSize.get() == 0;
     }
 
     public void close() throws IOException {
-        resultWrapper.close();
-        stopFetchingDataThread = true;
+        running = false;
 
         // Do we really shutdown the streamer when close() is called ?
         try {
@@ -268,5 +406,6 @@ public class ReplayStreamer<T> {
             fetcherThread.shutdownNow();
             LOG.info("shutdown finished");
         }
+        resultWrapper.close();
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,18 @@
 package eu.qualimaster.dataManagement.sources;
 
+import eu.qualimaster.dataManagement.common.replay.ReplayClock;
 import eu.qualimaster.dataManagement.sources.replay.DateTimeTimestampParser;
 import eu.qualimaster.dataManagement.sources.replay.FileSource;
 import eu.qualimaster.dataManagement.sources.replay.HdfsSource;
 import eu.qualimaster.dataManagement.sources.replay.IDataManipulator;
 import eu.qualimaster.dataManagement.sources.replay.IReplaySource;
 import eu.qualimaster.dataManagement.sources.replay.ITimestampParser;
+import eu.qualimaster.dataManagement.sources.replay.ITimestampedReplaySource;
+import eu.qualimaster.dataManagement.sources.replay.MergingReplaySource;
 import eu.qualimaster.dataManagement.strategies.IStorageStrategyDescriptor;
 import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.Scalability;
+import eu.qualimaster.observables.TimeBehavior;
 import eu.qualimaster.pipeline.DefaultModeException;
 
 import org.joda.time.DateTime;
@@ -40,11 +45,16 @@ public class ReplayMechanism implements IDataSource {
     private boolean separatorDefined = false;
     private IReplaySource source;
     private ITimestampParser timestampParser = DateTimeTimestampParser.INSTANCE;
+    private ITimestampParser sourceParser; // of the connected source, e.g., merging, overrides timestampParser
     private IDataManipulator manipulator;
     private BufferedReader brForData;
     private boolean endOfData = false;
     private long offsetInMillis; // Offset in milliseconds between first timestamp and now
     private long prevTimeStampNow;
+    private long prevTimeStamp;
+    private ReplayClock clock = new ReplayClock();
+    private int replaySpeed = 1;
+    private int replayRate = 0;
     private boolean shallConnect;
     private boolean selfConnect = true; // legacy setting
 
@@ -172,17 +182,20 @@ public class ReplayMechanism implements IDataSource {
         if (null != manipulator) {
             line = manipulator.changeInput(line, calcOffset);
         }
-        int timestampEnd = timestampParser.consumeTimestamp(line);
+        ITimestampParser parser = getActiveParser();
+        int timestampEnd = parser.consumeTimestamp(line);
         if (timestampEnd > 0) {
             // split data
             String timestamp = line.substring(0, timestampEnd);
             try {
-                long symbolTimeStamp = timestampParser.parseTimestamp(timestamp);
+                long symbolTimeStamp = parser.parseTimestamp(timestamp);
                 if (calcOffset) {
                     DateTime now = new DateTime();
                     offsetInMillis = now.getMillis() - symbolTimeStamp;
+                    clock.start(symbolTimeStamp);
                 } else {
-                    prevTimeStampNow = symbolTimeStamp + offsetInMillis;
+                    prevTimeStamp = symbolTimeStamp;
+                    prevTimeStampNow = clock.getDueTime(symbolTimeStamp);
                 }
                 int separatorPos = consumeWhitespace(line, timestampEnd);
                 int payloadStartPos = consumeWhitespace(line, separatorPos + 1);
@@ -310,7 +323,9 @@ public class ReplayMechanism implements IDataSource {
     }
     
     /**
-     * Returns the next item considering the time interval based on the timestamp.
+     * Returns the next item considering the time interval based on the timestamp. The time interval is scaled by the 
+     * speed factor of the replay {@link #getClock() clock}, in fixed rate or as fast as possible mode the clock paces 
+     * the individual items.
      * @param queue the queue to read data
      * @return the next item
      * @throws InterruptedException the interrupted exception
@@ -319,11 +334,19 @@ public class ReplayMechanism implements IDataSource {
         T item = null;              
       
         long newTimestamp = 0;    
-        if (!queue.isEmpty()) {
+        ReplayClock.Mode mode = clock.getMode();
+        if (ReplayClock.Mode.SPEED != mode) {
+            ProfilingQueueItem<T> queueItem = queue.poll();
+            if (null != queueItem) {
+                clock.await(queueItem.getTimestamp());
+                item = queueItem.getItem();
+            }
+        } else if (!queue.isEmpty()) {
+            long interval = (long) (timeInterval * 1000000L / clock.getSpeedFactor()); // ns
             ProfilingQueueItem<T> queueItem = queue.poll();
             if (queueItem != null) {
                 long timestamp = queueItem.getTimestamp(); 
-                long now = System.currentTimeMillis();
+                long now = System.nanoTime();
                 if(!init) {
                     init = true;
                     record = newTimestamp;
@@ -333,7 +356,7 @@ public class ReplayMechanism implements IDataSource {
                 newTimestamp = newTimestamp(timestamp);
                 
                 if (record == newTimestamp) {//within the same batch
-                    if (now - start <= timeInterval) {
+                    if (now - start <= interval) {
                         item = queueItem.getItem();
                     } else {
                         while (newTimestamp == record) {//skip rest of data with old timestamp
@@ -345,18 +368,16 @@ public class ReplayMechanism implements IDataSource {
                                     newTimestamp = newTimestamp(timestamp);
                                 }
                             }
-                            now = System.currentTimeMillis();
+                            now = System.nanoTime();
                         }
                         start = now;
                         record = newTimestamp;
                     }
                 } else {//next batch starts
-                    if (now - start <= timeInterval) {
-                        //wait until it reaches 1s
-                        while (now - start <= timeInterval) {
-                            Thread.sleep(1);
-                            now = System.currentTimeMillis();
-                        }
+                    if (now - start <= interval) {
+                        //wait until it reaches the interval (1s at speed 1)
+                        ReplayClock.parkUntil(start + interval + 1);
+                        now = System.nanoTime();
                     }
                     item = queueItem.getItem();
                     record = newTimestamp;
@@ -378,18 +399,13 @@ public class ReplayMechanism implements IDataSource {
         try {
             if (null != brForData && (line = brForData.readLine()) != null) {
                 if(control) {
-                    if (timestampParser.skipParsing(line)) {
+                    if (getActiveParser().skipParsing(line)) {
                         return null;
                     }
                     String newline = newlineWithDateToNow(line, false);
                     try {
-                        DateTime now = new DateTime();
-                        while (prevTimeStampNow > now.getMillis()) {
-                            // TODO this is original code, increases the response time and capacity. Better return null
-                            Thread.sleep(1);
-                            now = new DateTime();
-                        }
-                        // Thread.sleep(diff > 0 ? diff : 0);git
+                        // TODO this is original code, increases the response time and capacity. Better return null
+                        clock.await(prevTimeStamp);
                     } catch (InterruptedException e) {
                         logger.error("Simulator Error : " + e.getMessage());
                     }
@@ -437,6 +453,27 @@ public class ReplayMechanism implements IDataSource {
         }
     }
 
+    /**
+     * Changes the data files to be used for replay. The data files are merged by their timestamps into a single
+     * stream using the timestamp parser of this mechanism. Has only effect if called before {@link #connect()}.
+     * Alternative to {@link #setParameterDataFile(String)}.
+     * 
+     * @param filesForData the data file names, separated by commas
+     */
+    public void setParameterDataFiles(String filesForData) {
+        if (null != filesForData && filesForData.length() > 0) {
+            logger.info("Received Data file paths " + filesForData);
+            MergingReplaySource merging = new MergingReplaySource();
+            for (String file : filesForData.split(",")) {
+                file = file.trim();
+                if (file.length() > 0) {
+                    merging.addSource(new FileSource(file), timestampParser);
+                }
+            }
+            setSource(merging);
+        }
+    }
+
     /**
      * Changes the HDFS data file to be used for replay. Has only effect if called before {@link #connect()}. 
      * Alternative to {@link #setParameterDataFile(String)}.
@@ -451,17 +488,68 @@ public class ReplayMechanism implements IDataSource {
     }
 
     /**
-     * Changes the replay speed.
+     * Changes the replay speed. Has only effect if called before {@link #connect()}. A fixed replay rate (see 
+     * {@link #setParameterReplayRate(int)}) takes precedence over the speed.
      * 
-     * @param value the new replay speed
+     * @param value the new replay speed following {@link ReplayClock#setSpeed(double)}, i.e., positive values 
+     *   speed up, negative values slow down, <code>0</code> replays as fast as possible
      */
     public void setParameterReplaySpeed(int value) {
-        //TODO @TSI, further parameters follow this schema, but need to be considered by the profile pipeline generation
+        replaySpeed = value;
+        configureClock();
+    }
+
+    /**
+     * Changes the replay rate. Has only effect if called before {@link #connect()}.
+     * 
+     * @param value the new replay rate, positive values for a fixed rate in items per second, negative values for 
+     *   replaying as fast as possible, <code>0</code> for replaying according to the timestamps and the replay speed
+     */
+    public void setParameterReplayRate(int value) {
+        replayRate = value;
+        configureClock();
+    }
+
+    /**
+     * Configures the clock from the replay rate and, if no rate is given, from the replay speed.
+     */
+    private void configureClock() {
+        if (replayRate > 0) {
+            clock.setFixedRate(replayRate);
+        } else if (replayRate < 0) {
+            clock.setAsFastAsPossible();
+        } else {
+            clock.setSpeed(replaySpeed);
+        }
+    }
+    
+    /**
+     * Returns the replay clock, e.g., for detailed configuration.
+     * 
+     * @return the replay clock
+     */
+    public ReplayClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the timestamp parser to be used for the connected source.
+     * 
+     * @return the timestamp parser of the connected source if it provides one, the timestamp parser of this 
+     *   mechanism else
+     */
+    private ITimestampParser getActiveParser() {
+        return null == sourceParser ? timestampParser : sourceParser;
     }
 
     @Override
     public void connect() throws DefaultModeException {
         if (null != source) {
+            if (source instanceof ITimestampedReplaySource) {
+                sourceParser = ((ITimestampedReplaySource) source).getTimestampParser();
+            } else {
+                sourceParser = null;
+            }
             try {
                 brForData = source.open();
             } catch (IOException e) {
@@ -514,9 +602,22 @@ public class ReplayMechanism implements IDataSource {
         return strategy;
     }
 
+    /**
+     * Returns measurements of the replay. Supports the achieved replay rate as {@link TimeBehavior#THROUGHPUT_ITEMS} 
+     * and the requested replay rate as {@link Scalability#VELOCITY}, both in items per second.
+     * 
+     * @param iObservable the observable to return the measurement for
+     * @return the measurement, <b>null</b> if not supported
+     */
     @Override
     public Double getMeasurement(IObservable iObservable) {
-        return null;
+        Double result = null;
+        if (TimeBehavior.THROUGHPUT_ITEMS == iObservable) {
+            result = clock.getAchievedRate();
+        } else if (Scalability.VELOCITY == iObservable) {
+            result = clock.getRequestedRate();
+        }
+        return result;
     }
 
     /**
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.dataManagement.sources.replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import eu.qualimaster.dataManagement.DataManagementConfiguration;
+import eu.qualimaster.dataManagement.storage.hdfs.HdfsUtils;
+
+/**
+ * Implements a block-aware streaming HDFS source. In contrast to {@link HdfsSource}, this source reads large
+ * sequential chunks with a configurable readahead (see {@link DataManagementConfiguration#HDFS_READAHEAD}),
+ * optionally uses short-circuit local reads (see {@link DataManagementConfiguration#HDFS_DOMAIN_SOCKET}) and
+ * supports directories of part files. Part files are read in parallel and either merged by their timestamps (if a
+ * timestamp parser is given) or concatenated in the sequence of their names. Hidden files, i.e., files starting with
+ * "_" or "." such as "_SUCCESS", are ignored. For testing, the source can be created on any Hadoop
+ * {@link FileSystem}, e.g., the local one.
+ *
+ * @author Holger Eichelberger
+ */
+public class HdfsStreamingSource implements IReplaySource {
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private String defaultFs;
+    private FileSystem fileSystem;
+    private Path hdfsPathToData;
+    private int readahead = DataManagementConfiguration.getHdfsReadahead();
+    private String domainSocket = DataManagementConfiguration.getHdfsDomainSocket();
+    private ITimestampParser timestampParser;
+    private int chunkSize = PrefetchingMergeReader.DEFAULT_CHUNK_SIZE;
+    private int prefetchChunks = PrefetchingMergeReader.DEFAULT_PREFETCH_CHUNKS;
+
+    /**
+     * Creates a HDFS streaming source based on {@link DataManagementConfiguration#getHdfsUrl()}.
+     *
+     * @param hdfsPathToData the HDFS path to data (file or directory of part files)
+     */
+    public HdfsStreamingSource(String hdfsPathToData) {
+        this(DataManagementConfiguration.getHdfsUrl(), new Path(hdfsPathToData));
+    }
+
+    /**
+     * Creates a HDFS streaming source.
+     *
+     * @param defaultFs the default HDFS URL
+     * @param hdfsPathToData the HDFS path to data (file or directory of part files)
+     */
+    public HdfsStreamingSource(String defaultFs, Path hdfsPathToData) {
+        this.defaultFs = defaultFs;
+        this.hdfsPathToData = hdfsPathToData;
+    }
+
+    /**
+     * Creates a streaming source on an explicit file system, e.g., the local file system for testing. The
+     * short-circuit setting does not apply as the file system is already configured.
+     *
+     * @param fileSystem the file system
+     * @param pathToData the path to data (file or directory of part files)
+     */
+    public HdfsStreamingSource(FileSystem fileSystem, Path pathToData) {
+        this.fileSystem = fileSystem;
+        this.hdfsPathToData = pathToData;
+    }
+
+    /**
+     * Changes the readahead. Has only effect before {@link #open()}.
+     *
+     * @param readahead the readahead in bytes (ignored if not positive)
+     */
+    public void setReadahead(int readahead) {
+        if (readahead > 0) {
+            this.readahead = readahead;
+        }
+    }
+
+    /**
+     * Defines the timestamp parser used to merge part files. Has only effect before {@link #open()}.
+     *
+     * @param timestampParser the timestamp parser, part files are concatenated rather than merged if <b>null</b>
+     */
+    public void setTimestampParser(ITimestampParser timestampParser) {
+        this.timestampParser = timestampParser;
+    }
+
+    /**
+     * Defines the UNIX domain socket path for short-circuit local reads. Has only effect before {@link #open()}.
+     *
+     * @param domainSocket the domain socket path, disables short-circuit reads if <b>null</b> or empty
+     */
+    public void setDomainSocket(String domainSocket) {
+        this.domainSocket = domainSocket;
+    }
+
+    /**
+     * Defines the prefetch buffers for parallel reading of part files. Has only effect before {@link #open()}.
+     *
+     * @param chunkSize the number of lines per prefetched chunk
+     * @param prefetchChunks the maximum number of prefetched chunks per part file
+     */
+    public void setPrefetch(int chunkSize, int prefetchChunks) {
+        this.chunkSize = Math.max(1, chunkSize);
+        this.prefetchChunks = Math.max(1, prefetchChunks);
+    }
+
+    @Override
+    public BufferedReader open() throws IOException {
+        FileSystem fs = fileSystem;
+        if (null == fs) {
+            if (null == defaultFs || 0 == defaultFs.length()) {
+                throw new IOException("No HDFS data source configured! See Configuration."
+                    + DataManagementConfiguration.URL_HDFS);
+            }
+            fs = HdfsUtils.getFilesystem(defaultFs, domainSocket);
+        }
+        BufferedReader result;
+        FileStatus status = fs.getFileStatus(hdfsPathToData);
+        if (status.isDirectory()) {
+            List<Path> parts = listParts(fs, hdfsPathToData);
+            if (parts.isEmpty()) {
+                throw new IOException("No part files in " + hdfsPathToData);
+            } else if (1 == parts.size()) {
+                result = open(fs, parts.get(0));
+            } else {
+                List<BufferedReader> readers = new ArrayList<BufferedReader>();
+                try {
+                    for (Path part : parts) {
+                        readers.add(open(fs, part));
+                    }
+                } catch (IOException e) {
+                    for (BufferedReader reader : readers) {
+                        reader.close();
+                    }
+                    throw e;
+                }
+                List<ITimestampParser> parsers = null;
+                if (null != timestampParser) {
+                    parsers = new ArrayList<ITimestampParser>();
+                    for (int p = 0; p < parts.size(); p++) {
+                        parsers.add(timestampParser);
+                    }
+                }
+                result = new PrefetchingMergeReader(readers, parsers, chunkSize, prefetchChunks);
+            }
+        } else {
+            result = open(fs, hdfsPathToData);
+        }
+        return result;
+    }
+
+    /**
+     * Opens a single file with readahead. The readahead is applied to the input stream, either by the file system
+     * or by a buffer if the file system does not support readahead. The reader uses its default buffer size.
+     *
+     * @param fs the file system
+     * @param path the path to the file
+     * @return the reader
+     * @throws IOException in case that opening fails
+     */
+    private BufferedReader open(FileSystem fs, Path path) throws IOException {
+        FSDataInputStream in = fs.open(path);
+        InputStream stream;
+        try {
+            in.setReadahead(Long.valueOf(readahead));
+            stream = in;
+        } catch (UnsupportedOperationException e) {
+            // not supported by the file system, e.g., local
+            stream = new BufferedInputStream(in, readahead);
+        }
+        return new BufferedReader(new InputStreamReader(stream, CHARSET));
+    }
+
+    /**
+     * Lists the (non-hidden) part files in <code>dir</code> sorted by name.
+     *
+     * @param fs the file system
+     * @param dir the directory
+     * @return the part files
+     * @throws IOException in case that listing fails
+     */
+    private static List<Path> listParts(FileSystem fs, Path dir) throws IOException {
+        List<Path> result = new ArrayList<Path>();
+        FileStatus[] files = fs.listStatus(dir);
+        Arrays.sort(files);
+        for (FileStatus file : files) {
+            String name = file.getPath().getName();
+            if (file.isFile() && !name.startsWith("_") && !name.startsWith(".")) {
+                result.add(file.getPath());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "HdfsStreamingReplaySource " + (null == fileSystem ? defaultFs : fileSystem.getUri()) + " "
+            + hdfsPathToData;
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.dataManagement.sources.replay;
+
+/**
+ * A replay source that determines the timestamp parser for its data itself, e.g., as it combines data in different 
+ * formats. The replay mechanism uses the parser of such a source instead of its own one.
+ * 
+ * @author Holger Eichelberger
+ */
+public interface ITimestampedReplaySource extends IReplaySource {
+
+    /**
+     * Returns the timestamp parser for the lines returned by the reader of this source.
+     * 
+     * @return the timestamp parser
+     */
+    public ITimestampParser getTimestampParser();
+    
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.dataManagement.sources.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A replay source merging multiple replay sources into one globally time-ordered stream (heap-based k-way merge
+ * with a prefetch buffer per source). Each source may use an own timestamp format, i.e., the timestamp parser of
+ * this source delegates to the parser of the source the actually read line stems from. Thus, the replay mechanism
+ * paces the merged stream with one consistent offset. Lines with equal timestamps are returned in the sequence of 
+ * adding their sources.
+ * 
+ * @author Holger Eichelberger
+ */
+public class MergingReplaySource implements ITimestampedReplaySource {
+
+    private List<IReplaySource> sources = new ArrayList<IReplaySource>();
+    private List<ITimestampParser> parsers = new ArrayList<ITimestampParser>();
+    private int chunkSize = PrefetchingMergeReader.DEFAULT_CHUNK_SIZE;
+    private int prefetchChunks = PrefetchingMergeReader.DEFAULT_PREFETCH_CHUNKS;
+    private PrefetchingMergeReader reader;
+    private ITimestampParser timestampParser = new MergedTimestampParser();
+
+    /**
+     * The timestamp parser delegating to the parser of the source of the last line read.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class MergedTimestampParser implements ITimestampParser {
+
+        /**
+         * Returns the parser to delegate to.
+         * 
+         * @return the parser
+         */
+        private ITimestampParser getParser() {
+            PrefetchingMergeReader r = reader;
+            ITimestampParser result = null == r ? null : r.getLastParser();
+            if (null == result) {
+                result = parsers.isEmpty() ? DateTimeTimestampParser.INSTANCE : parsers.get(0);
+            }
+            return result;
+        }
+        
+        @Override
+        public int consumeTimestamp(String line) {
+            return getParser().consumeTimestamp(line);
+        }
+
+        @Override
+        public long parseTimestamp(String timestamp) throws ParseException {
+            return getParser().parseTimestamp(timestamp);
+        }
+
+        @Override
+        public boolean skipParsing(String line) {
+            return getParser().skipParsing(line);
+        }
+        
+    }
+    
+    /**
+     * Adds a source to be merged. Has only effect before {@link #open()}.
+     * 
+     * @param source the source
+     * @param parser the timestamp parser for <code>source</code> (the default {@link DateTimeTimestampParser} if 
+     *   <b>null</b>)
+     */
+    public void addSource(IReplaySource source, ITimestampParser parser) {
+        if (null != source) {
+            sources.add(source);
+            parsers.add(null == parser ? DateTimeTimestampParser.INSTANCE : parser);
+        }
+    }
+    
+    /**
+     * Returns the number of sources to be merged.
+     * 
+     * @return the number of sources
+     */
+    public int getSourceCount() {
+        return sources.size();
+    }
+
+    /**
+     * Defines the prefetch buffers per source. Has only effect before {@link #open()}.
+     *
+     * @param chunkSize the number of lines per prefetched chunk
+     * @param prefetchChunks the maximum number of prefetched chunks per source
+     */
+    public void setPrefetch(int chunkSize, int prefetchChunks) {
+        this.chunkSize = Math.max(1, chunkSize);
+        this.prefetchChunks = Math.max(1, prefetchChunks);
+    }
+
+    @Override
+    public BufferedReader open() throws IOException {
+        if (sources.isEmpty()) {
+            throw new IOException("No sources to merge");
+        }
+        List<BufferedReader> readers = new ArrayList<BufferedReader>();
+        try {
+            for (IReplaySource source : sources) {
+                readers.add(source.open());
+            }
+        } catch (IOException e) {
+            for (BufferedReader r : readers) {
+                r.close();
+            }
+            throw e;
+        }
+        reader = new PrefetchingMergeReader(readers, parsers, chunkSize, prefetchChunks);
+        return reader;
+    }
+
+    @Override
+    public ITimestampParser getTimestampParser() {
+        return timestampParser;
+    }
+
+    @Override
+    public String toString() {
+        return "MergingReplaySource " + sources;
+    }
+
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.dataManagement.sources.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.log4j.LogManager;
+
+/**
+ * A reader combining multiple line-based readers. Each underlying reader is prefetched by an own daemon thread
+ * into a bounded buffer of line chunks, i.e., the underlying readers are read in parallel. If timestamp parsers
+ * are given, the lines are merged by their timestamps (heap-based k-way merge, ties are resolved by the reader
+ * index), else the readers are concatenated in the given sequence. Timestamps are parsed on the consuming thread
+ * as the timestamp parsers are not required to be thread-safe. Lines without parseable timestamp inherit the
+ * timestamp of the preceding line of the same reader. Please note that this class only supports the reading
+ * methods of {@link BufferedReader} that are used by the replay mechanism, i.e., neither marking nor skipping.
+ *
+ * @author Holger Eichelberger
+ */
+class PrefetchingMergeReader extends BufferedReader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+    public static final int DEFAULT_PREFETCH_CHUNKS = 16;
+
+    private static final List<String> EOF = Collections.emptyList();
+
+    private Prefetcher[] prefetchers;
+    private PriorityQueue<Head> heap;
+    private int current; // concatenation mode only
+    private String pending; // character-based reading only
+    private ITimestampParser lastParser; // merging mode only
+    private int pendingPos;
+    private boolean closed;
+
+    /**
+     * Represents a prefetching thread for an underlying reader.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class Prefetcher extends Thread {
+
+        private int index;
+        private BufferedReader reader;
+        private ITimestampParser parser;
+        private int chunkSize;
+        private BlockingQueue<List<String>> buffer;
+        private volatile IOException exception;
+        private volatile boolean closing;
+        private List<String> chunk;
+        private int chunkPos;
+        private long lastTimestamp = Long.MIN_VALUE;
+
+        /**
+         * Creates a prefetcher.
+         *
+         * @param index the index of the reader (for tie-breaking)
+         * @param reader the underlying reader
+         * @param parser the timestamp parser (may be <b>null</b> in concatenation mode)
+         * @param chunkSize the number of lines per prefetched chunk
+         * @param chunks the number of chunks to prefetch at maximum
+         */
+        private Prefetcher(int index, BufferedReader reader, ITimestampParser parser, int chunkSize, int chunks) {
+            super("replay-prefetch-" + index);
+            setDaemon(true);
+            this.index = index;
+            this.reader = reader;
+            this.parser = parser;
+            this.chunkSize = chunkSize;
+            this.buffer = new ArrayBlockingQueue<List<String>>(chunks);
+        }
+
+        @Override
+        public void run() {
+            try {
+                String line;
+                List<String> lines = new ArrayList<String>(chunkSize);
+                while (!isInterrupted() && null != (line = reader.readLine())) {
+                    lines.add(line);
+                    if (lines.size() >= chunkSize) {
+                        buffer.put(lines);
+                        lines = new ArrayList<String>(chunkSize);
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    buffer.put(lines);
+                }
+            } catch (IOException e) {
+                exception = e;
+            } catch (InterruptedException e) {
+                closing = true; // interrupt flag is cleared, terminate
+            }
+            if (!closing && !isInterrupted()) { // consumer does not wait anymore if closing
+                try {
+                    buffer.put(EOF);
+                } catch (InterruptedException e) {
+                    // closing, terminate
+                }
+            }
+        }
+
+        /**
+         * Returns the next line of the underlying reader. Blocks until a line is available.
+         *
+         * @return the next line, <b>null</b> if the end of the underlying reader is reached
+         * @throws IOException in case that reading the underlying reader failed or waiting was interrupted
+         */
+        private String nextLine() throws IOException {
+            String result = null;
+            if (EOF != chunk) {
+                if (null == chunk || chunkPos >= chunk.size()) {
+                    try {
+                        chunk = buffer.take();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException(e.getMessage());
+                    }
+                    chunkPos = 0;
+                }
+                if (EOF == chunk) {
+                    if (null != exception) {
+                        throw exception;
+                    }
+                } else {
+                    result = chunk.get(chunkPos++);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the timestamp of <code>line</code> or the last known timestamp if <code>line</code> does not
+         * start with a parseable timestamp.
+         *
+         * @param line the line to return the timestamp for
+         * @return the timestamp
+         */
+        private long timestamp(String line) {
+            if (!parser.skipParsing(line)) {
+                int end = parser.consumeTimestamp(line);
+                if (end > 0) {
+                    try {
+                        lastTimestamp = parser.parseTimestamp(line.substring(0, end));
+                    } catch (ParseException e) {
+                        // keep last timestamp
+                    }
+                }
+            }
+            return lastTimestamp;
+        }
+
+        /**
+         * Closes the underlying reader and stops prefetching.
+         */
+        private void close() {
+            closing = true;
+            interrupt();
+            try {
+                reader.close();
+            } catch (IOException e) {
+                LogManager.getLogger(PrefetchingMergeReader.class).error("While closing: " + e.getMessage());
+            }
+        }
+
+    }
+
+    /**
+     * Represents the head line of an underlying reader in the merge heap.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class Head implements Comparable<Head> {
+
+        private Prefetcher prefetcher;
+        private String line;
+        private long timestamp;
+
+        /**
+         * Creates a head entry.
+         *
+         * @param prefetcher the prefetcher the line was taken from
+         * @param line the line
+         */
+        private Head(Prefetcher prefetcher, String line) {
+            this.prefetcher = prefetcher;
+            this.line = line;
+            this.timestamp = prefetcher.timestamp(line);
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            int result = Long.compare(timestamp, other.timestamp);
+            if (0 == result) {
+                result = Integer.compare(prefetcher.index, other.prefetcher.index);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Creates a concatenating reader, i.e., the readers are prefetched in parallel and returned in sequence.
+     *
+     * @param readers the underlying readers
+     * @param chunkSize the number of lines per prefetched chunk
+     * @param chunks the number of chunks to prefetch per reader at maximum
+     */
+    PrefetchingMergeReader(List<BufferedReader> readers, int chunkSize, int chunks) {
+        this(readers, null, chunkSize, chunks);
+    }
+
+    /**
+     * Creates a merging reader.
+     *
+     * @param readers the underlying readers
+     * @param parsers the timestamp parsers, one per reader in the sequence of <code>readers</code>, if <b>null</b>
+     *   the readers are concatenated rather than merged
+     * @param chunkSize the number of lines per prefetched chunk
+     * @param chunks the number of chunks to prefetch per reader at maximum
+     * @throws IllegalArgumentException if <code>parsers</code> is given but does not match <code>readers</code>
+     */
+    PrefetchingMergeReader(List<BufferedReader> readers, List<ITimestampParser> parsers, int chunkSize, int chunks) {
+        super(new StringReader(""), 1); // reading methods are overridden
+        if (null != parsers && parsers.size() != readers.size()) {
+            throw new IllegalArgumentException("One timestamp parser per reader required");
+        }
+        chunkSize = Math.max(1, chunkSize);
+        chunks = Math.max(1, chunks);
+        prefetchers = new Prefetcher[readers.size()];
+        for (int r = 0; r < prefetchers.length; r++) {
+            ITimestampParser parser = null == parsers ? null : parsers.get(r);
+            prefetchers[r] = new Prefetcher(r, readers.get(r), parser, chunkSize, chunks);
+            prefetchers[r].start();
+        }
+        if (null != parsers) {
+            heap = new PriorityQueue<Head>(Math.max(1, prefetchers.length));
+        }
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        String result;
+        if (null != pending) { // mixed reading, continue current line
+            result = pending.substring(pendingPos, pending.length() - 1); // without line end
+            pending = null;
+        } else if (null == heap) {
+            result = null;
+            while (null == result && current < prefetchers.length) {
+                result = prefetchers[current].nextLine();
+                if (null == result) {
+                    current++;
+                }
+            }
+        } else {
+            if (current < prefetchers.length) { // lazy init to avoid blocking constructor
+                for (; current < prefetchers.length; current++) {
+                    offer(prefetchers[current]);
+                }
+            }
+            Head head = heap.poll();
+            if (null == head) {
+                result = null;
+            } else {
+                result = head.line;
+                lastParser = head.prefetcher.parser;
+                offer(head.prefetcher);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the timestamp parser of the reader the last line returned by {@link #readLine()} was taken from.
+     *
+     * @return the timestamp parser, <b>null</b> if no line was read so far or in concatenation mode
+     */
+    ITimestampParser getLastParser() {
+        return lastParser;
+    }
+
+    /**
+     * Offers the next line of <code>prefetcher</code> to the merge heap.
+     *
+     * @param prefetcher the prefetcher to take the line from
+     * @throws IOException in case that reading failed
+     */
+    private void offer(Prefetcher prefetcher) throws IOException {
+        String line = prefetcher.nextLine();
+        if (null != line) {
+            heap.offer(new Head(prefetcher, line));
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        char[] tmp = new char[1];
+        int result = read(tmp, 0, 1);
+        return result < 0 ? -1 : tmp[0];
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int result = -1;
+        if (len > 0) {
+            if (null == pending) {
+                String line = readLine();
+                if (null != line) {
+                    pending = line + "\n";
+                    pendingPos = 0;
+                }
+            }
+            if (null != pending) {
+                result = Math.min(len, pending.length() - pendingPos);
+                pending.getChars(pendingPos, pendingPos + result, cbuf, off);
+                pendingPos += result;
+                if (pendingPos >= pending.length()) {
+                    pending = null;
+                }
+            }
+        } else {
+            result = 0;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return null != pending;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            for (int p = 0; p < prefetchers.length; p++) {
+                prefetchers[p].close();
+            }
+            super.close();
+        }
+    }
+
+}
@@ -90,6 +90,21 @@ public class HdfsUtils {
      * @throws IOException if creating the filesystem fails for some I/O reason
      */
     public static FileSystem getFilesystem(String defaultFs) throws IOException {
+        return getFilesystem(defaultFs, null);
+    }
+
+    /**
+     * Returns the default file system with optional short-circuit local reads. Please note that Hadoop caches
+     * file systems per URL and user, i.e., the short-circuit setting of the first request for a certain file system
+     * applies.
+     * 
+     * @param defaultFs the default fs URL (if not given, we rely on {@link DataManagementConfiguration#getHdfsUrl()})
+     * @param domainSocket the UNIX domain socket path enabling short-circuit local reads (ignored if <b>null</b> 
+     *   or empty)
+     * @return the file system
+     * @throws IOException if creating the filesystem fails for some I/O reason
+     */
+    public static FileSystem getFilesystem(String defaultFs, String domainSocket) throws IOException {
         String fsUrl = defaultFs;
         if (null == fsUrl || 0 == fsUrl.length()) {
             fsUrl = getHdfsUrl();
@@ -106,6 +121,10 @@ public class HdfsUtils {
         if (!isEmpty(groupMapping)) {
             c.set("hadoop.security.group.mapping", groupMapping);
         }
+        if (null != domainSocket && !isEmpty(domainSocket)) {
+            c.setBoolean("dfs.client.read.shortcircuit", true);
+            c.set("dfs.domain.socket.path", domainSocket);
+        }
         return FileSystem.get(c);
     }
 
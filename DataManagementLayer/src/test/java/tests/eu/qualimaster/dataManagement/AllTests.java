@@ -12,7 +12,8 @@ import org.junit.runners.Suite;
  * @author Holger Eichelberger
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({StringSerializationTests.class, ReplayMechanismTests.class, PasswordStoreTests.class,
+@Suite.SuiteClasses({StringSerializationTests.class, ReplayMechanismTests.class, PackedRowsTests.class,
+    PasswordStoreTests.class,
     // must be last
     DataManagementConfigurationTests.class })
 public class AllTests {
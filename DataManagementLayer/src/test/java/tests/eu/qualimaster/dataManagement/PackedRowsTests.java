@@ -0,0 +1,219 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.dataManagement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.dataManagement.common.replay.Field;
+import eu.qualimaster.dataManagement.common.replay.Tuple;
+import eu.qualimaster.dataManagement.sinks.replay.PackedRowDecoder;
+import eu.qualimaster.dataManagement.sinks.replay.PackedRowEncoder;
+import eu.qualimaster.dataManagement.sinks.replay.PackedRows;
+import eu.qualimaster.dataManagement.storage.hbase.HBaseBatchStorageSupport;
+
+/**
+ * Tests the packed replay row encoding.
+ *
+ * @author Holger Eichelberger
+ */
+public class PackedRowsTests {
+
+    private static final Tuple SCHEMA = new Tuple("pairs",
+        new Field("symbol", String.class, true, false),
+        new Field("partner", String.class, true, false),
+        new Field("time", long.class, false, true),
+        new Field("value", double.class, false, false),
+        new Field("volume", int.class, false, false),
+        new Field("tags", String[].class, false, false));
+
+    /**
+     * Collects the encoded rows.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class CollectingEncoder extends PackedRowEncoder {
+
+        private List<byte[]> keys = new ArrayList<byte[]>();
+        private List<byte[]> values = new ArrayList<byte[]>();
+
+        /**
+         * Creates a collecting encoder.
+         */
+        private CollectingEncoder() {
+            super(SCHEMA);
+        }
+
+        @Override
+        protected void writeRow(byte[] key, byte[] value) throws IOException {
+            keys.add(key);
+            values.add(value);
+        }
+
+        /**
+         * Writes a tuple.
+         *
+         * @param symbol the symbol
+         * @param partner the partner symbol
+         * @param time the timestamp
+         * @param value the value
+         * @param volume the volume
+         * @param tags the tags
+         * @throws IOException shall not occur
+         */
+        private void write(String symbol, String partner, long time, double value, int volume, String... tags)
+            throws IOException {
+            writeString(symbol);
+            writeString(partner);
+            writeLong(time);
+            writeDouble(value);
+            writeInt(volume);
+            writeStringArray(tags);
+        }
+
+    }
+
+    /**
+     * Tests encoding and decoding of packed rows.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testRoundtrip() throws IOException {
+        CollectingEncoder encoder = new CollectingEncoder();
+        encoder.write("AAPL", "MSFT", 1467000000000L, -1.5, 42, "a", "b");
+        encoder.write("AA\u0000X", "ä", -5, 0.25, -7);
+        encoder.write("AAPL", null, 1467000000000L, 2, 3); // null, skipped
+        encoder.write("GOOG", "MSFT", 1467000001000L, 3.5, Integer.MAX_VALUE, "c");
+        Assert.assertEquals(3, encoder.keys.size());
+
+        PackedRowDecoder decoder = new PackedRowDecoder(SCHEMA);
+        decoder.setRow(encoder.keys.get(0), encoder.values.get(0));
+        Assert.assertFalse(decoder.isEOD());
+        Assert.assertEquals(1467000000000L, decoder.getTimestamp());
+        Assert.assertEquals("AAPL", decoder.nextString());
+        Assert.assertEquals("MSFT", decoder.nextString());
+        Assert.assertEquals(1467000000000L, decoder.nextLong());
+        Assert.assertEquals(-1.5, decoder.nextDouble(), 0.0001);
+        Assert.assertEquals(42, decoder.nextInt());
+        Assert.assertArrayEquals(new String[] {"a", "b"}, decoder.nextStringArray());
+        Assert.assertTrue(decoder.isEOD());
+
+        decoder.setRow(encoder.keys.get(1), encoder.values.get(1));
+        Assert.assertEquals("AA\u0000X", decoder.nextString());
+        Assert.assertEquals("ä", decoder.nextString());
+        Assert.assertEquals(-5, decoder.nextLong());
+        Assert.assertEquals(0.25, decoder.nextDouble(), 0.0001);
+        Assert.assertEquals(-7, decoder.nextInt());
+        Assert.assertEquals(0, decoder.nextStringArray().length);
+        try {
+            decoder.nextString();
+            Assert.fail("no exception");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that the binary keys preserve the order of the key values and the time order per key so that
+     * queries can be turned into row ranges.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testKeyOrder() throws IOException {
+        CollectingEncoder encoder = new CollectingEncoder();
+        encoder.write("AAPL", "MSFT", 1000, 0, 0);
+        encoder.write("AAPL", "MSFT", 2000, 0, 0);
+        encoder.write("AAPL", "MSFTX", 500, 0, 0);
+        encoder.write("AAPLX", "A", 0, 0, 0);
+        for (int k = 1; k < encoder.keys.size(); k++) {
+            Assert.assertTrue(compare(encoder.keys.get(k - 1), encoder.keys.get(k)) < 0);
+        }
+        byte[] start = PackedRows.encodeKey(SCHEMA, new String[] {"AAPL", "MSFT"}, 1000);
+        byte[] end = PackedRows.encodeKey(SCHEMA, new String[] {"AAPL", "MSFT"}, 1500);
+        Assert.assertArrayEquals(start, encoder.keys.get(0));
+        Assert.assertTrue(compare(end, encoder.keys.get(1)) < 0);
+        Assert.assertEquals(1500, PackedRows.getTimestamp(end));
+
+        Tuple numeric = new Tuple("numeric", new Field("id", int.class, true, false),
+            new Field("price", double.class, true, false), new Field("time", long.class, false, true));
+        byte[] prev = null;
+        for (String[] keys : new String[][] {{"-3", "2.5"}, {"-3", "3"}, {"-1", "-7.5"}, {"0", "-1"}, {"12", "0"}}) {
+            byte[] key = PackedRows.encodeKey(numeric, keys, -1);
+            if (null != prev) {
+                Assert.assertTrue(compare(prev, key) < 0);
+            }
+            prev = key;
+        }
+        try {
+            PackedRows.encodeKey(numeric, new String[] {"1"}, 0);
+            Assert.fail("no exception");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Compares two byte arrays lexicographically (unsigned) as done by HBase for row keys.
+     *
+     * @param b1 the first array
+     * @param b2 the second array
+     * @return the comparison result
+     */
+    private static int compare(byte[] b1, byte[] b2) {
+        int result = 0;
+        for (int i = 0; 0 == result && i < Math.min(b1.length, b2.length); i++) {
+            result = Integer.compare(b1[i] & 0xFF, b2[i] & 0xFF);
+        }
+        return 0 == result ? Integer.compare(b1.length, b2.length) : result;
+    }
+
+    /**
+     * Returns the size of a HBase cell (key value) in bytes, i.e., key length (4), value length (4), row length (2),
+     * row, family length (1), family, qualifier, timestamp (8), type (1) and value.
+     *
+     * @param row the row key length
+     * @param qualifier the column qualifier length
+     * @param value the value length
+     * @return the cell size
+     */
+    private static int cellSize(int row, int qualifier, int value) {
+        return 4 + 4 + 2 + row + 1 + HBaseBatchStorageSupport.COLUMN_FAMILY_BYTES.length + qualifier + 8 + 1 + value;
+    }
+
+    /**
+     * Compares the storage size of the packed layout with the per-column layout in terms of HBase cells.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testStorageSize() throws IOException {
+        CollectingEncoder encoder = new CollectingEncoder();
+        encoder.write("AAPL", "MSFT", 1467000000000L, 101.25, 1000, "x");
+        int packed = cellSize(encoder.keys.get(0).length, PackedRows.COLUMN.length, encoder.values.get(0).length);
+
+        int columnKey = "AAPL-MSFT-1467000000000".length();
+        int columns = cellSize(columnKey, "value".length(), 8) + cellSize(columnKey, "volume".length(), 4)
+            + cellSize(columnKey, "tags".length(), 4 + 4 + 1); // count, length, "x" as in ReplayUtils
+        Assert.assertTrue(packed + " < " + columns, packed * 2 < columns);
+    }
+
+}
@@ -15,7 +15,18 @@
  */
 package tests.eu.qualimaster.dataManagement;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
@@ -23,16 +34,21 @@ import org.joda.time.format.DateTimeFormatter;
 import org.junit.Assert;
 import org.junit.Test;
 
+import eu.qualimaster.dataManagement.common.replay.ReplayClock;
 import eu.qualimaster.dataManagement.sources.ReplayMechanism;
 import eu.qualimaster.dataManagement.sources.replay.DateTimeTimestampParser;
 import eu.qualimaster.dataManagement.sources.replay.FileSource;
+import eu.qualimaster.dataManagement.sources.replay.HdfsStreamingSource;
 import eu.qualimaster.dataManagement.sources.replay.IDataManipulator;
 import eu.qualimaster.dataManagement.sources.replay.IReplaySource;
 import eu.qualimaster.dataManagement.sources.replay.LongTimestampParser;
+import eu.qualimaster.dataManagement.sources.replay.MergingReplaySource;
+import eu.qualimaster.observables.Scalability;
+import eu.qualimaster.observables.TimeBehavior;
 
 /**
- * Tests the replay mechanism. We focus on the OS filesystem rather than HDFS in this class. No HDFS-based 
- * tests for now.
+ * Tests the replay mechanism. We focus on the OS filesystem rather than HDFS in this class. HDFS-based sources
+ * are tested against the local Hadoop file system.
  * 
  * @author Holger Eichelberger
  */
@@ -109,6 +125,9 @@ public class ReplayMechanismTests {
     private static final TestData REPLAY2 = new TestData("replay2.data", "123;144;APL;5", ';', 5000);
     private static final TestData REPLAY3 = new TestData("replay3.data", "123,144,APL,5", ',', 5000);
     private static final TestData REPLAY4 = new TestData("replay4.data", null, ',', 5000);
+    private static final TestData REPLAY1_FAST = new TestData("replay1.data", "123,144,APL,5", ',', 500);
+    private static final TestData REPLAY1_RATE = new TestData("replay1.data", "123,144,APL,5", ',', 250);
+    private static final TestData REPLAY1_AFAP = new TestData("replay1.data", "123,144,APL,5", ',', 0);
     /**
      * Tests simple replay data with default separator and file source just for compliance with the payload 
      * (all via constructor).
@@ -278,4 +297,244 @@ public class ReplayMechanismTests {
         assertReplay(replay, data);
     }
 
+    /**
+     * Tests replaying with speed factor, fixed rate and as fast as possible.
+     */
+    @Test
+    public void testReplayClock() {
+        ReplayMechanism replay = new ReplayMechanism(new FileSource(REPLAY1_FAST.getFile()), 
+            LongTimestampParser.INSTANCE);
+        replay.setParameterReplaySpeed(10);
+        Assert.assertEquals(ReplayClock.Mode.SPEED, replay.getClock().getMode());
+        assertReplay(replay, REPLAY1_FAST);
+        assertRate(replay, 10, 10);
+
+        replay = new ReplayMechanism(new FileSource(REPLAY1_RATE.getFile()), LongTimestampParser.INSTANCE);
+        replay.setParameterReplayRate(20);
+        Assert.assertEquals(ReplayClock.Mode.FIXED_RATE, replay.getClock().getMode());
+        assertReplay(replay, REPLAY1_RATE);
+        assertRate(replay, 20, 20);
+
+        replay = new ReplayMechanism(new FileSource(REPLAY1_AFAP.getFile()), LongTimestampParser.INSTANCE);
+        replay.setParameterReplayRate(-1);
+        Assert.assertEquals(ReplayClock.Mode.AS_FAST_AS_POSSIBLE, replay.getClock().getMode());
+        assertReplay(replay, REPLAY1_AFAP);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, replay.getMeasurement(Scalability.VELOCITY), 0.001);
+    }
+
+    /**
+     * Tests the interplay of the replay speed and the replay rate parameters.
+     */
+    @Test
+    public void testReplayParameters() {
+        ReplayMechanism replay = new ReplayMechanism(new FileSource(REPLAY1_FAST.getFile()), 
+            LongTimestampParser.INSTANCE);
+        ReplayClock clock = replay.getClock();
+        replay.setParameterReplaySpeed(0);
+        Assert.assertEquals(ReplayClock.Mode.AS_FAST_AS_POSSIBLE, clock.getMode());
+        replay.setParameterReplaySpeed(-2);
+        Assert.assertEquals(ReplayClock.Mode.SPEED, clock.getMode());
+        Assert.assertEquals(0.5, clock.getSpeedFactor(), 0.001);
+        replay.setParameterReplaySpeed(5);
+        replay.setParameterReplayRate(20);
+        Assert.assertEquals(ReplayClock.Mode.FIXED_RATE, clock.getMode());
+        replay.setParameterReplaySpeed(3); // rate takes precedence
+        Assert.assertEquals(ReplayClock.Mode.FIXED_RATE, clock.getMode());
+        Assert.assertEquals(20, clock.getFixedRate(), 0.001);
+        replay.setParameterReplayRate(0); // back to the configured speed
+        Assert.assertEquals(ReplayClock.Mode.SPEED, clock.getMode());
+        Assert.assertEquals(3, clock.getSpeedFactor(), 0.001);
+        replay.setParameterReplayRate(-1);
+        Assert.assertEquals(ReplayClock.Mode.AS_FAST_AS_POSSIBLE, clock.getMode());
+        replay.setParameterReplayRate(0);
+        Assert.assertEquals(ReplayClock.Mode.SPEED, clock.getMode());
+        Assert.assertEquals(3, clock.getSpeedFactor(), 0.001);
+    }
+
+    /**
+     * Asserts the achieved and the requested rate of <code>replay</code>.
+     * 
+     * @param replay the replay mechanism
+     * @param expectedRequested the expected requested rate
+     * @param expectedAchieved the expected achieved rate (10% tolerance)
+     */
+    private static void assertRate(ReplayMechanism replay, double expectedRequested, double expectedAchieved) {
+        Assert.assertEquals(expectedRequested, replay.getMeasurement(Scalability.VELOCITY), 0.001);
+        Assert.assertEquals(expectedAchieved, replay.getMeasurement(TimeBehavior.THROUGHPUT_ITEMS), 
+            expectedAchieved * 0.1);
+    }
+
+    /**
+     * Tests the streaming HDFS source on a single file of the local Hadoop file system.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testHdfsStreamingSourceFile() throws IOException {
+        TestData data = REPLAY1;
+        FileSystem fs = FileSystem.getLocal(new Configuration());
+        HdfsStreamingSource source = new HdfsStreamingSource(fs, new Path(data.getFile().getAbsolutePath()));
+        source.setReadahead(1024);
+        ReplayMechanism replay = new ReplayMechanism(source, LongTimestampParser.INSTANCE);
+        assertReplay(replay, data);
+    }
+
+    /**
+     * Tests the streaming HDFS source on a directory of part files of the local Hadoop file system, both in 
+     * timestamp-merging and in concatenating mode.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testHdfsStreamingSourceParts() throws IOException {
+        File dir = java.nio.file.Files.createTempDirectory("replayParts").toFile();
+        try {
+            writeLines(new File(dir, "part-00000"), "1,a", "3,c", "5,e");
+            writeLines(new File(dir, "part-00001"), "2,b", "4,d", "6,f", "6,g");
+            writeLines(new File(dir, "_SUCCESS"));
+            FileSystem fs = FileSystem.getLocal(new Configuration());
+            HdfsStreamingSource source = new HdfsStreamingSource(fs, new Path(dir.getAbsolutePath()));
+            source.setPrefetch(2, 1);
+            Assert.assertEquals(Arrays.asList("1,a", "3,c", "5,e", "2,b", "4,d", "6,f", "6,g"), readLines(source));
+            source.setTimestampParser(LongTimestampParser.INSTANCE);
+            Assert.assertEquals(Arrays.asList("1,a", "2,b", "3,c", "4,d", "5,e", "6,f", "6,g"), readLines(source));
+        } finally {
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+
+    /**
+     * Tests that closing a streaming source with full prefetch buffers terminates the prefetching threads.
+     * 
+     * @throws IOException shall not occur
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 10000)
+    public void testHdfsStreamingSourceClose() throws IOException, InterruptedException {
+        File dir = java.nio.file.Files.createTempDirectory("replayClose").toFile();
+        try {
+            String[] lines = new String[100];
+            for (int l = 0; l < lines.length; l++) {
+                lines[l] = l + ",x";
+            }
+            writeLines(new File(dir, "part-00000"), lines);
+            writeLines(new File(dir, "part-00001"), lines);
+            FileSystem fs = FileSystem.getLocal(new Configuration());
+            HdfsStreamingSource source = new HdfsStreamingSource(fs, new Path(dir.getAbsolutePath()));
+            source.setPrefetch(2, 1);
+            BufferedReader reader = source.open();
+            Assert.assertNotNull(reader.readLine());
+            Thread.sleep(200); // let the prefetchers fill their buffers and block
+            reader.close();
+            while (hasPrefetchThreads()) { // potential endless loop -> timeout
+                Thread.sleep(50);
+            }
+        } finally {
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+
+    /**
+     * Returns whether there are live prefetching threads.
+     * 
+     * @return <code>true</code> for live prefetching threads, <code>false</code> else
+     */
+    private static boolean hasPrefetchThreads() {
+        boolean found = false;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            found |= thread.isAlive() && thread.getName().startsWith("replay-prefetch-");
+        }
+        return found;
+    }
+
+    /**
+     * Tests merging multiple replay sources by timestamp including the pacing of the merged stream.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testMergingReplaySource() throws IOException {
+        File dir = java.nio.file.Files.createTempDirectory("replayMerge").toFile();
+        try {
+            File file1 = new File(dir, "source1.data");
+            File file2 = new File(dir, "source2.data");
+            writeLines(file1, "1000,a", "2000,c", "3000,e");
+            writeLines(file2, "1500,b", "2500,d", "2500,f");
+            MergingReplaySource source = new MergingReplaySource();
+            source.addSource(new FileSource(file1), LongTimestampParser.INSTANCE);
+            source.addSource(new FileSource(file2), LongTimestampParser.INSTANCE);
+            Assert.assertEquals(2, source.getSourceCount());
+            Assert.assertEquals(Arrays.asList("1000,a", "1500,b", "2000,c", "2500,d", "2500,f", "3000,e"), 
+                readLines(source));
+
+            ReplayMechanism replay = new ReplayMechanism(LongTimestampParser.INSTANCE);
+            replay.setParameterDataFiles(file2.getAbsolutePath() + "," + file1.getAbsolutePath());
+            replay.connect(); // consumes "1000,a"
+            List<String> payloads = new ArrayList<String>();
+            long start = System.currentTimeMillis();
+            do {
+                String payload = replay.getNext(true);
+                if (null != payload) {
+                    payloads.add(payload);
+                }
+            } while (!replay.isEOD());
+            long timeDiff = System.currentTimeMillis() - start;
+            replay.disconnect();
+            Assert.assertEquals(Arrays.asList("b", "c", "d", "f", "e"), payloads);
+            final long tolerance = 300; // due to jenkins
+            Assert.assertTrue("replay time " + timeDiff + " not within tolerance ", 
+                2000 - tolerance < timeDiff && timeDiff < 2000 + tolerance);
+        } finally {
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+
+    /**
+     * Tests that the timestamp parser of a merging source does not apply to a source defined afterwards.
+     */
+    @Test
+    public void testMergingReplaySourceChangeSource() {
+        MergingReplaySource merging = new MergingReplaySource();
+        merging.addSource(new FileSource(REPLAY1.getFile()), LongTimestampParser.INSTANCE);
+        ReplayMechanism replay = new ReplayMechanism(); // date-time timestamps
+        replay.setSource(merging);
+        replay.connect();
+        replay.disconnect();
+        replay.setSource(new FileSource(REPLAY3.getFile()));
+        assertReplay(replay, REPLAY3);
+    }
+
+    /**
+     * Writes lines to a file.
+     * 
+     * @param file the file to write
+     * @param lines the lines
+     * @throws IOException in case that writing fails
+     */
+    private static void writeLines(File file, String... lines) throws IOException {
+        PrintWriter out = new PrintWriter(file);
+        for (String line : lines) {
+            out.println(line);
+        }
+        out.close();
+    }
+
+    /**
+     * Reads all lines from a replay source.
+     * 
+     * @param source the source
+     * @return the lines
+     * @throws IOException in case that reading fails
+     */
+    private static List<String> readLines(IReplaySource source) throws IOException {
+        List<String> result = new ArrayList<String>();
+        BufferedReader reader = source.open();
+        String line;
+        while (null != (line = reader.readLine())) {
+            result.add(line);
+        }
+        reader.close();
+        return result;
+    }
+
 }
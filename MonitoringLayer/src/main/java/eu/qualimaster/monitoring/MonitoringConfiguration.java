@@ -16,6 +16,7 @@
 package eu.qualimaster.monitoring;
 
 import java.io.File;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -140,6 +141,17 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
      */
     public static final boolean DEFAULT_PROFILE_APPROXIMATE = true;
 
+    /**
+     * Denotes whether profiling shall approximate by the incremental recursive least squares polynomial 
+     * approximator rather than by spline interpolation.
+     */
+    public static final String PROFILE_APPROXIMATE_INCREMENTAL = "profiling.approximation.incremental";
+
+    /**
+     * The default value for {@link #PROFILE_APPROXIMATE_INCREMENTAL} ({@value}).
+     */
+    public static final boolean DEFAULT_PROFILE_APPROXIMATE_INCREMENTAL = false;
+
     /**
      * Denotes the maximum time that we wait for accepting that an existing executor has been created and is 
      * active (Integer in s). The actual time can be faster due to sending startup events (executor, task observation).
@@ -183,6 +195,38 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
      */
     public static final String DEFAULT_VOLUME_MODEL_LOCATION = FileUtils.getTempDirectoryPath();
 
+    /**
+     * Denotes the volume forecasting approach, either "weka" (Weka forecasters retrained from the historical data) 
+     * or "online" (incrementally updated autoregressive models, opt-in).
+     */
+    public static final String VOLUME_FORECASTER = "volumePrediction.forecaster";
+
+    /**
+     * The default value for {@link #VOLUME_FORECASTER} ({@value}).
+     */
+    public static final String DEFAULT_VOLUME_FORECASTER = "weka";
+
+    /**
+     * Denotes the number of threads for training and predicting the volumes of terms in parallel (non-positive for 
+     * the number of processors).
+     */
+    public static final String VOLUME_PREDICTION_THREADS = "volumePrediction.threads";
+
+    /**
+     * The default value for {@link #VOLUME_PREDICTION_THREADS} ({@value}).
+     */
+    public static final int DEFAULT_VOLUME_PREDICTION_THREADS = 0;
+
+    /**
+     * Denotes the minimum number of terms to be trained or predicted in parallel.
+     */
+    public static final String VOLUME_PREDICTION_PARALLEL_THRESHOLD = "volumePrediction.parallelThreshold";
+
+    /**
+     * The default value for {@link #VOLUME_PREDICTION_PARALLEL_THRESHOLD} ({@value}).
+     */
+    public static final int DEFAULT_VOLUME_PREDICTION_PARALLEL_THRESHOLD = 64;
+
     /**
      * Denotes the time to live for a profile without updates.
      */
@@ -203,6 +247,37 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
      */
     public static final boolean DEFAULT_PROFILE_ENABLED = true;
 
+    /**
+     * Denotes the number of threads for parallel batch predictions (non-positive for the number of processors).
+     */
+    public static final String PROFILE_PREDICTION_THREADS = "profiling.prediction.threads";
+
+    /**
+     * The default value for {@link #PROFILE_PREDICTION_THREADS} ({@value}).
+     */
+    public static final int DEFAULT_PROFILE_PREDICTION_THREADS = 0;
+
+    /**
+     * Denotes the minimum number of candidates in a batch prediction to be evaluated in parallel.
+     */
+    public static final String PROFILE_PREDICTION_PARALLEL_THRESHOLD = "profiling.prediction.parallelThreshold";
+
+    /**
+     * The default value for {@link #PROFILE_PREDICTION_PARALLEL_THRESHOLD} ({@value}).
+     */
+    public static final int DEFAULT_PROFILE_PREDICTION_PARALLEL_THRESHOLD = 64;
+
+    /**
+     * Denotes the storage layout of the profile predictors, either "folders" (one file per predictor) or "binary" 
+     * (one indexed file per pipeline element).
+     */
+    public static final String PROFILE_STORAGE = "profiling.storage";
+
+    /**
+     * The default value for {@link #PROFILE_STORAGE} ({@value}).
+     */
+    public static final String DEFAULT_PROFILE_STORAGE = "folders";
+
     /**
      * Denotes whether instance-based reasoning is enabled at all.
      */
@@ -213,6 +288,123 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
      */
     public static final boolean DEFAULT_REASONING_INSTANCE_BASED = false;
 
+    /**
+     * Denotes whether the system state shall be frozen into the compact, symbol-table based representation.
+     */
+    public static final String MONITORING_COMPACT_FROZEN_STATE = "monitoring.frozenState.compact";
+
+    /**
+     * The default value for {@link #MONITORING_COMPACT_FROZEN_STATE} ({@value}).
+     */
+    public static final boolean DEFAULT_MONITORING_COMPACT_FROZEN_STATE = false;
+
+    /**
+     * Denotes whether reasoning shall be change-driven, i.e., skip reasoning cycles if no monitored value changed 
+     * beyond its tolerance band since the last reasoning.
+     */
+    public static final String REASONING_CHANGE_DRIVEN = "reasoning.changeDriven";
+
+    /**
+     * The default value for {@link #REASONING_CHANGE_DRIVEN} ({@value}).
+     */
+    public static final boolean DEFAULT_REASONING_CHANGE_DRIVEN = false;
+
+    /**
+     * Denotes the tolerance bands for change-driven reasoning as relative deviations in percent per (simple) 
+     * observable name, e.g., <code>LATENCY:5,THROUGHPUT_ITEMS:10</code>. <code>*</code> denotes the tolerance of 
+     * all observables that are not mentioned. Multiple entries can be given separated by commas.
+     */
+    public static final String REASONING_CHANGE_TOLERANCES = "reasoning.changeDriven.tolerances";
+
+    /**
+     * The default value for {@link #REASONING_CHANGE_TOLERANCES}, {@link #EMPTY_VALUE}, i.e., any change triggers 
+     * reasoning.
+     */
+    public static final String DEFAULT_REASONING_CHANGE_TOLERANCES = EMPTY_VALUE;
+
+    /**
+     * Denotes the maximum number of subsequent reasoning cycles that may be skipped in change-driven reasoning
+     * before reasoning is enforced.
+     */
+    public static final String REASONING_MAX_SKIPPED = "reasoning.changeDriven.maxSkipped";
+
+    /**
+     * The default value for {@link #REASONING_MAX_SKIPPED} ({@value}).
+     */
+    public static final int DEFAULT_REASONING_MAX_SKIPPED = 10;
+
+    /**
+     * Denotes the number of threads polling the monitoring information of individual pipelines.
+     */
+    public static final String MONITORING_PIPELINE_THREADS = "monitoring.pipeline.threads";
+
+    /**
+     * The default value for {@link #MONITORING_PIPELINE_THREADS} ({@value}).
+     */
+    public static final int DEFAULT_MONITORING_PIPELINE_THREADS = 2;
+
+    /**
+     * Denotes the interval (in ms) in which the execution statistics of the monitoring lanes are logged. Disabled if 
+     * not positive.
+     */
+    public static final String MONITORING_LANE_STATISTICS_INTERVAL = "monitoring.lanes.statisticsInterval";
+
+    /**
+     * The default value for {@link #MONITORING_LANE_STATISTICS_INTERVAL} ({@value}).
+     */
+    public static final int DEFAULT_MONITORING_LANE_STATISTICS_INTERVAL = 60000;
+
+    /**
+     * Denotes the maximum number of Thrift connections used to obtain pipeline monitoring information in parallel.
+     */
+    public static final String THRIFT_MONITORING_CONNECTIONS = "thrift.monitoring.connections";
+
+    /**
+     * The default value for {@link #THRIFT_MONITORING_CONNECTIONS} ({@value}).
+     */
+    public static final int DEFAULT_THRIFT_MONITORING_CONNECTIONS = 3;
+
+    /**
+     * Denotes the time (in ms) a snapshot of the Thrift pipeline monitoring information is shared among the 
+     * pipeline monitoring tasks.
+     */
+    public static final String THRIFT_MONITORING_CACHE_INTERVAL = "thrift.monitoring.cacheInterval";
+
+    /**
+     * The default value for {@link #THRIFT_MONITORING_CACHE_INTERVAL} ({@value}).
+     */
+    public static final int DEFAULT_THRIFT_MONITORING_CACHE_INTERVAL = 500;
+
+    /**
+     * Denotes whether monitoring traces shall be written in binary format rather than as CSV.
+     */
+    public static final String MONITORING_TRACE_BINARY = "monitoring.trace.binary";
+
+    /**
+     * The default value for {@link #MONITORING_TRACE_BINARY} ({@value}).
+     */
+    public static final boolean DEFAULT_MONITORING_TRACE_BINARY = false;
+
+    /**
+     * Denotes the block compression of binary monitoring traces, either <code>none</code> or <code>gzip</code>.
+     */
+    public static final String MONITORING_TRACE_COMPRESSION = "monitoring.trace.compression";
+
+    /**
+     * The default value for {@link #MONITORING_TRACE_COMPRESSION} ({@value}).
+     */
+    public static final String DEFAULT_MONITORING_TRACE_COMPRESSION = "gzip";
+
+    /**
+     * Denotes the interval for writing and flushing binary monitoring traces (in ms).
+     */
+    public static final String MONITORING_TRACE_FLUSH_INTERVAL = "monitoring.trace.flushInterval";
+
+    /**
+     * The default value for {@link #MONITORING_TRACE_FLUSH_INTERVAL} ({@value}).
+     */
+    public static final int DEFAULT_MONITORING_TRACE_FLUSH_INTERVAL = 2000;
+
     
     private static ConfigurationOption<String> monitoringAnalysisDisabled
         = createStringOption(MONITORING_ANALYSIS_DISABLED, DEFAULT_MONITORING_ANALYSIS_DISABLED);
@@ -240,14 +432,50 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
         = createBooleanOption(THRIFT_MONITORING_DEBUG, DEFAULT_THRIFT_MONITORING_DEBUG);
     private static ConfigurationOption<String> volumeModelLocation 
         = createStringOption(VOLUME_MODEL_LOCATION, DEFAULT_VOLUME_MODEL_LOCATION);
+    private static ConfigurationOption<String> volumeForecaster
+        = createStringOption(VOLUME_FORECASTER, DEFAULT_VOLUME_FORECASTER);
+    private static ConfigurationOption<Integer> volumePredictionThreads
+        = createIntegerOption(VOLUME_PREDICTION_THREADS, DEFAULT_VOLUME_PREDICTION_THREADS);
+    private static ConfigurationOption<Integer> volumePredictionParallelThreshold
+        = createIntegerOption(VOLUME_PREDICTION_PARALLEL_THRESHOLD, DEFAULT_VOLUME_PREDICTION_PARALLEL_THRESHOLD);
     private static ConfigurationOption<Boolean> profileApproximate
         = createBooleanOption(PROFILE_APPROXIMATE, DEFAULT_PROFILE_APPROXIMATE);
+    private static ConfigurationOption<Boolean> profileApproximateIncremental
+        = createBooleanOption(PROFILE_APPROXIMATE_INCREMENTAL, DEFAULT_PROFILE_APPROXIMATE_INCREMENTAL);
     private static ConfigurationOption<Boolean> profileEnable
         = createBooleanOption(PROFILE_ENABLED, DEFAULT_PROFILE_ENABLED);
     private static ConfigurationOption<Integer> profileTtl
         = createIntegerOption(PROFILE_TTL, DEFAULT_PROFILE_TTL);
+    private static ConfigurationOption<Integer> profilePredictionThreads
+        = createIntegerOption(PROFILE_PREDICTION_THREADS, DEFAULT_PROFILE_PREDICTION_THREADS);
+    private static ConfigurationOption<Integer> profilePredictionParallelThreshold
+        = createIntegerOption(PROFILE_PREDICTION_PARALLEL_THRESHOLD, DEFAULT_PROFILE_PREDICTION_PARALLEL_THRESHOLD);
+    private static ConfigurationOption<String> profileStorage
+        = createStringOption(PROFILE_STORAGE, DEFAULT_PROFILE_STORAGE);
     private static ConfigurationOption<Boolean> reasoningInstanceBased
         = createBooleanOption(REASONING_INSTANCE_BASED, DEFAULT_REASONING_INSTANCE_BASED);
+    private static ConfigurationOption<Boolean> monitoringCompactFrozenState
+        = createBooleanOption(MONITORING_COMPACT_FROZEN_STATE, DEFAULT_MONITORING_COMPACT_FROZEN_STATE);
+    private static ConfigurationOption<Boolean> reasoningChangeDriven
+        = createBooleanOption(REASONING_CHANGE_DRIVEN, DEFAULT_REASONING_CHANGE_DRIVEN);
+    private static ConfigurationOption<String> reasoningChangeTolerances
+        = createStringOption(REASONING_CHANGE_TOLERANCES, DEFAULT_REASONING_CHANGE_TOLERANCES);
+    private static ConfigurationOption<Integer> reasoningMaxSkipped
+        = createIntegerOption(REASONING_MAX_SKIPPED, DEFAULT_REASONING_MAX_SKIPPED);
+    private static ConfigurationOption<Integer> monitoringPipelineThreads
+        = createIntegerOption(MONITORING_PIPELINE_THREADS, DEFAULT_MONITORING_PIPELINE_THREADS);
+    private static ConfigurationOption<Integer> monitoringLaneStatisticsInterval
+        = createIntegerOption(MONITORING_LANE_STATISTICS_INTERVAL, DEFAULT_MONITORING_LANE_STATISTICS_INTERVAL);
+    private static ConfigurationOption<Integer> thriftMonitoringConnections
+        = createIntegerOption(THRIFT_MONITORING_CONNECTIONS, DEFAULT_THRIFT_MONITORING_CONNECTIONS);
+    private static ConfigurationOption<Integer> thriftMonitoringCacheInterval
+        = createIntegerOption(THRIFT_MONITORING_CACHE_INTERVAL, DEFAULT_THRIFT_MONITORING_CACHE_INTERVAL);
+    private static ConfigurationOption<Boolean> monitoringTraceBinary
+        = createBooleanOption(MONITORING_TRACE_BINARY, DEFAULT_MONITORING_TRACE_BINARY);
+    private static ConfigurationOption<String> monitoringTraceCompression
+        = createStringOption(MONITORING_TRACE_COMPRESSION, DEFAULT_MONITORING_TRACE_COMPRESSION);
+    private static ConfigurationOption<Integer> monitoringTraceFlushInterval
+        = createIntegerOption(MONITORING_TRACE_FLUSH_INTERVAL, DEFAULT_MONITORING_TRACE_FLUSH_INTERVAL);
     
     /**
      * Reads the configuration settings from the file.
@@ -462,6 +690,37 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
         return volumeModelLocation.getValue();
     }
 
+    /**
+     * Returns the volume forecasting approach.
+     * 
+     * @return the forecasting approach, "weka" or "online"
+     */
+    public static String getVolumeForecaster() {
+        return volumeForecaster.getValue();
+    }
+
+    /**
+     * Returns the number of threads for training and predicting the volumes of terms in parallel.
+     * 
+     * @return the number of threads (at least 1)
+     */
+    public static int getVolumePredictionThreads() {
+        int result = volumePredictionThreads.getValue();
+        if (result <= 0) {
+            result = Runtime.getRuntime().availableProcessors();
+        }
+        return Math.max(1, result);
+    }
+
+    /**
+     * Returns the minimum number of terms to be trained or predicted in parallel.
+     * 
+     * @return the minimum number of terms
+     */
+    public static int getVolumePredictionParallelThreshold() {
+        return volumePredictionParallelThreshold.getValue();
+    }
+
     /**
      * The minimum difference between two deviations during analysis causing re-sending of adaptation events.
      * 
@@ -480,6 +739,15 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
         return profileApproximate.getValue();
     }
 
+    /**
+     * Returns whether profile prediction shall approximate incrementally by recursive least squares.
+     * 
+     * @return <code>true</code> for recursive least squares, <code>false</code> for spline interpolation
+     */
+    public static boolean enableProfileApproximateIncremental() {
+        return profileApproximateIncremental.getValue();
+    }
+
     /**
      * Returns whether profile prediction shall be enabled enable.
      * 
@@ -497,6 +765,37 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
     public static int getProfileTtl() {
         return profileTtl.getValue();
     }
+
+    /**
+     * Returns the number of threads for parallel batch predictions.
+     * 
+     * @return the number of threads (at least 1)
+     */
+    public static int getProfilePredictionThreads() {
+        int result = profilePredictionThreads.getValue();
+        if (result <= 0) {
+            result = Runtime.getRuntime().availableProcessors();
+        }
+        return Math.max(1, result);
+    }
+
+    /**
+     * Returns the minimum number of candidates in a batch prediction to be evaluated in parallel.
+     * 
+     * @return the minimum number of candidates
+     */
+    public static int getProfilePredictionParallelThreshold() {
+        return profilePredictionParallelThreshold.getValue();
+    }
+
+    /**
+     * Returns the storage layout of the profile predictors.
+     * 
+     * @return the storage layout, "folders" or "binary"
+     */
+    public static String getProfileStorage() {
+        return profileStorage.getValue();
+    }
     
     /**
      * Returns whether reasoning shall be instance-based, i.e., reuse a reasoner for a given model.
@@ -507,6 +806,119 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
     public static boolean getReasoningInstanceBased() {
         return reasoningInstanceBased.getValue();
     }
+
+    /**
+     * Returns whether the system state shall be frozen into the compact representation.
+     * 
+     * @return {@code true} for the compact representation, {@code false} for the map-based one
+     */
+    public static boolean getCompactFrozenState() {
+        return monitoringCompactFrozenState.getValue();
+    }
+
+    /**
+     * Returns whether reasoning shall be change-driven.
+     * 
+     * @return {@code true} for change-driven reasoning, {@code false} for reasoning in each cycle
+     */
+    public static boolean getReasoningChangeDriven() {
+        return reasoningChangeDriven.getValue();
+    }
+
+    /**
+     * Returns the tolerance bands for change-driven reasoning.
+     * 
+     * @return the tolerances as fractions (not percent) per observable name, <code>*</code> for the default 
+     *   tolerance, may be empty
+     */
+    public static Map<String, Double> getReasoningChangeTolerances() {
+        Map<String, Double> result = new HashMap<String, Double>();
+        for (String entry : toSet(reasoningChangeTolerances.getValue())) {
+            int pos = entry.lastIndexOf(':');
+            if (pos > 0) {
+                try {
+                    double tolerance = Double.parseDouble(entry.substring(pos + 1).trim()) / 100.0;
+                    result.put(entry.substring(0, pos).trim(), Math.abs(tolerance));
+                } catch (NumberFormatException e) {
+                    // ignore
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of subsequent reasoning cycles that may be skipped in change-driven reasoning.
+     * 
+     * @return the maximum number of skipped cycles
+     */
+    public static int getReasoningMaxSkipped() {
+        return reasoningMaxSkipped.getValue();
+    }
+
+    /**
+     * Returns the number of threads polling the monitoring information of individual pipelines.
+     * 
+     * @return the number of threads (at least 1)
+     */
+    public static int getMonitoringPipelineThreads() {
+        return Math.max(1, monitoringPipelineThreads.getValue());
+    }
+
+    /**
+     * Returns the interval in which the execution statistics of the monitoring lanes are logged.
+     * 
+     * @return the interval in ms, logging is disabled if not positive
+     */
+    public static int getMonitoringLaneStatisticsInterval() {
+        return monitoringLaneStatisticsInterval.getValue();
+    }
+
+    /**
+     * Returns the maximum number of Thrift connections used to obtain pipeline monitoring information in parallel.
+     * 
+     * @return the maximum number of connections (at least 1)
+     */
+    public static int getThriftConnections() {
+        return Math.max(1, thriftMonitoringConnections.getValue());
+    }
+
+    /**
+     * Returns the time a snapshot of the Thrift pipeline monitoring information is shared among the pipeline
+     * monitoring tasks.
+     * 
+     * @return the time in ms
+     */
+    public static int getThriftCacheInterval() {
+        return Math.max(0, thriftMonitoringCacheInterval.getValue());
+    }
+
+    /**
+     * Returns whether monitoring traces shall be written in binary format.
+     * 
+     * @return <code>true</code> for binary, <code>false</code> for CSV
+     */
+    public static boolean getMonitoringTraceBinary() {
+        return monitoringTraceBinary.getValue();
+    }
+
+    /**
+     * Returns the block compression of binary monitoring traces.
+     * 
+     * @return the compression, either <code>none</code> or <code>gzip</code>
+     */
+    public static String getMonitoringTraceCompression() {
+        return monitoringTraceCompression.getValue();
+    }
+
+    /**
+     * Returns the interval for writing and flushing binary monitoring traces.
+     * 
+     * @return the interval in ms
+     */
+    public static int getMonitoringTraceFlushInterval() {
+        return Math.max(1, monitoringTraceFlushInterval.getValue());
+    }
     
     /**
      * Creates a reasoner adapter for storing already known reasoner instances for configurations. 
@@ -14,7 +14,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
 import java.util.TimerTask;
 
 import org.apache.log4j.LogManager;
@@ -54,6 +53,7 @@ import eu.qualimaster.monitoring.handlers.PipelineElementObservationMonitoringEv
 import eu.qualimaster.monitoring.handlers.PipelineObservationMonitoringEventHandler;
 import eu.qualimaster.monitoring.handlers.PlatformMonitoringEventHandler;
 import eu.qualimaster.monitoring.handlers.PlatformMultiMonitoringHostEventHandler;
+import eu.qualimaster.monitoring.handlers.ReplayMonitoringEventHandler;
 import eu.qualimaster.monitoring.handlers.SourceVolumeMonitoringEventHandler;
 import eu.qualimaster.monitoring.handlers.SubTopologyMonitoringEventHandler;
 import eu.qualimaster.monitoring.profiling.AlgorithmProfilePredictionManager;
@@ -63,6 +63,9 @@ import eu.qualimaster.monitoring.systemState.SystemState;
 import eu.qualimaster.monitoring.tracing.Tracing;
 import eu.qualimaster.monitoring.tracing.TracingTask;
 import eu.qualimaster.monitoring.utils.IScheduler;
+import eu.qualimaster.monitoring.utils.LaneScheduler;
+import eu.qualimaster.monitoring.utils.LaneScheduler.Lane;
+import eu.qualimaster.monitoring.utils.LaneScheduler.TaskStatistics;
 import eu.qualimaster.monitoring.volumePrediction.VolumePredictionManager;
 import eu.qualimaster.observables.MonitoringFrequency;
 import eu.qualimaster.plugins.ILayerDescriptor;
@@ -100,7 +103,7 @@ public class MonitoringManager {
     private static final String CLUSTER_TASK_NAME = "";
 
     private static final Logger LOGGER = LogManager.getLogger(MonitoringManager.class);
-    private static Timer timer;
+    private static LaneScheduler taskScheduler;
     private static List<IMonitoringPlugin> plugins = new ArrayList<IMonitoringPlugin>();
     private static Map<IMonitoringPlugin, Map<String, AbstractMonitoringTask>> tasks = 
         Collections.synchronizedMap(new HashMap<IMonitoringPlugin, Map<String, AbstractMonitoringTask>>());
@@ -122,8 +125,8 @@ public class MonitoringManager {
         
         @Override
         public void schedule(TimerTask task, Date firstTime, long period) {
-            if (null != timer) {
-                timer.schedule(task, firstTime, period);
+            if (null != taskScheduler) {
+                taskScheduler.getScheduler(Lane.PREDICTION).schedule(task, firstTime, period);
             }
         }
 
@@ -450,7 +453,7 @@ public class MonitoringManager {
                     // pipeline was there already, state is outdated, delete and start over again
                     // uhh - pipeline is disappeared but shall be started - stop monitoring
                     createTask = true;
-                    mTask.cancel();
+                    cancel(mTask);
                     pluginTasks.remove(pipelineName);
                     state.removePipeline(pipelineName);
                 }
@@ -466,7 +469,8 @@ public class MonitoringManager {
                 } 
                 pluginTasks.put(pipelineName, task);
                 try {
-                    timer.schedule(task, 0, Math.max(MINIMUM_MONITORING_FREQUENCY, task.getFrequency()));
+                    taskScheduler.schedule(Lane.PIPELINE, pipelineName, task, 0, 
+                        Math.max(MINIMUM_MONITORING_FREQUENCY, task.getFrequency()));
                 } catch (IllegalStateException e) {
                     LOGGER.error("While scheduling monitoring task for '" + pipelineName + "': " + e.getMessage());
                 }
@@ -542,7 +546,7 @@ public class MonitoringManager {
                 if (null != pluginTasks) {
                     AbstractMonitoringTask task = pluginTasks.get(pipelineName);
                     if (null != task) {
-                        task.cancel();
+                        cancel(task);
                         pluginTasks.remove(pipelineName);
                     }
                 } // else ignore
@@ -568,7 +572,7 @@ public class MonitoringManager {
 
         @Override
         protected void handle(PipelineLifecycleEvent event) {
-            if (null == timer) {
+            if (null == taskScheduler) {
                 LOGGER.error("Monitoring Manager not started properly! Call start before!"); 
             } else {
                 PipelineSystemPart pipeline;
@@ -614,12 +618,12 @@ public class MonitoringManager {
             if (MonitoringConfiguration.isReasoningEnabled()) {
                 int runningPipelines = getRunningPipelinesCount();
                 if (0 == runningPipelines && null != reasoningTask) {
-                    reasoningTask.cancel();
+                    cancel(reasoningTask);
                 } else if (runningPipelines > 0 && null == reasoningTask) {
                     IReasoningModelProvider modelProvider = new PhaseReasoningModelProvider(Phase.MONITORING);
                     if (null != modelProvider.getConfiguration() && null != modelProvider.getScript()) {
                         reasoningTask = new ReasoningTask(modelProvider, reasonerAdapter);     
-                        timer.schedule(reasoningTask, 0, REASONING_FREQUENCY);
+                        taskScheduler.schedule(Lane.REASONING, "reasoning", reasoningTask, 0, REASONING_FREQUENCY);
                     } else {
                         LOGGER.error("Monitoring model not loaded - cannot monitor pipelines");
                     }
@@ -802,6 +806,7 @@ public class MonitoringManager {
         register(ParameterChangedMonitoringEventHandler.INSTANCE);
         register(SourceVolumeMonitoringEventHandler.INSTANCE);
         register(ConnectTaskMonitoringEventHandler.INSTANCE);
+        register(ReplayMonitoringEventHandler.INSTANCE);
         
         EventManager.register(new TopMonitoringEventHandler());
         EventManager.register(new PipelineLifecycleEventEventHandler());
@@ -895,7 +900,23 @@ public class MonitoringManager {
         }
         loadMonitoringPlugins();
         eu.qualimaster.plugins.PluginRegistry.startPlugins(Layer.MONITORING);
-        timer = new Timer();
+        Map<Lane, Integer> threads = new HashMap<Lane, Integer>();
+        threads.put(Lane.PIPELINE, MonitoringConfiguration.getMonitoringPipelineThreads());
+        taskScheduler = new LaneScheduler(threads);
+        int statisticsInterval = MonitoringConfiguration.getMonitoringLaneStatisticsInterval();
+        if (statisticsInterval > 0) {
+            taskScheduler.schedule(Lane.CLUSTER, "laneStatistics", new TimerTask() {
+                
+                @Override
+                public void run() {
+                    LaneScheduler sched = taskScheduler;
+                    if (null != sched) {
+                        sched.logStatistics();
+                    }
+                }
+                
+            }, statisticsInterval, statisticsInterval);
+        }
         for (IMonitoringPlugin plugin : plugins) {
             startPlugin(plugin);
         }
@@ -1033,7 +1054,8 @@ public class MonitoringManager {
                 tasks.put(plugin, pluginTasks);
             }
             pluginTasks.put(CLUSTER_TASK_NAME, task);
-            timer.schedule(task, 0, Math.max(MINIMUM_MONITORING_FREQUENCY, task.getFrequency()));
+            taskScheduler.schedule(Lane.CLUSTER, plugin.getClass().getSimpleName(), task, 0, 
+                Math.max(MINIMUM_MONITORING_FREQUENCY, task.getFrequency()));
         }
     }
 
@@ -1047,7 +1069,7 @@ public class MonitoringManager {
         if (null != pluginTasks) {
             AbstractMonitoringTask task = pluginTasks.get(CLUSTER_TASK_NAME);
             if (null != task) {
-                task.cancel();
+                cancel(task);
                 pluginTasks.remove(CLUSTER_TASK_NAME);
             }
         }        
@@ -1068,14 +1090,15 @@ public class MonitoringManager {
         VolumePredictionManager.stop();
         AlgorithmProfilePredictionManager.stop();
         if (null != reasoningTask) {
-            reasoningTask.cancel();
+            cancel(reasoningTask);
         }
         for (int p = plugins.size() - 1; p >= 0; p--) {
             stopPlugin(plugins.get(p));
         }
-        if (null != timer)  {
-            timer.cancel();
-            timer = null;
+        if (null != taskScheduler)  {
+            taskScheduler.logStatistics();
+            taskScheduler.shutdown();
+            taskScheduler = null;
         }
         eu.qualimaster.plugins.PluginRegistry.shutdownPlugins(Layer.MONITORING);
         Tracing.close();
@@ -1091,6 +1114,28 @@ public class MonitoringManager {
         RepositoryConnector.unregisterFromReasoning(Phase.MONITORING, reasonerAdapter);
     }
     
+    /**
+     * Cancels a scheduled task.
+     * 
+     * @param task the task to cancel
+     */
+    private static void cancel(TimerTask task) {
+        task.cancel();
+        if (null != taskScheduler) {
+            taskScheduler.cancel(task);
+        }
+    }
+
+    /**
+     * Returns the execution statistics of the scheduled monitoring tasks, e.g., lag and duration.
+     * 
+     * @return the statistics per lane and task name, empty if the monitoring layer is not started
+     */
+    public static Map<String, TaskStatistics> getSchedulingStatistics() {
+        LaneScheduler sched = taskScheduler;
+        return null == sched ? new HashMap<String, TaskStatistics>() : sched.getStatistics();
+    }
+
     /**
      * Register the default plugins.
      */
@@ -1106,7 +1151,7 @@ public class MonitoringManager {
     public static void registerPlugin(IMonitoringPlugin plugin) {
         if (null != plugin && !plugins.contains(plugin)) {
             plugins.add(plugin);
-            if (null != timer) {
+            if (null != taskScheduler) {
                 startPlugin(plugin);
             }
         }
@@ -1123,7 +1168,7 @@ public class MonitoringManager {
             Map<String, AbstractMonitoringTask> pluginTasks = tasks.get(plugin);
             if (null != pluginTasks) {
                 for (AbstractMonitoringTask task : pluginTasks.values()) {
-                    task.cancel();
+                    cancel(task);
                 }
                 pluginTasks.clear();
             }
@@ -1167,7 +1212,7 @@ public class MonitoringManager {
      */
     public static boolean hasAdaptationModel() {
         // was started and has model
-        return null != timer && null != RepositoryConnector.getModels(Phase.ADAPTATION);
+        return null != taskScheduler && null != RepositoryConnector.getModels(Phase.ADAPTATION);
     }
     
     /**
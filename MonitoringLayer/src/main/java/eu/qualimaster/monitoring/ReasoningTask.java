@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.LogManager;
@@ -102,6 +103,12 @@ public class ReasoningTask extends TimerTask {
     private IReasoningModelProvider provider;
     private double minDevDifference = MonitoringConfiguration.getAnalysisMinDeviationDifference() / 100.0;
     private ReasonerAdapter reasonerAdapter;
+    private StateChangeDetector changeDetector;
+    private int maxSkipped = MonitoringConfiguration.getReasoningMaxSkipped();
+    private int skippedInRow;
+    private boolean lastViolated;
+    private AtomicLong executedCycles = new AtomicLong();
+    private AtomicLong skippedCycles = new AtomicLong();
     
     private IDatatype typePipeline;
     private IDatatype typePipelineElement;
@@ -431,6 +438,9 @@ public class ReasoningTask extends TimerTask {
     public ReasoningTask(IReasoningModelProvider provider, ReasonerAdapter reasonerAdapter) {
         this.provider = provider;
         this.reasonerAdapter = reasonerAdapter;
+        if (MonitoringConfiguration.getReasoningChangeDriven()) {
+            changeDetector = new StateChangeDetector(MonitoringConfiguration.getReasoningChangeTolerances());
+        }
         tmp = RepositoryConnector.createTmpFolder();
         tmp.deleteOnExit();
         checkProviderUpdate();
@@ -467,6 +477,9 @@ public class ReasoningTask extends TimerTask {
             typeMachine = findDatatype(prj, QmConstants.TYPE_MACHINE);
             typeHwNode = findDatatype(prj, QmConstants.TYPE_HWNODE);
             typeAlgorithm = findDatatype(prj, QmConstants.TYPE_ALGORITHM);            
+            if (null != changeDetector) {
+                changeDetector.reset(); // enforce reasoning on the new models
+            }
         }
         provider.endUsing();
     }
@@ -489,6 +502,49 @@ public class ReasoningTask extends TimerTask {
         return result;
     }
     
+    /**
+     * Returns the number of reasoning cycles executed so far.
+     * 
+     * @return the number of executed cycles
+     */
+    public long getExecutedCycles() {
+        return executedCycles.get();
+    }
+
+    /**
+     * Returns the number of reasoning cycles skipped so far by change-driven reasoning.
+     * 
+     * @return the number of skipped cycles
+     */
+    public long getSkippedCycles() {
+        return skippedCycles.get();
+    }
+
+    /**
+     * Returns whether the actual reasoning cycle can be skipped, i.e., change-driven reasoning is enabled, no 
+     * relevant change happened since the last reasoning, there are no active violations or deviations and the 
+     * maximum number of subsequently skipped cycles is not reached.
+     * 
+     * @param state the actual frozen state
+     * @param pipStatus the actual pipeline status
+     * @return <code>true</code> if the cycle can be skipped, <code>false</code> else
+     */
+    private boolean canSkip(FrozenSystemState state, Map<String, PipelineLifecycleEvent.Status> pipStatus) {
+        boolean skip = false;
+        if (null != changeDetector) {
+            boolean changed = changeDetector.hasChanged(state, pipStatus);
+            skip = !changed && !lastViolated && activeDeviations.isEmpty() && skippedInRow < maxSkipped;
+            if (skip) {
+                skippedInRow++;
+                skippedCycles.incrementAndGet();
+            } else if (changed && getLogger().isDebugEnabled()) {
+                getLogger().debug("Reasoning due to changes in pipelines " + changeDetector.getChangedPipelines() 
+                    + (changeDetector.isInfrastructureChanged() ? " and infrastructure" : ""));
+            }
+        }
+        return skip;
+    }
+
     /**
      * Defines the reasoning listener.
      * 
@@ -535,6 +591,27 @@ public class ReasoningTask extends TimerTask {
                 }
             }
         }
+        if (!canSkip(state, pipStatus)) {
+            resultEvent = reason(state, pipStatus, send);
+        }
+        MonitoringPluginRegistry.analyze(state);
+        provider.endUsing();
+        return resultEvent;
+    }
+
+    /**
+     * Performs value binding and reasoning on a frozen state and returns the violating clauses.
+     * 
+     * @param state the frozen system state
+     * @param pipStatus the actual pipeline status
+     * @param send if <code>true</code> send events, if <code>false</code> be quiet and do not send events
+     * @return the adaptation event or <b>null</b> if no violating clauses were detected
+     */
+    private AdaptationEvent reason(FrozenSystemState state, Map<String, PipelineLifecycleEvent.Status> pipStatus, 
+        boolean send) {
+        AdaptationEvent resultEvent = null;
+        skippedInRow = 0;
+        executedCycles.incrementAndGet();
         // map monitoring to config
         ReasoningResult result = null;
         RepositoryConnector.associatePhase(Thread.currentThread(), Phase.MONITORING);
@@ -579,8 +656,10 @@ public class ReasoningTask extends TimerTask {
         }
         currentDeviations.clear();
         analyzerVisitor.clearState();
-        MonitoringPluginRegistry.analyze(state);
-        provider.endUsing();
+        lastViolated = null != resultEvent;
+        if (null != changeDetector) {
+            changeDetector.update(state, pipStatus);
+        }
         return resultEvent;
     }
     
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
+import eu.qualimaster.monitoring.events.FrozenSystemState;
+
+/**
+ * Detects relevant changes between a frozen system state and the frozen system state of the last reasoning using
+ * relative tolerance bands per observable. Compares against the state of the last reasoning rather than the last
+ * cycle so that slow drifts accumulate and finally trigger reasoning. Not thread-safe.
+ *
+ * @author Holger Eichelberger
+ */
+public class StateChangeDetector {
+
+    /**
+     * The name denoting the default tolerance in the tolerance map.
+     */
+    public static final String DEFAULT_TOLERANCE = "*";
+    private static final double EPSILON = 0.000001; // absolute band for values close to 0
+
+    private Map<String, Double> tolerances;
+    private double defaultTolerance;
+    private Map<String, Double> reference;
+    private Map<String, PipelineLifecycleEvent.Status> referenceStatus;
+    private Set<String> changedPipelines = new HashSet<String>();
+    private boolean infrastructureChanged;
+
+    /**
+     * Creates a change detector.
+     *
+     * @param tolerances the tolerances as fractions per observable name, {@link #DEFAULT_TOLERANCE} for the
+     *   default tolerance (0 if not given)
+     */
+    public StateChangeDetector(Map<String, Double> tolerances) {
+        this.tolerances = null == tolerances ? new HashMap<String, Double>() : tolerances;
+        Double dflt = this.tolerances.get(DEFAULT_TOLERANCE);
+        this.defaultTolerance = null == dflt ? 0 : dflt;
+    }
+
+    /**
+     * Determines whether <code>state</code> changed relevantly with respect to the last {@link #update(
+     * FrozenSystemState, Map) reference state}. Collects the changed pipelines as a side effect.
+     *
+     * @param state the actual frozen state
+     * @param pipStatus the actual pipeline status
+     * @return <code>true</code> if there is a relevant change or no reference state, <code>false</code> else
+     */
+    public boolean hasChanged(FrozenSystemState state, Map<String, PipelineLifecycleEvent.Status> pipStatus) {
+        changedPipelines.clear();
+        infrastructureChanged = false;
+        boolean changed = null == reference;
+        if (!changed) {
+            changed = !referenceStatus.equals(pipStatus);
+            if (changed) {
+                collectStatusChanges(pipStatus);
+            }
+            Map<String, Double> actual = state.getMapping();
+            for (Map.Entry<String, Double> entry : actual.entrySet()) {
+                if (isChanged(entry.getKey(), reference.get(entry.getKey()), entry.getValue())) {
+                    changed |= recordChange(entry.getKey());
+                }
+            }
+            for (String key : reference.keySet()) {
+                if (!actual.containsKey(key)) {
+                    changed |= recordChange(key);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Collects the pipelines with changed status.
+     *
+     * @param pipStatus the actual pipeline status
+     */
+    private void collectStatusChanges(Map<String, PipelineLifecycleEvent.Status> pipStatus) {
+        for (Map.Entry<String, PipelineLifecycleEvent.Status> entry : pipStatus.entrySet()) {
+            if (entry.getValue() != referenceStatus.get(entry.getKey())) {
+                changedPipelines.add(entry.getKey());
+            }
+        }
+        for (String pip : referenceStatus.keySet()) {
+            if (!pipStatus.containsKey(pip)) {
+                changedPipelines.add(pip);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a value changed beyond the tolerance band of its observable.
+     *
+     * @param key the frozen state key
+     * @param reference the reference value (may be <b>null</b>)
+     * @param actual the actual value (may be <b>null</b>)
+     * @return <code>true</code> if changed, <code>false</code> else
+     */
+    private boolean isChanged(String key, Double reference, Double actual) {
+        boolean result;
+        if (null == reference || null == actual) {
+            result = reference != actual;
+        } else {
+            double ref = reference;
+            double act = actual;
+            if (Double.isNaN(ref) || Double.isNaN(act)) {
+                result = Double.isNaN(ref) != Double.isNaN(act);
+            } else {
+                double band = getTolerance(key) * Math.abs(ref);
+                result = Math.abs(act - ref) > Math.max(band, EPSILON);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the tolerance for the observable in <code>key</code>.
+     *
+     * @param key the frozen state key
+     * @return the tolerance as fraction
+     */
+    private double getTolerance(String key) {
+        double result = defaultTolerance;
+        if (!tolerances.isEmpty()) {
+            int pos = key.lastIndexOf(FrozenSystemState.SEPARATOR);
+            Double tolerance = tolerances.get(pos >= 0 ? key.substring(pos + 1) : key);
+            if (null != tolerance) {
+                result = tolerance;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records the change of the given key, i.e., the affected pipeline or the infrastructure.
+     *
+     * @param key the frozen state key
+     * @return <code>true</code>
+     */
+    private boolean recordChange(String key) {
+        String[] segments = key.split(FrozenSystemState.SEPARATOR);
+        String prefix = segments[0];
+        if (segments.length > 2 && (FrozenSystemState.PIPELINE.equals(prefix)
+            || FrozenSystemState.PIPELINE_ELEMENT.equals(prefix) || FrozenSystemState.ALGORITHM.equals(prefix)
+            || FrozenSystemState.DATASOURCE.equals(prefix) || FrozenSystemState.DATASINK.equals(prefix)
+            || FrozenSystemState.ACTUAL.equals(prefix))) {
+            changedPipelines.add(segments[1]);
+        } else {
+            infrastructureChanged = true;
+        }
+        return true;
+    }
+
+    /**
+     * Takes over <code>state</code> as new reference state, e.g., after reasoning.
+     *
+     * @param state the frozen state
+     * @param pipStatus the pipeline status
+     */
+    public void update(FrozenSystemState state, Map<String, PipelineLifecycleEvent.Status> pipStatus) {
+        reference = new HashMap<String, Double>(state.getMapping());
+        referenceStatus = new HashMap<String, PipelineLifecycleEvent.Status>(pipStatus);
+    }
+
+    /**
+     * Clears the reference state so that the next check reports a change.
+     */
+    public void reset() {
+        reference = null;
+        referenceStatus = null;
+    }
+
+    /**
+     * Returns the pipelines changed according to the last call of {@link #hasChanged(FrozenSystemState, Map)}.
+     *
+     * @return the names of the changed pipelines
+     */
+    public Set<String> getChangedPipelines() {
+        return Collections.unmodifiableSet(changedPipelines);
+    }
+
+    /**
+     * Returns whether infrastructure (non-pipeline) values changed according to the last call of
+     * {@link #hasChanged(FrozenSystemState, Map)}.
+     *
+     * @return <code>true</code> if changed, <code>false</code> else
+     */
+    public boolean isInfrastructureChanged() {
+        return infrastructureChanged;
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.handlers;
+
+import java.util.Map;
+
+import eu.qualimaster.monitoring.MonitoringEventHandler;
+import eu.qualimaster.monitoring.events.ReplayMonitoringEvent;
+import eu.qualimaster.monitoring.systemState.PipelineNodeSystemPart;
+import eu.qualimaster.monitoring.systemState.StateUtils;
+import eu.qualimaster.monitoring.systemState.SystemPart;
+import eu.qualimaster.monitoring.systemState.SystemState;
+import eu.qualimaster.observables.IObservable;
+
+/**
+ * Implements the handling of {@link ReplayMonitoringEvent}. The observations of a replay ticket are stored in the
+ * {@link PipelineNodeSystemPart#obtainReplay(int) replay part} of the replay sink, i.e., the observations of a new 
+ * event replace the ones of the previous event for the same ticket and do not affect the live observations of the 
+ * sink and the pipeline. Non-finite values, e.g., an infinite velocity if no time elapsed, are ignored. An event 
+ * without observations indicates that the ticket ended and removes its replay part.
+ *
+ * @author Holger Eichelberger
+ */
+public class ReplayMonitoringEventHandler extends MonitoringEventHandler<ReplayMonitoringEvent> {
+
+    public static final ReplayMonitoringEventHandler INSTANCE = new ReplayMonitoringEventHandler();
+
+    /**
+     * Creates an instance.
+     */
+    private ReplayMonitoringEventHandler() {
+        super(ReplayMonitoringEvent.class);
+    }
+
+    @Override
+    protected void handle(ReplayMonitoringEvent event, SystemState state) {
+        boolean doneMain = handle(event, state, true);
+        boolean doneSub = handle(event, state, false); // try sub-pipeline
+        if (!(doneMain || doneSub)) {
+            logNotFound(event, state);
+        }
+    }
+
+    /**
+     * Handles an event of the supported event type.
+     *
+     * @param event the event to be handled
+     * @param state the actual system state to be modified
+     * @param forMainPipeline handle for main pipeline (<code>true</code>) or try handling for a
+     *   sub-pipeline (<code>false</code>)
+     * @return <code>true</code> if the event was handled, <code>false</code> else
+     */
+    private boolean handle(ReplayMonitoringEvent event, SystemState state, boolean forMainPipeline) {
+        boolean done = false;
+        SystemPart target = determineAggregationPart(event, state, forMainPipeline);
+        if (target instanceof PipelineNodeSystemPart) {
+            PipelineNodeSystemPart node = (PipelineNodeSystemPart) target;
+            Map<IObservable, Double> observations = event.getObservations();
+            if (null == observations || observations.isEmpty()) {
+                node.removeReplay(event.getTicket());
+            } else {
+                SystemPart replay = node.obtainReplay(event.getTicket());
+                for (Map.Entry<IObservable, Double> ent : observations.entrySet()) {
+                    IObservable observable = ent.getKey();
+                    Double value = ent.getValue();
+                    if (!observable.isInternal() && null != value && !value.isNaN() && !value.isInfinite() 
+                        && replay.supportsObservation(observable)) {
+                        StateUtils.setValue(replay, observable, value, null);
+                    }
+                }
+            }
+            done = true;
+        }
+        return done;
+    }
+
+}
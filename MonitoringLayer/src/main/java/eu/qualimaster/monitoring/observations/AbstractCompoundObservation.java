@@ -3,12 +3,12 @@ package eu.qualimaster.monitoring.observations;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import eu.qualimaster.monitoring.events.IRemovalSelector;
@@ -16,7 +16,9 @@ import eu.qualimaster.monitoring.systemState.IAggregationFunction;
 
 /**
  * Implements a compound observation, mapping all null keys to a single value. This class reacts on 
- * {@link IRemovalSelector} on the keys.
+ * {@link IRemovalSelector} on the keys. The components are kept in a concurrent map, i.e., updates
+ * of and reads from the components do not lock and aggregations read a weakly consistent view (each component 
+ * value is read atomically) without blocking updates.
  * 
  * @author Holger Eichelberger
  */
@@ -31,7 +33,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
     private AtomicLong lastUpdate = new AtomicLong(-1);
     private AtomicLong firstUpdate = new AtomicLong(-1);
 
-    private Map<Object, AtomicDouble> components = new HashMap<Object, AtomicDouble>();
+    private Map<Object, AtomicDouble> components = new ConcurrentHashMap<Object, AtomicDouble>();
     private List<IObservation> links;
     
     /**
@@ -49,15 +51,8 @@ public abstract class AbstractCompoundObservation implements IObservation {
      * @param source the source to copy from
      */
     protected AbstractCompoundObservation(AbstractCompoundObservation source) {
-        Set<Object> keys = new HashSet<Object>();
-        synchronized (source.components) {
-            keys.addAll(source.components.keySet());
-            for (Object key : keys) {
-                AtomicDouble sourceVal = source.components.get(key);
-                if (null != sourceVal) {
-                    this.components.put(key, new AtomicDouble(sourceVal.get()));
-                }
-            }
+        for (Map.Entry<Object, AtomicDouble> entry : source.components.entrySet()) {
+            this.components.put(entry.getKey(), new AtomicDouble(entry.getValue().get()));
         }
         this.firstUpdate.set(source.firstUpdate.get());
         this.lastUpdate.set(source.lastUpdate.get());
@@ -105,14 +100,11 @@ public abstract class AbstractCompoundObservation implements IObservation {
         }
         if (!done) {
             key = checkKey(key);
-            AtomicDouble val;
-            synchronized (components) {
-                val = components.get(key);
-            }
+            AtomicDouble val = components.get(key);
             if (null == val) {
-                val = new AtomicDouble(value);
-                put(key, val);
-            } else {
+                val = put(key, new AtomicDouble(value)); // null if added, concurrently added value else
+            }
+            if (null != val) {
                 if (inc) {
                     val.addAndGet(value);
                 } else {
@@ -128,24 +120,25 @@ public abstract class AbstractCompoundObservation implements IObservation {
     }
 
     /**
-     * Updates the actual value.
+     * Adds a value if there is none for <code>key</code>.
      * 
      * @param key the compound key
      * @param value the new value
+     * @return <b>null</b> if <code>value</code> was added, the value added concurrently for <code>key</code> else
      */
-    private void put(Object key, AtomicDouble value) {
-        synchronized (components) {
-            if (key instanceof IRemovalSelector && components.containsKey(key)) {
-                Iterator<Object> iter = components.keySet().iterator();
-                while (iter.hasNext()) {
-                    Object k = iter.next();
-                    if (k instanceof IRemovalSelector && ((IRemovalSelector) k).remove(key)) {
-                        iter.remove();
-                    }
+    private AtomicDouble put(Object key, AtomicDouble value) {
+        AtomicDouble result = components.putIfAbsent(key, value);
+        if (null != result && key instanceof IRemovalSelector) {
+            Iterator<Object> iter = components.keySet().iterator();
+            while (iter.hasNext()) {
+                Object k = iter.next();
+                if (k instanceof IRemovalSelector && ((IRemovalSelector) k).remove(key)) {
+                    iter.remove();
                 }
             }
-            components.put(key, value);
+            result = components.putIfAbsent(key, value);
         }
+        return result;
     }
     
     /**
@@ -173,10 +166,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
 
     @Override
     public boolean isValueSet() {
-        boolean def;
-        synchronized (components) {
-            def = !components.isEmpty();
-        }
+        boolean def = !components.isEmpty();
         if (!def && null != links) {
             for (int l = 0; !def && l < links.size(); l++) {
                 def = links.get(l).isValueSet();
@@ -198,18 +188,14 @@ public abstract class AbstractCompoundObservation implements IObservation {
                 IObservation obs = links.get(l);
                 for (Object key : obs.getComponentKeys()) {
                     AtomicDouble val = obs.getValue(key);
-                    synchronized (components) {
-                        if (null != val && !components.containsKey(key)) {
-                            result = aggregator.calculate(result, val.get());
-                        }
+                    if (null != val && !components.containsKey(key)) {
+                        result = aggregator.calculate(result, val.get());
                     }
                 }
             }
         }
-        synchronized (components) {
-            for (ObservedValue value : components.values()) {
-                result = aggregator.calculate(result, value.get());
-            }
+        for (ObservedValue value : components.values()) {
+            result = aggregator.calculate(result, value.get());
         }
         return result;
     }
@@ -227,17 +213,15 @@ public abstract class AbstractCompoundObservation implements IObservation {
     public String toString() {
         String result = "{" + toStringValue();
         Set<Object> done = new HashSet<Object>();
-        synchronized (components) {
-            Iterator<Map.Entry<Object, AtomicDouble>> iter = components.entrySet().iterator(); 
-            while (iter.hasNext()) {
-                Map.Entry<Object, AtomicDouble> ent = iter.next();
-                Object key = ent.getKey();
-                result += toString(key, ent.getValue());
-                if (iter.hasNext()) {
-                    result += ", ";                
-                }
-                done.add(key);
+        Iterator<Map.Entry<Object, AtomicDouble>> iter = components.entrySet().iterator(); 
+        while (iter.hasNext()) {
+            Map.Entry<Object, AtomicDouble> ent = iter.next();
+            Object key = ent.getKey();
+            result += toString(key, ent.getValue());
+            if (iter.hasNext()) {
+                result += ", ";                
             }
+            done.add(key);
         }
         if (null != links) {
             boolean emitComma = !done.isEmpty();
@@ -283,9 +267,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
     
     @Override
     public void clear() {
-        synchronized (components) {
-            components.clear();
-        }
+        components.clear();
         lastUpdate.set(-1);
         firstUpdate.set(-1);
         links = null;
@@ -293,10 +275,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
     
     @Override
     public AtomicDouble getValue(Object key) {
-        AtomicDouble result;
-        synchronized (components) {
-            result = components.get(checkKey(key));
-        }
+        AtomicDouble result = components.get(checkKey(key));
         if (null == result && null != links) {
             for (int l = 0; null == result && l < links.size(); l++) {
                 result = links.get(l).getValue(key);
@@ -331,10 +310,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
 
     @Override
     public int getComponentCount() {
-        int result;
-        synchronized (components) {
-            result = components.size();
-        }
+        int result = components.size();
         if (null != links) {
             for (int l = 0; l < links.size(); l++) {
                 result = links.get(l).getComponentCount();
@@ -346,10 +322,8 @@ public abstract class AbstractCompoundObservation implements IObservation {
     @Override
     public void clearComponents(Collection<Object> keys) {
         if (null != keys) {
-            synchronized (components) {
-                for (Object key : keys) {
-                    components.remove(key);
-                }
+            for (Object key : keys) {
+                components.remove(key);
             }
             if (null != links) {
                 for (int l = 0; l < links.size(); l++) {
@@ -362,12 +336,9 @@ public abstract class AbstractCompoundObservation implements IObservation {
     @Override
     public void replaceComponentKeys(Object oldKey, Object newKey) {
         if (null != oldKey && null != newKey) { 
-            synchronized (components) {
-                AtomicDouble value = components.get(oldKey);
-                if (null != value) {
-                    components.put(newKey, value);
-                }
-                components.remove(oldKey);
+            AtomicDouble value = components.remove(oldKey);
+            if (null != value) {
+                components.put(newKey, value);
             }
         }
         if (null != links) {
@@ -379,17 +350,8 @@ public abstract class AbstractCompoundObservation implements IObservation {
 
     @Override
     public Set<Object> getComponentKeys() {
-        Set<Object> result;
-        if (null == links) {
-            result = new HashSet<Object>();
-            synchronized (components) {
-                result.addAll(components.keySet());
-            }
-        } else {
-            result = new HashSet<Object>();
-            synchronized (components) {
-                result.addAll(components.keySet());
-            }
+        Set<Object> result = new HashSet<Object>(components.keySet());
+        if (null != links) {
             for (int l = 0; l < links.size(); l++) {
                 result.addAll(links.get(l).getComponentKeys());
             }
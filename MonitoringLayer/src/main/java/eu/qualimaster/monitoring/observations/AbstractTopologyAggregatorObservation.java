@@ -21,7 +21,7 @@ import eu.qualimaster.observables.IObservable;
 
 /**
  * A base class for different forms of topology aggregation. Sub classes shall call {@link #setFirstUpdate(long)} 
- * appropriately.
+ * appropriately. Aggregated values are memoized within an {@link AggregationEpoch}.
  * 
  * @author Holger Eichelberger
  */
@@ -31,6 +31,33 @@ public abstract class AbstractTopologyAggregatorObservation extends AbstractDele
     private ITopologyProvider provider;
     private IObservable observable;
     private long firstUpdate = -1;
+    private transient volatile Memo memo;
+    
+    /**
+     * Stores a memoized value along with the epoch it was calculated in. Immutable to avoid locking.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class Memo {
+        
+        private long epoch;
+        private long version;
+        private double value;
+
+        /**
+         * Creates a memoized value.
+         * 
+         * @param epoch the epoch
+         * @param version the version of the invalidation scope
+         * @param value the value
+         */
+        private Memo(long epoch, long version, double value) {
+            this.epoch = epoch;
+            this.version = version;
+            this.value = value;
+        }
+        
+    }
     
     /**
      * Creates a delegating topology aggregator for the given observable.
@@ -51,7 +78,21 @@ public abstract class AbstractTopologyAggregatorObservation extends AbstractDele
         double result = 0;
         if (null != provider && null != provider.getTopology() && !isSimpleTopoplogy()) {
             // simple: end of "recursion"
-            result = calculateValue();
+            long epoch = AggregationEpoch.current();
+            if (epoch >= 0) {
+                long version = provider.getAggregationScope().getVersion();
+                Memo m = memo;
+                boolean hit = null != m && m.epoch == epoch && m.version == version;
+                if (hit) {
+                    result = m.value;
+                } else {
+                    result = calculateValue();
+                    memo = new Memo(epoch, version, result);
+                }
+                AggregationEpoch.record(hit);
+            } else {
+                result = calculateValue();
+            }
         } else {
             result = getLocalValue();
         }
@@ -107,6 +148,7 @@ public abstract class AbstractTopologyAggregatorObservation extends AbstractDele
     public void clear() {
         super.clear();
         firstUpdate = -1;
+        memo = null;
     }
     
     @Override
@@ -148,6 +190,7 @@ public abstract class AbstractTopologyAggregatorObservation extends AbstractDele
     @Override
     public synchronized void switchedTo(boolean direct) {
         firstUpdate = -1;
+        memo = null;
         super.switchedTo(direct);
     }
 
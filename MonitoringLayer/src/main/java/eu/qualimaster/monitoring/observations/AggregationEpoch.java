@@ -0,0 +1,170 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.observations;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scopes the memoization of topology aggregates ({@link AbstractTopologyAggregatorObservation}). Aggregated values
+ * are only cached while the calling thread is within an epoch, e.g., during freezing the system state, so that each 
+ * aggregate is calculated at most once per pass over the topology. Outside an epoch, aggregates are calculated on 
+ * each read as before, as some underlying observations depend on the actual time. An update to a system part 
+ * only {@link Scope#invalidate() invalidates} the cached values of its {@link Scope}, i.e., of its pipeline, so that
+ * monitoring traffic of unrelated pipelines does not flush the cached aggregates.
+ * 
+ * @author Holger Eichelberger
+ */
+public class AggregationEpoch {
+
+    private static final AtomicLong EPOCH = new AtomicLong();
+    private static final ThreadLocal<int[]> DEPTH = new ThreadLocal<int[]>() {
+        
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+        
+    };
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static volatile boolean enabled = true;
+
+    /**
+     * Represents an invalidation scope, usually a pipeline with all its nodes and implementations.
+     * 
+     * @author Holger Eichelberger
+     */
+    public static class Scope implements Serializable {
+
+        private static final long serialVersionUID = -3467723061930315742L;
+        private final AtomicLong version = new AtomicLong();
+
+        /**
+         * Invalidates all cached aggregates in this scope, e.g., due to an update of an underlying observation.
+         */
+        public void invalidate() {
+            version.incrementAndGet();
+        }
+
+        /**
+         * Returns the actual version of this scope.
+         * 
+         * @return the version
+         */
+        public long getVersion() {
+            return version.get();
+        }
+
+    }
+
+    /**
+     * Prevents external creation.
+     */
+    private AggregationEpoch() {
+    }
+    
+    /**
+     * Begins an epoch for the calling thread. Epochs may be nested. Shall be used in a <code>try</code>-
+     * <code>finally</code> block with {@link #end()}.
+     */
+    public static void begin() {
+        int[] depth = DEPTH.get();
+        if (0 == depth[0]) {
+            EPOCH.incrementAndGet(); // values cached by a previous epoch may be outdated
+        }
+        depth[0]++;
+    }
+
+    /**
+     * Ends an epoch for the calling thread.
+     */
+    public static void end() {
+        int[] depth = DEPTH.get();
+        if (depth[0] > 0) {
+            depth[0]--;
+        }
+    }
+    
+    /**
+     * Returns the actual epoch.
+     * 
+     * @return the actual epoch, negative if the calling thread is not within an epoch or memoization is disabled
+     */
+    public static long current() {
+        return enabled && DEPTH.get()[0] > 0 ? EPOCH.get() : -1;
+    }
+    
+    /**
+     * Records a lookup of a cached aggregate.
+     * 
+     * @param hit <code>true</code> if the cached value was used, <code>false</code> if it was (re)calculated
+     */
+    static void record(boolean hit) {
+        if (hit) {
+            HITS.incrementAndGet();
+        } else {
+            MISSES.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of lookups served by a cached aggregate.
+     * 
+     * @return the number of hits
+     */
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    /**
+     * Returns the number of lookups within an epoch which required a calculation.
+     * 
+     * @return the number of misses
+     */
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    /**
+     * Returns the hit rate of the cached aggregates.
+     * 
+     * @return the hit rate in [0;1], <code>0</code> if there were no lookups
+     */
+    public static double getHitRate() {
+        long hits = HITS.get();
+        long total = hits + MISSES.get();
+        return 0 == total ? 0 : hits / (double) total;
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public static void resetStatistics() {
+        HITS.set(0);
+        MISSES.set(0);
+    }
+    
+    /**
+     * Enables or disables memoization, e.g., for testing.
+     * 
+     * @param enable <code>true</code> for enabling, <code>false</code> else
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+}
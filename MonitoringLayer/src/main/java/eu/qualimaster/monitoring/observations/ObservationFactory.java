@@ -530,6 +530,12 @@ public class ObservationFactory {
          
         registerCreator(AnalysisObservables.IS_VALID, null, new SingleObservationCreator(1.0)); // IS_VALID by default
         registerCreator(AnalysisObservables.IS_ENACTING, null, new SingleObservationCreator(0.0)); // dflt: not enacting
+
+        // replay tickets are not aggregated, i.e., they do not contribute to the live observations
+        registerCreator(TimeBehavior.THROUGHPUT_ITEMS, PartType.REPLAY, CREATOR_SINGLE);
+        registerCreator(TimeBehavior.LATENCY, PartType.REPLAY, CREATOR_SINGLE);
+        registerCreator(Scalability.ITEMS, PartType.REPLAY, CREATOR_SINGLE);
+        registerCreator(Scalability.VELOCITY, PartType.REPLAY, CREATOR_SINGLE);
         
         registerPart(PartType.PIPELINE, 
             TimeBehavior.LATENCY, TimeBehavior.THROUGHPUT_ITEMS, TimeBehavior.THROUGHPUT_VOLUME, 
@@ -566,6 +572,8 @@ public class ObservationFactory {
             TimeBehavior.LATENCY, TimeBehavior.THROUGHPUT_ITEMS, TimeBehavior.THROUGHPUT_VOLUME, 
             FunctionalSuitability.ACCURACY_ERROR_RATE, FunctionalSuitability.ACCURACY_CONFIDENCE,
             AnalysisObservables.IS_VALID, AnalysisObservables.IS_ENACTING);
+        registerPart(PartType.REPLAY, 
+            TimeBehavior.THROUGHPUT_ITEMS, TimeBehavior.LATENCY, Scalability.ITEMS, Scalability.VELOCITY);
         registerPart(PartType.PLATFORM, 
             ResourceUsage.AVAILABLE_MACHINES, ResourceUsage.AVAILABLE_DFES, 
                 ResourceUsage.USED_MACHINES, ResourceUsage.USED_DFES, CloudResourceUsage.BANDWIDTH);
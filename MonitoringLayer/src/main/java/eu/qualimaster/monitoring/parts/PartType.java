@@ -27,6 +27,7 @@ public enum PartType implements IPartType {
     ALGORITHM, 
     SOURCE,
     SINK,
+    REPLAY,
     MACHINE, 
     CLUSTER,
     CLOUDENV
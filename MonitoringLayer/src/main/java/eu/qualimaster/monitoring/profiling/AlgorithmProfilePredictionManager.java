@@ -16,10 +16,16 @@
 package eu.qualimaster.monitoring.profiling;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import eu.qualimaster.coordination.events.AlgorithmProfilingEvent;
 import eu.qualimaster.coordination.events.PipelineResourceUnpackingPluginRegistrationEvent;
@@ -52,6 +58,7 @@ public class AlgorithmProfilePredictionManager {
     private static MultiPredictionResult testPredictionsMulti;
     private static Map<String, Map<IObservable, Double>> testPredictions;
     private static Map<String, Map<IObservable, Double>> testParameterPredictions;
+    private static ExecutorService predictionExecutor;
  
     static {
         EventManager.register(new AlgorithmProfilePredictionRequestHandler());
@@ -73,6 +80,8 @@ public class AlgorithmProfilePredictionManager {
         // register the unpacking plugin
         EventManager.send(new PipelineResourceUnpackingPluginRegistrationEvent(new PipelineProfileUnpackingPlugin()));
         enableApproximation(MonitoringConfiguration.enableProfileApproximate());
+        ProfilingRegistry.registerIncrementalApproximation(
+            MonitoringConfiguration.enableProfileApproximateIncremental());
     }
     
     /**
@@ -231,14 +240,12 @@ public class AlgorithmProfilePredictionManager {
             if (null != pip) {
                 PipelineElement elt = pip.getElement(element);
                 if (null != elt) {
+                    BatchPredictionResult batch = new BatchPredictionResult(new ArrayList<String>(algorithms), 
+                        Collections.nCopies(algorithms.size(), targetValues), new ArrayList<IObservable>(observables));
+                    predict(elt, batch);
                     result = new HashMap<String, Map<IObservable, Double>>();
-                    for (String algorithm : algorithms) {
-                        Map<IObservable, Double> algResults = new HashMap<IObservable, Double>();
-                        for (IObservable obs : observables) {
-                            double predicted = elt.predict(algorithm, obs, targetValues);
-                            algResults.put(obs, (Constants.NO_PREDICTION == predicted) ? null : predicted);
-                        }
-                        result.put(algorithm, algResults);
+                    for (int c = 0; c < batch.getCandidateCount(); c++) {
+                        result.put(batch.getAlgorithm(c), batch.toMap(c));
                     }
                 }
             }
@@ -246,6 +253,81 @@ public class AlgorithmProfilePredictionManager {
         return null == testPredictions ? result : testPredictions;
     }
 
+    /**
+     * Performs a batch prediction for a list of candidates, i.e., algorithms with individual target values, and a 
+     * list of observables. The profile of each distinct candidate is resolved only once. Large batches (see
+     * {@link MonitoringConfiguration#getProfilePredictionParallelThreshold()}) are evaluated in parallel.
+     * 
+     * @param pipeline the pipeline name containing <code>element</code>
+     * @param element the pipeline element name running the algorithms
+     * @param algorithms the algorithm per candidate (<b>null</b> entries for the active algorithm)
+     * @param targetValues the target values per candidate (<b>null</b> for none at all, <b>null</b> entries for none
+     *   for the respective candidate). May contain observables ({@link IObservable}-Double) or parameter values 
+     *   (String-value)
+     * @param observables the observables to create the prediction for
+     * @return the predicted values, or <b>null</b> if no prediction is possible at all, e.g., pipeline or element 
+     *   unknown
+     * @throws IllegalArgumentException if <code>targetValues</code> is given and does not match the number of
+     *   <code>algorithms</code>
+     * 
+     * @see #enablePrediction(boolean)
+     */
+    public static BatchPredictionResult predictBatch(String pipeline, String element, List<String> algorithms,
+        List<Map<Object, Serializable>> targetValues, List<IObservable> observables) {
+        BatchPredictionResult result = null;
+        if (predict && null != algorithms && null != observables) {
+            Pipeline pip = Pipelines.getPipeline(pipeline);
+            if (null != pip) {
+                PipelineElement elt = pip.getElement(element);
+                if (null != elt) {
+                    result = new BatchPredictionResult(algorithms, targetValues, observables);
+                    predict(elt, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Performs a batch prediction on a pipeline element, in parallel if the batch is large enough.
+     * 
+     * @param elt the pipeline element
+     * @param batch the batch to predict for, modified as a side effect
+     */
+    private static void predict(PipelineElement elt, BatchPredictionResult batch) {
+        int threads = MonitoringConfiguration.getProfilePredictionThreads();
+        if (threads > 1 
+            && batch.getCandidateCount() >= MonitoringConfiguration.getProfilePredictionParallelThreshold()) {
+            elt.predict(batch, getPredictionExecutor(threads), threads);
+        } else {
+            elt.predict(batch, null, 1);
+        }
+    }
+
+    /**
+     * Returns the executor for parallel batch predictions and creates it if required.
+     * 
+     * @param threads the number of threads
+     * @return the executor
+     */
+    private static synchronized ExecutorService getPredictionExecutor(int threads) {
+        if (null == predictionExecutor) {
+            predictionExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+                private AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread result = new Thread(runnable, "profile-prediction-" + count.incrementAndGet());
+                    result.setDaemon(true);
+                    return result;
+                }
+
+            });
+        }
+        return predictionExecutor;
+    }
+
     /**
      * Performs a mass-prediction for a set of algorithms and a set of observables.
      * 
@@ -350,6 +432,13 @@ public class AlgorithmProfilePredictionManager {
     */
     public static void stop() {
         Pipelines.releaseAllPipelines();
+        synchronized (AlgorithmProfilePredictionManager.class) {
+            if (null != predictionExecutor) {
+                predictionExecutor.shutdown();
+                predictionExecutor = null;
+            }
+        }
+        BinaryProfileStore.releaseAll();
     }
 
     /**
@@ -374,24 +463,34 @@ public class AlgorithmProfilePredictionManager {
      */
     public static void fill(List<PipelineEntry> entries, Meta meta) {
         for (PipelineEntry entry : entries) {
-            Pipeline pip = Pipelines.obtainPipeline(entry.getName(), creator);
-            pip.setPath(getBaseFolder());
-            pip.enableProfilingMode();
-            for (String node : entry.nodes()) {
-                PipelineElement elt = pip.obtainElement(node);
-                for (IObservable obs : entry.observables()) {
-                    if (ProfilingRegistry.storeAsParameter(obs)) {
-                        elt.setParameter(obs, entry.getObservation(obs));
-                    }
+            fill(entry, meta);
+        }
+    }
+
+    /**
+     * Fills the algorithm profiles with the given entry. [just for replaying a stored pipeline from a trace]
+     * 
+     * @param entry the trace entry
+     * @param meta the meta information about the pipeline
+     */
+    public static void fill(PipelineEntry entry, Meta meta) {
+        Pipeline pip = Pipelines.obtainPipeline(entry.getName(), creator);
+        pip.setPath(getBaseFolder());
+        pip.enableProfilingMode();
+        for (String node : entry.nodes()) {
+            PipelineElement elt = pip.obtainElement(node);
+            for (IObservable obs : entry.observables()) {
+                if (ProfilingRegistry.storeAsParameter(obs)) {
+                    elt.setParameter(obs, entry.getObservation(obs));
                 }
-                Map<Object, Serializable> params = meta.getParameters(node);
-                if (null != params) {
-                    for (Map.Entry<Object, Serializable> param : params.entrySet()) {
-                        elt.setParameter(param.getKey(), param.getValue());
-                    }
+            }
+            Map<Object, Serializable> params = meta.getParameters(node);
+            if (null != params) {
+                for (Map.Entry<Object, Serializable> param : params.entrySet()) {
+                    elt.setParameter(param.getKey(), param.getValue());
                 }
-                elt.update(entry, meta.getAlgorithm(), meta.getPredecessors(node));
             }
+            elt.update(entry, meta.getAlgorithm(), meta.getPredecessors(node));
         }
     }
     
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.qualimaster.observables.IObservable;
+
+/**
+ * The dense result of a batch prediction over candidates (algorithm and target values) and observables.
+ * Predictions are stored row-wise per candidate, {@link Constants#NO_PREDICTION} denotes a missing prediction.
+ *
+ * @author Holger Eichelberger
+ */
+public class BatchPredictionResult {
+
+    private List<String> algorithms;
+    private List<Map<Object, Serializable>> targetValues;
+    private IObservable[] observables;
+    private Map<IObservable, Integer> observableIndex = new HashMap<IObservable, Integer>();
+    private double[] values;
+
+    /**
+     * Creates a batch prediction result.
+     *
+     * @param algorithms the algorithm per candidate (<b>null</b> entries for the active algorithm)
+     * @param targetValues the target values per candidate (<b>null</b> for none at all, <b>null</b> entries for none
+     *   for the respective candidate), see
+     *   {@link AlgorithmProfilePredictionManager#predict(String, String, String, IObservable, Map)}
+     * @param observables the observables to predict for
+     * @throws IllegalArgumentException if <code>targetValues</code> is given and does not match the number of
+     *   <code>algorithms</code>
+     */
+    public BatchPredictionResult(List<String> algorithms, List<Map<Object, Serializable>> targetValues,
+        List<IObservable> observables) {
+        if (null != targetValues && targetValues.size() != algorithms.size()) {
+            throw new IllegalArgumentException("Number of target values does not match number of algorithms");
+        }
+        this.algorithms = new ArrayList<String>(algorithms);
+        this.targetValues = null == targetValues ? null : new ArrayList<Map<Object, Serializable>>(targetValues);
+        this.observables = observables.toArray(new IObservable[observables.size()]);
+        for (int o = 0; o < this.observables.length; o++) {
+            observableIndex.put(this.observables[o], o);
+        }
+        values = new double[this.algorithms.size() * this.observables.length];
+        Arrays.fill(values, Constants.NO_PREDICTION);
+    }
+
+    /**
+     * Returns the number of candidates (rows).
+     *
+     * @return the number of candidates
+     */
+    public int getCandidateCount() {
+        return algorithms.size();
+    }
+
+    /**
+     * Returns the number of observables (columns).
+     *
+     * @return the number of observables
+     */
+    public int getObservableCount() {
+        return observables.length;
+    }
+
+    /**
+     * Returns the algorithm of a candidate.
+     *
+     * @param candidate the 0-based candidate index
+     * @return the algorithm (may be <b>null</b> for the active one)
+     * @throws IndexOutOfBoundsException if <code>candidate</code> is not valid
+     */
+    public String getAlgorithm(int candidate) {
+        return algorithms.get(candidate);
+    }
+
+    /**
+     * Returns the target values of a candidate.
+     *
+     * @param candidate the 0-based candidate index
+     * @return the target values (may be <b>null</b> for none)
+     * @throws IndexOutOfBoundsException if <code>candidate</code> is not valid
+     */
+    public Map<Object, Serializable> getTargetValues(int candidate) {
+        Map<Object, Serializable> result;
+        if (null == targetValues) {
+            algorithms.get(candidate); // check index
+            result = null;
+        } else {
+            result = targetValues.get(candidate);
+        }
+        return result;
+    }
+
+    /**
+     * Returns an observable.
+     *
+     * @param observable the 0-based observable index
+     * @return the observable
+     * @throws IndexOutOfBoundsException if <code>observable</code> is not valid
+     */
+    public IObservable getObservable(int observable) {
+        return observables[observable];
+    }
+
+    /**
+     * Returns the index of an observable.
+     *
+     * @param observable the observable
+     * @return the 0-based index, <code>-1</code> if <code>observable</code> is not part of this result
+     */
+    public int indexOf(IObservable observable) {
+        Integer result = observableIndex.get(observable);
+        return null == result ? -1 : result;
+    }
+
+    /**
+     * Returns a prediction.
+     *
+     * @param candidate the 0-based candidate index
+     * @param observable the 0-based observable index
+     * @return the prediction, {@link Constants#NO_PREDICTION} if there is none
+     * @throws IndexOutOfBoundsException if <code>candidate</code> or <code>observable</code> is not valid
+     */
+    public double get(int candidate, int observable) {
+        return values[getIndex(candidate, observable)];
+    }
+
+    /**
+     * Returns a prediction.
+     *
+     * @param candidate the 0-based candidate index
+     * @param observable the observable
+     * @return the prediction, {@link Constants#NO_PREDICTION} if there is none
+     * @throws IndexOutOfBoundsException if <code>candidate</code> or <code>observable</code> is not valid
+     */
+    public double get(int candidate, IObservable observable) {
+        return get(candidate, indexOf(observable));
+    }
+
+    /**
+     * Returns whether there is a prediction.
+     *
+     * @param candidate the 0-based candidate index
+     * @param observable the 0-based observable index
+     * @return <code>true</code> for a prediction, <code>false</code> else
+     * @throws IndexOutOfBoundsException if <code>candidate</code> or <code>observable</code> is not valid
+     */
+    public boolean hasPrediction(int candidate, int observable) {
+        return Constants.NO_PREDICTION != get(candidate, observable);
+    }
+
+    /**
+     * Changes a prediction.
+     *
+     * @param candidate the 0-based candidate index
+     * @param observable the 0-based observable index
+     * @param value the prediction
+     */
+    void set(int candidate, int observable, double value) {
+        values[getIndex(candidate, observable)] = value;
+    }
+
+    /**
+     * Returns the index into the value matrix.
+     *
+     * @param candidate the 0-based candidate index
+     * @param observable the 0-based observable index
+     * @return the index
+     * @throws IndexOutOfBoundsException if <code>candidate</code> or <code>observable</code> is not valid
+     */
+    private int getIndex(int candidate, int observable) {
+        if (candidate < 0 || candidate >= algorithms.size() || observable < 0 || observable >= observables.length) {
+            throw new IndexOutOfBoundsException("candidate " + candidate + " observable " + observable);
+        }
+        return candidate * observables.length + observable;
+    }
+
+    /**
+     * Returns the predictions of a candidate in terms of a map.
+     *
+     * @param candidate the 0-based candidate index
+     * @return the observable-prediction mapping, <b>null</b> as value if there is no prediction
+     * @throws IndexOutOfBoundsException if <code>candidate</code> is not valid
+     */
+    public Map<IObservable, Double> toMap(int candidate) {
+        Map<IObservable, Double> result = new HashMap<IObservable, Double>();
+        for (int o = 0; o < observables.length; o++) {
+            double predicted = get(candidate, o);
+            result.put(observables[o], (Constants.NO_PREDICTION == predicted) ? null : predicted);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int c = 0; c < algorithms.size(); c++) {
+            if (c > 0) {
+                result.append(", ");
+            }
+            result.append(getAlgorithm(c));
+            result.append(getTargetValues(c));
+            result.append(" -> ");
+            result.append(toMap(c));
+        }
+        return result.toString();
+    }
+
+}
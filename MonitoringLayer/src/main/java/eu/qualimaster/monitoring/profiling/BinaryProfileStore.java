@@ -0,0 +1,468 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.LogManager;
+
+import eu.qualimaster.monitoring.profiling.approximation.IProfileStore;
+import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
+
+/**
+ * A profile store keeping all predictors in a single append-only binary file with an in-memory index. Stored
+ * predictors are appended, i.e., superseded records remain in the file until the store is compacted (automatically
+ * if the superseded records dominate the file). Predictors are read lazily upon request. A truncated record at the
+ * end of the file, e.g., due to a crash, is ignored and overwritten by the next record. Instances are shared per
+ * file, see {@link #getInstance(File)}.
+ *
+ * <p>Format: magic number (int), version (byte), then records consisting of the identifier (UTF), the data length
+ * (int) and the data, i.e., the predictor in the format of {@link IAlgorithmProfilePredictor#store(
+ * java.io.OutputStream, String)}.</p>
+ *
+ * @author Holger Eichelberger
+ */
+public class BinaryProfileStore implements IProfileStore {
+
+    public static final String SUFFIX = ".qmprofile";
+    static final int MAGIC = 0x514D5053;
+    static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = 5;
+    private static final long MIN_COMPACTION_GARBAGE = 1024 * 1024;
+    private static final Map<File, BinaryProfileStore> STORES = new ConcurrentHashMap<File, BinaryProfileStore>();
+
+    private File file;
+    private FileChannel channel;
+    private Map<String, Record> index;
+    private long end;
+    private long garbage;
+
+    /**
+     * Represents the location of a record in the file.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class Record {
+
+        private long start;
+        private long dataStart;
+        private int dataLength;
+
+        /**
+         * Creates a record.
+         *
+         * @param start the start position of the record
+         * @param dataStart the start position of the data
+         * @param dataLength the length of the data
+         */
+        private Record(long start, long dataStart, int dataLength) {
+            this.start = start;
+            this.dataStart = dataStart;
+            this.dataLength = dataLength;
+        }
+
+        /**
+         * Returns the length of the entire record.
+         *
+         * @return the length
+         */
+        private long length() {
+            return dataStart - start + dataLength;
+        }
+
+    }
+
+    /**
+     * Creates a store for the given file. Use {@link #getInstance(File)} for shared access.
+     *
+     * @param file the file
+     */
+    BinaryProfileStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the shared store instance for <code>file</code>.
+     *
+     * @param file the file
+     * @return the store
+     */
+    public static BinaryProfileStore getInstance(File file) {
+        File key = file.getAbsoluteFile();
+        BinaryProfileStore result = STORES.get(key);
+        if (null == result) {
+            BinaryProfileStore created = new BinaryProfileStore(key);
+            result = STORES.putIfAbsent(key, created);
+            if (null == result) {
+                result = created;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Closes and releases all shared store instances.
+     */
+    public static void releaseAll() {
+        for (BinaryProfileStore store : STORES.values()) {
+            store.close();
+        }
+        STORES.clear();
+    }
+
+    /**
+     * Returns the file of this store.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the index if not done so far.
+     *
+     * @throws IOException in case that the file cannot be read or is not a profile store
+     */
+    private void ensureIndex() throws IOException {
+        if (null == index) {
+            Map<String, Record> idx = new HashMap<String, Record>();
+            long pos = 0;
+            long waste = 0;
+            if (file.exists() && file.length() > 0) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                    if (MAGIC != in.readInt()) {
+                        throw new IOException("Not a profile store: " + file);
+                    }
+                    byte version = in.readByte();
+                    if (version > VERSION) {
+                        throw new IOException("Unsupported profile store version " + version + ": " + file);
+                    }
+                    pos = HEADER_LENGTH;
+                    long length = file.length();
+                    while (pos < length) {
+                        String identifier = in.readUTF();
+                        int dataLength = in.readInt();
+                        long dataStart = pos + 2 + utfLength(identifier) + 4;
+                        if (dataLength < 0 || dataStart + dataLength > length) {
+                            break; // truncated
+                        }
+                        skipFully(in, dataLength);
+                        Record old = idx.put(identifier, new Record(pos, dataStart, dataLength));
+                        if (null != old) {
+                            waste += old.length();
+                        }
+                        pos = dataStart + dataLength;
+                    }
+                } catch (EOFException e) {
+                    // truncated record, pos is at the end of the last complete record
+                }
+            }
+            index = idx;
+            end = pos;
+            garbage = waste;
+        }
+    }
+
+    /**
+     * Returns the length of <code>text</code> in modified UTF-8, see {@link DataOutputStream#writeUTF(String)}.
+     *
+     * @param text the text
+     * @return the length in bytes
+     */
+    private static int utfLength(String text) {
+        int result = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                result++;
+            } else if (c > 0x07FF) {
+                result += 3;
+            } else {
+                result += 2;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Skips <code>count</code> bytes.
+     *
+     * @param in the input stream
+     * @param count the number of bytes to skip
+     * @throws IOException in case of I/O problems
+     * @throws EOFException if the end of the stream is reached before
+     */
+    private static void skipFully(DataInputStream in, int count) throws IOException {
+        int remaining = count;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Opens the channel if required.
+     *
+     * @return the channel
+     * @throws IOException in case that the file cannot be opened
+     */
+    private FileChannel ensureChannel() throws IOException {
+        if (null == channel) {
+            File parent = file.getParentFile();
+            if (null != parent && !parent.exists()) {
+                eu.qualimaster.file.Utils.mkdirs(parent);
+            }
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            if (end >= HEADER_LENGTH && channel.size() > end) {
+                channel.truncate(end); // drop truncated record
+            }
+            if (end < HEADER_LENGTH) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                header.putInt(MAGIC);
+                header.put(VERSION);
+                header.flip();
+                writeFully(channel, header, 0);
+                end = HEADER_LENGTH;
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * Writes a buffer completely.
+     *
+     * @param channel the channel to write to
+     * @param buffer the buffer
+     * @param position the file position to write to
+     * @throws IOException in case of I/O problems
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+    }
+
+    @Override
+    public synchronized Set<String> keys(String prefix) throws IOException {
+        ensureIndex();
+        Set<String> result = new HashSet<String>();
+        for (String key : index.keySet()) {
+            if (null == prefix || key.startsWith(prefix)) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of (live) records.
+     *
+     * @return the number of records
+     * @throws IOException in case that the store cannot be read
+     */
+    public synchronized int size() throws IOException {
+        ensureIndex();
+        return index.size();
+    }
+
+    /**
+     * Reads the data stored for <code>identifier</code>.
+     *
+     * @param identifier the identifier
+     * @return the data, <b>null</b> if there is none
+     * @throws IOException in case that the store cannot be read
+     */
+    public synchronized byte[] read(String identifier) throws IOException {
+        ensureIndex();
+        byte[] result = null;
+        Record record = index.get(identifier);
+        if (null != record) {
+            FileChannel ch = ensureChannel();
+            ByteBuffer buf = ByteBuffer.allocate(record.dataLength);
+            long pos = record.dataStart;
+            while (buf.hasRemaining()) {
+                int read = ch.read(buf, pos);
+                if (read < 0) {
+                    throw new EOFException("Truncated profile store: " + file);
+                }
+                pos += read;
+            }
+            result = buf.array();
+        }
+        return result;
+    }
+
+    /**
+     * Appends data for <code>identifier</code>, superseding existing data. May compact the store.
+     *
+     * @param identifier the identifier
+     * @param data the data
+     * @throws IOException in case that the store cannot be written
+     */
+    public synchronized void write(String identifier, byte[] data) throws IOException {
+        ensureIndex();
+        FileChannel ch = ensureChannel();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + identifier.length() + 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(identifier);
+        out.writeInt(data.length);
+        int headerLength = out.size();
+        out.write(data);
+        out.flush();
+        long start = end;
+        writeFully(ch, ByteBuffer.wrap(bytes.toByteArray()), start);
+        end = start + bytes.size();
+        Record old = index.put(identifier, new Record(start, start + headerLength, data.length));
+        if (null != old) {
+            garbage += old.length();
+        }
+        if (garbage > MIN_COMPACTION_GARBAGE && garbage > end - garbage) {
+            compact();
+        }
+    }
+
+    /**
+     * Takes over all records of <code>other</code>, superseding existing records with the same identifier.
+     *
+     * @param other the other store
+     * @throws IOException in case that a store cannot be read or written
+     */
+    public void putAll(BinaryProfileStore other) throws IOException {
+        for (String identifier : other.keys(null)) {
+            byte[] data = other.read(identifier);
+            if (null != data) {
+                write(identifier, data);
+            }
+        }
+    }
+
+    @Override
+    public boolean load(String identifier, IAlgorithmProfilePredictor predictor) throws IOException {
+        byte[] data = read(identifier);
+        if (null != data) {
+            predictor.load(new ByteArrayInputStream(data), identifier);
+        }
+        return null != data;
+    }
+
+    @Override
+    public void store(String identifier, IAlgorithmProfilePredictor predictor) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        predictor.store(out, identifier);
+        write(identifier, out.toByteArray());
+    }
+
+    /**
+     * Rewrites the store with the live records only. The compacted store is written to a temporary file, which
+     * atomically replaces the store file if supported by the file system.
+     *
+     * @throws IOException in case that the store cannot be read or written
+     */
+    public synchronized void compact() throws IOException {
+        ensureIndex();
+        if (garbage > 0 || end < file.length()) {
+            File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            Map<String, Record> idx = new HashMap<String, Record>();
+            long pos = HEADER_LENGTH;
+            try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                header.putInt(MAGIC);
+                header.put(VERSION);
+                header.flip();
+                writeFully(out, header, 0);
+                out.position(HEADER_LENGTH); // transferTo appends at the channel position
+                FileChannel in = ensureChannel();
+                for (Map.Entry<String, Record> ent : index.entrySet()) {
+                    Record record = ent.getValue();
+                    long length = record.length();
+                    long transferred = 0;
+                    while (transferred < length) {
+                        transferred += in.transferTo(record.start + transferred, length - transferred, out);
+                    }
+                    idx.put(ent.getKey(), new Record(pos, pos + (record.dataStart - record.start),
+                        record.dataLength));
+                    pos += length;
+                }
+                out.force(true);
+            }
+            close();
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            index = idx;
+            end = pos;
+            garbage = 0;
+        }
+    }
+
+    /**
+     * Returns the number of bytes occupied by superseded records.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getGarbage() {
+        return garbage;
+    }
+
+    /**
+     * Closes the underlying file. The store is re-opened upon next access.
+     */
+    public synchronized void close() {
+        if (null != channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LogManager.getLogger(getClass()).warn("While closing " + file + ": " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+import eu.qualimaster.monitoring.profiling.approximation.IProfileStore;
+import eu.qualimaster.monitoring.profiling.approximation.IStorageStrategy;
+import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
+import eu.qualimaster.observables.IObservable;
+
+/**
+ * A storage strategy keeping the predictors of a pipeline element (of an algorithm in profiling mode) in a single
+ * {@link BinaryProfileStore} located in the element (algorithm) folder of the {@link DefaultStorageStrategy}.
+ * Approximators are stored as in the default strategy. Predictors that are not (yet) in the binary store are read
+ * from the predictor folders of the default strategy, e.g., unpacked or not converted profiles, and written to the
+ * binary store when stored next time.
+ *
+ * @author Holger Eichelberger
+ */
+public class BinaryStorageStrategy extends DefaultStorageStrategy {
+
+    public static final String NAME = "binary";
+    public static final IStorageStrategy INSTANCE = new BinaryStorageStrategy();
+
+    /**
+     * Prevents external instantiation.
+     */
+    protected BinaryStorageStrategy() {
+    }
+
+    /**
+     * Combines the binary store with the predictor folder of the default strategy as fallback.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class FallbackProfileStore implements IProfileStore {
+
+        private BinaryProfileStore store;
+        private IProfileStore fallback;
+        private File fallbackFolder;
+
+        /**
+         * Creates a fallback store.
+         *
+         * @param store the binary store
+         * @param fallbackFolder the predictor folder of the default strategy
+         */
+        private FallbackProfileStore(BinaryProfileStore store, File fallbackFolder) {
+            this.store = store;
+            this.fallbackFolder = fallbackFolder;
+            this.fallback = new MapFileProfileStore(fallbackFolder);
+        }
+
+        @Override
+        public Set<String> keys(String prefix) throws IOException {
+            Set<String> result = store.keys(prefix);
+            if (fallbackFolder.exists()) {
+                result.addAll(fallback.keys(prefix));
+            }
+            return result;
+        }
+
+        @Override
+        public boolean load(String identifier, IAlgorithmProfilePredictor predictor) throws IOException {
+            boolean result = store.load(identifier, predictor);
+            if (!result && fallbackFolder.exists()) {
+                result = fallback.load(identifier, predictor);
+            }
+            return result;
+        }
+
+        @Override
+        public void store(String identifier, IAlgorithmProfilePredictor predictor) throws IOException {
+            store.store(identifier, predictor);
+        }
+
+        @Override
+        public String toString() {
+            return store + " " + fallbackFolder;
+        }
+
+    }
+
+    @Override
+    public IProfileStore getProfileStore(PipelineElement element, String path, Map<Object, Serializable> key,
+        IObservable observable) {
+        return createProfileStore(getPredictorPath(element, path, key, observable), element.isInProfilingMode(),
+            element.getProfileCreator());
+    }
+
+    @Override
+    public IProfileStore getProfileStore(String pipeline, String element, String algorithm, String path,
+        IObservable observable, IAlgorithmProfileCreator creator) {
+        return createProfileStore(getPredictorPath(pipeline, element, algorithm, path, observable, creator),
+            null == pipeline || null == element, creator);
+    }
+
+    /**
+     * Creates a profile store for a predictor path.
+     *
+     * @param predictorPath the predictor path of the default strategy
+     * @param profiling whether the predictor path is in profiling mode
+     * @param creator the profile creator
+     * @return the profile store
+     */
+    private IProfileStore createProfileStore(File predictorPath, boolean profiling, IAlgorithmProfileCreator creator) {
+        return new FallbackProfileStore(BinaryProfileStore.getInstance(
+            getStoreFile(predictorPath, profiling, creator)), predictorPath);
+    }
+
+    /**
+     * Returns the binary store file for a predictor path.
+     *
+     * @param predictorPath the predictor path of the default strategy, i.e.,
+     *   <code>[pipeline/element/]algorithm/predicted/predictor</code>
+     * @param profiling whether the predictor path is in profiling mode, i.e., without pipeline and element
+     * @param creator the profile creator
+     * @return the store file in the element folder (algorithm folder in profiling mode)
+     */
+    static File getStoreFile(File predictorPath, boolean profiling, IAlgorithmProfileCreator creator) {
+        File folder = predictorPath.getParentFile().getParentFile(); // algorithm
+        if (!profiling) {
+            folder = folder.getParentFile(); // element
+        }
+        return new File(folder, creator.getStorageSubFolder() + BinaryProfileStore.SUFFIX);
+    }
+
+}
@@ -34,7 +34,7 @@ public class Constants {
 
     public static final String KEY_CHAR = "*";
     public static final String KEY_INPUT_RATE = KEY_CHAR + "inp" + KEY_CHAR;
-    static final String KEY_ALGORITHM = KEY_CHAR + "alg" + KEY_CHAR;
+    public static final String KEY_ALGORITHM = KEY_CHAR + "alg" + KEY_CHAR;
     
     /**
      * Turns a name with {@link #KEY_CHAR} into a file system name if needed.
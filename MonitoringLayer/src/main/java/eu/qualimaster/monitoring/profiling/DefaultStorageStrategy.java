@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
 
+import eu.qualimaster.monitoring.profiling.approximation.IProfileStore;
 import eu.qualimaster.monitoring.profiling.approximation.IStorageStrategy;
 import eu.qualimaster.monitoring.profiling.quantizers.Quantizer;
 import eu.qualimaster.observables.IObservable;
@@ -41,7 +42,7 @@ public class DefaultStorageStrategy implements IStorageStrategy {
     /**
      * Prevents external instantiation.
      */
-    private DefaultStorageStrategy() {
+    protected DefaultStorageStrategy() {
     }
     
     @Override
@@ -73,6 +74,23 @@ public class DefaultStorageStrategy implements IStorageStrategy {
         return result;
     }
 
+    @Override
+    public IProfileStore getProfileStore(PipelineElement element, String path, Map<Object, Serializable> key, 
+        IObservable observable) {
+        return new MapFileProfileStore(getPredictorPath(element, path, key, observable));
+    }
+
+    @Override
+    public IProfileStore getProfileStore(String pipeline, String element, String algorithm, String path, 
+        IObservable observable, IAlgorithmProfileCreator creator) {
+        return new MapFileProfileStore(getPredictorPath(pipeline, element, algorithm, path, observable, creator));
+    }
+
+    @Override
+    public boolean isProfileStoreFile(File file) {
+        return file.getName().endsWith(BinaryProfileStore.SUFFIX); // recognize, e.g., for merging
+    }
+
     @Override
     public File getApproximatorsPath(PipelineElement element, String path, Map<Object, Serializable> key) {
         String identifier = generateKey(element, key, null, false);
@@ -135,6 +153,24 @@ public class DefaultStorageStrategy implements IStorageStrategy {
             result += ":predicted=" + observable.name();
         }
         if (includeParameters) {
+            result += ";parameters=" + sortedParametersToString(key);
+        }
+        return result;
+    }
+
+    /**
+     * Turns the parameters of a profile key into a string sorted by the parameter names. The result is cached for 
+     * {@link InternedKey interned keys}.
+     * 
+     * @param key the profile key
+     * @return the string representation
+     */
+    private static String sortedParametersToString(Map<Object, Serializable> key) {
+        String result = null;
+        if (key instanceof InternedKey) {
+            result = ((InternedKey) key).getParameterString();
+        }
+        if (null == result) {
             TreeMap<String, String> sorted = new TreeMap<>();
             for (Map.Entry<Object, Serializable> ent : key.entrySet()) {
                 String k = keyToString(ent.getKey());
@@ -142,7 +178,10 @@ public class DefaultStorageStrategy implements IStorageStrategy {
                     sorted.put(k, valueToString(ent.getValue()));
                 }
             }
-            result += ";parameters=" + sorted;
+            result = sorted.toString();
+            if (key instanceof InternedKey) {
+                ((InternedKey) key).setParameterString(result);
+            }
         }
         return result;
     }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A canonical, immutable profile key as created by {@link KeyCache}. Equal to and interchangeable with any other
+ * map of the same mappings, but with a precomputed hash code and a cached string form of the parameters.
+ *
+ * @author Holger Eichelberger
+ */
+public final class InternedKey extends AbstractMap<Object, Serializable> {
+
+    private Map<Object, Serializable> mapping;
+    private int hash;
+    private volatile String parameterString;
+
+    /**
+     * Creates an interned key.
+     *
+     * @param mapping the mapping to take over (copied)
+     */
+    InternedKey(Map<Object, Serializable> mapping) {
+        this.mapping = Collections.unmodifiableMap(new HashMap<Object, Serializable>(mapping));
+        this.hash = this.mapping.hashCode();
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Serializable>> entrySet() {
+        return mapping.entrySet();
+    }
+
+    @Override
+    public Serializable get(Object key) {
+        return mapping.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return mapping.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return mapping.size();
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        boolean result;
+        if (this == object) {
+            result = true;
+        } else if (object instanceof InternedKey) {
+            InternedKey other = (InternedKey) object;
+            result = hash == other.hash && mapping.equals(other.mapping);
+        } else {
+            result = mapping.equals(object);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cached string form of the parameters.
+     *
+     * @return the string form, <b>null</b> if not cached yet
+     * @see DefaultStorageStrategy#generateKey(PipelineElement, Map, eu.qualimaster.observables.IObservable, boolean)
+     */
+    String getParameterString() {
+        return parameterString;
+    }
+
+    /**
+     * Caches the string form of the parameters.
+     *
+     * @param parameterString the string form
+     */
+    void setParameterString(String parameterString) {
+        this.parameterString = parameterString;
+    }
+
+}
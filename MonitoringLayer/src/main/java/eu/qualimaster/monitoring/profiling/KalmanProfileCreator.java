@@ -20,9 +20,10 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
+import eu.qualimaster.monitoring.MonitoringConfiguration;
 import eu.qualimaster.monitoring.profiling.approximation.IStorageStrategy;
 import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
-import eu.qualimaster.monitoring.profiling.predictors.Kalman;
+import eu.qualimaster.monitoring.profiling.predictors.PrimitiveKalman;
 import eu.qualimaster.observables.IObservable;
 
 /**
@@ -34,7 +35,7 @@ public class KalmanProfileCreator extends AbstractAlgorithmProfileCreator {
 
     @Override
     public IAlgorithmProfilePredictor createPredictor() {
-        return new Kalman();
+        return new PrimitiveKalman();
     }
 
     @Override
@@ -55,7 +56,13 @@ public class KalmanProfileCreator extends AbstractAlgorithmProfileCreator {
 
     @Override
     public IStorageStrategy getStorageStrategy() {
-        return DefaultStorageStrategy.INSTANCE;
+        IStorageStrategy result;
+        if (BinaryStorageStrategy.NAME.equals(MonitoringConfiguration.getProfileStorage())) {
+            result = BinaryStorageStrategy.INSTANCE;
+        } else {
+            result = DefaultStorageStrategy.INSTANCE;
+        }
+        return result;
     }
 
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import eu.qualimaster.monitoring.profiling.quantizers.Quantizer;
+import eu.qualimaster.observables.IObservable;
+
+/**
+ * Creates and interns the profile keys of a pipeline element, i.e., a mapping of the algorithm and the quantized 
+ * parameters. Returns one of the recently used keys without allocation if algorithm and quantized parameters 
+ * match, memoizes the quantization of recurring parameter values and interns all keys into canonical 
+ * {@link InternedKey} instances. Interned keys are released when they are not referenced anymore, e.g., by a 
+ * profile. Thread-safe.
+ *
+ * @author Holger Eichelberger
+ */
+public class KeyCache {
+
+    private static final int RECENT = 8;
+
+    private Map<InternedKey, WeakReference<InternedKey>> interned = new WeakHashMap<>();
+    private Map<Object, QuantizedValue> quantized = new HashMap<>();
+    private int quantizerVersion = -1;
+    private InternedKey[] recent = new InternedKey[RECENT]; // most recent first
+    private long hits;
+    private long misses;
+
+    /**
+     * Stores the last quantized value of a parameter.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class QuantizedValue {
+        private Serializable value;
+        private Integer result; // null if not quantizable
+    }
+
+    /**
+     * Returns the key for an algorithm and the given parameters.
+     *
+     * @param algorithm the algorithm name
+     * @param parameters the (unquantized) parameters (may be <b>null</b>, ignored then)
+     * @param override overridable (unquantized) parts of the key (may be <b>null</b>, ignored then)
+     * @return the interned key
+     */
+    public synchronized InternedKey getKey(String algorithm, Map<Object, Serializable> parameters, 
+        Map<Object, Serializable> override) {
+        int version = ProfilingRegistry.getQuantizerVersion();
+        if (version != quantizerVersion) {
+            quantized.clear();
+            Arrays.fill(recent, null);
+            quantizerVersion = version;
+        }
+        InternedKey result = null;
+        boolean noOverride = null == override || override.isEmpty();
+        if (noOverride) {
+            for (int r = 0; null == result && r < RECENT && null != recent[r]; r++) {
+                if (matches(recent[r], algorithm, parameters)) {
+                    result = recent[r];
+                    System.arraycopy(recent, 0, recent, 1, r);
+                    recent[0] = result;
+                    hits++;
+                }
+            }
+        }
+        if (null == result) {
+            Map<Object, Serializable> key = new HashMap<Object, Serializable>();
+            key.put(Constants.KEY_ALGORITHM, algorithm);
+            putAll(key, parameters);
+            putAll(key, override);
+            result = intern(key);
+            if (noOverride) {
+                System.arraycopy(recent, 0, recent, 1, RECENT - 1);
+                recent[0] = result;
+            }
+            misses++;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether <code>algorithm</code> and the quantized <code>parameters</code> match <code>key</code>.
+     *
+     * @param key the key to match
+     * @param algorithm the algorithm name
+     * @param parameters the parameters (may be <b>null</b>)
+     * @return <code>true</code> for match, <code>false</code> else
+     */
+    private boolean matches(InternedKey key, String algorithm, Map<Object, Serializable> parameters) {
+        Serializable keyAlgorithm = key.get(Constants.KEY_ALGORITHM);
+        boolean result = null == algorithm ? null == keyAlgorithm : algorithm.equals(keyAlgorithm);
+        int count = 1; // algorithm
+        if (result && null != parameters) {
+            for (Map.Entry<Object, Serializable> ent : parameters.entrySet()) {
+                Object name = ent.getKey();
+                Integer value = quantize(name, ent.getValue());
+                if (null != value) {
+                    count++;
+                    if (Constants.KEY_ALGORITHM.equals(name) || !value.equals(key.get(name))) {
+                        result = false;
+                        break;
+                    }
+                }
+            }
+        }
+        return result && count == key.size();
+    }
+
+    /**
+     * Puts all quantizable and quantized mappings from <code>source</code> into target.
+     * 
+     * @param target the target map
+     * @param source the source map (may be <b>null</b>, ignored then)
+     */
+    private void putAll(Map<Object, Serializable> target, Map<Object, Serializable> source) {
+        if (null != source) {
+            for (Map.Entry<Object, Serializable> ent : source.entrySet()) {
+                Integer value = quantize(ent.getKey(), ent.getValue());
+                if (null != value) {
+                    target.put(ent.getKey(), value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Quantizes a parameter value for a key. Reuses the last result for the same parameter and value.
+     *
+     * @param name the parameter name
+     * @param value the parameter value
+     * @return the quantized value, <b>null</b> if the parameter is not quantizable for keys
+     */
+    private Integer quantize(Object name, Serializable value) {
+        QuantizedValue last = quantized.get(name);
+        if (null == last) {
+            last = new QuantizedValue();
+            quantized.put(name, last);
+        }
+        if (null == last.value || !last.value.equals(value)) {
+            Quantizer<?> quantizer;
+            if (name instanceof IObservable) {
+                quantizer = ProfilingRegistry.getQuantizer((IObservable) name, true);
+            } else {
+                quantizer = ProfilingRegistry.getQuantizer(value, true);
+            }
+            last.result = null == quantizer ? null : quantizer.quantize(value);
+            last.value = value;
+        }
+        return last.result;
+    }
+
+    /**
+     * Interns the given key.
+     *
+     * @param key the key
+     * @return the canonical instance
+     */
+    private InternedKey intern(Map<Object, Serializable> key) {
+        WeakReference<InternedKey> ref = interned.get(key);
+        InternedKey result = null == ref ? null : ref.get();
+        if (null == result) {
+            result = new InternedKey(key);
+            interned.put(result, new WeakReference<InternedKey>(result));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of keys returned without creating a new key.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of keys created (and interned).
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of interned keys.
+     *
+     * @return the number of interned keys
+     */
+    public synchronized int size() {
+        return interned.size();
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import eu.qualimaster.monitoring.profiling.approximation.IProfileStore;
+import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
+
+/**
+ * A profile store for a predictor folder, i.e., a {@link MapFile} and one file per predictor. Concurrent profiling 
+ * runs of the same algorithm share the predictor folder, i.e., all stores for the same folder are serialized.
+ *
+ * @author Holger Eichelberger
+ */
+public class MapFileProfileStore implements IProfileStore {
+
+    private static final Map<String, Object> LOCKS = new ConcurrentHashMap<String, Object>();
+    private File folder;
+    private Object lock;
+
+    /**
+     * Creates a map file profile store.
+     *
+     * @param folder the predictor folder
+     */
+    public MapFileProfileStore(File folder) {
+        this.folder = folder;
+        this.lock = getLock(folder);
+    }
+
+    /**
+     * Returns the lock shared by all stores for <code>folder</code>.
+     * 
+     * @param folder the predictor folder
+     * @return the lock
+     */
+    private static Object getLock(File folder) {
+        String key = folder.getAbsoluteFile().toPath().normalize().toString();
+        Object lock = LOCKS.get(key);
+        if (null == lock) {
+            Object tmp = new Object();
+            lock = LOCKS.putIfAbsent(key, tmp);
+            if (null == lock) {
+                lock = tmp;
+            }
+        }
+        return lock;
+    }
+
+    @Override
+    public Set<String> keys(String prefix) throws IOException {
+        Set<String> result = new HashSet<String>();
+        synchronized (lock) {
+            MapFile mapFile = new MapFile(folder);
+            mapFile.load();
+            for (String key : mapFile.keys()) {
+                if (null == prefix || key.startsWith(prefix)) {
+                    result.add(key);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean load(String identifier, IAlgorithmProfilePredictor predictor) throws IOException {
+        boolean result;
+        synchronized (lock) {
+            MapFile mapFile = new MapFile(folder);
+            mapFile.load();
+            File instanceFile = mapFile.getFile(identifier);
+            result = null != instanceFile && instanceFile.exists();
+            if (result) {
+                predictor.load(instanceFile, identifier);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void store(String identifier, IAlgorithmProfilePredictor predictor) throws IOException {
+        synchronized (lock) { // load, determine the id and update the map-file without interleaving
+            // Create folders, if needed
+            if (!folder.exists()) {
+                eu.qualimaster.file.Utils.mkdirs(folder);
+            }
+            // load map-file
+            MapFile mapFile = new MapFile(folder);
+            mapFile.load();
+
+            boolean newEntry = false;
+            int id = mapFile.get(identifier);
+            if (id < 0) {
+                id = mapFile.size() + 1;
+                newEntry = true;
+            }
+
+            File instanceFile = MapFile.getFile(folder, id);
+            predictor.store(instanceFile, identifier);
+
+            // update map-file, if needed
+            if (newEntry) {
+                mapFile.put(identifier, id);
+                mapFile.store();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return folder.toString();
+    }
+
+}
@@ -19,12 +19,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.LogManager;
 
@@ -32,6 +37,7 @@ import eu.qualimaster.coordination.INameMapping;
 import eu.qualimaster.monitoring.MonitoringManager;
 import eu.qualimaster.monitoring.profiling.approximation.IApproximator;
 import eu.qualimaster.monitoring.profiling.approximation.IApproximatorCreator;
+import eu.qualimaster.monitoring.profiling.approximation.IProfileStore;
 import eu.qualimaster.monitoring.profiling.approximation.IStorageStrategy;
 import eu.qualimaster.monitoring.profiling.approximation.IStorageStrategy.ProfileKey;
 import eu.qualimaster.monitoring.profiling.quantizers.Quantizer;
@@ -65,6 +71,11 @@ public class PipelineElement {
      */
     private Map<Map<Object, Serializable>, IAlgorithmProfile> profiles = new HashMap<>();
     
+    /**
+     * Creates and interns the profile keys.
+     */
+    private KeyCache keyCache = new KeyCache();
+    
     /**
      * Maps parameter identifiers and observables to an approximator for unknown points, i.e., 
      * paramValue x observableValue.
@@ -247,7 +258,7 @@ public class PipelineElement {
     }
     
     /**
-     * Creates a key for the predictor. [re-creating the key for each prediction may be inefficient, let's see]
+     * Returns the key for the predictor. Keys are interned and reused if the quantized parameters did not change.
      * 
      * @param algorithm the algorithm name (may be <b>null</b> for the active one)
      * @param override overridable parts of the key (may be <b>null</b>, ignored then)
@@ -255,37 +266,8 @@ public class PipelineElement {
      * @return the key
      */
     private Map<Object, Serializable> getKey(String algorithm, Map<Object, Serializable> override, boolean addParam) {
-        Map<Object, Serializable> result = new HashMap<Object, Serializable>();
-        result.put(Constants.KEY_ALGORITHM, null == algorithm ? activeAlgorithm : algorithm);
-        if (addParam) {
-            putAllForKey(result, parameters);
-        }
-        putAllForKey(result, override);
-        return result;
-    }
-    
-    /**
-     * Puts all quantizable and quantized mappings from <code>source</code> into target.
-     * 
-     * @param target the target map
-     * @param source the source map
-     */
-    private void putAllForKey(Map<Object, Serializable> target, Map<Object, Serializable> source) {
-        if (null != source) {
-            for (Map.Entry<Object, Serializable> ent : source.entrySet()) {
-                Object key = ent.getKey();
-                Serializable value = ent.getValue();
-                Quantizer<?> quantizer;
-                if (key instanceof IObservable) {
-                    quantizer = ProfilingRegistry.getQuantizer((IObservable) key, true);
-                } else {
-                    quantizer = ProfilingRegistry.getQuantizer(value, true);
-                }
-                if (null != quantizer) {
-                    target.put(key, quantizer.quantize(value));
-                }
-            }
-        }
+        return keyCache.getKey(null == algorithm ? activeAlgorithm : algorithm, addParam ? parameters : null, 
+            override);
     }
 
     /**
@@ -300,9 +282,13 @@ public class PipelineElement {
             profile = profiles.get(key);
         }
         if (null == profile) {
-            profile = getProfileCreator().createProfile(this, key);
+            IAlgorithmProfile created = getProfileCreator().createProfile(this, key);
             synchronized (profiles) {
-                profiles.put(key, profile);
+                profile = profiles.get(key); // created concurrently?
+                if (null == profile) {
+                    profiles.put(key, created);
+                    profile = created;
+                }
             }
         }
         return profile;
@@ -467,7 +453,21 @@ public class PipelineElement {
      * @return the prediction or {@link Constants#NO_PREDICTION} if neither prediction nor approximation is possible
      */
     private double predict(String algorithm, IAlgorithmProfile profile, IObservable observable) {
-        double result = profile.predict(observable, ProfilingRegistry.getPredictionSteps(observable));
+        return approximate(algorithm, observable, 
+            profile.predict(observable, ProfilingRegistry.getPredictionSteps(observable)));
+    }
+
+    /**
+     * Updates the approximators with a profile prediction or asks the approximators if there is no profile 
+     * prediction.
+     * 
+     * @param algorithm the name of the algorithm (take the active one if <b>null</b>)
+     * @param observable the observable to predict for
+     * @param predicted the prediction of the profile, may be {@link Constants#NO_PREDICTION}
+     * @return the prediction or {@link Constants#NO_PREDICTION} if neither prediction nor approximation is possible
+     */
+    private double approximate(String algorithm, IObservable observable, double predicted) {
+        double result = predicted;
         if (Constants.NO_PREDICTION != result) {
             updateParameterApproximators(algorithm, observable, result, false);
         } else {
@@ -513,6 +513,118 @@ public class PipelineElement {
         return predict(algorithm, profile, observable);
     }
     
+    /**
+     * Predicts the next values for all candidates and observables in <code>batch</code>. Resolves the profile of each
+     * distinct candidate key once and evaluates the predictors of distinct profiles in parallel if 
+     * <code>executor</code> is given. Approximators are updated / asked afterwards in sequence of the candidates.
+     * 
+     * @param batch the batch to predict for, modified as a side effect
+     * @param executor the executor for parallel evaluation, sequential evaluation if <b>null</b>
+     * @param tasks the number of parallel tasks to split the evaluation into (ignored if <code>executor</code> is 
+     *   <b>null</b>)
+     */
+    void predict(BatchPredictionResult batch, ExecutorService executor, int tasks) {
+        int candidates = batch.getCandidateCount();
+        int observables = batch.getObservableCount();
+        int[] steps = new int[observables];
+        for (int o = 0; o < observables; o++) {
+            steps[o] = ProfilingRegistry.getPredictionSteps(batch.getObservable(o));
+        }
+        Map<Map<Object, Serializable>, Integer> keys = new HashMap<Map<Object, Serializable>, Integer>();
+        List<IAlgorithmProfile> batchProfiles = new ArrayList<IAlgorithmProfile>();
+        int[] profileIndex = new int[candidates];
+        for (int c = 0; c < candidates; c++) {
+            Map<Object, Serializable> key = getKey(batch.getAlgorithm(c), batch.getTargetValues(c), true);
+            Integer index = keys.get(key);
+            if (null == index) {
+                index = batchProfiles.size();
+                batchProfiles.add(obtainProfile(key));
+                keys.put(key, index);
+            }
+            profileIndex[c] = index;
+        }
+        double[] predicted = new double[batchProfiles.size() * observables];
+        Arrays.fill(predicted, Constants.NO_PREDICTION);
+        if (null == executor || tasks < 2 || batchProfiles.size() < 2) {
+            new ProfilePredictor(batch, batchProfiles, steps, predicted, 0, batchProfiles.size()).call();
+        } else {
+            List<ProfilePredictor> predictors = new ArrayList<ProfilePredictor>();
+            int size = (batchProfiles.size() + tasks - 1) / tasks;
+            for (int start = 0; start < batchProfiles.size(); start += size) {
+                predictors.add(new ProfilePredictor(batch, batchProfiles, steps, predicted, start, 
+                    Math.min(start + size, batchProfiles.size())));
+            }
+            try {
+                for (Future<Void> future : executor.invokeAll(predictors)) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        LogManager.getLogger(getClass()).warn("Batch prediction failed partially: " 
+                            + e.getCause().getMessage());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int c = 0; c < candidates; c++) {
+            String algorithm = batch.getAlgorithm(c);
+            int row = profileIndex[c] * observables;
+            for (int o = 0; o < observables; o++) {
+                batch.set(c, o, approximate(algorithm, batch.getObservable(o), predicted[row + o]));
+            }
+        }
+    }
+
+    /**
+     * Evaluates the predictors of a range of profiles for a batch prediction.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class ProfilePredictor implements Callable<Void> {
+
+        private BatchPredictionResult batch;
+        private List<IAlgorithmProfile> profiles;
+        private int[] steps;
+        private double[] predicted;
+        private int start;
+        private int end;
+
+        /**
+         * Creates a profile predictor.
+         * 
+         * @param batch the batch to predict for
+         * @param profiles the distinct profiles of the batch
+         * @param steps the prediction steps per observable
+         * @param predicted the predictions per profile and observable, modified as a side effect
+         * @param start the first profile to evaluate
+         * @param end the last profile to evaluate (exclusive)
+         */
+        private ProfilePredictor(BatchPredictionResult batch, List<IAlgorithmProfile> profiles, int[] steps, 
+            double[] predicted, int start, int end) {
+            this.batch = batch;
+            this.profiles = profiles;
+            this.steps = steps;
+            this.predicted = predicted;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Void call() {
+            int observables = steps.length;
+            for (int p = start; p < end; p++) {
+                IAlgorithmProfile profile = profiles.get(p);
+                int row = p * observables;
+                for (int o = 0; o < observables; o++) {
+                    predicted[row + o] = profile.predict(batch.getObservable(o), steps[o]);
+                }
+            }
+            return null;
+        }
+
+    }
+
     /**
      * Predict the next value for all known parameters for this pipeline element.
      * 
@@ -526,14 +638,12 @@ public class PipelineElement {
         Map<Map<Object, Serializable>, Map<IObservable, Double>> algResults = new HashMap<>();
         Map<Object, Serializable> filter = getFilterParameters(algorithm);
         for (IObservable obs : observables) {
-            File path = strategy.getPredictorPath(getPipeline().getName(), getName(), algorithm, getPath(), 
+            IProfileStore store = strategy.getProfileStore(getPipeline().getName(), getName(), algorithm, getPath(), 
                 obs, creator);
-            MapFile mapFile = new MapFile(path);
             try {
-                mapFile.load();
-                for (String k : mapFile.keys()) {
+                for (String k : store.keys(null)) {
                     ProfileKey parsed = strategy.parseKey(k);
-                    if (matchesFilter(parsed.getParameter(), filter)) {
+                    if (isFor(parsed, algorithm, obs) && matchesFilter(parsed.getParameter(), filter)) {
                         Map<Object, Serializable> key = getKey(algorithm, parsed.getParameter(), false);
                         IAlgorithmProfile profile = obtainProfile(key);
                         double predicted = predict(algorithm, profile, obs);
@@ -558,6 +668,19 @@ public class PipelineElement {
         }
     }
 
+    /**
+     * Returns whether a parsed profile key is for the given algorithm and observable, as profile stores may contain 
+     * the predictors of multiple algorithms and observables.
+     * 
+     * @param key the parsed key
+     * @param algorithm the name of the algorithm (any if <b>null</b>)
+     * @param observable the observable
+     * @return <code>true</code> if <code>key</code> matches, <code>false</code> else
+     */
+    private static boolean isFor(ProfileKey key, String algorithm, IObservable observable) {
+        return (null == algorithm || algorithm.equals(key.getAlgorithm())) && observable == key.getObservable();
+    }
+
     /**
      * Returns whether the given parameters matches <code>filter</code>, i.e., all entries and values in filter
      * are also in <code>parameters</code>.
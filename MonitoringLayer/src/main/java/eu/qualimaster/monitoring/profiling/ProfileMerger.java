@@ -17,28 +17,43 @@ package eu.qualimaster.monitoring.profiling;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.log4j.LogManager;
 
 import eu.qualimaster.file.Utils;
-import eu.qualimaster.monitoring.profiling.MapFile.MergeStatus;
 import eu.qualimaster.monitoring.profiling.approximation.IApproximator;
 import eu.qualimaster.monitoring.profiling.approximation.IApproximatorCreator;
 import eu.qualimaster.monitoring.profiling.approximation.IStorageStrategy;
 
 /**
- * Allows merging multiple profiles.
+ * Allows merging multiple profiles. Profiles are indexed into groups of folders/files on the same relative path, 
+ * which are merged independently of each other. In parallel mode, indexing and merging the groups happens on a 
+ * fork/join pool. As the groups are disjoint and the sources of a group are merged in the order of indexing, the 
+ * result does not depend on the number of threads.
  * 
  * @author Holger Eichelberger
  */
 public class ProfileMerger {
 
-    private Map<String, MergeInfo> data = new HashMap<String, MergeInfo>();
+    private static final int PROGRESS_STEPS = 10;
+
+    private ConcurrentMap<String, MergeInfo> data = new ConcurrentSkipListMap<String, MergeInfo>();
     private IStorageStrategy strategy;
+    private int threads;
+    private Progress progress = new Progress();
     
     /**
      * Denotes a set of folders on the same nesting level to be merged.
@@ -49,6 +64,7 @@ public class ProfileMerger {
 
         private List<File> elements = new ArrayList<File>();
         private String path;
+        private Progress progress;
         
         /**
          * Creates a merge information object.
@@ -60,11 +76,11 @@ public class ProfileMerger {
         }
 
         /**
-         * Adds a folder/file element for merging.
+         * Adds a folder/file element for merging. Elements are merged in the sequence they are added.
          * 
          * @param element the file/folder
          */
-        protected void add(File element) {
+        protected synchronized void add(File element) {
             elements.add(element);
         }
 
@@ -82,8 +98,28 @@ public class ProfileMerger {
          * 
          * @return the elements
          */
-        protected Iterable<File> elements() {
-            return elements;
+        protected synchronized Iterable<File> elements() {
+            return new ArrayList<File>(elements);
+        }
+
+        /**
+         * Defines the progress to report merged files to.
+         * 
+         * @param progress the progress instance
+         */
+        private void setProgress(Progress progress) {
+            this.progress = progress;
+        }
+
+        /**
+         * Reports a merged file.
+         * 
+         * @param bytes the number of bytes merged
+         */
+        protected void merged(long bytes) {
+            if (null != progress) {
+                progress.merged(bytes);
+            }
         }
         
         /**
@@ -145,7 +181,10 @@ public class ProfileMerger {
                                 approximators.put(f.getName(), approx);
                             }
                         }
-                        approx.merge(f);
+                        if (null != approx) {
+                            approx.merge(f);
+                            merged(f.length());
+                        }
                     }
                 }
             }
@@ -179,22 +218,28 @@ public class ProfileMerger {
 
         @Override
         public void merge(File target, IStorageStrategy strategy) throws IOException {
-            // files are map files
+            // files are map files, later elements override earlier ones
             File targetFolder = getPath(target);
             targetFolder.mkdirs();
             Utils.setDefaultPermissions(targetFolder);
             MapFile targetMf = new MapFile(targetFolder);
+            Map<String, File> sources = new LinkedHashMap<String, File>();
             for (File f : elements()) {
                 MapFile mf = new MapFile(f);
                 mf.load();
-                Map<File, MergeStatus> mapping = targetMf.merge(mf);
-                for (Map.Entry<File, MergeStatus> entry : mapping.entrySet()) {
-                    if (MergeStatus.TAKE_OVER == entry.getValue()) {
-                        File src = entry.getKey();
-                        FileUtils.copyFile(src, new File(targetFolder, src.getName()));
-                    } // REMOVE is not relevant as we copy into a new folder
+                for (String identifier : mf.keys()) {
+                    File src = mf.getFile(identifier);
+                    if (null != src) {
+                        targetMf.put(identifier, mf.get(identifier));
+                        sources.put(identifier, src);
+                    }
                 }
             }
+            // copy each resulting predictor only once, file by file
+            for (File src : sources.values()) {
+                FileUtils.copyFile(src, new File(targetFolder, src.getName()));
+                merged(src.length());
+            }
             targetMf.store();
         }
 
@@ -205,6 +250,228 @@ public class ProfileMerger {
 
     }
     
+    /**
+     * Represents a set of single-file profile stores.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class StoreInfo extends MergeInfo {
+
+        private String name;
+
+        /**
+         * Creates a store information object.
+         * 
+         * @param path the (relative) path
+         * @param name the name of the store file
+         */
+        private StoreInfo(String path, String name) {
+            super(path);
+            this.name = name;
+        }
+
+        @Override
+        public void merge(File target, IStorageStrategy strategy) throws IOException {
+            BinaryProfileStore targetStore = new BinaryProfileStore(new File(getPath(target), name));
+            try {
+                for (File f : elements()) {
+                    BinaryProfileStore store = new BinaryProfileStore(f);
+                    try {
+                        targetStore.putAll(store); // record by record
+                        merged(f.length());
+                    } finally {
+                        store.close();
+                    }
+                }
+                targetStore.compact();
+            } finally {
+                targetStore.close();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "StoreInfo " + super.toString();
+        }
+
+    }
+
+    /**
+     * Collects the progress and the throughput of merging. Thread-safe.
+     * 
+     * @author Holger Eichelberger
+     */
+    public static class Progress {
+
+        private AtomicInteger indexedFolders = new AtomicInteger();
+        private AtomicInteger groups = new AtomicInteger();
+        private AtomicInteger mergedGroups = new AtomicInteger();
+        private AtomicLong mergedFiles = new AtomicLong();
+        private AtomicLong mergedBytes = new AtomicLong();
+        private AtomicLong indexTime = new AtomicLong();
+        private AtomicLong mergeTime = new AtomicLong();
+
+        /**
+         * Reports a merged file.
+         * 
+         * @param bytes the number of bytes
+         */
+        private void merged(long bytes) {
+            mergedFiles.incrementAndGet();
+            mergedBytes.addAndGet(bytes);
+        }
+
+        /**
+         * Returns the number of indexed folders.
+         * 
+         * @return the number of indexed folders
+         */
+        public int getIndexedFolders() {
+            return indexedFolders.get();
+        }
+
+        /**
+         * Returns the number of groups, i.e., of independently merged sets of folders/files.
+         * 
+         * @return the number of groups
+         */
+        public int getGroups() {
+            return groups.get();
+        }
+
+        /**
+         * Returns the number of merged groups.
+         * 
+         * @return the number of merged groups
+         */
+        public int getMergedGroups() {
+            return mergedGroups.get();
+        }
+
+        /**
+         * Returns the number of merged files (predictors, approximators, profile stores).
+         * 
+         * @return the number of merged files
+         */
+        public long getMergedFiles() {
+            return mergedFiles.get();
+        }
+
+        /**
+         * Returns the number of merged bytes.
+         * 
+         * @return the number of merged bytes
+         */
+        public long getMergedBytes() {
+            return mergedBytes.get();
+        }
+
+        /**
+         * Returns the time spent for indexing.
+         * 
+         * @return the time in ms
+         */
+        public long getIndexTime() {
+            return indexTime.get();
+        }
+
+        /**
+         * Returns the time spent for merging.
+         * 
+         * @return the time in ms
+         */
+        public long getMergeTime() {
+            return mergeTime.get();
+        }
+
+        @Override
+        public String toString() {
+            long time = Math.max(1, getMergeTime());
+            return "indexed " + getIndexedFolders() + " folders in " + getIndexTime() + " ms, merged " 
+                + getMergedGroups() + "/" + getGroups() + " groups with " + getMergedFiles() + " files (" 
+                + getMergedBytes() + " bytes) in " + getMergeTime() + " ms (" + (getMergedFiles() * 1000 / time) 
+                + " files/s, " + (getMergedBytes() * 1000 / time / 1024) + " kB/s)";
+        }
+
+    }
+
+    /**
+     * Indexes a folder and its sub-folders in parallel.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class IndexTask extends RecursiveAction {
+
+        private File folder;
+        private String path;
+
+        /**
+         * Creates an indexing task.
+         * 
+         * @param folder the folder to be indexed
+         * @param path the current path
+         */
+        private IndexTask(File folder, String path) {
+            this.folder = folder;
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            List<IndexTask> tasks = new ArrayList<IndexTask>();
+            for (File f : indexFolder(folder, path)) {
+                tasks.add(new IndexTask(f, getSubPath(path, f)));
+            }
+            invokeAll(tasks);
+        }
+
+    }
+
+    /**
+     * Merges a range of groups in parallel.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class MergeTask extends RecursiveAction {
+
+        private List<MergeInfo> infos;
+        private File target;
+        private int from;
+        private int to;
+
+        /**
+         * Creates a merge task.
+         * 
+         * @param infos the groups to merge
+         * @param target the target folder
+         * @param from the first group to merge (inclusive)
+         * @param to the last group to merge (exclusive)
+         */
+        private MergeTask(List<MergeInfo> infos, File target, int from, int to) {
+            this.infos = infos;
+            this.target = target;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        merge(infos.get(i), target);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new MergeTask(infos, target, from, mid), new MergeTask(infos, target, mid, to));
+            }
+        }
+
+    }
+
     /**
      * Creates a profile merger instance for the default storage strategy.
      */
@@ -213,21 +480,54 @@ public class ProfileMerger {
     }
 
     /**
-     * Creates a profile merger instance for a specific storage strategy.
+     * Creates a sequential profile merger instance for a specific storage strategy.
      * 
      * @param strategy the storage strategy (the default storage strategy if <b>null</b>
      */
     public ProfileMerger(IStorageStrategy strategy) {
+        this(strategy, 1);
+    }
+
+    /**
+     * Creates a profile merger instance for a specific storage strategy.
+     * 
+     * @param strategy the storage strategy (the default storage strategy if <b>null</b>
+     * @param threads the number of threads for indexing and merging, sequential if <code>1</code>, the number of 
+     *     available processors if <code>threads &lt;= 0</code>
+     */
+    public ProfileMerger(IStorageStrategy strategy, int threads) {
         this.strategy = null == strategy ? DefaultStorageStrategy.INSTANCE : strategy;
+        this.threads = threads <= 0 ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    /**
+     * Returns the progress of indexing and merging.
+     * 
+     * @return the progress
+     */
+    public Progress getProgress() {
+        return progress;
     }
     
     /**
-     * Indexes a given <code>folder</code> for profiling information.
+     * Indexes a given <code>folder</code> for profiling information. Profiles indexed later override the 
+     * information of profiles indexed before.
      * 
      * @param folder the folder
      */
     public void index(File folder) {
-        index(folder, "");
+        long start = System.currentTimeMillis();
+        if (threads > 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new IndexTask(folder, ""));
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            index(folder, "");
+        }
+        progress.indexTime.addAndGet(System.currentTimeMillis() - start);
     }
 
     /**
@@ -237,69 +537,146 @@ public class ProfileMerger {
      * @param path the current path
      */
     private void index(File folder, String path) {
+        for (File f : indexFolder(folder, path)) {
+            index(f, getSubPath(path, f));
+        }
+    }
+
+    /**
+     * Returns the nested path for a sub-folder.
+     * 
+     * @param path the current path
+     * @param folder the sub-folder
+     * @return the nested path
+     */
+    private static String getSubPath(String path, File folder) {
+        String result = path;
+        if (result.length() > 0) {
+            result += "/";
+        }
+        return result + folder.getName();
+    }
+
+    /**
+     * Indexes the files in <code>folder</code> with current (nested) path <code>path</code>, but not its 
+     * sub-folders.
+     * 
+     * @param folder the folder to be indexed
+     * @param path the current path
+     * @return the sub-folders to be indexed
+     */
+    private List<File> indexFolder(File folder, String path) {
+        List<File> result = new ArrayList<File>();
+        progress.indexedFolders.incrementAndGet();
         File[] files = folder.listFiles();
         if (null != files) {
             for (File f : files) {
                 if (f.isDirectory()) {
                     if (strategy.isApproximatorsFolder(f)) {
-                        MergeInfo info = data.get(path);
-                        if (null == info) {
-                            info = new ApproximatorInfo(path, f.getName());
-                            data.put(path, info);
-                        }
-                        info.add(f);
-                    }
-                    String p = path;
-                    if (p.length() > 0) {
-                        p += "/";
+                        getInfo(path, new ApproximatorInfo(path, f.getName())).add(f);
                     }
-                    p += f.getName();
-                    index(f, p);
+                    result.add(f);
                 } else if (f.isFile()) {
-                    if (strategy.getMapFileName().equals(f.getName())) {
-                        MergeInfo info = data.get(path);
-                        if (null == info) {
-                            info = new PredictorInfo(path);
-                            data.put(path, info);
-                        }
-                        info.add(f.getParentFile()); // MapFile adds the name itself
+                    if (strategy.isProfileStoreFile(f)) {
+                        // approximators may be in the same folder
+                        getInfo(path + "/" + f.getName(), new StoreInfo(path, f.getName())).add(f);
+                    } else if (strategy.getMapFileName().equals(f.getName())) {
+                        getInfo(path, new PredictorInfo(path)).add(f.getParentFile()); // MapFile adds the name
                     }
                 }
             }
         }
+        return result;
+    }
+
+    /**
+     * Returns the merge information registered for <code>key</code>, registers <code>info</code> if there is none.
+     * 
+     * @param key the key
+     * @param info the information to register if there is none
+     * @return the registered information
+     */
+    private MergeInfo getInfo(String key, MergeInfo info) {
+        MergeInfo result = data.putIfAbsent(key, info);
+        if (null == result) {
+            result = info;
+            result.setProgress(progress);
+            progress.groups.incrementAndGet();
+        }
+        return result;
     }
     
     /**
-     * Merges the indexed profiles into <code>target</code>.
+     * Merges the indexed profiles into <code>target</code>. In parallel mode, the groups are merged concurrently.
      * 
      * @param target the target folder
      * @throws IOException if merging fails
      * @see #index(File)
      */
     public void merge(File target) throws IOException {
-        for (MergeInfo info : data.values()) {
-            info.merge(target, strategy);
+        long start = System.currentTimeMillis();
+        List<MergeInfo> infos = new ArrayList<MergeInfo>(data.values()); // sorted by path
+        if (threads > 1 && infos.size() > 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new MergeTask(infos, target, 0, infos.size()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            for (MergeInfo info : infos) {
+                merge(info, target);
+            }
+        }
+        progress.mergeTime.addAndGet(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Merges a single group into <code>target</code> and reports the progress.
+     * 
+     * @param info the group to merge
+     * @param target the target folder
+     * @throws IOException if merging fails
+     */
+    private void merge(MergeInfo info, File target) throws IOException {
+        info.merge(target, strategy);
+        int merged = progress.mergedGroups.incrementAndGet();
+        int groups = progress.getGroups();
+        int step = Math.max(1, groups / PROGRESS_STEPS);
+        if (merged % step == 0 || merged == groups) {
+            LogManager.getLogger(ProfileMerger.class).info("Merging profiles: " + progress);
         }
     }
     
     /**
-     * Performs a default merge of two profiles.
+     * Performs a default merge of profiles.
      * 
-     * @param args the first profile, the second profile, the target folder
+     * @param args optionally <code>-threads n</code> (<code>0</code> for all processors), the profiles to merge 
+     *     (later profiles override earlier ones), the target folder
      * @throws IOException if merging fails
      */
     public static void main(String[] args) throws IOException {
-        if (args.length != 3) {
-            System.out.println("Requires p1, p2 and pt (two profiles to merge and one target profile)");
+        int threads = 1;
+        int first = 0;
+        if (args.length > 1 && "-threads".equals(args[0])) {
+            try {
+                threads = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.out.println("Illegal number of threads " + args[1] + ", using 1");
+            }
+            first = 2;
+        }
+        if (args.length - first < 3) {
+            System.out.println("Requires [-threads n] p1 p2 ... pt (profiles to merge and one target profile)");
         } else {
-            File source1 = new File(args[0]);
-            File source2 = new File(args[1]);
-            File target = new File(args[2]);
-            
-            ProfileMerger merger = new ProfileMerger();
-            merger.index(source1);
-            merger.index(source2);
-            merger.merge(target);
+            ProfileMerger merger = new ProfileMerger(null, threads);
+            for (int a = first; a < args.length - 1; a++) {
+                merger.index(new File(args[a]));
+            }
+            merger.merge(new File(args[args.length - 1]));
+            System.out.println("Merged profiles: " + merger.getProgress());
         }
     }
 
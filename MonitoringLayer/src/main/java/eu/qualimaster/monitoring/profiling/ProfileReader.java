@@ -22,9 +22,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import eu.qualimaster.easy.extension.internal.AlgorithmProfileHelper;
 import eu.qualimaster.monitoring.tracing.TraceReader;
+import eu.qualimaster.monitoring.tracing.TraceReader.IPipelineEntryHandler;
 import eu.qualimaster.monitoring.tracing.TraceReader.PipelineEntry;
 
 /**
@@ -102,6 +104,31 @@ public class ProfileReader {
      */
     public static List<PipelineEntry> readBackProfile(File input, File outputFolder, String algorithm,
         Map<Object, Serializable> additionalParams) throws IOException {
+        final List<PipelineEntry> entries = new ArrayList<PipelineEntry>();
+        replayProfile(input, outputFolder, algorithm, additionalParams, new IPipelineEntryHandler() {
+            
+            @Override
+            public void handle(PipelineEntry entry) {
+                entries.add(entry);
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Replays a profile while streaming the trace, i.e., without keeping the entries in memory. Trace lines are 
+     * parsed in parallel.
+     * 
+     * @param input the input trace file from profiling (CSV or binary)
+     * @param outputFolder the output folder for the information written by the profile manager
+     * @param algorithm the profiled algorithm name
+     * @param additionalParams additional algorithm parameters set during the original run (may be <b>null</b>)
+     * @param handler optional handler to be informed about each replayed entry (may be <b>null</b>)
+     * @return the number of replayed entries
+     * @throws IOException in case of I/O problems
+     */
+    public static int replayProfile(File input, File outputFolder, String algorithm,
+        Map<Object, Serializable> additionalParams, final IPipelineEntryHandler handler) throws IOException {
         Map<String, List<String>> predecessors = new HashMap<String, List<String>>();
         List<String> pred = new ArrayList<String>();
         pred.add(AlgorithmProfileHelper.SRC_NAME);
@@ -113,14 +140,27 @@ public class ProfileReader {
         Map<String, Map<Object, Serializable>> parameters = new HashMap<String, Map<Object, Serializable>>();
         parameters.put(AlgorithmProfileHelper.FAM_NAME, param);
         
-        Meta meta = new Meta(algorithm, predecessors, parameters);
+        final Meta meta = new Meta(algorithm, predecessors, parameters);
+        final AtomicInteger count = new AtomicInteger();
         TraceReader reader = new TraceReader();
-        List<PipelineEntry> entries = reader.readCsv(input);
         AlgorithmProfilePredictionManager.useTestData(outputFolder.getAbsolutePath());
         AlgorithmProfilePredictionManager.start();
-        AlgorithmProfilePredictionManager.fill(entries, meta);
-        AlgorithmProfilePredictionManager.stop();
-        return entries;
+        try {
+            reader.read(input, new IPipelineEntryHandler() {
+                
+                @Override
+                public void handle(PipelineEntry entry) {
+                    AlgorithmProfilePredictionManager.fill(entry, meta);
+                    count.incrementAndGet();
+                    if (null != handler) {
+                        handler.handle(entry);
+                    }
+                }
+            }, Runtime.getRuntime().availableProcessors());
+        } finally {
+            AlgorithmProfilePredictionManager.stop();
+        }
+        return count.get();
     }
     
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Converts the predictor folders of the {@link DefaultStorageStrategy} in place into the single-file stores of the
+ * {@link BinaryStorageStrategy}. Approximators are not touched as both strategies store them in the same way.
+ *
+ * @author Holger Eichelberger
+ */
+public class ProfileStoreConverter {
+
+    private static final String ELEMENT_PREFIX = "element=";
+
+    private boolean delete;
+    private Set<BinaryProfileStore> stores = new HashSet<BinaryProfileStore>();
+    private int converted;
+
+    /**
+     * Creates a converter.
+     *
+     * @param delete whether converted predictor folders shall be deleted
+     */
+    public ProfileStoreConverter(boolean delete) {
+        this.delete = delete;
+    }
+
+    /**
+     * Converts all predictor folders within <code>folder</code>.
+     *
+     * @param folder the profile base folder
+     * @return the number of converted predictors
+     * @throws IOException in case that reading or writing fails
+     */
+    public int convert(File folder) throws IOException {
+        converted = 0;
+        try {
+            convertFolder(folder);
+            for (BinaryProfileStore store : stores) {
+                store.compact();
+            }
+        } finally {
+            for (BinaryProfileStore store : stores) {
+                store.close(); // shared instance, re-opened on next access
+            }
+            stores.clear();
+        }
+        return converted;
+    }
+
+    /**
+     * Converts <code>folder</code> if it is a predictor folder or its sub-folders.
+     *
+     * @param folder the folder to convert
+     * @throws IOException in case that reading or writing fails
+     */
+    private void convertFolder(File folder) throws IOException {
+        if (new File(folder, MapFile.NAME).exists()) {
+            convertPredictorFolder(folder);
+        } else {
+            File[] files = folder.listFiles();
+            if (null != files) {
+                for (File f : files) {
+                    if (f.isDirectory()) {
+                        convertFolder(f);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a predictor folder, i.e., a folder containing a {@link MapFile}. The raw predictor files are taken
+     * over into the store as they are in the same format.
+     *
+     * @param folder the predictor folder
+     * @throws IOException in case that reading or writing fails
+     */
+    private void convertPredictorFolder(File folder) throws IOException {
+        BinaryProfileStore store = BinaryProfileStore.getInstance(getStoreFile(folder));
+        stores.add(store);
+        MapFile mapFile = new MapFile(folder);
+        mapFile.load();
+        boolean complete = true;
+        for (String identifier : mapFile.keys()) {
+            File file = mapFile.getFile(identifier);
+            if (null != file && file.exists()) {
+                store.write(identifier, Files.readAllBytes(file.toPath()));
+                converted++;
+            } else {
+                complete = false;
+            }
+        }
+        if (delete && complete) {
+            FileUtils.deleteDirectory(folder);
+        }
+    }
+
+    /**
+     * Returns the store file for a predictor folder, i.e., in the element folder or, in profiling mode, in the
+     * algorithm folder.
+     *
+     * @param predictorFolder the predictor folder, i.e., <code>[pipeline/element/]algorithm/predicted/predictor</code>
+     * @return the store file
+     */
+    static File getStoreFile(File predictorFolder) {
+        File folder = predictorFolder.getAbsoluteFile().getParentFile().getParentFile(); // algorithm
+        File parent = folder.getParentFile();
+        if (null != parent && parent.getName().startsWith(ELEMENT_PREFIX)) {
+            folder = parent;
+        }
+        return new File(folder, predictorFolder.getName() + BinaryProfileStore.SUFFIX);
+    }
+
+    /**
+     * Converts the predictor folders of a profile folder in place.
+     *
+     * @param args the profile folder, optionally <code>-delete</code> to delete the converted predictor folders
+     * @throws IOException if converting fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2 || (2 == args.length && !"-delete".equals(args[1]))) {
+            System.out.println("Requires profile folder [-delete]");
+        } else {
+            ProfileStoreConverter converter = new ProfileStoreConverter(2 == args.length);
+            int count = converter.convert(new File(args[0]));
+            System.out.println("Converted " + count + " predictors");
+        }
+    }
+
+}
@@ -21,6 +21,7 @@ import java.util.Map;
 
 import eu.qualimaster.coordination.ZkUtils;
 import eu.qualimaster.monitoring.profiling.approximation.IApproximatorCreator;
+import eu.qualimaster.monitoring.profiling.approximation.RecursiveLeastSquaresPolynomialApproximator;
 import eu.qualimaster.monitoring.profiling.approximation.SplineInterpolationLinearExtrapolationApproximator;
 import eu.qualimaster.monitoring.profiling.quantizers.DoubleIntegerQuantizer;
 import eu.qualimaster.monitoring.profiling.quantizers.IdentityIntegerQuantizer;
@@ -48,6 +49,9 @@ public class ProfilingRegistry {
     private static final Map<IObservable, Double> APPROXIMATION_WEIGHTS = new HashMap<>();
     private static final Map<String, IApproximatorCreator> APPROXIMATION_CREATORS = new HashMap<>();
     private static final Map<IObservable, Boolean> AS_PARAMETER = new HashMap<IObservable, Boolean>();
+    private static final IObservable[] APPROXIMATED = {TimeBehavior.LATENCY, TimeBehavior.THROUGHPUT_ITEMS, 
+        Scalability.ITEMS, ResourceUsage.CAPACITY};
+    private static volatile int quantizerVersion;
     
     /**
      * Defines a quantizer (usage) mode.
@@ -98,16 +102,10 @@ public class ProfilingRegistry {
         // observable quantizers
         registerQuantizer(TimeBehavior.LATENCY, ScalingDoubleQuantizer.INSTANCE, true); // ms
         registerValidator(TimeBehavior.LATENCY, MinValidator.MIN_0_VALIDATOR);
-        registerApproximationCreator(TimeBehavior.LATENCY, 
-             SplineInterpolationLinearExtrapolationApproximator.INSTANCE);
         registerQuantizer(TimeBehavior.THROUGHPUT_ITEMS, ScalingDoubleQuantizer.INSTANCE, true);
         registerValidator(TimeBehavior.THROUGHPUT_ITEMS, MinValidator.MIN_0_VALIDATOR);
-        registerApproximationCreator(TimeBehavior.THROUGHPUT_ITEMS, 
-             SplineInterpolationLinearExtrapolationApproximator.INSTANCE);
         registerQuantizer(Scalability.ITEMS, ScalingDoubleQuantizer.INSTANCE, true);
         registerValidator(Scalability.ITEMS, MinValidator.MIN_0_VALIDATOR);
-        registerApproximationCreator(Scalability.ITEMS, 
-            SplineInterpolationLinearExtrapolationApproximator.INSTANCE);
         registerQuantizer(ResourceUsage.EXECUTORS, DoubleIntegerQuantizer.INSTANCE, true);
         registerValidator(ResourceUsage.EXECUTORS, MinValidator.MIN_0_VALIDATOR);
         registerQuantizer(ResourceUsage.TASKS, DoubleIntegerQuantizer.INSTANCE, true);
@@ -118,8 +116,7 @@ public class ProfilingRegistry {
         registerValidator(ResourceUsage.USED_DFES, MinValidator.MIN_0_VALIDATOR);
         registerQuantizer(ResourceUsage.CAPACITY, ScalingDoubleQuantizer.INSTANCE, false);
         registerValidator(ResourceUsage.CAPACITY, MinMaxValidator.MIN_0_MAX_1_VALIDATOR);
-        registerApproximationCreator(ResourceUsage.CAPACITY, 
-            SplineInterpolationLinearExtrapolationApproximator.INSTANCE);
+        registerIncrementalApproximation(false); // approximators for LATENCY, THROUGHPUT_ITEMS, ITEMS, CAPACITY
         
         // type quantizers for parameters
         registerQuantizer(IdentityIntegerQuantizer.INSTANCE, true);
@@ -211,6 +208,16 @@ public class ProfilingRegistry {
         return result;
     }
     
+    /**
+     * Returns the version of the quantizer registrations, which changes whenever a quantizer is (un)registered. 
+     * Allows caching quantizers and quantized values.
+     * 
+     * @return the version
+     */
+    static int getQuantizerVersion() {
+        return quantizerVersion;
+    }
+
     /**
      * Registers an observable quantizer.
      * 
@@ -221,6 +228,7 @@ public class ProfilingRegistry {
     public static void registerQuantizer(IObservable observable, Quantizer<Double> quantizer, boolean forKey) {
         if (null != observable) {
             OBSERVABLE_QUANTIZERS.put(observable, new QuantizerInfo<Double>(quantizer, forKey));
+            quantizerVersion++;
         }
     }
     
@@ -232,6 +240,7 @@ public class ProfilingRegistry {
     public static void unregisterQuantizer(IObservable observable) {
         if (null != observable) {
             OBSERVABLE_QUANTIZERS.remove(observable);
+            quantizerVersion++;
         }
     }
 
@@ -283,6 +292,7 @@ public class ProfilingRegistry {
     public static <T extends Serializable> void registerQuantizer(Quantizer<T> quantizer, boolean forKey) {
         if (null != quantizer && null != quantizer.handles()) {
             TYPE_QUANTIZERS.put(quantizer.handles(), new QuantizerInfo<T>(quantizer, forKey));
+            quantizerVersion++;
         }
     }
 
@@ -294,6 +304,7 @@ public class ProfilingRegistry {
     public static void unregisterQuantizer(Quantizer<?> quantizer) {
         if (null != quantizer && null != quantizer.handles()) {
             TYPE_QUANTIZERS.remove(quantizer.handles());
+            quantizerVersion++;
         }
     }
 
@@ -385,6 +396,21 @@ public class ProfilingRegistry {
         }
     }
     
+    /**
+     * Registers the approximation creators for all parameters of the approximated observables. As both 
+     * approximators persist the same data points, existing approximation files can be used in either mode.
+     * 
+     * @param incremental <code>true</code> for the incremental {@link RecursiveLeastSquaresPolynomialApproximator}, 
+     *     <code>false</code> for the (default) {@link SplineInterpolationLinearExtrapolationApproximator}
+     */
+    public static void registerIncrementalApproximation(boolean incremental) {
+        IApproximatorCreator creator = incremental ? RecursiveLeastSquaresPolynomialApproximator.INSTANCE_3 
+            : SplineInterpolationLinearExtrapolationApproximator.INSTANCE;
+        for (IObservable observable : APPROXIMATED) {
+            registerApproximationCreator(observable, creator);
+        }
+    }
+    
     /**
      * Returns the approximation weights if multiple appoximations are present.
      * 
@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -27,6 +28,7 @@ import java.util.Map;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
+import eu.qualimaster.monitoring.profiling.approximation.IProfileStore;
 import eu.qualimaster.monitoring.profiling.approximation.IStorageStrategy;
 import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
 import eu.qualimaster.monitoring.profiling.validators.IValidator;
@@ -114,10 +116,10 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
      */
     static List<String> getKnownParameterValues(PipelineElement element, Map<Object, Serializable> key, 
         IObservable observable, String parameter) throws IOException {
-        File folder = getStorageStrategy(element).getPredictorPath(element, element.getPath(), key, observable);
-        MapFile mapFile = new MapFile(folder);
-        mapFile.load();
-        return readKnownParameterValues(mapFile, parameter);
+        IStorageStrategy strategy = getStorageStrategy(element);
+        IProfileStore store = strategy.getProfileStore(element, element.getPath(), key, observable);
+        String prefix = strategy.generateKey(element, key, observable, false) + ";parameters=";
+        return readKnownParameterValues(store.keys(prefix), parameter);
     }
 
     /**
@@ -128,8 +130,19 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
      * @return the known values as strings (regardless of type)
      */
     public static List<String> readKnownParameterValues(MapFile mapFile, String parameter) {
+        return readKnownParameterValues(mapFile.keys(), parameter);
+    }
+
+    /**
+     * Returns the known parameter values from profile identifiers.
+     * 
+     * @param keys the profile identifiers
+     * @param parameter the parameter
+     * @return the known values as strings (regardless of type)
+     */
+    private static List<String> readKnownParameterValues(Collection<String> keys, String parameter) {
         List<String> result = new ArrayList<>();
-        for (String k : mapFile.keys()) {
+        for (String k : keys) {
             int pos = k.indexOf(";parameters=");
             if (pos > 0) {
                 String paramId = parameter + "=";
@@ -155,8 +168,7 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
             for (Map.Entry<IObservable, IAlgorithmProfilePredictor> ent : predictors.entrySet()) {
                 try {
                     IObservable observable = ent.getKey();
-                    // this is not really efficient
-                    store(ent.getValue(), getFolder(observable), generateKey(observable));
+                    store(ent.getValue(), observable);
                 } catch (IOException e) {
                     LOGGER.error("While writing profile: " + e.getMessage());
                 }
@@ -169,56 +181,40 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
         return getStorageStrategy(element).getPredictorPath(element, element.getPath(), key, observable);
     }
     
+    /**
+     * Returns the profile store for the predictor of <code>observable</code>.
+     * 
+     * @param observable the observable
+     * @return the profile store
+     */
+    private IProfileStore getStore(IObservable observable) {
+        return getStorageStrategy(element).getProfileStore(element, element.getPath(), key, observable);
+    }
+    
     /**
      * Stores a given predictor.
      * 
      * @param predictor the predictor
-     * @param folder the target folder for persisting the predictor instances
-     * @param identifier the predictor identifier
+     * @param observable the observable predicted by <code>predictor</code>
      * @throws IOException if saving the predictor fails
      */
-    private void store(IAlgorithmProfilePredictor predictor, File folder, String identifier) throws IOException {
-        // Create folders, if needed
-        if (!folder.exists()) {
-            eu.qualimaster.file.Utils.mkdirs(folder);
-        }
-        // load map-file
-        MapFile mapFile = new MapFile(folder);
-        mapFile.load();
-        
-        boolean newEntry = false;
-        int id = mapFile.get(identifier);
-        if (id < 0) {
-            id = mapFile.size() + 1;
-            newEntry = true;
-        }
-
-        File instanceFile = MapFile.getFile(folder, id);
-        predictor.store(instanceFile, identifier);
-        
-        // update map-file, if needed
-        if (newEntry) {
-            mapFile.put(identifier, id);
-            mapFile.store();
-        } 
+    private void store(IAlgorithmProfilePredictor predictor, IObservable observable) throws IOException {
+        getStore(observable).store(generateKey(observable), predictor);
     }
     
     /**
      * Loads a predictor back if possible.
      * 
      * @param predictor the predictor to load into
-     * @param folder the folder for persisting the predictor instances
-     * @param identifier the predictor identifier
+     * @param observable the observable predicted by <code>predictor</code>
      * @throws IOException if saving the predictor fails
      */
-    private void load(IAlgorithmProfilePredictor predictor, File folder, String identifier) throws IOException {
-        MapFile mapFile = new MapFile(folder);
-        mapFile.load();
-        File instanceFile = mapFile.getFile(identifier);
-        if (null == instanceFile) {
-            instanceFile = mapFile.getFile(getStorageStrategy(element).stripToProfilingIdentifier(identifier));
+    private void load(IAlgorithmProfilePredictor predictor, IObservable observable) throws IOException {
+        IProfileStore store = getStore(observable);
+        String identifier = generateKey(observable);
+        if (!store.load(identifier, predictor)) {
+            store.load(getStorageStrategy(element).stripToProfilingIdentifier(identifier), predictor);
         }
-        predictor.load(instanceFile, identifier);
     }
 
     /**
@@ -235,7 +231,7 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
         if (null == predictor && null != ProfilingRegistry.getQuantizer(observable, false)) {
             predictor = element.getProfileCreator().createPredictor();
             try {
-                load(predictor, getFolder(observable), generateKey(observable));
+                load(predictor, observable);
             } catch (IOException e) {
                 LOGGER.error("While reading predictor: " + e.getMessage());
             }
@@ -294,7 +290,7 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
                     iter.remove();
                     IObservable observable = ent.getKey();
                     try {
-                        store(predictor, getFolder(observable), generateKey(observable));
+                        store(predictor, observable);
                     } catch (IOException e) {
                         LogManager.getLogger(getClass()).error("While writing predictor: " + e.getMessage());
                     }
@@ -60,7 +60,21 @@ public abstract class AbstractApacheMathApproximator extends AbstractApproximato
 
     @Override
     public void update(int paramValue, double value, boolean measured) {
-        obs.add(paramValue, value);
+        WeightedObservedPoint point = new WeightedObservedPoint(1, paramValue, value);
+        WeightedObservedPoint old = obs.add(point);
+        if (null == old || old.getY() != point.getY() || old.getWeight() != point.getWeight()) {
+            updated(old, point);
+        } // unchanged data, no need to update the approximation
+    }
+
+    /**
+     * Notifies that a data point was added or replaced. Marks the approximator as {@link #updated()} so that it
+     * is updated lazily upon the next approximation. May be overridden to update incrementally instead.
+     * 
+     * @param old the replaced point, <b>null</b> if <code>point</code> was added
+     * @param point the added point
+     */
+    protected void updated(WeightedObservedPoint old, WeightedObservedPoint point) {
         updated();
     }
     
@@ -219,6 +233,7 @@ public abstract class AbstractApacheMathApproximator extends AbstractApproximato
     @Override
     public void merge(File file) throws IOException {
         doLoad(file, obs);
+        updated();
     }
 
 }
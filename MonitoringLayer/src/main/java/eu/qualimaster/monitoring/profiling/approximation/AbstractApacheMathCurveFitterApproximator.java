@@ -32,8 +32,8 @@ import eu.qualimaster.observables.IObservable;
  */
 public abstract class AbstractApacheMathCurveFitterApproximator extends AbstractApacheMathApproximator {
 
-    private AbstractCurveFitter fitter = createFitter();
-    private ParametricUnivariateFunction function = createFunction();
+    private AbstractCurveFitter fitter; // lazy, as subclass fields are not set during super constructor calls
+    private ParametricUnivariateFunction function;
     private double[] coeff;
 
     /**
@@ -85,6 +85,10 @@ public abstract class AbstractApacheMathCurveFitterApproximator extends Abstract
     protected void updateApproximator() {
         List<WeightedObservedPoint> points = getPoints();
         if (points.size() >= getMinSampleSize()) {
+            if (null == fitter) {
+                fitter = createFitter();
+                function = createFunction();
+            }
             try {
                 coeff = fitter.fit(points);
                 updated();
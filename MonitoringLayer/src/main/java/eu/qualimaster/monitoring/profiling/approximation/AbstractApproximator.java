@@ -86,7 +86,7 @@ public abstract class AbstractApproximator implements IApproximator {
     }
 
     /**
-     * Loads the approximator.
+     * Loads the approximator. The approximator is updated lazily upon the first approximation.
      * 
      * @param folder the path to load a persisted version from
      * @see #doLoad(File)
@@ -94,8 +94,6 @@ public abstract class AbstractApproximator implements IApproximator {
     protected final void load(File folder) {
         doLoad(folder);
         updated();
-        updateApproximator();
-        clearUpdated();
     }
     
     /**
@@ -106,7 +104,7 @@ public abstract class AbstractApproximator implements IApproximator {
     protected abstract void doLoad(File folder);
 
     /**
-     * Updates the approximator.
+     * Updates the approximator. Called by {@link #approximate(int)} only if {@link #wasUpdated() updated}.
      */
     protected abstract void updateApproximator();
     
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling.approximation;
+
+import java.io.IOException;
+import java.util.Set;
+
+import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
+
+/**
+ * Stores predictor instances by their profile identifier (see
+ * {@link IStorageStrategy#generateKey(eu.qualimaster.monitoring.profiling.PipelineElement, java.util.Map,
+ * eu.qualimaster.observables.IObservable, boolean)}). Obtained via {@link IStorageStrategy}. Depending on the
+ * strategy, a store may contain the predictors of a single or of multiple predictor paths.
+ *
+ * @author Holger Eichelberger
+ */
+public interface IProfileStore {
+
+    /**
+     * Returns the known profile identifiers.
+     *
+     * @param prefix the prefix the identifiers must start with, all identifiers if <b>null</b>
+     * @return the identifiers
+     * @throws IOException in case that the store cannot be read
+     */
+    public Set<String> keys(String prefix) throws IOException;
+
+    /**
+     * Loads a predictor.
+     *
+     * @param identifier the profile identifier
+     * @param predictor the predictor to load into
+     * @return <code>true</code> if loaded, <code>false</code> if <code>identifier</code> is not known
+     * @throws IOException in case that the store cannot be read
+     */
+    public boolean load(String identifier, IAlgorithmProfilePredictor predictor) throws IOException;
+
+    /**
+     * Stores a predictor.
+     *
+     * @param identifier the profile identifier
+     * @param predictor the predictor to store
+     * @throws IOException in case that the store cannot be written
+     */
+    public void store(String identifier, IAlgorithmProfilePredictor predictor) throws IOException;
+
+}
@@ -60,6 +60,46 @@ public interface IStorageStrategy {
     
     // checkstyle: resume parameter number check
 
+    /**
+     * Returns the profile store containing the predictors for the given predictor path (see 
+     * {@link #getPredictorPath(PipelineElement, String, Map, IObservable)}).
+     * 
+     * @param element the holding pipeline element
+     * @param path the base path
+     * @param key the profile key
+     * @param observable the observable to be predicted
+     * @return the profile store
+     */
+    public IProfileStore getProfileStore(PipelineElement element, String path, Map<Object, Serializable> key, 
+        IObservable observable);
+
+    // checkstyle: stop parameter number check
+
+    /**
+     * Returns the profile store containing the predictors for the given predictor path (see 
+     * {@link #getPredictorPath(String, String, String, String, IObservable, IAlgorithmProfileCreator)}).
+     *
+     * @param pipeline the pipeline name (profiling mode if <b>null</b>)
+     * @param element the pipeline element name (profiling mode if <b>null</b>)
+     * @param algorithm the algorithm name
+     * @param path the base path
+     * @param observable the observable to be predicted
+     * @param creator the profile creator instance
+     * @return the profile store
+     */
+    public IProfileStore getProfileStore(String pipeline, String element, String algorithm, String path, 
+        IObservable observable, IAlgorithmProfileCreator creator);
+
+    // checkstyle: resume parameter number check
+
+    /**
+     * Returns whether <code>file</code> is a single-file profile store.
+     * 
+     * @param file the file to test
+     * @return <code>true</code> if it is a profile store file, <code>false</code> else
+     */
+    public boolean isProfileStoreFile(File file);
+
     /**
      * Returns the path for the approximators.
      * 
@@ -69,17 +69,20 @@ public class LastRecentWeightedObservedPoints {
      * Adds a point to the sample.
      *
      * @param observed Observed point to add.
+     * @return the point replaced by <code>observed</code>, <b>null</b> if there was none
      *
      * @see #add(double, double)
      * @see #add(double, double, double)
      * @see #toList()
      */
-    public void add(WeightedObservedPoint observed) {
+    public WeightedObservedPoint add(WeightedObservedPoint observed) {
+        WeightedObservedPoint result = null;
         if (null != observed) {
             double x = observed.getX();
             int key = (int) x;
-            observations.put(key, observed);
+            result = observations.put(key, observed);
         }
+        return result;
     }
     
     /**
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling.approximation;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.commons.math3.fitting.WeightedObservedPoint;
+import org.apache.commons.math3.linear.DecompositionSolver;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+
+import eu.qualimaster.observables.IObservable;
+
+/**
+ * Implements a polynomial least-squares approximator updated by recursive least squares, i.e., in
+ * <code>O(degree<sup>2</sup>)</code> per data point. As data points are replaced for the same parameter value, a
+ * replaced point is removed by a rank-one downdate so that the approximation equals the weighted least squares fit of
+ * the current data points. The fit is recomputed from the data points after loading/merging, if a downdate is not
+ * numerically possible and regularly to avoid accumulating rounding errors. Stores in the same format as the other
+ * {@link AbstractApacheMathApproximator approximators}.
+ *
+ * @author Holger Eichelberger
+ */
+public class RecursiveLeastSquaresPolynomialApproximator extends AbstractApacheMathApproximator {
+
+    /**
+     * An approximator creator for polynoms of degree 3.
+     */
+    public static final IApproximatorCreator INSTANCE_3 = new IApproximatorCreator() {
+
+        @Override
+        public IApproximator createApproximator(IStorageStrategy strategy, File path, Object paramName,
+            IObservable observable) {
+            return new RecursiveLeastSquaresPolynomialApproximator(strategy, path, paramName, observable, 3);
+        }
+    };
+
+    private static final int MAX_INCREMENTAL_STEPS = 1000;
+    private static final double EPSILON = 1e-10;
+
+    private int degree;
+    private double scale = 1;
+    private boolean valid;
+    private int steps;
+    private double[] coeff;
+    private double[] matrix;
+    private double[] basis;
+    private double[] tmp;
+
+    /**
+     * Creates a recursive least squares polynomial approximator.
+     *
+     * @param strategy the storage strategy
+     * @param path the path to load a persisted version from
+     * @param parameterName the parameter name
+     * @param observable the observable this approximator is handling
+     * @param degree the degree of the polynom to fit
+     */
+    public RecursiveLeastSquaresPolynomialApproximator(IStorageStrategy strategy, File path, Object parameterName,
+        IObservable observable, int degree) {
+        super(strategy, path, parameterName, observable);
+        // fields are set after loading, fitting happens lazily upon first approximation
+        this.degree = Math.max(1, degree);
+        int size = this.degree + 1;
+        coeff = new double[size];
+        matrix = new double[size * size];
+        basis = new double[size];
+        tmp = new double[size];
+    }
+
+    @Override
+    protected int getMinSampleSize() {
+        return degree + 1;
+    }
+
+    @Override
+    protected void updated(WeightedObservedPoint old, WeightedObservedPoint point) {
+        boolean done = false;
+        if (valid && !wasUpdated() && steps < MAX_INCREMENTAL_STEPS) {
+            done = null == old || update(old, -old.getWeight());
+            done = done && update(point, point.getWeight());
+            steps++;
+        }
+        if (!done) {
+            valid = false;
+            updated(); // refit from the data points upon next approximation
+        }
+    }
+
+    /**
+     * Performs a rank-one update of the inverse normal matrix and the coefficients.
+     *
+     * @param point the data point
+     * @param weight the weight of the point, negative to remove the point
+     * @return <code>true</code> if successful, <code>false</code> if the update is numerically not possible
+     */
+    private boolean update(WeightedObservedPoint point, double weight) {
+        int size = coeff.length;
+        fillBasis(point.getX());
+        double denominator = 1 / weight;
+        double predicted = 0;
+        for (int r = 0; r < size; r++) {
+            double sum = 0;
+            int row = r * size;
+            for (int c = 0; c < size; c++) {
+                sum += matrix[row + c] * basis[c];
+            }
+            tmp[r] = sum;
+            denominator += basis[r] * sum;
+            predicted += basis[r] * coeff[r];
+        }
+        boolean ok = weight > 0 ? denominator > EPSILON : denominator < -EPSILON;
+        if (ok) {
+            double error = point.getY() - predicted;
+            for (int r = 0; r < size; r++) {
+                double gain = tmp[r] / denominator;
+                coeff[r] += gain * error;
+                int row = r * size;
+                for (int c = 0; c < size; c++) {
+                    matrix[row + c] -= gain * tmp[c];
+                }
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Fills {@link #basis} with the scaled powers of <code>x</code>.
+     *
+     * @param x the parameter value
+     */
+    private void fillBasis(double x) {
+        double s = x / scale;
+        double value = 1;
+        for (int i = 0; i < basis.length; i++) {
+            basis[i] = value;
+            value *= s;
+        }
+    }
+
+    @Override
+    public double approximate(int paramValue) {
+        double result = super.approximate(paramValue);
+        if (valid) {
+            double s = paramValue / scale;
+            result = 0;
+            for (int i = coeff.length - 1; i >= 0; i--) {
+                result = result * s + coeff[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Refits the coefficients from the data points by solving the normal equations.
+     */
+    @Override
+    protected void updateApproximator() {
+        valid = false;
+        steps = 0;
+        if (size() >= getMinSampleSize()) {
+            List<WeightedObservedPoint> points = getPoints();
+            int size = coeff.length;
+            scale = 1;
+            for (int p = 0; p < points.size(); p++) {
+                scale = Math.max(scale, Math.abs(points.get(p).getX()));
+            }
+            RealMatrix normal = MatrixUtils.createRealMatrix(size, size);
+            double[] right = new double[size];
+            for (int p = 0; p < points.size(); p++) {
+                WeightedObservedPoint point = points.get(p);
+                fillBasis(point.getX());
+                for (int r = 0; r < size; r++) {
+                    double value = point.getWeight() * basis[r];
+                    right[r] += value * point.getY();
+                    for (int c = 0; c < size; c++) {
+                        normal.addToEntry(r, c, value * basis[c]);
+                    }
+                }
+            }
+            DecompositionSolver solver = new LUDecomposition(normal).getSolver();
+            if (solver.isNonSingular()) {
+                RealMatrix inverse = solver.getInverse();
+                for (int r = 0; r < size; r++) {
+                    double sum = 0;
+                    for (int c = 0; c < size; c++) {
+                        double value = inverse.getEntry(r, c);
+                        matrix[r * size + c] = value;
+                        sum += value * right[c];
+                    }
+                    coeff[r] = sum;
+                }
+                valid = true;
+            }
+        }
+    }
+
+}
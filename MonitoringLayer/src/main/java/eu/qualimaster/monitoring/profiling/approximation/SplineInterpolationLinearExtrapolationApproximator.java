@@ -61,12 +61,6 @@ public class SplineInterpolationLinearExtrapolationApproximator extends Abstract
         super(strategy, path, parameterName, observable);
     }
 
-    @Override
-    public void update(int paramValue, double value, boolean measured) {
-        super.update(paramValue, value, measured);
-    }
-
-
     @Override
     protected int getMinSampleSize() {
         return 3;
@@ -90,6 +84,9 @@ public class SplineInterpolationLinearExtrapolationApproximator extends Abstract
         return result;
     }
 
+    /**
+     * Recreates the interpolant. Called only if the data points changed.
+     */
     @Override
     protected void updateApproximator() {
         if (size() >= getMinSampleSize()) {
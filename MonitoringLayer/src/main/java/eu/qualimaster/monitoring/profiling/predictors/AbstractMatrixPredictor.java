@@ -17,6 +17,11 @@ package eu.qualimaster.monitoring.profiling.predictors;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Properties;
 
 import org.apache.log4j.LogManager;
@@ -55,10 +60,34 @@ public abstract class AbstractMatrixPredictor implements IAlgorithmProfilePredic
     public void load(File file, String key) throws IOException {
         Properties prop = new Properties();
         Utils.load(file, prop);
+        setProperties(prop, file);
+    }
+
+    @Override
+    public void store(OutputStream out, String identifier) throws IOException {
+        Writer writer = new OutputStreamWriter(out); // same encoding as Utils.store
+        toProperties().store(writer, "algorithm profile for " + identifier);
+        writer.flush();
+    }
+
+    @Override
+    public void load(InputStream in, String key) throws IOException {
+        Properties prop = new Properties();
+        prop.load(new InputStreamReader(in)); // same encoding as Utils.load
+        setProperties(prop, key);
+    }
+
+    /**
+     * Sets the internal structures and logs problems.
+     * 
+     * @param prop the data to set
+     * @param source the source of <code>prop</code> for logging
+     */
+    private void setProperties(Properties prop, Object source) {
         try {
             setProperties(prop);
         } catch (IllegalArgumentException e) {
-            LogManager.getLogger(Kalman.class).warn("Cannot read Kalman for " + file + ": " + e.getMessage());
+            LogManager.getLogger(Kalman.class).warn("Cannot read Kalman for " + source + ": " + e.getMessage());
         }
     }
     
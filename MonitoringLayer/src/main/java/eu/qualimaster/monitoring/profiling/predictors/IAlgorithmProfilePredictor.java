@@ -17,6 +17,8 @@ package eu.qualimaster.monitoring.profiling.predictors;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * This interface serves as the common ground for different implementations 
@@ -77,6 +79,24 @@ public interface IAlgorithmProfilePredictor extends Cloneable, IUpdatable {
      * @throws IOException in case that the file cannot be read for some reason
      */
     public void load(File file, String identifier) throws IOException;
+
+    /**
+     * Stores this predictor to a stream in the format of {@link #store(File, String)}.
+     * 
+     * @param out the target stream (not closed by this method)
+     * @param identifier the profile identifier
+     * @throws IOException in case that the stream cannot be written for some reason
+     */
+    public void store(OutputStream out, String identifier) throws IOException;
+
+    /**
+     * Loads this predictor from a stream in the format of {@link #load(File, String)}.
+     * 
+     * @param in the stream to load from (not closed by this method)
+     * @param identifier the profile identifier
+     * @throws IOException in case that the stream cannot be read for some reason
+     */
+    public void load(InputStream in, String identifier) throws IOException;
     
     /**
      * Returns whether two predictors are considered equal.
@@ -332,41 +332,6 @@ public class Kalman extends AbstractMatrixPredictor {
         return filter.getStateEstimationVector();
     }
 
-    /**
-     * Returns a matrix from a properties file.
-     * 
-     * @param prop the properties file
-     * @param key the key
-     * @param deflt the default value
-     * @return the read matdix or <code>deflt</code>
-     */
-    private static RealMatrix getMatrix(Properties prop, String key, RealMatrix deflt) {
-        RealMatrix tempM = null;
-        String tmp = prop.getProperty(key);
-        if (null != tmp) {
-            tempM = stringToMatrix(tmp);
-        }
-        return null != tempM ? tempM : deflt;
-    }
-
-    /**
-     * Returns a vector from a properties file.
-     * 
-     * @param prop the properties file
-     * @param key the key
-     * @param deflt the default value
-     * @return the read vector or <code>deflt</code>
-     */
-    private static RealVector getVector(Properties prop, String key, RealVector deflt) {
-        RealVector tempV = null;
-        String tmp = prop.getProperty(key);
-        if (null != tmp) {
-            tempV = stringToVector(tmp);
-        }
-        return null != tempV ? tempV : deflt;
-    }
-    
-    
     @Override
     protected void setProperties(Properties data) throws IllegalArgumentException {
         // currently constant - write/read for future extension
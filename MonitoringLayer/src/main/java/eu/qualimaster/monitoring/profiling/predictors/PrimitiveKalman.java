@@ -0,0 +1,486 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling.predictors;
+
+import java.util.Properties;
+
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.log4j.LogManager;
+
+import eu.qualimaster.monitoring.profiling.Constants;
+import eu.qualimaster.monitoring.profiling.Utils;
+
+import static eu.qualimaster.monitoring.profiling.predictors.Utils.*;
+
+/**
+ * Kalman predictor specialized for the 4-dimensional model of {@link Kalman}. Computes the same
+ * predict-correct cycle as the Apache math {@link org.apache.commons.math3.filter.KalmanFilter} on row-major
+ * primitive arrays and pre-allocated temporary arrays, i.e., updates and predictions do not allocate. Reads and
+ * writes the properties format of {@link Kalman}. Not thread-safe (as {@link Kalman}).
+ *
+ * @author Holger Eichelberger
+ */
+public class PrimitiveKalman extends AbstractMatrixPredictor {
+
+    private static final String KEY_MEASUREMENT_NOISE = "measurementNoise";
+    private static final String KEY_MATRIX_A = "A";
+    private static final String KEY_MATRIX_B = "B";
+    private static final String KEY_MATRIX_H = "H";
+    private static final String KEY_MATRIX_Q = "Q";
+    private static final String KEY_MATRIX_P = "P";
+    private static final String KEY_MATRIX_R = "R";
+    private static final String KEY_VECTOR_X = "x";
+    private static final String KEY_VECTOR_CONTROL = "controlVector";
+    private static final String KEY_LAST_UPDATED = "lastUpdated";
+    private static final String KEY_LAST_UPDATE = "lastUpdate";
+    private static final String KEY_ALLOWED_GAP = "allowedGap";
+    private static final String KEY_DEFAULT_MEASUREMENT = "defaultMeasurement";
+
+    private static final int N = 4;
+    private static final double DT = 1d;
+    private static final double DEFAULT_MEASUREMENT_NOISE = 0.0001d;
+    private static final double VAR = DEFAULT_MEASUREMENT_NOISE * DEFAULT_MEASUREMENT_NOISE;
+
+    /**
+     * Minimum diagonal value during the Cholesky decomposition (as Apache math).
+     */
+    private static final double POSITIVITY_THRESHOLD = 1e-10;
+
+    private static final double[] DEFAULT_A = {
+        1, DT, 0,  0,
+        0,  1, 0,  0,
+        0,  0, 1, DT,
+        0,  0, 0,  1};
+    private static final double[] DEFAULT_B = {
+        0, 0, 0, 0,
+        0, 0, 0, 0,
+        0, 0, 1, 0,
+        0, 0, 0, 1};
+    private static final double[] DEFAULT_H = {
+        1, 0, 0, 0,
+        0, 0, 0, 0,
+        0, 0, 1, 0,
+        0, 0, 0, 0};
+    private static final double[] DEFAULT_Q = new double[N * N];
+    private static final double[] DEFAULT_R = {
+        VAR,    0,   0,    0,
+        0,   1e-3,   0,    0,
+        0,      0, VAR,    0,
+        0,      0,   0, 1e-3};
+    private static final double[] DEFAULT_P = DEFAULT_R;
+    private static final double[] DEFAULT_X_VECTOR = {0, 1, 0, 0};
+
+    // model
+    private double[] mA = DEFAULT_A.clone();
+    private double[] mB = DEFAULT_B.clone();
+    private double[] mH = DEFAULT_H.clone();
+    private double[] mQ = DEFAULT_Q.clone();
+    private double[] mR = DEFAULT_R.clone();
+    private double[] controlVector = new double[N];
+
+    // state
+    private double[] mP = DEFAULT_P.clone();
+    private double[] x = DEFAULT_X_VECTOR.clone();
+
+    // temporary
+    private double[] tmpM1 = new double[N * N];
+    private double[] tmpM2 = new double[N * N];
+    private double[] tmpM3 = new double[N * N];
+    private double[] tmpV1 = new double[N];
+    private double[] tmpV2 = new double[N];
+
+    private long lastUpdated = Long.MIN_VALUE;
+    private long lastMemUpdated; // this is just temporary for the memory instance
+    private double lastUpdate = Constants.NO_PREDICTION;
+    private int allowedGap = 500;
+    private double defaultMeasurement = 0;
+    private boolean predictedSinceUpdate = false;
+
+    /**
+     * Default constructor used for a new timeline.
+     */
+    public PrimitiveKalman() {
+        lastMemUpdated();
+    }
+
+    /**
+     * Indicates a change of the mem updated timestamp.
+     */
+    private void lastMemUpdated() {
+        lastMemUpdated = System.currentTimeMillis();
+    }
+
+    @Override
+    public boolean update(double measured) {
+        return update(System.currentTimeMillis() / 1000, measured);
+    }
+
+    @Override
+    public boolean update(long xMeasured, double yMeasured) {
+        boolean success = false;
+        // see Kalman: predict-update(correct)-cycle
+        if (!predictedSinceUpdate && lastUpdate != Constants.NO_PREDICTION) {
+            predict(0);
+        }
+        if (correct(xMeasured, yMeasured)) {
+            if (lastUpdated < xMeasured) {
+                lastUpdated = xMeasured;
+                lastUpdate = yMeasured;
+            }
+            success = true;
+            predictedSinceUpdate = false;
+            lastMemUpdated();
+        } else {
+            LogManager.getLogger(PrimitiveKalman.class).error("Innovation covariance is not positive definite");
+        }
+        return success;
+    }
+
+    @Override
+    public double predict(int steps) {
+        double prediction = Constants.NO_PREDICTION;
+        if (lastUpdated != Long.MIN_VALUE) {
+            if (steps > 0) {
+                // gap handling, see Kalman
+                long oldLastUpdated = lastUpdated;
+                double oldLastUpdate = lastUpdate;
+                boolean gap = false;
+                while (((System.currentTimeMillis() + (steps - 1) * 1000) - (lastUpdated * 1000)) > allowedGap) {
+                    update(lastUpdated + 1, prediction == Constants.NO_PREDICTION
+                        ? lastUpdate : defaultMeasurement);
+                    prediction = predict(0);
+                    gap = true;
+                }
+                if (gap) {
+                    lastUpdated = oldLastUpdated;
+                    lastUpdate = oldLastUpdate;
+                }
+            }
+            predictStep();
+            prediction = x[2];
+            predictedSinceUpdate = true;
+            lastMemUpdated();
+        }
+        return prediction;
+    }
+
+    @Override
+    public double predict() {
+        return predict(1);
+    }
+
+    /**
+     * Performs the prediction step of the filter, i.e., <code>x = A x + B u</code> and
+     * <code>P = A P A' + Q</code>.
+     */
+    private void predictStep() {
+        multiplyVector(mA, x, tmpV1);
+        multiplyVector(mB, controlVector, tmpV2);
+        for (int i = 0; i < N; i++) {
+            x[i] = tmpV1[i] + tmpV2[i];
+        }
+        multiply(mA, mP, tmpM1);
+        multiplyTransposed(tmpM1, mA, mP);
+        for (int i = 0; i < N * N; i++) {
+            mP[i] += mQ[i];
+        }
+    }
+
+    /**
+     * Performs the correction step of the filter for the measurement <code>z = (xMeasured, 0, yMeasured, 0)</code>.
+     *
+     * @param xMeasured the measured time step
+     * @param yMeasured the measured value
+     * @return <code>true</code> if successful, <code>false</code> if the innovation covariance is not positive
+     *     definite (state unchanged)
+     */
+    private boolean correct(double xMeasured, double yMeasured) {
+        // S = H P H' + R -> tmpM2
+        multiply(mH, mP, tmpM1);
+        multiplyTransposed(tmpM1, mH, tmpM2);
+        for (int i = 0; i < N * N; i++) {
+            tmpM2[i] += mR[i];
+        }
+        boolean result = cholesky(tmpM2);
+        if (result) {
+            // innovation = z - H x -> tmpV1
+            multiplyVector(mH, x, tmpV1);
+            tmpV1[0] = xMeasured - tmpV1[0];
+            tmpV1[1] = -tmpV1[1];
+            tmpV1[2] = yMeasured - tmpV1[2];
+            tmpV1[3] = -tmpV1[3];
+            // K' = S^-1 (H P') -> tmpM1
+            multiplyTransposed(mH, mP, tmpM1);
+            solveCholesky(tmpM2, tmpM1);
+            // x = x + K innovation
+            for (int r = 0; r < N; r++) {
+                double sum = 0;
+                for (int c = 0; c < N; c++) {
+                    sum += tmpM1[c * N + r] * tmpV1[c];
+                }
+                x[r] += sum;
+            }
+            // P = (I - K H) P
+            for (int r = 0; r < N; r++) {
+                for (int c = 0; c < N; c++) {
+                    double sum = 0;
+                    for (int k = 0; k < N; k++) {
+                        sum += tmpM1[k * N + r] * mH[k * N + c];
+                    }
+                    tmpM3[r * N + c] = (r == c ? 1 : 0) - sum;
+                }
+            }
+            multiply(tmpM3, mP, tmpM2);
+            System.arraycopy(tmpM2, 0, mP, 0, N * N);
+        }
+        return result;
+    }
+
+    /**
+     * Multiplies two matrices.
+     *
+     * @param m1 the first matrix
+     * @param m2 the second matrix
+     * @param result <code>m1 m2</code>, modified as a side effect
+     */
+    private static void multiply(double[] m1, double[] m2, double[] result) {
+        for (int r = 0; r < N; r++) {
+            int row = r * N;
+            double a0 = m1[row];
+            double a1 = m1[row + 1];
+            double a2 = m1[row + 2];
+            double a3 = m1[row + 3];
+            for (int c = 0; c < N; c++) {
+                result[row + c] = a0 * m2[c] + a1 * m2[N + c] + a2 * m2[2 * N + c] + a3 * m2[3 * N + c];
+            }
+        }
+    }
+
+    /**
+     * Multiplies a matrix with a transposed matrix.
+     *
+     * @param m1 the first matrix
+     * @param m2 the second matrix
+     * @param result <code>m1 m2'</code>, modified as a side effect
+     */
+    private static void multiplyTransposed(double[] m1, double[] m2, double[] result) {
+        for (int r = 0; r < N; r++) {
+            int row = r * N;
+            double a0 = m1[row];
+            double a1 = m1[row + 1];
+            double a2 = m1[row + 2];
+            double a3 = m1[row + 3];
+            for (int c = 0; c < N; c++) {
+                int col = c * N;
+                result[row + c] = a0 * m2[col] + a1 * m2[col + 1] + a2 * m2[col + 2] + a3 * m2[col + 3];
+            }
+        }
+    }
+
+    /**
+     * Multiplies a matrix with a vector.
+     *
+     * @param m the matrix
+     * @param v the vector
+     * @param result <code>m v</code>, modified as a side effect
+     */
+    private static void multiplyVector(double[] m, double[] v, double[] result) {
+        for (int r = 0; r < N; r++) {
+            int row = r * N;
+            result[r] = m[row] * v[0] + m[row + 1] * v[1] + m[row + 2] * v[2] + m[row + 3] * v[3];
+        }
+    }
+
+    /**
+     * Decomposes a symmetric positive definite matrix in place into <code>L L'</code>, storing <code>L</code>
+     * in the lower triangle.
+     *
+     * @param m the matrix, modified as a side effect
+     * @return <code>true</code> if successful, <code>false</code> if <code>m</code> is not positive definite
+     */
+    private static boolean cholesky(double[] m) {
+        boolean result = true;
+        for (int j = 0; result && j < N; j++) {
+            double d = m[j * N + j];
+            for (int k = 0; k < j; k++) {
+                d -= m[j * N + k] * m[j * N + k];
+            }
+            if (d <= POSITIVITY_THRESHOLD) {
+                result = false;
+            } else {
+                d = Math.sqrt(d);
+                m[j * N + j] = d;
+                for (int i = j + 1; i < N; i++) {
+                    double s = m[i * N + j];
+                    for (int k = 0; k < j; k++) {
+                        s -= m[i * N + k] * m[j * N + k];
+                    }
+                    m[i * N + j] = s / d;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Solves <code>L L' X = B</code> for all columns of <code>B</code>.
+     *
+     * @param l the decomposed matrix (see {@link #cholesky(double[])})
+     * @param b the right hand side, replaced by the solution
+     */
+    private static void solveCholesky(double[] l, double[] b) {
+        for (int c = 0; c < N; c++) {
+            for (int i = 0; i < N; i++) { // L y = b
+                double s = b[i * N + c];
+                for (int k = 0; k < i; k++) {
+                    s -= l[i * N + k] * b[k * N + c];
+                }
+                b[i * N + c] = s / l[i * N + i];
+            }
+            for (int i = N - 1; i >= 0; i--) { // L' x = y
+                double s = b[i * N + c];
+                for (int k = i + 1; k < N; k++) {
+                    s -= l[k * N + i] * b[k * N + c];
+                }
+                b[i * N + c] = s / l[i * N + i];
+            }
+        }
+    }
+
+    @Override
+    protected Properties toProperties() {
+        Properties result = new Properties();
+
+        // currently constant - write/read for future extension
+        result.put(KEY_MEASUREMENT_NOISE, String.valueOf(DEFAULT_MEASUREMENT_NOISE));
+        result.put(KEY_MATRIX_A, matrixToString(mA, N, N));
+        result.put(KEY_MATRIX_B, matrixToString(mB, N, N));
+        result.put(KEY_MATRIX_H, matrixToString(mH, N, N));
+        result.put(KEY_MATRIX_Q, matrixToString(mQ, N, N));
+        result.put(KEY_MATRIX_R, matrixToString(mR, N, N));
+
+        // variable
+        result.put(KEY_MATRIX_P, matrixToString(mP, N, N));
+        result.put(KEY_VECTOR_X, vectorToString(x));
+        result.put(KEY_VECTOR_CONTROL, vectorToString(controlVector));
+        result.put(KEY_LAST_UPDATED, String.valueOf(lastUpdated));
+        result.put(KEY_LAST_UPDATE, String.valueOf(lastUpdate));
+        result.put(KEY_ALLOWED_GAP, String.valueOf(allowedGap));
+        result.put(KEY_DEFAULT_MEASUREMENT, String.valueOf(defaultMeasurement));
+        return result;
+    }
+
+    /**
+     * Reads a 4x4 matrix from <code>data</code>.
+     *
+     * @param data the data
+     * @param key the key
+     * @param deflt the default value
+     * @return the matrix in row-major order
+     * @throws IllegalArgumentException if the matrix is not a 4x4 matrix
+     */
+    private static double[] readMatrix(Properties data, String key, double[] deflt) {
+        double[] result;
+        RealMatrix matrix = getMatrix(data, key, null);
+        if (null == matrix) {
+            result = deflt.clone();
+        } else if (matrix.getRowDimension() != N || matrix.getColumnDimension() != N) {
+            throw new IllegalArgumentException("Matrix " + key + " is not a " + N + "x" + N + " matrix");
+        } else {
+            result = new double[N * N];
+            for (int r = 0; r < N; r++) {
+                for (int c = 0; c < N; c++) {
+                    result[r * N + c] = matrix.getEntry(r, c);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a 4-dimensional vector from <code>data</code>.
+     *
+     * @param data the data
+     * @param key the key
+     * @param deflt the default value
+     * @return the vector
+     * @throws IllegalArgumentException if the vector is not 4-dimensional
+     */
+    private static double[] readVector(Properties data, String key, double[] deflt) {
+        double[] result;
+        RealVector vector = getVector(data, key, null);
+        if (null == vector) {
+            result = deflt.clone();
+        } else if (vector.getDimension() != N) {
+            throw new IllegalArgumentException("Vector " + key + " is not " + N + "-dimensional");
+        } else {
+            result = vector.toArray();
+        }
+        return result;
+    }
+
+    @Override
+    protected void setProperties(Properties data) throws IllegalArgumentException {
+        // currently constant - write/read for future extension
+        Utils.getDouble(data, KEY_MEASUREMENT_NOISE, DEFAULT_MEASUREMENT_NOISE); // ignore value
+        double[] a = readMatrix(data, KEY_MATRIX_A, DEFAULT_A);
+        double[] b = readMatrix(data, KEY_MATRIX_B, DEFAULT_B);
+        double[] h = readMatrix(data, KEY_MATRIX_H, DEFAULT_H);
+        double[] q = readMatrix(data, KEY_MATRIX_Q, DEFAULT_Q);
+        double[] r = readMatrix(data, KEY_MATRIX_R, DEFAULT_R);
+        double[] p = readMatrix(data, KEY_MATRIX_P, DEFAULT_P);
+        double[] xVector = readVector(data, KEY_VECTOR_X, DEFAULT_X_VECTOR);
+        double[] control = readVector(data, KEY_VECTOR_CONTROL, controlVector);
+        // all read, take over
+        mA = a;
+        mB = b;
+        mH = h;
+        mQ = q;
+        mR = r;
+        mP = p;
+        x = xVector;
+        controlVector = control;
+
+        // variable
+        lastUpdated = Utils.getLong(data, KEY_LAST_UPDATED, lastUpdated);
+        lastUpdate = Utils.getDouble(data, KEY_LAST_UPDATE, lastUpdate);
+        allowedGap = Utils.getInt(data, KEY_ALLOWED_GAP, allowedGap);
+        defaultMeasurement = Utils.getDouble(data, KEY_DEFAULT_MEASUREMENT, defaultMeasurement);
+    }
+
+    @Override
+    public boolean equals(IAlgorithmProfilePredictor other, double diff) {
+        boolean result = false;
+        if (other instanceof PrimitiveKalman) {
+            PrimitiveKalman o = (PrimitiveKalman) other;
+            result = equalsArray(mP, o.mP, diff);
+            result &= equalsArray(x, o.x, diff);
+            result &= equalsArray(controlVector, o.controlVector, diff);
+            result &= lastUpdated == o.lastUpdated;
+            result &= equalsDouble(lastUpdate, o.lastUpdate, diff);
+            result &= allowedGap == o.allowedGap;
+            result &= equalsDouble(defaultMeasurement, o.defaultMeasurement, diff);
+        }
+        return result;
+    }
+
+    @Override
+    public long getLastUpdated() {
+        return lastMemUpdated;
+    }
+
+}
@@ -15,6 +15,8 @@
  */
 package eu.qualimaster.monitoring.profiling.predictors;
 
+import java.util.Properties;
+
 import org.apache.commons.math3.exception.DimensionMismatchException;
 import org.apache.commons.math3.exception.NullArgumentException;
 import org.apache.commons.math3.linear.MatrixUtils;
@@ -158,6 +160,83 @@ public class Utils {
         return result + "}";
     }
     
+    /**
+     * Turns a row-major matrix into a string.
+     * 
+     * @param matrix the matrix
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @return the string
+     */
+    public static String matrixToString(double[] matrix, int rows, int cols) {
+        StringBuilder result = new StringBuilder("{");
+        for (int r = 0; r < rows; r++) {
+            result.append("{");
+            for (int c = 0; c < cols; c++) {
+                result.append(toString(matrix[r * cols + c]));
+                if (c + 1 < cols) {
+                    result.append(";");
+                }
+            }
+            result.append("}");
+            if (r + 1 < rows) {
+                result.append(",");
+            }
+        }
+        return result.append("}").toString();
+    }
+
+    /**
+     * Turns a vector into a string.
+     * 
+     * @param vector the vector
+     * @return the string representation
+     */
+    public static String vectorToString(double[] vector) {
+        StringBuilder result = new StringBuilder("{");
+        for (int i = 0; i < vector.length; i++) {
+            result.append(toString(vector[i]));
+            if (i + 1 < vector.length) {
+                result.append(";");
+            }
+        }
+        return result.append("}").toString();
+    }
+
+    /**
+     * Returns a matrix from a properties file.
+     * 
+     * @param prop the properties file
+     * @param key the key
+     * @param deflt the default value
+     * @return the read matrix or <code>deflt</code>
+     */
+    public static RealMatrix getMatrix(Properties prop, String key, RealMatrix deflt) {
+        RealMatrix tempM = null;
+        String tmp = prop.getProperty(key);
+        if (null != tmp) {
+            tempM = stringToMatrix(tmp);
+        }
+        return null != tempM ? tempM : deflt;
+    }
+
+    /**
+     * Returns a vector from a properties file.
+     * 
+     * @param prop the properties file
+     * @param key the key
+     * @param deflt the default value
+     * @return the read vector or <code>deflt</code>
+     */
+    public static RealVector getVector(Properties prop, String key, RealVector deflt) {
+        RealVector tempV = null;
+        String tmp = prop.getProperty(key);
+        if (null != tmp) {
+            tempV = stringToVector(tmp);
+        }
+        return null != tempV ? tempV : deflt;
+    }
+
     /**
      * Turns a double into a string.
      * 
@@ -210,6 +289,23 @@ public class Utils {
         return equals;
     }
     
+    /**
+     * Returns whether two arrays (vectors or row-major matrices) are considered equal with respect to a certain 
+     * tolerance.
+     * 
+     * @param a1 the first array
+     * @param a2 the second array
+     * @param diff the tolerance
+     * @return <code>true</code> if considered equals, <code>false</code> else
+     */
+    public static boolean equalsArray(double[] a1, double[] a2, double diff) {
+        boolean equals = a1.length == a2.length;
+        for (int i = 0; equals && i < a1.length; i++) {
+            equals &= Math.abs(a1[i] - a2[i]) < diff;
+        }
+        return equals;
+    }
+
     /**
      * Returns whether two doubles are considered equal with respect to a certain tolerance.
      * 
@@ -1,8 +1,12 @@
 package eu.qualimaster.monitoring.storm;
 
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
 import eu.qualimaster.monitoring.AbstractClusterMonitoringTask;
 import eu.qualimaster.monitoring.AbstractContainerMonitoringTask;
 import eu.qualimaster.monitoring.IMonitoringPlugin;
+import eu.qualimaster.monitoring.MonitoringConfiguration;
 import eu.qualimaster.monitoring.hardware.HardwareConfigurationAccess;
 import eu.qualimaster.monitoring.hardware.HardwareConfigurationAccess.HardwareMonitoringInfo;
 import eu.qualimaster.monitoring.hardware.MaxelerDfeMonitor;
@@ -15,22 +19,28 @@ import eu.qualimaster.monitoring.systemState.SystemState;
  */
 public class StormMonitoringPlugin implements IMonitoringPlugin {
 
-    private StormConnection connection;
+    private static final Logger LOGGER = LogManager.getLogger(StormMonitoringPlugin.class);
+    private StormConnection connection; // exclusively for the cluster task, connections are not thread-safe
+    private ThriftSnapshotCache cache;
     
     @Override
     public void start() {
         connection = new StormConnection();
         connection.open(); // just try, no problem if this fails
+        cache = new ThriftSnapshotCache(MonitoringConfiguration.getThriftConnections(), 
+            MonitoringConfiguration.getThriftCacheInterval());
     }
 
     @Override
     public void stop() {
         connection.close();
+        LOGGER.info("Thrift pipeline monitoring: " + cache);
+        cache.close();
     }
 
     @Override
     public AbstractContainerMonitoringTask createPipelineTask(String pipeline, SystemState state) {
-        return new ThriftMonitoringTask(pipeline, connection, state);
+        return new ThriftMonitoringTask(pipeline, cache, state);
     }
     
     @Override
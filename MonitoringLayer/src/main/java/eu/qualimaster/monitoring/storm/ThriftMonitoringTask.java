@@ -7,11 +7,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.apache.storm.curator.framework.CuratorFramework;
 import org.apache.thrift7.TException;
+import org.apache.thrift7.transport.TTransportException;
 
 import eu.qualimaster.coordination.HostPort;
 import eu.qualimaster.coordination.INameMapping;
@@ -64,22 +66,25 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
     
     private String pipeline;
     private Set<String> topologyNames = new HashSet<String>();
-    private StormConnection connection;
+    private ThriftSnapshotCache cache;
+    private AtomicBoolean registered = new AtomicBoolean();
 
     /**
      * Creates the monitoring task.
      * 
      * @param pipeline the pipeline name
-     * @param connection the Storm connection
+     * @param cache the Thrift snapshot cache shared among the pipeline tasks
      * @param state the system state to be modified due to monitoring
      */
-    ThriftMonitoringTask(String pipeline, StormConnection connection, SystemState state) {
+    ThriftMonitoringTask(String pipeline, ThriftSnapshotCache cache, SystemState state) {
         super(state);
         this.pipeline = pipeline;
-        this.connection = connection;
+        this.cache = cache;
         INameMapping mapping = MonitoringManager.getNameMapping(pipeline);
         if (null != mapping) {
             topologyNames.addAll(mapping.getPipelineNames());
+            cache.register(topologyNames);
+            registered.set(true);
         } else {
             LOGGER.error("no name mapping for pipeline " + pipeline);
         }
@@ -87,36 +92,37 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
     
     @Override
     public void monitor() {
-        if (connection.open()) {
-            try {
-                ClusterSummary summary = connection.getClusterSummary();
-                List<TopologySummary> topologies = summary.get_topologies();
-                Set<PipelineSystemPart> modified = new HashSet<PipelineSystemPart>(); 
-                for (int t = 0; t < topologies.size(); t++) {
-                    TopologySummary topologySummary = topologies.get(t);
-                    if (topologyNames.contains(topologySummary.get_name())) {
-                        try {
-                            PipelineSystemPart part = aggregateTopology(
-                                connection.getTopologyInfo(topologySummary.get_id()));
-                            if (null != part) {
-                                modified.add(part);
-                            }
-                        } catch (NotAliveException e) {
+        try {
+            ThriftSnapshotCache.Snapshot snapshot = cache.getSnapshot();
+            ClusterSummary summary = snapshot.getClusterSummary();
+            List<TopologySummary> topologies = summary.get_topologies();
+            Set<PipelineSystemPart> modified = new HashSet<PipelineSystemPart>(); 
+            for (int t = 0; t < topologies.size(); t++) {
+                TopologySummary topologySummary = topologies.get(t);
+                if (topologyNames.contains(topologySummary.get_name())) {
+                    try {
+                        PipelineSystemPart part = aggregateTopology(
+                            cache.getTopologyInfo(snapshot, topologySummary.get_id()));
+                        if (null != part) {
+                            modified.add(part);
                         }
+                    } catch (NotAliveException e) {
                     }
                 }
-                // not handled by further state correctly... just ignore for now
-                /*Collection<PipelineSystemPart> pipelines = getState().getPipelines();
-                for (PipelineSystemPart pipeline : pipelines) {
-                    if (!modified.contains(pipeline) && pipeline.getStatus().wasStarted()) {
-                        pipeline.changeStatus(PipelineLifecycleEvent.Status.DISAPPEARED, true);
-                    }
-                }*/
-            } catch (TException e) {
-                LOGGER.error("Cannot obtain thrift data " + e.getMessage(), e);
-            }  catch (IllegalStateException e) {
-                // monitoring runs longer than topology exists... ignore
             }
+            // not handled by further state correctly... just ignore for now
+            /*Collection<PipelineSystemPart> pipelines = getState().getPipelines();
+            for (PipelineSystemPart pipeline : pipelines) {
+                if (!modified.contains(pipeline) && pipeline.getStatus().wasStarted()) {
+                    pipeline.changeStatus(PipelineLifecycleEvent.Status.DISAPPEARED, true);
+                }
+            }*/
+        } catch (TTransportException e) {
+            LOGGER.debug("Cannot obtain thrift data " + e.getMessage()); // Nimbus not reachable, try next round
+        } catch (TException e) {
+            LOGGER.error("Cannot obtain thrift data " + e.getMessage(), e);
+        }  catch (IllegalStateException e) {
+            // monitoring runs longer than topology exists... ignore
         }
     }
     
@@ -127,7 +133,7 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
      */
     @SuppressWarnings("unused")
     private void checkAssignment(TopologyInfo topology) {
-        CuratorFramework curator = connection.getCurator();
+        CuratorFramework curator = cache.getCurator();
         if (null != curator) {
             try {
                 List<HostPort> hosts = HostPort.toHostPort(ZkUtils.getAliveWorkers(curator, topology), 
@@ -173,12 +179,12 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
         if (null == part.getTopology()) {
             PipelineInfo info = MonitoringManager.getPipelineInfo(pipelineName);
             Map<StormTopology, TopologyInfo> topologies = new HashMap<StormTopology, TopologyInfo>();
-            topologies.put(connection.getTopology(topology), topology);
+            topologies.put(cache.getTopology(topology), topology);
             for (PipelineInfo subInfo : info.getSubPipelines()) {
                 String subName = subInfo.getName();
                 try {
-                    TopologyInfo si = connection.getTopologyInfoByName(subName);
-                    topologies.put(connection.getTopology(si), si);        
+                    TopologyInfo si = cache.getTopologyInfoByName(subName);
+                    topologies.put(cache.getTopology(si), si);        
                 } catch (NotAliveException e) {
                     LOGGER.info("Sub-topology not alive: " + subName);
                 }
@@ -683,6 +689,9 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
 
     @Override
     public boolean cancel() {
+        if (registered.getAndSet(false)) { // registrations are counted, release only once
+            cache.unregister(topologyNames);
+        }
         return super.cancel();
     }
 
@@ -693,7 +702,7 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
     
     @Override
     protected void failover(Throwable th) {
-        connection.failover(th);
+        cache.failover(th);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,596 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.storm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.storm.curator.framework.CuratorFramework;
+import org.apache.thrift7.TException;
+import org.apache.thrift7.transport.TTransportException;
+
+import backtype.storm.generated.ClusterSummary;
+import backtype.storm.generated.NotAliveException;
+import backtype.storm.generated.StormTopology;
+import backtype.storm.generated.TopologyInfo;
+import backtype.storm.generated.TopologySummary;
+
+/**
+ * Caches the cluster summary and the topology infos of the monitored topologies obtained from Nimbus for a
+ * given interval so that all pipeline monitoring tasks share one snapshot instead of querying Nimbus on their own.
+ * The topology infos are obtained in parallel over a small pool of connections. Thrift connections are not
+ * thread-safe, i.e., each connection is used by one thread at a time. Topology names are registered with a
+ * reference count, as several monitoring tasks may poll the same topologies. Nimbus load (calls, call time) and
+ * refresh latency are recorded. Thread-safe.
+ *
+ * @author Holger Eichelberger
+ */
+public class ThriftSnapshotCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(ThriftSnapshotCache.class);
+
+    private int poolSize;
+    private long interval;
+    private BlockingQueue<StormConnection> idle = new LinkedBlockingQueue<StormConnection>();
+    private AtomicInteger created = new AtomicInteger();
+    private ExecutorService executor;
+    private Map<String, Integer> topologyNames = new HashMap<String, Integer>();
+    private volatile Snapshot snapshot;
+    private volatile boolean closed;
+    private final Object refreshLock = new Object();
+
+    private AtomicLong nimbusCalls = new AtomicLong();
+    private AtomicLong nimbusCallTime = new AtomicLong();
+    private AtomicLong refreshes = new AtomicLong();
+    private AtomicLong hits = new AtomicLong();
+    private volatile long lastRefreshLatency;
+
+    /**
+     * A consistent snapshot of the cluster summary and the topology infos of the registered topologies.
+     *
+     * @author Holger Eichelberger
+     */
+    public static class Snapshot {
+
+        private long timestamp;
+        private ClusterSummary summary;
+        private Map<String, TopologyInfo> infos;
+
+        /**
+         * Creates a snapshot.
+         *
+         * @param timestamp the creation timestamp
+         * @param summary the cluster summary
+         * @param infos the topology infos by topology id
+         */
+        private Snapshot(long timestamp, ClusterSummary summary, Map<String, TopologyInfo> infos) {
+            this.timestamp = timestamp;
+            this.summary = summary;
+            this.infos = infos;
+        }
+
+        /**
+         * Returns the creation timestamp.
+         *
+         * @return the timestamp
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Returns the cluster summary.
+         *
+         * @return the cluster summary
+         */
+        public ClusterSummary getClusterSummary() {
+            return summary;
+        }
+
+        /**
+         * Returns the topology info for the given topology id.
+         *
+         * @param id the topology id
+         * @return the topology info, <b>null</b> if not part of this snapshot
+         */
+        public TopologyInfo getTopologyInfo(String id) {
+            return infos.get(id);
+        }
+
+        /**
+         * Returns the topology summary for the given topology name.
+         *
+         * @param name the topology name
+         * @return the topology summary, <b>null</b> if there is none
+         */
+        public TopologySummary getTopologySummaryByName(String name) {
+            TopologySummary result = null;
+            List<TopologySummary> topologies = summary.get_topologies();
+            for (int t = 0; null == result && t < topologies.size(); t++) {
+                TopologySummary tSummary = topologies.get(t);
+                if (tSummary.get_name().equals(name)) {
+                    result = tSummary;
+                }
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * A call to Nimbus.
+     *
+     * @param <T> the result type
+     * @author Holger Eichelberger
+     */
+    private abstract static class NimbusCall<T> {
+
+        /**
+         * Performs the call.
+         *
+         * @param connection the connection to use
+         * @return the result
+         * @throws NotAliveException in case that the requested topology is not alive
+         * @throws TException in case of problems accessing Nimbus
+         */
+        protected abstract T call(StormConnection connection) throws NotAliveException, TException;
+
+    }
+
+    /**
+     * Creates a snapshot cache.
+     *
+     * @param poolSize the maximum number of connections to Nimbus (at least 1)
+     * @param interval the time a snapshot remains valid (in ms)
+     */
+    public ThriftSnapshotCache(int poolSize, long interval) {
+        this.poolSize = Math.max(1, poolSize);
+        this.interval = Math.max(0, interval);
+        executor = Executors.newFixedThreadPool(this.poolSize, new ThreadFactory() {
+
+            private AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread result = new Thread(runnable, "thrift-snapshot-" + count.incrementAndGet());
+                result.setDaemon(true);
+                return result;
+            }
+
+        });
+    }
+
+    /**
+     * Registers topology names to be included into the snapshots. Each registration of a name must be balanced
+     * by an {@link #unregister(Collection) unregistration}.
+     *
+     * @param names the topology names
+     */
+    public void register(Collection<String> names) {
+        synchronized (topologyNames) {
+            for (String name : names) {
+                Integer count = topologyNames.get(name);
+                topologyNames.put(name, null == count ? 1 : count + 1);
+            }
+        }
+    }
+
+    /**
+     * Unregisters topology names. A name is removed from the snapshots when its last registration is released.
+     *
+     * @param names the topology names
+     */
+    public void unregister(Collection<String> names) {
+        synchronized (topologyNames) {
+            for (String name : names) {
+                Integer count = topologyNames.get(name);
+                if (null != count) {
+                    if (count > 1) {
+                        topologyNames.put(name, count - 1);
+                    } else {
+                        topologyNames.remove(name);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the actually registered topology names.
+     *
+     * @return the topology names (a copy)
+     */
+    private Set<String> getTopologyNames() {
+        synchronized (topologyNames) {
+            return new HashSet<String>(topologyNames.keySet());
+        }
+    }
+
+    /**
+     * Returns whether a snapshot must be refreshed.
+     *
+     * @param snapshot the snapshot (may be <b>null</b>)
+     * @return <code>true</code> for refresh, <code>false</code> else
+     */
+    private boolean isOutdated(Snapshot snapshot) {
+        return null == snapshot || System.currentTimeMillis() - snapshot.timestamp >= interval;
+    }
+
+    /**
+     * Returns the actual snapshot. Refreshes the snapshot if it is outdated. Concurrent callers wait for the
+     * running refresh and share its result.
+     *
+     * @return the snapshot
+     * @throws TException in case of problems accessing Nimbus
+     */
+    public Snapshot getSnapshot() throws TException {
+        Snapshot result = snapshot;
+        if (isOutdated(result)) {
+            synchronized (refreshLock) {
+                result = snapshot;
+                if (isOutdated(result)) {
+                    result = refresh();
+                    snapshot = result;
+                } else {
+                    hits.incrementAndGet();
+                }
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Obtains a new snapshot from Nimbus.
+     *
+     * @return the snapshot
+     * @throws TException in case of problems accessing Nimbus
+     */
+    private Snapshot refresh() throws TException {
+        long start = System.currentTimeMillis();
+        ClusterSummary summary;
+        try {
+            summary = execute(new NimbusCall<ClusterSummary>() {
+
+                @Override
+                protected ClusterSummary call(StormConnection connection) throws TException {
+                    return connection.getClusterSummary();
+                }
+
+            });
+        } catch (NotAliveException e) { // does not happen for the summary
+            throw new TException(e);
+        }
+        Set<String> names = getTopologyNames();
+        List<String> ids = new ArrayList<String>();
+        List<TopologySummary> topologies = summary.get_topologies();
+        for (int t = 0; t < topologies.size(); t++) {
+            TopologySummary topologySummary = topologies.get(t);
+            if (names.contains(topologySummary.get_name())) {
+                ids.add(topologySummary.get_id());
+            }
+        }
+        Map<String, TopologyInfo> infos = new HashMap<String, TopologyInfo>();
+        if (1 == ids.size()) { // no need to hand over
+            TopologyInfo info = fetchTopologyInfo(ids.get(0));
+            if (null != info) {
+                infos.put(ids.get(0), info);
+            }
+        } else if (ids.size() > 1) {
+            List<Future<TopologyInfo>> futures = new ArrayList<Future<TopologyInfo>>();
+            for (final String id : ids) {
+                futures.add(executor.submit(new Callable<TopologyInfo>() {
+
+                    @Override
+                    public TopologyInfo call() throws Exception {
+                        return fetchTopologyInfo(id);
+                    }
+
+                }));
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                try {
+                    TopologyInfo info = futures.get(i).get();
+                    if (null != info) {
+                        infos.put(ids.get(i), info);
+                    }
+                } catch (ExecutionException e) {
+                    LOGGER.error("Cannot obtain thrift data " + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    throw new TException(e);
+                }
+            }
+        }
+        long now = System.currentTimeMillis();
+        lastRefreshLatency = now - start;
+        refreshes.incrementAndGet();
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Thrift snapshot refreshed: " + this);
+        }
+        return new Snapshot(now, summary, infos);
+    }
+
+    /**
+     * Fetches the topology info for the given id.
+     *
+     * @param id the topology id
+     * @return the topology info, <b>null</b> if the topology is not alive
+     * @throws TException in case of problems accessing Nimbus
+     */
+    private TopologyInfo fetchTopologyInfo(final String id) throws TException {
+        TopologyInfo result;
+        try {
+            result = execute(new NimbusCall<TopologyInfo>() {
+
+                @Override
+                protected TopologyInfo call(StormConnection connection) throws NotAliveException, TException {
+                    return connection.getTopologyInfo(id);
+                }
+
+            });
+        } catch (NotAliveException e) {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the topology info for the given id from <code>snapshot</code> or, if not contained, directly from
+     * Nimbus.
+     *
+     * @param snapshot the snapshot to consider
+     * @param id the topology id
+     * @return the topology info
+     * @throws NotAliveException in case that the requested topology is not alive
+     * @throws TException in case of problems accessing Nimbus
+     */
+    public TopologyInfo getTopologyInfo(Snapshot snapshot, final String id) throws NotAliveException, TException {
+        TopologyInfo result = snapshot.getTopologyInfo(id);
+        if (null == result) {
+            result = execute(new NimbusCall<TopologyInfo>() {
+
+                @Override
+                protected TopologyInfo call(StormConnection connection) throws NotAliveException, TException {
+                    return connection.getTopologyInfo(id);
+                }
+
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Returns the topology info for the given name based on the actual snapshot.
+     *
+     * @param name the topology name
+     * @return the topology info (may be <b>null</b>)
+     * @throws NotAliveException in case that the requested topology is not alive
+     * @throws TException in case of problems accessing Nimbus
+     */
+    public TopologyInfo getTopologyInfoByName(String name) throws NotAliveException, TException {
+        Snapshot snapshot = getSnapshot();
+        TopologySummary summary = snapshot.getTopologySummaryByName(name);
+        return null == summary ? null : getTopologyInfo(snapshot, summary.get_id());
+    }
+
+    /**
+     * Returns the topology structure. Not cached as rarely used.
+     *
+     * @param topology the topology info
+     * @return the topology structure
+     * @throws NotAliveException in case that the requested topology is not alive
+     * @throws TException in case of problems accessing Nimbus
+     */
+    public StormTopology getTopology(final TopologyInfo topology) throws NotAliveException, TException {
+        return execute(new NimbusCall<StormTopology>() {
+
+            @Override
+            protected StormTopology call(StormConnection connection) throws NotAliveException, TException {
+                return connection.getTopology(topology);
+            }
+
+        });
+    }
+
+    /**
+     * Returns the curator framework of a pooled connection.
+     *
+     * @return the curator framework, <b>null</b> if not available
+     */
+    public CuratorFramework getCurator() {
+        CuratorFramework result = null;
+        try {
+            StormConnection connection = borrow();
+            result = connection.getCurator();
+            release(connection);
+        } catch (TException e) {
+            // result remains null
+        }
+        return result;
+    }
+
+    /**
+     * Executes a call on a pooled connection and records the Nimbus load.
+     *
+     * @param <T> the result type
+     * @param call the call
+     * @return the result of the call
+     * @throws NotAliveException in case that the requested topology is not alive
+     * @throws TException in case of problems accessing Nimbus
+     */
+    private <T> T execute(NimbusCall<T> call) throws NotAliveException, TException {
+        StormConnection connection = borrow();
+        long start = System.nanoTime();
+        try {
+            return call.call(connection);
+        } catch (TException e) {
+            connection.failover(e);
+            throw e;
+        } finally {
+            nimbusCalls.incrementAndGet();
+            nimbusCallTime.addAndGet(System.nanoTime() - start);
+            release(connection);
+        }
+    }
+
+    /**
+     * Borrows an open connection from the pool. Creates a new connection if the pool is not exhausted, waits
+     * for a connection else.
+     *
+     * @return the connection
+     * @throws TException if the connection cannot be opened or waiting was interrupted
+     */
+    private StormConnection borrow() throws TException {
+        if (closed) {
+            throw new TTransportException("Snapshot cache closed");
+        }
+        StormConnection result = idle.poll();
+        if (null == result) {
+            if (created.incrementAndGet() <= poolSize) {
+                result = createConnection();
+            } else {
+                created.decrementAndGet();
+                try {
+                    result = idle.take();
+                } catch (InterruptedException e) {
+                    throw new TTransportException(e);
+                }
+            }
+        }
+        if (!result.open()) {
+            release(result);
+            throw new TTransportException("Cannot connect to Nimbus");
+        }
+        return result;
+    }
+
+    /**
+     * Creates a new connection to Nimbus. [testing]
+     *
+     * @return the connection
+     */
+    protected StormConnection createConnection() {
+        return new StormConnection();
+    }
+
+    /**
+     * Returns a connection to the pool.
+     *
+     * @param connection the connection
+     */
+    private void release(StormConnection connection) {
+        if (closed) {
+            connection.close();
+        } else {
+            idle.offer(connection);
+        }
+    }
+
+    /**
+     * Closes idle connections after a failure, e.g., when a network connection closed. Reconnects happen
+     * on the next use.
+     *
+     * @param th the throwable causing the need for failover
+     */
+    public void failover(Throwable th) {
+        for (StormConnection connection : idle) {
+            connection.failover(th);
+        }
+    }
+
+    /**
+     * Closes this cache, the pool and all connections.
+     */
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        StormConnection connection;
+        while (null != (connection = idle.poll())) {
+            connection.close();
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Returns the number of calls to Nimbus.
+     *
+     * @return the number of calls
+     */
+    public long getNimbusCalls() {
+        return nimbusCalls.get();
+    }
+
+    /**
+     * Returns the accumulated time spent in calls to Nimbus.
+     *
+     * @return the time in ms
+     */
+    public long getNimbusCallTime() {
+        return nimbusCallTime.get() / 1000000;
+    }
+
+    /**
+     * Returns the number of snapshot refreshes.
+     *
+     * @return the number of refreshes
+     */
+    public long getRefreshCount() {
+        return refreshes.get();
+    }
+
+    /**
+     * Returns the number of snapshot requests served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getCacheHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the latency of the last refresh, i.e., the time to obtain a complete snapshot.
+     *
+     * @return the latency in ms
+     */
+    public long getLastRefreshLatency() {
+        return lastRefreshLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "nimbus calls " + getNimbusCalls() + " time " + getNimbusCallTime() + " ms, refreshes "
+            + getRefreshCount() + " hits " + getCacheHits() + " last latency " + getLastRefreshLatency() + " ms";
+    }
+
+}
@@ -25,6 +25,7 @@ import eu.qualimaster.coordination.INameMapping;
 import eu.qualimaster.coordination.INameMapping.Component;
 import eu.qualimaster.coordination.INameMapping.Component.Type;
 import eu.qualimaster.monitoring.MonitoringManager;
+import eu.qualimaster.monitoring.observations.AggregationEpoch;
 import eu.qualimaster.monitoring.parts.IPartType;
 import eu.qualimaster.monitoring.topology.ITopologyProvider;
 import eu.qualimaster.monitoring.topology.PipelineTopology;
@@ -121,6 +122,12 @@ public class NodeImplementationSystemPart extends SystemPart implements ITopolog
         return pipeline;
     }
 
+    @Override
+    public AggregationEpoch.Scope getAggregationScope() {
+        // called during super construction, when the pipeline is not known yet
+        return null != pipeline ? pipeline.getAggregationScope() : super.getAggregationScope();
+    }
+
     @Override
     public PipelineTopology getTopology() {
         return pipeline.getTopology();
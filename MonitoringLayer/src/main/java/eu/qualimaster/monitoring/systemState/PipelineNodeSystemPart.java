@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import eu.qualimaster.coordination.INameMapping;
 import eu.qualimaster.coordination.INameMapping.ISubPipeline;
@@ -28,6 +29,7 @@ import eu.qualimaster.coordination.INameMapping.Component.Type;
 import eu.qualimaster.monitoring.MonitoringManager;
 import eu.qualimaster.monitoring.events.ComponentKey;
 import eu.qualimaster.monitoring.events.FrozenSystemState;
+import eu.qualimaster.monitoring.observations.AggregationEpoch;
 import eu.qualimaster.monitoring.observations.IObservationProvider;
 import eu.qualimaster.monitoring.observations.ObservedValue;
 import eu.qualimaster.monitoring.parts.PartType;
@@ -57,6 +59,7 @@ public class PipelineNodeSystemPart extends SystemPart implements ITopologyProvi
     private NodeImplementationSystemPart parent; // parent
     private int currentCount = 0;
     private boolean internal = false;
+    private ConcurrentHashMap<Integer, SystemPart> replays = new ConcurrentHashMap<Integer, SystemPart>();
     
     /**
      * Creates a pipeline node system part.
@@ -107,6 +110,7 @@ public class PipelineNodeSystemPart extends SystemPart implements ITopologyProvi
         this.useThrift = source.useThrift;
         this.internal = source.internal;
         super.initObservables();
+        copyReplays(source, state);
         pipeline.registerNode(this);
     }
     
@@ -125,9 +129,22 @@ public class PipelineNodeSystemPart extends SystemPart implements ITopologyProvi
         this.useThrift = source.useThrift;
         this.internal = source.internal;
         super.initObservables();
+        copyReplays(source, state);
         algorithm.getPipeline().registerNode(this);
     }
 
+    /**
+     * Copies the replay parts of <code>source</code>.
+     * 
+     * @param source the source system part
+     * @param state the parent system state for crosslinks
+     */
+    private void copyReplays(PipelineNodeSystemPart source, SystemState state) {
+        for (Map.Entry<Integer, SystemPart> entry : source.replays.entrySet()) {
+            replays.put(entry.getKey(), new SystemPart(entry.getValue(), state));
+        }
+    }
+
     /**
      * Initializes the observables.
      */
@@ -311,6 +328,48 @@ public class PipelineNodeSystemPart extends SystemPart implements ITopologyProvi
         return currentCount;
     }
 
+    /**
+     * Returns the part holding the observations of a replay ticket of this (replay sink) node. Replay parts are 
+     * not aggregated into this node or the pipeline and they are not part of the frozen system state, i.e., 
+     * replaying does not affect the live observations.
+     * 
+     * @param ticket the replay ticket
+     * @return the replay part, <b>null</b> if there is none
+     */
+    public SystemPart getReplay(int ticket) {
+        return replays.get(ticket);
+    }
+
+    /**
+     * Returns the part holding the observations of a replay ticket of this (replay sink) node. Creates the part if
+     * it does not exist.
+     * 
+     * @param ticket the replay ticket
+     * @return the replay part
+     * @see #getReplay(int)
+     */
+    public SystemPart obtainReplay(int ticket) {
+        SystemPart result = replays.get(ticket);
+        if (null == result) {
+            result = new SystemPart(PartType.REPLAY, getName() + ":" + ticket);
+            SystemPart tmp = replays.putIfAbsent(ticket, result);
+            if (null != tmp) {
+                result = tmp;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the part of a replay ticket, e.g., as replaying the ticket ended.
+     * 
+     * @param ticket the replay ticket
+     * @return the removed part, <b>null</b> if there was none
+     */
+    public SystemPart removeReplay(int ticket) {
+        return replays.remove(ticket);
+    }
+
     // no direct access to observable needed here
 
     @Override
@@ -512,6 +571,18 @@ public class PipelineNodeSystemPart extends SystemPart implements ITopologyProvi
     public PipelineNodeSystemPart getNode(String name) {
         return getParentTopologyProvider().getNode(name);
     }
+
+    @Override
+    public AggregationEpoch.Scope getAggregationScope() {
+        // called during super construction, when the pipeline is not known yet
+        PipelineSystemPart pip = null;
+        if (null != pipeline) {
+            pip = pipeline;
+        } else if (null != parent) {
+            pip = parent.getPipeline();
+        }
+        return null != pip ? pip.getAggregationScope() : super.getAggregationScope();
+    }
     
     /**
      * Mark this node as an internal implementation node. A node marked once as internal remains internal.
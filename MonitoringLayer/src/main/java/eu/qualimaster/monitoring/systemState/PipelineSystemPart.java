@@ -215,6 +215,7 @@ public class PipelineSystemPart extends SystemPart implements ITopologyProvider
         } else {
             topologyProjection = null;
         }
+        getAggregationScope().invalidate();
     }
     
     /**
@@ -27,6 +27,7 @@ import java.util.Set;
 import eu.qualimaster.coordination.INameMapping.Component.Type;
 import eu.qualimaster.monitoring.events.FrozenSystemState;
 import eu.qualimaster.monitoring.observations.AbstractCompoundObservation;
+import eu.qualimaster.monitoring.observations.AggregationEpoch;
 import eu.qualimaster.monitoring.observations.AtomicDouble;
 import eu.qualimaster.monitoring.observations.IObservation;
 import eu.qualimaster.monitoring.observations.IObservationProvider;
@@ -53,6 +54,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
     private String name;
     private Map<IObservable, IObservation> parameterValues = new HashMap<IObservable, IObservation>();
     private Map<Object, Map<IObservable, Double>> valueStore = null;
+    private AggregationEpoch.Scope aggregationScope = new AggregationEpoch.Scope();
 
     /**
      * Creates a system part with observables and no component type (<b>null</b>). In case that this class is a 
@@ -250,6 +252,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             if (null != observation) {
                 observation.setValue(value, key);
             }
+            getAggregationScope().invalidate();
         }
     }
     
@@ -260,6 +263,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             if (null != observation && null != value) {
                 observation.setValue(value, key);
             }
+            getAggregationScope().invalidate();
         }
     }
 
@@ -270,6 +274,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             if (null != observation) {
                 observation.setValue(value, key);
             }
+            getAggregationScope().invalidate();
         }
     }
     
@@ -280,6 +285,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             if (null != observation && null != value) {
                 observation.setValue(value, key);
             }
+            getAggregationScope().invalidate();
         }
     }
 
@@ -307,6 +313,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             if (null != observation) {
                 observation.clearComponents(keys);
             }
+            getAggregationScope().invalidate();
         }
     }
     
@@ -323,6 +330,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             if (null != observation) {
                 observation.clear();
             }
+            getAggregationScope().invalidate();
         }
     }
     
@@ -356,6 +364,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
                     obs.replaceComponentKeys(oldKey, newKey);
                 }
             }
+            getAggregationScope().invalidate();
         }
     }
 
@@ -424,6 +433,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             if (null != observation) {
                 observation.switchedTo(direct);
             }
+            getAggregationScope().invalidate();
         }
     }
     
@@ -435,6 +445,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             for (IObservation obs : parameterValues.values()) {
                 obs.switchedTo(true);
             }
+            getAggregationScope().invalidate();
         }
     }
     
@@ -445,6 +456,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             if (null != observation) {
                 observation.setLastUpdate(timestamp);
             }
+            getAggregationScope().invalidate();
         }
     }
 
@@ -517,6 +529,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             if (null != observation) {
                 observation.link(obs);
             }
+            getAggregationScope().invalidate();
         }
     }
 
@@ -527,6 +540,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             if (null != observation) {
                 observation.unlink(obs);
             }
+            getAggregationScope().invalidate();
         }
     }
     
@@ -583,6 +597,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
             for (IObservation obs : parameterValues.values()) {
                 obs.clear();
             }
+            getAggregationScope().invalidate();
         }
     }
     
@@ -719,6 +734,11 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
         return this;
     }
 
+    @Override
+    public AggregationEpoch.Scope getAggregationScope() {
+        return aggregationScope;
+    }
+
     @Override
     public Type getComponentType() {
         return componentType;
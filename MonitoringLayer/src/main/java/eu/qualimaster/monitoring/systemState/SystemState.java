@@ -13,7 +13,11 @@ import eu.qualimaster.coordination.INameMapping.Algorithm;
 import eu.qualimaster.coordination.INameMapping.Component;
 import eu.qualimaster.coordination.INameMapping.Component.Type;
 import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
+import eu.qualimaster.monitoring.MonitoringConfiguration;
+import eu.qualimaster.monitoring.events.CompactFrozenSystemState;
+import eu.qualimaster.monitoring.events.FrozenStateSymbols;
 import eu.qualimaster.monitoring.events.FrozenSystemState;
+import eu.qualimaster.monitoring.observations.AggregationEpoch;
 import eu.qualimaster.monitoring.observations.ISystemStateConfigurer;
 
 /**
@@ -33,6 +37,7 @@ public class SystemState implements Serializable {
         new HashMap<String, PipelineSystemPart>());
     private boolean enableAlgorithmTracing = false;
     private long timeStamp = System.currentTimeMillis();
+    private transient FrozenStateSymbols symbols;
 
     /**
      * Creates a new system state.
@@ -174,8 +179,23 @@ public class SystemState implements Serializable {
      * @return the removed pipeline, may be <b>null</b> if unknown
      */
     public PipelineSystemPart removePipeline(String pipelineName) {
+        PipelineSystemPart result;
         synchronized (pipelines) {
-            return pipelines.remove(pipelineName);
+            result = pipelines.remove(pipelineName);
+        }
+        pruneSymbols(pipelineName); // outside pipelines lock, freeze locks the other way round
+        return result;
+    }
+
+    /**
+     * Removes the frozen state symbols of a pipeline.
+     * 
+     * @param pipelineName the name of the pipeline
+     */
+    private synchronized void pruneSymbols(String pipelineName) {
+        if (null != symbols) {
+            symbols = symbols.prune(pipelineName, FrozenSystemState.PIPELINE, FrozenSystemState.PIPELINE_ELEMENT, 
+                FrozenSystemState.ALGORITHM, FrozenSystemState.DATASOURCE, FrozenSystemState.DATASINK);
         }
     }
     
@@ -208,6 +228,14 @@ public class SystemState implements Serializable {
             }
             pipelines.clear();
         }
+        clearSymbols();
+    }
+
+    /**
+     * Drops the frozen state symbols.
+     */
+    private synchronized void clearSymbols() {
+        symbols = null;
     }
     
     /**
@@ -226,19 +254,44 @@ public class SystemState implements Serializable {
         return result;
     }
 
+    /**
+     * Creates an empty frozen system state in the configured representation. Compact states share the symbol table
+     * of this system state, i.e., keys are registered once rather than per freeze.
+     * 
+     * @return the frozen system state
+     * @see MonitoringConfiguration#getCompactFrozenState()
+     */
+    private synchronized FrozenSystemState createFrozenState() {
+        FrozenSystemState result;
+        if (MonitoringConfiguration.getCompactFrozenState()) {
+            if (null == symbols) {
+                symbols = new FrozenStateSymbols();
+            }
+            result = new CompactFrozenSystemState(symbols);
+        } else {
+            result = new FrozenSystemState();
+        }
+        return result;
+    }
+
     /**
      * Freezes the system state.
      * 
      * @return the frozen system state
      */
     public synchronized FrozenSystemState freeze() {
-        FrozenSystemState result = new FrozenSystemState();
-        platform.fill(FrozenSystemState.INFRASTRUCTURE, FrozenSystemState.INFRASTRUCTURE_NAME, result, null);
-        synchronized (pipelines) {
-            for (Map.Entry<String, PipelineSystemPart> entry : pipelines.entrySet()) {
-                PipelineSystemPart pip = entry.getValue();
-                pip.fill(FrozenSystemState.PIPELINE, entry.getKey(), result, pip.getOverloadModifiers());
+        FrozenSystemState result = createFrozenState();
+        AggregationEpoch.begin(); // calculate each topology aggregate only once
+        try {
+            platform.fill(FrozenSystemState.INFRASTRUCTURE, FrozenSystemState.INFRASTRUCTURE_NAME, result, null);
+            synchronized (pipelines) {
+                for (Map.Entry<String, PipelineSystemPart> entry : pipelines.entrySet()) {
+                    PipelineSystemPart pip = entry.getValue();
+                    pip.fill(FrozenSystemState.PIPELINE, entry.getKey(), result, pip.getOverloadModifiers());
+                }
             }
+        } finally {
+            AggregationEpoch.end();
         }
         return result;
     }
@@ -252,15 +305,20 @@ public class SystemState implements Serializable {
      * @return the frozen system state projected to <code>pipeline</code>
      */
     public synchronized FrozenSystemState freeze(String pipeline) {
-        FrozenSystemState result = new FrozenSystemState();
-        platform.fill(FrozenSystemState.INFRASTRUCTURE, FrozenSystemState.INFRASTRUCTURE_NAME, result, null);
-        if (null != pipeline) {
-            synchronized (pipelines) {
-                PipelineSystemPart pip = pipelines.get(pipeline);
-                if (null != pip) {
-                    pip.fill(FrozenSystemState.PIPELINE, pipeline, result, pip.getOverloadModifiers());
+        FrozenSystemState result = createFrozenState();
+        AggregationEpoch.begin();
+        try {
+            platform.fill(FrozenSystemState.INFRASTRUCTURE, FrozenSystemState.INFRASTRUCTURE_NAME, result, null);
+            if (null != pipeline) {
+                synchronized (pipelines) {
+                    PipelineSystemPart pip = pipelines.get(pipeline);
+                    if (null != pip) {
+                        pip.fill(FrozenSystemState.PIPELINE, pipeline, result, pip.getOverloadModifiers());
+                    }
                 }
             }
+        } finally {
+            AggregationEpoch.end();
         }
         return result;
     }
@@ -15,6 +15,7 @@
  */
 package eu.qualimaster.monitoring.topology;
 
+import eu.qualimaster.monitoring.observations.AggregationEpoch;
 import eu.qualimaster.monitoring.systemState.PipelineNodeSystemPart;
 
 /**
@@ -53,5 +54,12 @@ public interface ITopologyProvider {
      * @return the name of the provider
      */
     public String getName();
+
+    /**
+     * Returns the scope invalidating the aggregates memoized for this provider.
+     * 
+     * @return the scope
+     */
+    public AggregationEpoch.Scope getAggregationScope();
     
 }
@@ -48,6 +48,7 @@ public abstract class AbstractFileTrace implements ITrace {
     
     protected static final IObservable[] NODE_MEASURES = new IObservable[] {Scalability.ITEMS};
     protected PrintStream out;
+    protected BinaryTraceWriter binary;
     protected String name;
     protected boolean initialized;
     protected List<PipelineTraceInfo> pipelines; 
@@ -86,6 +87,17 @@ public abstract class AbstractFileTrace implements ITrace {
         this.name = name;
         this.out = out;
     }
+
+    /**
+     * Creates a new binary trace.
+     * 
+     * @param name the name of the trace (for {link {@link #toString()}}, shall be the file name
+     * @param out the binary writer to trace to
+     */
+    public AbstractFileTrace(String name, BinaryTraceWriter out) {
+        this.name = name;
+        this.binary = out;
+    }
     
     @Override
     public void traceAlgorithm(PipelineNodeSystemPart node, NodeImplementationSystemPart alg, 
@@ -235,7 +247,20 @@ public abstract class AbstractFileTrace implements ITrace {
     protected void print(long value) {
         if (null != out) {
             out.print(value);
-            this.latestMonitoring += value;
+            appendLatest(value);
+        } else if (null != binary) {
+            binary.add(value);
+        }
+    }
+
+    /**
+     * Appends to the latest monitoring text if enabled (reflective trace).
+     * 
+     * @param value the value to append
+     */
+    private void appendLatest(Object value) {
+        if (null != latestMonitoring) {
+            latestMonitoring += value;
         }
     }
 
@@ -245,7 +270,7 @@ public abstract class AbstractFileTrace implements ITrace {
      * @param value the value to print
      */
     protected void print(ObservedValue value) {
-        if (null != out) {
+        if (null != out || null != binary) {
             if (null != value) {
                 print(value.get());
             } else {
@@ -264,7 +289,9 @@ public abstract class AbstractFileTrace implements ITrace {
             String tmp = String.format("%.15f", value);
             tmp = tmp.replace(".", ","); // for excel
             out.print(tmp);
-            this.latestMonitoring += tmp;
+            appendLatest(tmp);
+        } else if (null != binary) {
+            binary.add(value);
         }
     }
 
@@ -276,7 +303,9 @@ public abstract class AbstractFileTrace implements ITrace {
     protected void print(String text) {
         if (null != out) {
             out.print(text);
-            this.latestMonitoring += text;
+            appendLatest(text);
+        } else if (null != binary) {
+            binary.add(text);
         }
     }
 
@@ -286,7 +315,9 @@ public abstract class AbstractFileTrace implements ITrace {
     protected void printSeparator() {
         if (null != out) {
             out.print("\t");
-            this.latestMonitoring += "\t";
+            appendLatest("\t");
+        } else if (null != binary) {
+            binary.separator();
         }
     }
     
@@ -297,6 +328,8 @@ public abstract class AbstractFileTrace implements ITrace {
         if (null != out) {
             out.println();
             out.flush();
+        } else if (null != binary) {
+            binary.endRow();
         }
     }
     
@@ -304,8 +337,14 @@ public abstract class AbstractFileTrace implements ITrace {
      * Closes the trace.
      */
     public void close() {
-        out.close();
-        out = null;
+        if (null != out) {
+            out.close();
+            out = null;
+        }
+        if (null != binary) {
+            binary.close();
+            binary = null;
+        }
     }
     
     /**
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.tracing;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import eu.qualimaster.monitoring.tracing.BinaryTraceWriter.Compression;
+
+/**
+ * Reads a trace written by {@link BinaryTraceWriter} line by line in the text format of {@link AbstractFileTrace}.
+ * Double values are represented in Java notation rather than the formatted notation of the text format.
+ *
+ * @author Holger Eichelberger
+ */
+public class BinaryTraceReader implements Closeable {
+
+    private DataInputStream in;
+    private Compression compression;
+    private List<String> dictionary = new ArrayList<String>();
+    private int lineNumber;
+
+    private int rows;
+    private DataInputStream tags;
+    private DataInputStream longs;
+    private DataInputStream doubles;
+    private DataInputStream refs;
+    private DataInputStream texts;
+
+    /**
+     * Creates a binary trace reader.
+     *
+     * @param in the input stream to read from
+     * @throws IOException in case that <code>in</code> is not a binary trace
+     */
+    public BinaryTraceReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        if (BinaryTraceWriter.MAGIC != this.in.readInt()) {
+            throw new IOException("Not a binary trace");
+        }
+        byte version = this.in.readByte();
+        if (version > BinaryTraceWriter.VERSION) {
+            throw new IOException("Unsupported binary trace version " + version);
+        }
+        int comp = this.in.readByte();
+        if (comp < 0 || comp >= Compression.values().length) {
+            throw new IOException("Unsupported binary trace compression " + comp);
+        }
+        compression = Compression.values()[comp];
+    }
+
+    /**
+     * Returns whether <code>file</code> is a binary trace.
+     *
+     * @param file the file to check
+     * @return <code>true</code> for a binary trace, <code>false</code> else
+     * @throws IOException in case of I/O problems
+     */
+    public static boolean isBinaryTrace(File file) throws IOException {
+        boolean result = false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            result = BinaryTraceWriter.MAGIC == in.readInt();
+        } catch (EOFException e) {
+            // too short, no binary trace
+        }
+        return result;
+    }
+
+    /**
+     * Reads the next line.
+     *
+     * @return the next line, <b>null</b> if the end of the trace is reached
+     * @throws IOException in case of I/O problems or a corrupted trace
+     */
+    public String readLine() throws IOException {
+        String result = null;
+        if (0 == rows) {
+            readBlock();
+        }
+        if (rows > 0) {
+            StringBuilder line = new StringBuilder();
+            byte tag = tags.readByte();
+            while (BinaryTraceWriter.TAG_ROW_END != tag) {
+                switch (tag) {
+                case BinaryTraceWriter.TAG_SEPARATOR:
+                    line.append('\t');
+                    break;
+                case BinaryTraceWriter.TAG_LONG:
+                    line.append(longs.readLong());
+                    break;
+                case BinaryTraceWriter.TAG_DOUBLE:
+                    line.append(doubles.readDouble());
+                    break;
+                case BinaryTraceWriter.TAG_STRING:
+                    int ref = refs.readInt();
+                    if (ref == dictionary.size()) {
+                        dictionary.add(texts.readUTF());
+                    } else if (ref < 0 || ref > dictionary.size()) {
+                        throw new IOException("Invalid string reference " + ref);
+                    }
+                    line.append(dictionary.get(ref));
+                    break;
+                case BinaryTraceWriter.TAG_TEXT:
+                    line.append(texts.readUTF());
+                    break;
+                default:
+                    throw new IOException("Invalid tag " + tag);
+                }
+                tag = tags.readByte();
+            }
+            rows--;
+            lineNumber++;
+            result = line.toString();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of the line read last.
+     *
+     * @return the line number (1-based, 0 if no line was read so far)
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Reads the next block.
+     *
+     * @throws IOException in case of I/O problems
+     */
+    private void readBlock() throws IOException {
+        int blockRows;
+        try {
+            blockRows = in.readInt();
+        } catch (EOFException e) {
+            blockRows = 0; // regular end of trace
+        }
+        if (blockRows > 0) {
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            InputStream blockIn = new ByteArrayInputStream(data);
+            if (Compression.GZIP == compression) {
+                blockIn = new GZIPInputStream(blockIn);
+            }
+            DataInputStream dIn = new DataInputStream(blockIn);
+            tags = readColumn(dIn);
+            longs = readColumn(dIn);
+            doubles = readColumn(dIn);
+            refs = readColumn(dIn);
+            texts = readColumn(dIn);
+            rows = blockRows;
+        }
+    }
+
+    /**
+     * Reads a column with leading length.
+     *
+     * @param in the input stream
+     * @return the column data
+     * @throws IOException in case of I/O problems
+     */
+    private static DataInputStream readColumn(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new DataInputStream(new ByteArrayInputStream(data));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
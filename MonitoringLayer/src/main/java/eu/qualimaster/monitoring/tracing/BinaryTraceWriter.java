@@ -0,0 +1,559 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.tracing;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * Writes a trace in binary format. The tracing thread just collects the typed values of a row and enqueues the
+ * row, a background thread encodes the rows into (optionally compressed) blocks and flushes them periodically.
+ * Within a block, the values are stored columnar by type, i.e., the sequence of value tags first, then all long,
+ * double and string values. Strings are stored once in a dictionary and referred to by index later. Values are
+ * not formatted while tracing, {@link BinaryTraceReader} turns the rows back into the text format of
+ * {@link AbstractFileTrace}. If the queue is full, rows are dropped rather than blocking the tracing thread. Dropped
+ * rows are counted and logged when closing. {@link #setLossless(boolean) Lossless} writers, e.g., for profiling 
+ * traces, rather drain the queue immediately and back off for up to {@link #LOSSLESS_TIMEOUT} ms before dropping. 
+ *
+ * File format: magic ({@link #MAGIC}), version (byte), {@link Compression} (byte), then blocks consisting of the
+ * number of rows (int), the length of the (compressed) block data (int) and the block data.
+ *
+ * @author Holger Eichelberger
+ */
+public class BinaryTraceWriter {
+
+    public static final int MAGIC = 0x514D5442; // QMTB
+    public static final byte VERSION = 1;
+    public static final int DEFAULT_BLOCK_ROWS = 1024;
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final int LOSSLESS_TIMEOUT = 5000;
+
+    static final byte TAG_SEPARATOR = 0;
+    static final byte TAG_LONG = 1;
+    static final byte TAG_DOUBLE = 2;
+    static final byte TAG_STRING = 3;
+    static final byte TAG_TEXT = 4;
+    static final byte TAG_ROW_END = 5;
+    static final int MAX_DICTIONARY = 4096;
+
+    private static final Logger LOGGER = LogManager.getLogger(BinaryTraceWriter.class);
+    private static ScheduledExecutorService executor;
+
+    private DataOutputStream out;
+    private Compression compression;
+    private int blockRows;
+    private BlockingQueue<Row> queue;
+    private ScheduledFuture<?> drainer;
+    private AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+    private boolean lossless;
+    private Runnable drainTask = new Runnable() {
+
+        @Override
+        public void run() {
+            drain(false);
+        }
+
+    };
+
+    // tracing thread only
+    private Row current = new Row();
+
+    // background thread only
+    private Block block = new Block();
+    private Map<String, Integer> dictionary = new HashMap<String, Integer>();
+
+    /**
+     * The block compression.
+     *
+     * @author Holger Eichelberger
+     */
+    public enum Compression {
+        NONE,
+        GZIP;
+    }
+
+    /**
+     * Collects the typed values of a row.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class Row {
+
+        private byte[] tags = new byte[32];
+        private int tagCount;
+        private long[] longs = new long[4];
+        private int longCount;
+        private double[] doubles = new double[16];
+        private int doubleCount;
+        private String[] strings = new String[16];
+        private int stringCount;
+
+        /**
+         * Creates an empty row.
+         */
+        private Row() {
+        }
+
+        /**
+         * Creates a compacted copy of <code>row</code>.
+         *
+         * @param row the row to copy
+         */
+        private Row(Row row) {
+            tags = Arrays.copyOf(row.tags, row.tagCount);
+            tagCount = row.tagCount;
+            longs = Arrays.copyOf(row.longs, row.longCount);
+            longCount = row.longCount;
+            doubles = Arrays.copyOf(row.doubles, row.doubleCount);
+            doubleCount = row.doubleCount;
+            strings = Arrays.copyOf(row.strings, row.stringCount);
+            stringCount = row.stringCount;
+        }
+
+        /**
+         * Adds a tag.
+         *
+         * @param tag the tag
+         */
+        private void addTag(byte tag) {
+            if (tagCount == tags.length) {
+                tags = Arrays.copyOf(tags, tags.length * 2);
+            }
+            tags[tagCount++] = tag;
+        }
+
+        /**
+         * Adds a long value.
+         *
+         * @param value the value
+         */
+        private void add(long value) {
+            addTag(TAG_LONG);
+            if (longCount == longs.length) {
+                longs = Arrays.copyOf(longs, longs.length * 2);
+            }
+            longs[longCount++] = value;
+        }
+
+        /**
+         * Adds a double value.
+         *
+         * @param value the value
+         */
+        private void add(double value) {
+            addTag(TAG_DOUBLE);
+            if (doubleCount == doubles.length) {
+                doubles = Arrays.copyOf(doubles, doubles.length * 2);
+            }
+            doubles[doubleCount++] = value;
+        }
+
+        /**
+         * Adds a string value.
+         *
+         * @param value the value
+         */
+        private void add(String value) {
+            addTag(TAG_STRING);
+            if (stringCount == strings.length) {
+                strings = Arrays.copyOf(strings, strings.length * 2);
+            }
+            strings[stringCount++] = value;
+        }
+
+        /**
+         * Clears this row for reuse.
+         */
+        private void clear() {
+            tagCount = 0;
+            longCount = 0;
+            doubleCount = 0;
+            Arrays.fill(strings, 0, stringCount, null);
+            stringCount = 0;
+        }
+
+    }
+
+    /**
+     * The columns of a block in encoding.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class Block {
+
+        private int rows;
+        private ByteArrayOutputStream tags = new ByteArrayOutputStream();
+        private ByteArrayOutputStream longs = new ByteArrayOutputStream();
+        private DataOutputStream longsOut = new DataOutputStream(longs);
+        private ByteArrayOutputStream doubles = new ByteArrayOutputStream();
+        private DataOutputStream doublesOut = new DataOutputStream(doubles);
+        private ByteArrayOutputStream refs = new ByteArrayOutputStream();
+        private DataOutputStream refsOut = new DataOutputStream(refs);
+        private ByteArrayOutputStream texts = new ByteArrayOutputStream();
+        private DataOutputStream textsOut = new DataOutputStream(texts);
+
+        /**
+         * Writes the columns of this block to <code>out</code>.
+         *
+         * @param out the output stream
+         * @throws IOException in case of I/O problems
+         */
+        private void writeTo(DataOutputStream out) throws IOException {
+            writeColumn(out, tags);
+            writeColumn(out, longs);
+            writeColumn(out, doubles);
+            writeColumn(out, refs);
+            writeColumn(out, texts);
+        }
+
+        /**
+         * Writes a column with leading length.
+         *
+         * @param out the output stream
+         * @param column the column
+         * @throws IOException in case of I/O problems
+         */
+        private static void writeColumn(DataOutputStream out, ByteArrayOutputStream column) throws IOException {
+            out.writeInt(column.size());
+            column.writeTo(out);
+        }
+
+        /**
+         * Clears this block for reuse.
+         */
+        private void clear() {
+            rows = 0;
+            tags.reset();
+            longs.reset();
+            doubles.reset();
+            refs.reset();
+            texts.reset();
+        }
+
+    }
+
+    /**
+     * Creates a binary trace writer with default block size and queue capacity.
+     *
+     * @param out the output stream to write to
+     * @param compression the block compression
+     * @param flushInterval the interval for writing collected rows and flushing <code>out</code> (in ms)
+     * @throws IOException in case that writing the file header fails
+     */
+    public BinaryTraceWriter(OutputStream out, Compression compression, int flushInterval) throws IOException {
+        this(out, compression, flushInterval, DEFAULT_BLOCK_ROWS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a binary trace writer.
+     *
+     * @param out the output stream to write to
+     * @param compression the block compression
+     * @param flushInterval the interval for writing collected rows and flushing <code>out</code> (in ms)
+     * @param blockRows the maximum number of rows per block
+     * @param queueCapacity the maximum number of rows waiting for encoding
+     * @throws IOException in case that writing the file header fails
+     */
+    public BinaryTraceWriter(OutputStream out, Compression compression, int flushInterval, int blockRows,
+        int queueCapacity) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.compression = null == compression ? Compression.NONE : compression;
+        this.blockRows = Math.max(1, blockRows);
+        this.queue = new LinkedBlockingQueue<Row>(Math.max(1, queueCapacity));
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+        this.out.writeByte(this.compression.ordinal());
+        long interval = Math.max(1, flushInterval);
+        drainer = getExecutor().scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                drain(true);
+            }
+
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the shared executor for encoding and writing.
+     *
+     * @return the executor
+     */
+    private static synchronized ScheduledExecutorService getExecutor() {
+        if (null == executor) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread result = new Thread(runnable, "trace-writer");
+                    result.setDaemon(true);
+                    return result;
+                }
+
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Adds a long value to the current row.
+     *
+     * @param value the value
+     */
+    public void add(long value) {
+        current.add(value);
+    }
+
+    /**
+     * Adds a double value to the current row.
+     *
+     * @param value the value
+     */
+    public void add(double value) {
+        current.add(value);
+    }
+
+    /**
+     * Adds a string value to the current row.
+     *
+     * @param value the value (ignored if <b>null</b> or empty)
+     */
+    public void add(String value) {
+        if (null != value && value.length() > 0) {
+            current.add(value);
+        }
+    }
+
+    /**
+     * Adds a value separator to the current row.
+     */
+    public void separator() {
+        current.addTag(TAG_SEPARATOR);
+    }
+
+    /**
+     * Defines whether this writer shall avoid dropping rows. If enabled, a full queue is drained immediately and the
+     * tracing thread waits for up to {@link #LOSSLESS_TIMEOUT} ms for free space. Shall be called by the tracing
+     * thread.
+     *
+     * @param lossless <code>true</code> for avoiding drops, <code>false</code> for dropping if the queue is full
+     */
+    public void setLossless(boolean lossless) {
+        this.lossless = lossless;
+    }
+
+    /**
+     * Ends the current row and enqueues it for writing.
+     */
+    public void endRow() {
+        if (!closed) {
+            current.addTag(TAG_ROW_END);
+            if (!enqueue(new Row(current))) {
+                if (0 == dropped.getAndIncrement()) {
+                    LOGGER.warn("Trace queue full, dropping rows");
+                }
+            }
+        }
+        current.clear();
+    }
+
+    /**
+     * Enqueues a row for writing.
+     *
+     * @param row the row
+     * @return <code>true</code> if enqueued, <code>false</code> if the row was dropped
+     */
+    private boolean enqueue(Row row) {
+        boolean done = queue.offer(row);
+        if (!done && lossless) {
+            try {
+                getExecutor().execute(drainTask); // don't wait for the next flush
+                done = queue.offer(row, LOSSLESS_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RejectedExecutionException e) {
+                LOGGER.error("While draining trace: " + e.getMessage());
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Returns the number of rows dropped due to a full queue.
+     *
+     * @return the number of dropped rows
+     */
+    public long getDroppedRows() {
+        return dropped.get();
+    }
+
+    /**
+     * Encodes and writes the enqueued rows. Called by the background thread only.
+     *
+     * @param flush whether the current block shall be written and the stream be flushed
+     */
+    private void drain(boolean flush) {
+        if (null != out) {
+            try {
+                Row row = queue.poll();
+                while (null != row) {
+                    encode(row);
+                    if (block.rows >= blockRows) {
+                        writeBlock();
+                    }
+                    row = queue.poll();
+                }
+                if (flush) {
+                    writeBlock();
+                    out.flush();
+                }
+            } catch (IOException e) {
+                LOGGER.error("While writing trace: " + e.getMessage() + " Disabling trace.");
+                closed = true;
+                drainer.cancel(false);
+                closeStream();
+            }
+        }
+    }
+
+    /**
+     * Encodes a row into the current block.
+     *
+     * @param row the row
+     * @throws IOException in case of encoding problems
+     */
+    private void encode(Row row) throws IOException {
+        int longPos = 0;
+        int doublePos = 0;
+        int stringPos = 0;
+        for (int t = 0; t < row.tagCount; t++) {
+            byte tag = row.tags[t];
+            switch (tag) {
+            case TAG_LONG:
+                block.longsOut.writeLong(row.longs[longPos++]);
+                break;
+            case TAG_DOUBLE:
+                block.doublesOut.writeDouble(row.doubles[doublePos++]);
+                break;
+            case TAG_STRING:
+                String text = row.strings[stringPos++];
+                Integer ref = dictionary.get(text);
+                if (null != ref) {
+                    block.refsOut.writeInt(ref);
+                } else if (dictionary.size() < MAX_DICTIONARY) {
+                    ref = dictionary.size();
+                    dictionary.put(text, ref);
+                    block.refsOut.writeInt(ref); // new entry, text follows
+                    block.textsOut.writeUTF(text);
+                } else {
+                    tag = TAG_TEXT;
+                    block.textsOut.writeUTF(text);
+                }
+                break;
+            default:
+                break;
+            }
+            block.tags.write(tag);
+        }
+        block.rows++;
+    }
+
+    /**
+     * Writes the current block if it contains rows.
+     *
+     * @throws IOException in case of I/O problems
+     */
+    private void writeBlock() throws IOException {
+        if (block.rows > 0) {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            if (Compression.GZIP == compression) {
+                GZIPOutputStream gzip = new GZIPOutputStream(data);
+                DataOutputStream dOut = new DataOutputStream(gzip);
+                block.writeTo(dOut);
+                dOut.flush();
+                gzip.finish();
+            } else {
+                block.writeTo(new DataOutputStream(data));
+            }
+            out.writeInt(block.rows);
+            out.writeInt(data.size());
+            data.writeTo(out);
+            block.clear();
+        }
+    }
+
+    /**
+     * Closes the output stream quietly.
+     */
+    private void closeStream() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            LOGGER.error("While closing trace: " + e.getMessage());
+        }
+        out = null;
+    }
+
+    /**
+     * Writes all enqueued rows and closes the writer.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            drainer.cancel(false);
+            try {
+                getExecutor().submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        drain(true);
+                        if (null != out) {
+                            closeStream();
+                        }
+                    }
+
+                }).get();
+            } catch (InterruptedException | ExecutionException e) {
+                LOGGER.error("While closing trace: " + e.getMessage());
+            }
+            if (dropped.get() > 0) {
+                LOGGER.warn("Trace dropped " + dropped.get() + " rows");
+            }
+        }
+    }
+
+}
@@ -42,6 +42,16 @@ public class FileTrace extends AbstractFileTrace {
     public FileTrace(String name, PrintStream out) {
         super(name, out);
     }
+
+    /**
+     * Creates a new binary trace.
+     * 
+     * @param name the name of the trace (for {link {@link #toString()}}, shall be the file name
+     * @param out the binary writer to trace to
+     */
+    public FileTrace(String name, BinaryTraceWriter out) {
+        super(name, out);
+    }
     
     /**
      * Traces a pipeline.
@@ -15,37 +15,167 @@
  */
 package eu.qualimaster.monitoring.tracing;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.LineNumberReader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import eu.qualimaster.monitoring.profiling.AlgorithmProfilePredictionManager;
 import eu.qualimaster.observables.IObservable;
 import eu.qualimaster.observables.Observables;
 
 /**
- * CSV log reader in Monitoring Layer format with format information in the first two lines.
+ * CSV log reader in Monitoring Layer format with format information in the first two lines. Reads also binary
+ * traces written by {@link BinaryTraceWriter}. Large traces shall be streamed, optionally with parallel parsing
+ * (see {@link #read(File, IPipelineEntryHandler, int)}).
  * 
  * @author Holger Eichelberger
  */
 public class TraceReader {
 
+    private static final int BATCH_LINES = 500;
+
     private List<IObservable> pipelineObservables = new ArrayList<IObservable>();
     private List<IObservable> nodeObservables = new ArrayList<IObservable>();
+    private Set<IObservable> projection;
     
+    /**
+     * Handles pipeline entries while streaming a trace.
+     * 
+     * @author Holger Eichelberger
+     */
+    public interface IPipelineEntryHandler {
+
+        /**
+         * Handles a pipeline entry. Entries are passed in trace sequence.
+         * 
+         * @param entry the entry
+         */
+        public void handle(PipelineEntry entry);
+        
+    }
+
+    /**
+     * Unifies reading lines from CSV and binary traces.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class LineSource implements Closeable {
+
+        private LineNumberReader csv;
+        private BinaryTraceReader binary;
+
+        /**
+         * Creates a line source for a CSV trace.
+         * 
+         * @param csv the CSV reader
+         */
+        private LineSource(LineNumberReader csv) {
+            this.csv = csv;
+        }
+
+        /**
+         * Creates a line source for a binary trace.
+         * 
+         * @param binary the binary trace reader
+         */
+        private LineSource(BinaryTraceReader binary) {
+            this.binary = binary;
+        }
+
+        /**
+         * Reads the next line.
+         * 
+         * @return the line, <b>null</b> at the end of the trace
+         * @throws IOException in case of I/O problems
+         */
+        private String readLine() throws IOException {
+            return null != csv ? csv.readLine() : binary.readLine();
+        }
+
+        /**
+         * Returns the number of the line read last.
+         * 
+         * @return the line number
+         */
+        private int getLineNumber() {
+            return null != csv ? csv.getLineNumber() : binary.getLineNumber();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (null != csv) {
+                csv.close();
+            } else {
+                binary.close();
+            }
+        }
+
+    }
+
+    /**
+     * Collects all entries into a list.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class EntryCollector implements IPipelineEntryHandler {
+
+        private List<PipelineEntry> entries = new ArrayList<PipelineEntry>();
+
+        @Override
+        public void handle(PipelineEntry entry) {
+            entries.add(entry);
+        }
+
+    }
+
     /**
      * Creates a reader instance.
      */
     public TraceReader() {
     }
+
+    /**
+     * Restricts the observations being read to the given observables. Values of other observables are 
+     * skipped without parsing.
+     * 
+     * @param observables the observables to read (<b>null</b> for all)
+     */
+    public void setProjection(Collection<IObservable> observables) {
+        projection = null == observables ? null : new HashSet<IObservable>(observables);
+    }
     
+    /**
+     * Reads a trace file, either in CSV or in binary format (see {@link BinaryTraceWriter}). Consider 
+     * {@link #read(File, IPipelineEntryHandler, int)} for large traces.
+     * 
+     * @param file the file to read
+     * @return the pipeline entries
+     * @throws IOException in case of I/O problems
+     */
+    public List<PipelineEntry> read(File file) throws IOException {
+        EntryCollector collector = new EntryCollector();
+        read(file, collector, 1);
+        return collector.entries;
+    }
+
     /**
      * Reads a CSV file.
      * 
@@ -54,26 +184,206 @@ public class TraceReader {
      * @throws IOException in case of I/O problems
      */
     public List<PipelineEntry> readCsv(File file) throws IOException {
-        List<PipelineEntry> result = new ArrayList<PipelineEntry>();
-        LineNumberReader lnr = new LineNumberReader(new FileReader(file));
-        String line;
-        do {
-            line = lnr.readLine();
-            if (line != null) {
-                line = line.trim();
-                if (1 == lnr.getLineNumber()) {
-                    parseObservables(line);
-                } else if (2 == lnr.getLineNumber()) {
-                    parseNodeFormat(line);
-                } else if (line.length() > 0) {
-                    PipelineEntry pipeline = parseLine(line, lnr.getLineNumber());
-                    if (null != pipeline) {
-                        result.add(pipeline);
+        EntryCollector collector = new EntryCollector();
+        read(new LineSource(new LineNumberReader(new FileReader(file))), collector, 1);
+        return collector.entries;
+    }
+
+    /**
+     * Reads a binary trace file.
+     * 
+     * @param file the file to read
+     * @return the pipeline entries
+     * @throws IOException in case of I/O problems
+     */
+    public List<PipelineEntry> readBinary(File file) throws IOException {
+        EntryCollector collector = new EntryCollector();
+        read(new LineSource(new BinaryTraceReader(new FileInputStream(file))), collector, 1);
+        return collector.entries;
+    }
+
+    /**
+     * Streams a trace file, either in CSV or in binary format (see {@link BinaryTraceWriter}), to 
+     * <code>handler</code>. Only a bounded number of lines is kept in memory. If <code>threads</code> is larger
+     * than 1, batches of lines are parsed in parallel, but the entries are passed to <code>handler</code> in 
+     * trace sequence on the calling thread.
+     * 
+     * @param file the file to read
+     * @param handler the entry handler
+     * @param threads the number of parsing threads
+     * @throws IOException in case of I/O problems
+     */
+    public void read(File file, IPipelineEntryHandler handler, int threads) throws IOException {
+        LineSource source;
+        if (BinaryTraceReader.isBinaryTrace(file)) {
+            source = new LineSource(new BinaryTraceReader(new FileInputStream(file)));
+        } else {
+            source = new LineSource(new LineNumberReader(new FileReader(file)));
+        }
+        read(source, handler, threads);
+    }
+
+    /**
+     * Streams the lines of <code>source</code> to <code>handler</code>. Closes <code>source</code>.
+     * 
+     * @param source the line source
+     * @param handler the entry handler
+     * @param threads the number of parsing threads
+     * @throws IOException in case of I/O problems
+     */
+    private void read(LineSource source, IPipelineEntryHandler handler, int threads) throws IOException {
+        try {
+            if (threads > 1) {
+                readParallel(source, handler, threads);
+            } else {
+                String line;
+                do {
+                    line = source.readLine();
+                    if (line != null) {
+                        int lineNr = source.getLineNumber();
+                        if (!handleHeaderLine(line, lineNr)) {
+                            PipelineEntry pipeline = parseContentLine(line, lineNr);
+                            if (null != pipeline) {
+                                handler.handle(pipeline);
+                            }
+                        }
+                    }
+                } while (null != line);
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Reads the lines of <code>source</code> in batches, parses the batches in parallel and passes the entries
+     * in sequence to <code>handler</code>.
+     * 
+     * @param source the line source
+     * @param handler the entry handler
+     * @param threads the number of parsing threads
+     * @throws IOException in case of I/O problems
+     */
+    private void readParallel(LineSource source, IPipelineEntryHandler handler, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<List<PipelineEntry>>> pending = new ArrayDeque<Future<List<PipelineEntry>>>();
+        try {
+            List<String> batch = new ArrayList<String>(BATCH_LINES);
+            int batchStart = 0;
+            String line;
+            do {
+                line = source.readLine();
+                if (line != null) {
+                    int lineNr = source.getLineNumber();
+                    if (!handleHeaderLine(line, lineNr)) {
+                        if (batch.isEmpty()) {
+                            batchStart = lineNr;
+                        }
+                        batch.add(line);
                     }
                 }
+                if (batch.size() >= BATCH_LINES || (null == line && !batch.isEmpty())) {
+                    pending.add(executor.submit(new BatchParser(batch, batchStart)));
+                    batch = new ArrayList<String>(BATCH_LINES);
+                }
+                while (!pending.isEmpty() && (pending.size() > 2 * threads || null == line)) {
+                    for (PipelineEntry entry : waitFor(pending.poll())) {
+                        handler.handle(entry);
+                    }
+                }
+            } while (null != line);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for the result of a parsed batch.
+     * 
+     * @param future the future representing the batch
+     * @return the parsed entries
+     * @throws IOException in case of parsing problems or interruption
+     */
+    private static List<PipelineEntry> waitFor(Future<List<PipelineEntry>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * Parses a batch of content lines.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class BatchParser implements Callable<List<PipelineEntry>> {
+
+        private List<String> lines;
+        private int firstLineNr;
+
+        /**
+         * Creates a batch parser.
+         * 
+         * @param lines the lines to parse
+         * @param firstLineNr the number of the first line in the trace
+         */
+        private BatchParser(List<String> lines, int firstLineNr) {
+            this.lines = lines;
+            this.firstLineNr = firstLineNr;
+        }
+
+        @Override
+        public List<PipelineEntry> call() throws IOException {
+            List<PipelineEntry> result = new ArrayList<PipelineEntry>(lines.size());
+            for (int l = 0; l < lines.size(); l++) {
+                PipelineEntry pipeline = parseContentLine(lines.get(l), firstLineNr + l);
+                if (null != pipeline) {
+                    result.add(pipeline);
+                }
             }
-        } while (null != line);
-        lnr.close();
+            return result;
+        }
+
+    }
+
+    /**
+     * Handles a format header line.
+     * 
+     * @param line the line
+     * @param lineNr the (1-based) number of the line
+     * @return <code>true</code> if <code>line</code> was a header line, <code>false</code> else
+     * @throws IOException in case of I/O problems
+     */
+    private boolean handleHeaderLine(String line, int lineNr) throws IOException {
+        boolean result = true;
+        if (1 == lineNr) {
+            parseObservables(line.trim());
+        } else if (2 == lineNr) {
+            parseNodeFormat(line.trim());
+        } else {
+            result = false;
+        }
+        return result;
+    }
+
+    /**
+     * Parses a content line.
+     * 
+     * @param line the line
+     * @param lineNr the (1-based) number of the line
+     * @return the parsed entry, <b>null</b> if there is none
+     * @throws IOException in case of I/O problems
+     */
+    private PipelineEntry parseContentLine(String line, int lineNr) throws IOException {
+        PipelineEntry result = null;
+        line = line.trim();
+        if (line.length() > 0) {
+            result = parseLine(line, lineNr);
+        }
         return result;
     }
     
@@ -385,8 +695,8 @@ public class TraceReader {
         throws IOException {
         int pos = entryPos - 1; // -1 is name
         if (pos < observables.size()) {
-            if (!token.isEmpty()) {
-                IObservable obs = observables.get(pos);
+            IObservable obs = observables.get(pos);
+            if (!token.isEmpty() && (null == projection || projection.contains(obs))) {
                 try {
                     entry.addObservation(obs, Double.valueOf(token.replace(',', '.'))); // Excel back-mapping
                 } catch (NumberFormatException e) {
@@ -409,7 +719,7 @@ public class TraceReader {
         } else {
             File file = new File(args[0]);
             TraceReader reader = new TraceReader();
-            reader.readCsv(file);
+            reader.read(file);
             AlgorithmProfilePredictionManager.start();
             AlgorithmProfilePredictionManager.stop();
         }
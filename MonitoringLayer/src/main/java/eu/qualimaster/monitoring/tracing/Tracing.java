@@ -50,6 +50,7 @@ import eu.qualimaster.monitoring.systemState.SystemPart;
 import eu.qualimaster.monitoring.systemState.SystemState;
 import eu.qualimaster.monitoring.topology.PipelineTopology;
 import eu.qualimaster.monitoring.topology.PipelineTopology.Processor;
+import eu.qualimaster.monitoring.tracing.BinaryTraceWriter.Compression;
 import eu.qualimaster.observables.IObservable;
 import eu.qualimaster.observables.ObservableComparator;
 import eu.qualimaster.observables.ResourceUsage;
@@ -66,6 +67,7 @@ public class Tracing {
     public static final String PREFIX_INFA = "qmInfra";
     public static final String TRACE_FILE_SUFFIX = ".csv";
     public static final String REFLECTION_TRACE_FILE_SUFFIX = ".rtrace";
+    public static final String BINARY_TRACE_FILE_SUFFIX = ".qmtrace";
     public static final SimpleDateFormat LOG_TAG_FORMAT = new SimpleDateFormat("yyyyMMdd-HHmmss");
 
     private static final Map<Class<?>, IObservable[]> LIMIT = new HashMap<>();
@@ -146,7 +148,7 @@ public class Tracing {
         switch (event.getStatus()) {
         case START:
             String logLocation = MonitoringConfiguration.getProfilingLogLocation();
-            trace = createTrace(key + "-profile", logLocation, false);
+            trace = createTrace(key + "-profile", logLocation, false, true);
             trace.setTraceMode(event.getDetailMode());
             trace.notifyNewSubTrace(event.getSettings());
             profilingTraces.put(key, trace);
@@ -228,13 +230,36 @@ public class Tracing {
      * @return the trace or <b>null</b> if no tracing is enabled
      */
     public static ITrace createTrace(String prefix, String logLocation, boolean createReflectionTrace) {
+        return createTrace(prefix, logLocation, createReflectionTrace, false);
+    }
+
+    /**
+     * Returns a trace for the specified prefix.
+     * 
+     * @param prefix the prefix
+     * @param logLocation the log location (from the configuration)
+     * @param createReflectionTrace create also a trace for reflective adaptation
+     * @param lossless whether a binary trace shall rather back off than drop rows, e.g., for profiling traces
+     * @return the trace or <b>null</b> if no tracing is enabled
+     */
+    public static ITrace createTrace(String prefix, String logLocation, boolean createReflectionTrace, 
+        boolean lossless) {
         // reminder: profile traces shall be file traces
         ITrace result = null;
         if (!MonitoringConfiguration.isEmpty(logLocation)) {
-            File logFile = new File(logLocation, getLogTag(prefix) + TRACE_FILE_SUFFIX);
+            boolean binary = MonitoringConfiguration.getMonitoringTraceBinary();
+            File logFile = new File(logLocation, getLogTag(prefix) 
+                + (binary ? BINARY_TRACE_FILE_SUFFIX : TRACE_FILE_SUFFIX));
             try {
                 FileOutputStream out = Utils.createFileOutputStream(logFile);
-                result = new FileTrace(logFile.getAbsolutePath(), new PrintStream(out));
+                if (binary) {
+                    BinaryTraceWriter writer = new BinaryTraceWriter(out, getTraceCompression(), 
+                        MonitoringConfiguration.getMonitoringTraceFlushInterval());
+                    writer.setLossless(lossless);
+                    result = new FileTrace(logFile.getAbsolutePath(), writer);
+                } else {
+                    result = new FileTrace(logFile.getAbsolutePath(), new PrintStream(out));
+                }
             } catch (IOException e) {
                 getLogger().error("cannot open output stream for trace " 
                     + prefix + ": " + e.getMessage());
@@ -254,6 +279,22 @@ public class Tracing {
         return result;
     }
     
+    /**
+     * Returns the configured compression for binary traces.
+     * 
+     * @return the compression, {@link Compression#GZIP} if unknown
+     */
+    private static Compression getTraceCompression() {
+        Compression result;
+        try {
+            result = Compression.valueOf(MonitoringConfiguration.getMonitoringTraceCompression().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            getLogger().warn("Unknown trace compression, using gzip: " + e.getMessage());
+            result = Compression.GZIP;
+        }
+        return result;
+    }
+
     /**
      * Traces the whole infrastructure.
      * 
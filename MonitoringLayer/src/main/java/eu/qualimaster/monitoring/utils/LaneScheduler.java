@@ -0,0 +1,485 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.utils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * A scheduler executing regular tasks in separate lanes, so that a slow task in one lane, e.g., a blocking
+ * Thrift call, does not delay the tasks in the other lanes. Each lane is backed by an own
+ * {@link ScheduledThreadPoolExecutor}. Tasks are executed at fixed rate but skipped if the previous execution
+ * of the same task is still busy, i.e., overrunning tasks do not cause a backlog. Exceptions are logged and do
+ * not stop the task or the lane. Lag (actual minus planned start) and duration are recorded per task.
+ *
+ * @author Holger Eichelberger
+ */
+public class LaneScheduler {
+
+    private static final Logger LOGGER = LogManager.getLogger(LaneScheduler.class);
+
+    /**
+     * The scheduling lanes.
+     *
+     * @author Holger Eichelberger
+     */
+    public enum Lane {
+
+        /**
+         * Polling the cluster.
+         */
+        CLUSTER(1),
+
+        /**
+         * Polling individual pipelines.
+         */
+        PIPELINE(2),
+
+        /**
+         * Reasoning on the system state.
+         */
+        REASONING(1),
+
+        /**
+         * Predictions and model updates.
+         */
+        PREDICTION(1);
+
+        private int defaultThreads;
+
+        /**
+         * Creates a lane constant.
+         *
+         * @param defaultThreads the default number of threads
+         */
+        private Lane(int defaultThreads) {
+            this.defaultThreads = defaultThreads;
+        }
+
+        /**
+         * Returns the default number of threads.
+         *
+         * @return the default number of threads
+         */
+        public int getDefaultThreads() {
+            return defaultThreads;
+        }
+
+    }
+
+    /**
+     * Execution statistics of a scheduled task. Updated by the executing thread only (executions of the same
+     * task do not overlap), read by arbitrary threads.
+     *
+     * @author Holger Eichelberger
+     */
+    public static class TaskStatistics {
+
+        private String name;
+        private Lane lane;
+        private long period;
+        private volatile long executions;
+        private volatile long skipped;
+        private volatile long overruns;
+        private volatile long failures;
+        private volatile long lastLag;
+        private volatile long maxLag;
+        private volatile long lastDuration;
+        private volatile long maxDuration;
+        private volatile long totalDuration;
+
+        /**
+         * Creates a statistics instance.
+         *
+         * @param name the name of the task
+         * @param lane the lane
+         * @param period the period in ms
+         */
+        private TaskStatistics(String name, Lane lane, long period) {
+            this.name = name;
+            this.lane = lane;
+            this.period = period;
+        }
+
+        /**
+         * Returns the name of the task.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the lane of the task.
+         *
+         * @return the lane
+         */
+        public Lane getLane() {
+            return lane;
+        }
+
+        /**
+         * Returns the period of the task.
+         *
+         * @return the period in ms
+         */
+        public long getPeriod() {
+            return period;
+        }
+
+        /**
+         * Returns the number of executions.
+         *
+         * @return the number of executions
+         */
+        public long getExecutions() {
+            return executions;
+        }
+
+        /**
+         * Returns the number of executions skipped as the task was busy.
+         *
+         * @return the number of skipped executions
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Returns the number of executions taking longer than the period.
+         *
+         * @return the number of overruns
+         */
+        public long getOverruns() {
+            return overruns;
+        }
+
+        /**
+         * Returns the number of executions terminated by an exception.
+         *
+         * @return the number of failures
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the lag of the last execution, i.e., actual minus planned start time.
+         *
+         * @return the lag in ms
+         */
+        public long getLastLag() {
+            return lastLag;
+        }
+
+        /**
+         * Returns the maximum lag.
+         *
+         * @return the maximum lag in ms
+         */
+        public long getMaxLag() {
+            return maxLag;
+        }
+
+        /**
+         * Returns the duration of the last execution.
+         *
+         * @return the duration in ms
+         */
+        public long getLastDuration() {
+            return lastDuration;
+        }
+
+        /**
+         * Returns the maximum duration.
+         *
+         * @return the maximum duration in ms
+         */
+        public long getMaxDuration() {
+            return maxDuration;
+        }
+
+        /**
+         * Returns the average duration.
+         *
+         * @return the average duration in ms
+         */
+        public double getAverageDuration() {
+            long exec = executions;
+            return 0 == exec ? 0 : totalDuration / (double) exec;
+        }
+
+        @Override
+        public String toString() {
+            return name + "@" + lane + " period " + period + " executions " + executions + " skipped " + skipped
+                + " overruns " + overruns + " failures " + failures + " lag " + lastLag + "/" + maxLag
+                + " duration " + lastDuration + "/" + maxDuration;
+        }
+
+    }
+
+    /**
+     * Wraps a timer task for execution in a lane.
+     *
+     * @author Holger Eichelberger
+     */
+    private class ScheduledTask implements Runnable {
+
+        private TimerTask task;
+        private TaskStatistics statistics;
+        private long planned;
+        private ScheduledFuture<?> future;
+
+        /**
+         * Creates a scheduled task.
+         *
+         * @param task the task to execute
+         * @param statistics the statistics instance
+         * @param firstTime the planned time of the first execution
+         */
+        private ScheduledTask(TimerTask task, TaskStatistics statistics, long firstTime) {
+            this.task = task;
+            this.statistics = statistics;
+            this.planned = firstTime;
+        }
+
+        @Override
+        public void run() {
+            long start = System.currentTimeMillis();
+            long period = statistics.period;
+            long lag = Math.max(0, start - planned);
+            planned += period;
+            if (lag >= period) { // missed own slot as still busy, catch up by skipping
+                statistics.skipped++;
+            } else {
+                statistics.lastLag = lag;
+                statistics.maxLag = Math.max(statistics.maxLag, lag);
+                try {
+                    task.run();
+                } catch (Throwable t) { // keep the lane and the task alive
+                    statistics.failures++;
+                    LOGGER.error("While executing " + statistics.name + ": " + t.getMessage(), t);
+                }
+                long duration = System.currentTimeMillis() - start;
+                statistics.executions++;
+                statistics.lastDuration = duration;
+                statistics.maxDuration = Math.max(statistics.maxDuration, duration);
+                statistics.totalDuration += duration;
+                if (duration > period) {
+                    if (0 == statistics.overruns) {
+                        LOGGER.warn("Task " + statistics.name + " overruns its period of " + period + " ms by "
+                            + (duration - period) + " ms");
+                    }
+                    statistics.overruns++;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Creates named threads for a lane.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class LaneThreadFactory implements ThreadFactory {
+
+        private String prefix;
+        private AtomicInteger count = new AtomicInteger();
+
+        /**
+         * Creates a thread factory.
+         *
+         * @param lane the lane
+         */
+        private LaneThreadFactory(Lane lane) {
+            prefix = "monitoring-" + lane.name().toLowerCase() + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, prefix + count.incrementAndGet());
+        }
+
+    }
+
+    /**
+     * Implements a scheduler view on a single lane.
+     *
+     * @author Holger Eichelberger
+     */
+    private class LaneView implements IScheduler {
+
+        private Lane lane;
+
+        /**
+         * Creates a lane view.
+         *
+         * @param lane the lane to schedule tasks in
+         */
+        private LaneView(Lane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void schedule(TimerTask task, Date firstTime, long period) {
+            LaneScheduler.this.schedule(lane, task.getClass().getSimpleName(), task,
+                Math.max(0, firstTime.getTime() - System.currentTimeMillis()), period);
+        }
+
+    }
+
+    private Map<Lane, ScheduledThreadPoolExecutor> lanes = new EnumMap<Lane, ScheduledThreadPoolExecutor>(Lane.class);
+    private Map<TimerTask, ScheduledTask> scheduled = new ConcurrentHashMap<TimerTask, ScheduledTask>();
+
+    /**
+     * Creates a lane scheduler with the default number of threads per lane.
+     */
+    public LaneScheduler() {
+        this(Collections.<Lane, Integer>emptyMap());
+    }
+
+    /**
+     * Creates a lane scheduler.
+     *
+     * @param threads the number of threads per lane, {@link Lane#getDefaultThreads()} if not given
+     */
+    public LaneScheduler(Map<Lane, Integer> threads) {
+        for (Lane lane : Lane.values()) {
+            Integer count = threads.get(lane);
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                Math.max(1, null == count ? lane.getDefaultThreads() : count), new LaneThreadFactory(lane));
+            executor.setRemoveOnCancelPolicy(true);
+            lanes.put(lane, executor);
+        }
+    }
+
+    /**
+     * Returns a scheduler view on the given lane.
+     *
+     * @param lane the lane
+     * @return the scheduler view
+     */
+    public IScheduler getScheduler(Lane lane) {
+        return new LaneView(lane);
+    }
+
+    /**
+     * Schedules <code>task</code> for repeated fixed-rate execution in <code>lane</code>. Executions are skipped
+     * while the task is busy.
+     *
+     * @param lane the lane to execute the task in
+     * @param name the name of the task for statistics and logging
+     * @param task the task
+     * @param delay the initial delay in ms
+     * @param period the period in ms
+     * @throws IllegalArgumentException if {@code delay < 0} or {@code period <= 0}
+     * @throws IllegalStateException if <code>task</code> is already scheduled or this scheduler is shut down
+     */
+    public void schedule(Lane lane, String name, TimerTask task, long delay, long period) {
+        if (delay < 0 || period <= 0) {
+            throw new IllegalArgumentException("Illegal delay or period");
+        }
+        ScheduledTask sTask = new ScheduledTask(task, new TaskStatistics(name, lane, period),
+            System.currentTimeMillis() + delay);
+        if (null != scheduled.putIfAbsent(task, sTask)) {
+            throw new IllegalStateException("Task already scheduled");
+        }
+        try {
+            sTask.future = lanes.get(lane).scheduleAtFixedRate(sTask, delay, period, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            scheduled.remove(task);
+            throw new IllegalStateException("Scheduler shut down");
+        }
+    }
+
+    /**
+     * Cancels the given task, i.e., removes it from its lane without interrupting a running execution.
+     * Does not call {@link TimerTask#cancel()}.
+     *
+     * @param task the task to cancel
+     * @return <code>true</code> if the task was scheduled, <code>false</code> else
+     */
+    public boolean cancel(TimerTask task) {
+        ScheduledTask sTask = null == task ? null : scheduled.remove(task);
+        if (null != sTask && null != sTask.future) {
+            sTask.future.cancel(false);
+        }
+        return null != sTask;
+    }
+
+    /**
+     * Returns the statistics of the given task.
+     *
+     * @param task the task
+     * @return the statistics, <b>null</b> if the task is not scheduled
+     */
+    public TaskStatistics getStatistics(TimerTask task) {
+        ScheduledTask sTask = scheduled.get(task);
+        return null == sTask ? null : sTask.statistics;
+    }
+
+    /**
+     * Returns the statistics of all scheduled tasks.
+     *
+     * @return the statistics per task name
+     */
+    public Map<String, TaskStatistics> getStatistics() {
+        Map<String, TaskStatistics> result = new HashMap<String, TaskStatistics>();
+        for (ScheduledTask sTask : scheduled.values()) {
+            TaskStatistics stat = sTask.statistics;
+            result.put(stat.lane + ":" + stat.name, stat);
+        }
+        return result;
+    }
+
+    /**
+     * Logs the statistics of all scheduled tasks, i.e., one line per task on info level.
+     */
+    public void logStatistics() {
+        if (LOGGER.isInfoEnabled()) {
+            for (ScheduledTask sTask : scheduled.values()) {
+                LOGGER.info("Lane statistics " + sTask.statistics);
+            }
+        }
+    }
+
+    /**
+     * Shuts down all lanes. Running executions are interrupted.
+     */
+    public void shutdown() {
+        for (ScheduledThreadPoolExecutor executor : lanes.values()) {
+            executor.shutdownNow();
+        }
+        scheduled.clear();
+    }
+
+}
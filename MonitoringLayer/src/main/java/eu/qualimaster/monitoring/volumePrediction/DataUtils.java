@@ -6,7 +6,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Set;
 import java.util.TreeMap;
 
 /**
@@ -67,7 +67,7 @@ public class DataUtils {
     }
 
     public static HashMap<String, ArrayList<Integer>> readStreamingData(
-            String folder, HashSet<String> terms) {
+            String folder, Set<String> terms) {
         HashMap<String, ArrayList<Integer>> data = new HashMap<>();
         File dir = new File(folder);
 
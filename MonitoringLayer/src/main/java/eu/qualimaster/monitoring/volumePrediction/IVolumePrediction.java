@@ -0,0 +1,65 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.volumePrediction;
+
+/**
+ * A volume prediction model for a single term based on recent values.
+ *
+ * @author Holger Eichelberger
+ */
+public interface IVolumePrediction {
+
+    /**
+     * Returns the name of the term the model refers to.
+     *
+     * @return the name of the term
+     */
+    public String getSource();
+
+    /**
+     * Returns whether this model is able to make predictions at all, e.g., whether it could be trained.
+     *
+     * @return <code>true</code> if available, <code>false</code> else
+     */
+    public boolean isAvailable();
+
+    /**
+     * Appends the input volume (assumed to be the new observed one) to the recent volumes, which are used to make
+     * predictions.
+     *
+     * @param time the timestamp when the volume was observed (format <code>yyyy-MM-dd'T'HH:mm:ss</code>)
+     * @param observation the observed volume
+     */
+    public void updateRecentVolumes(String time, Long observation);
+
+    /**
+     * Predicts the volume for the next time steps given the recent values. If not enough recent points are
+     * available, the method returns a single negative value indicating the number of steps that still have to be
+     * waited before being able to make predictions.
+     *
+     * @param pointsToForecast the number of future data points to forecast
+     * @return the predicted volumes, <b>null</b> in case of failures
+     */
+    public double[] predict(int pointsToForecast);
+
+    /**
+     * Returns the time of the last recent volume.
+     *
+     * @return the time in milliseconds, <code>-1</code> if there is no recent volume
+     */
+    public long getLastTime();
+
+}
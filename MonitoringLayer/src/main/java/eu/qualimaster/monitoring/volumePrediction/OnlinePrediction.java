@@ -0,0 +1,222 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.volumePrediction;
+
+import java.io.File;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An online volume prediction based on an autoregressive model over the recent volumes (similar to the lags of
+ * {@link Prediction}), which is fitted by recursive least squares with exponential forgetting. Each observation
+ * updates the model in constant time (with respect to the history), i.e., the model does not need to be retrained
+ * from the historical data. All state is kept in primitive arrays.
+ *
+ * @author Holger Eichelberger
+ */
+public class OnlinePrediction implements IVolumePrediction {
+
+    /**
+     * The order of the autoregressive model, i.e., the number of recent volumes (as the max lag of
+     * {@link Prediction}).
+     */
+    static final int ORDER = 12;
+    private static final int SIZE = ORDER + 1; // intercept
+    private static final double FORGETTING = 0.999;
+    private static final double INITIAL_COVARIANCE = 1000;
+    private static final double MAX_COVARIANCE = 1e9;
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss";
+
+    private String source;
+    private double scale;
+    private double[] recent = new double[ORDER]; // ring buffer, scaled
+    private int recentCount;
+    private int recentPos; // next position to write
+    private double[] coeff = new double[SIZE];
+    private double[] covariance = new double[SIZE * SIZE];
+    private double[] regressor = new double[SIZE];
+    private double[] tmp = new double[SIZE];
+    private double[] window = new double[0];
+    private long updates;
+    private String lastTime;
+
+    /**
+     * Creates an online prediction model and seeds it with the historical data in <code>dataFile</code>.
+     *
+     * @param source the name of the term the model makes predictions for
+     * @param dataFile the file containing the historical data (may be <b>null</b> or empty)
+     */
+    public OnlinePrediction(String source, File dataFile) {
+        this.source = source;
+        resetCovariance();
+        if (null != dataFile && dataFile.exists()) {
+            seed(DataUtils.readData(dataFile));
+        }
+    }
+
+    /**
+     * Seeds the model with historical data.
+     *
+     * @param data the historical data sorted by time
+     */
+    void seed(TreeMap<String, Long> data) {
+        if (scale <= 0 && !data.isEmpty()) {
+            double sum = 0;
+            for (Long value : data.values()) {
+                sum += value;
+            }
+            scale = Math.max(1, sum / data.size());
+        }
+        for (Map.Entry<String, Long> entry : data.entrySet()) {
+            updateRecentVolumes(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Resets the covariance matrix to its initial value.
+     */
+    private void resetCovariance() {
+        for (int r = 0; r < SIZE; r++) {
+            for (int c = 0; c < SIZE; c++) {
+                covariance[r * SIZE + c] = r == c ? INITIAL_COVARIANCE : 0;
+            }
+        }
+    }
+
+    @Override
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true; // learns from the recent volumes, even without historical data
+    }
+
+    @Override
+    public void updateRecentVolumes(String time, Long observation) {
+        lastTime = time;
+        update(observation);
+    }
+
+    /**
+     * Updates the model with a new observation.
+     *
+     * @param observation the observation
+     */
+    void update(double observation) {
+        if (scale <= 0) {
+            scale = Math.max(1, Math.abs(observation));
+        }
+        double value = observation / scale;
+        if (recentCount == ORDER) {
+            fillRegressor();
+            double denominator = FORGETTING;
+            double predicted = 0;
+            for (int r = 0; r < SIZE; r++) {
+                double sum = 0;
+                int row = r * SIZE;
+                for (int c = 0; c < SIZE; c++) {
+                    sum += covariance[row + c] * regressor[c];
+                }
+                tmp[r] = sum;
+                denominator += regressor[r] * sum;
+                predicted += regressor[r] * coeff[r];
+            }
+            double error = value - predicted;
+            boolean reset = false;
+            for (int r = 0; r < SIZE; r++) {
+                double gain = tmp[r] / denominator;
+                coeff[r] += gain * error;
+                int row = r * SIZE;
+                for (int c = 0; c < SIZE; c++) {
+                    covariance[row + c] = (covariance[row + c] - gain * tmp[c]) / FORGETTING;
+                }
+                reset |= covariance[row + r] > MAX_COVARIANCE; // avoid wind-up for non-exciting data
+            }
+            if (reset) {
+                resetCovariance();
+            }
+            updates++;
+        } else {
+            recentCount++;
+        }
+        recent[recentPos] = value;
+        recentPos = (recentPos + 1) % ORDER;
+    }
+
+    /**
+     * Fills {@link #regressor} with the intercept and the recent values, most recent first.
+     */
+    private void fillRegressor() {
+        regressor[0] = 1;
+        for (int lag = 1; lag <= ORDER; lag++) {
+            regressor[lag] = recent[(recentPos - lag + ORDER) % ORDER];
+        }
+    }
+
+    @Override
+    public double[] predict(int pointsToForecast) {
+        double[] forecast;
+        if (recentCount < ORDER) {
+            forecast = new double[] {recentCount - ORDER};
+        } else {
+            int length = ORDER + pointsToForecast;
+            if (window.length < length) {
+                window = new double[length];
+            }
+            for (int lag = 1; lag <= ORDER; lag++) {
+                window[ORDER - lag] = recent[(recentPos - lag + ORDER) % ORDER];
+            }
+            forecast = new double[pointsToForecast];
+            for (int i = 0; i < pointsToForecast; i++) {
+                int pos = ORDER + i;
+                double predicted = coeff[0];
+                for (int lag = 1; lag <= ORDER; lag++) {
+                    predicted += coeff[lag] * window[pos - lag];
+                }
+                window[pos] = predicted;
+                forecast[i] = predicted * scale;
+            }
+        }
+        return forecast;
+    }
+
+    @Override
+    public long getLastTime() {
+        long result = -1;
+        if (null != lastTime) {
+            try {
+                result = new SimpleDateFormat(DATE_FORMAT).parse(lastTime).getTime();
+            } catch (ParseException e) {
+                result = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of model updates performed so far.
+     *
+     * @return the number of updates
+     */
+    public long getUpdateCount() {
+        return updates;
+    }
+
+}
@@ -6,6 +6,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.TreeMap;
 
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
 import weka.classifiers.evaluation.NumericPrediction;
 import weka.classifiers.functions.LinearRegression;
 import weka.classifiers.timeseries.WekaForecaster;
@@ -23,7 +26,9 @@ import weka.core.Instances;
  * 
  * @author Andrea Ceroni
  */
-public class Prediction {
+public class Prediction implements IVolumePrediction {
+
+    private static final Logger LOGGER = LogManager.getLogger(Prediction.class);
 
     /**
      * The name of the term the model refers to (can be either the name of a
@@ -82,8 +87,7 @@ public class Prediction {
             // negative value indicating the steps to wait
             if (this.forecaster.getTSLagMaker().getMaxLag() > this.recentVolumes
                     .size()) {
-                System.out
-                        .println("Not enough recent values to make predictions.");
+                LOGGER.debug("Not enough recent values to make predictions.");
                 double[] forecast = new double[1];
                 forecast[0] = this.recentVolumes.size()
                         - this.forecaster.getTSLagMaker().getMaxLag();
@@ -95,9 +99,10 @@ public class Prediction {
             this.forecaster.primeForecaster(this.recentVolumes);
 
             // forecast the desired number of data points
-            // outer list is over the steps, inner list is over the targets
+            // outer list is over the steps, inner list is over the targets,
+            // no progress streams as this happens in every prediction step
             List<List<NumericPrediction>> wekaForecast = this.forecaster
-                    .forecast(pointsToForecast, System.out);
+                    .forecast(pointsToForecast);
             //double forecast = wekaForecast.get(0).get(0).predicted();
             
             double[] forecast = new double[pointsToForecast];
@@ -136,6 +141,20 @@ public class Prediction {
         }
     }
 
+    @Override
+    public boolean isAvailable() {
+        return null != this.forecaster;
+    }
+
+    @Override
+    public long getLastTime() {
+        long result = -1;
+        if (this.recentVolumes.size() > 0) {
+            result = (long) this.recentVolumes.instance(this.recentVolumes.size() - 1).value(0);
+        }
+        return result;
+    }
+
     private void trainModel(File dataFile) {
         TreeMap<String, Long> trainingData = DataUtils.readData(dataFile);
         if (!trainingData.isEmpty())
@@ -172,9 +191,9 @@ public class Prediction {
             // forecaster.getTSLagMaker().setAddQuarterOfYear(true);
 
             // build the model
-            System.out.println("Training forecaster");
-            forecaster.buildForecaster(instances, System.out);
-            System.out.println("Training done.");
+            LOGGER.debug("Training forecaster for " + source);
+            forecaster.buildForecaster(instances);
+            LOGGER.debug("Training done for " + source);
 
             return forecaster;
         } catch (Exception e) {
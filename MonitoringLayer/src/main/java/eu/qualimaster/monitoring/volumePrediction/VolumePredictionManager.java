@@ -430,6 +430,7 @@ public class VolumePredictionManager {
         EventManager.unregister(HISTORICAL_DATA_REGISTRATION_EVENT_HANDLER);
         EventManager.unregister(SOURCE_VOLUME_PREDICTION_REQUEST_HANDLER);
         pipelinesWithErrors.clear();
+        VolumePredictor.shutdownPool();
     }
 
     /**
@@ -10,8 +10,17 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
 
 import eu.qualimaster.adaptation.events.AdaptationEvent;
 import eu.qualimaster.adaptation.events.SourceVolumeAdaptationEvent;
@@ -29,6 +38,8 @@ import eu.qualimaster.monitoring.MonitoringConfiguration;
  */
 public class VolumePredictor {
 
+    private static final Logger LOGGER = LogManager.getLogger(VolumePredictor.class);
+
     /** The pipeline the predictor refers to. */
     private String pipeline;
 
@@ -37,33 +48,54 @@ public class VolumePredictor {
 
     /**
      * Set of terms (either stocks or hashtags) monitored by the volume
-     * prediction.
+     * prediction. Concurrent as terms are added while predicting or updating.
      */
-    private HashSet<String> monitoredTerms;
+    private Set<String> monitoredTerms;
 
     /**
      * Set of terms (either stocks or hashtags) for which historical data might
-     * be looked up as blind prediction.
+     * be looked up as blind prediction. Concurrent as terms are added while 
+     * predicting or updating.
      */
-    private HashSet<String> blindTerms;
+    private Set<String> blindTerms;
 
     /**
      * Recent observed volumes of the monitored terms, used to decide whether to
-     * raise alarms or not
+     * raise alarms or not. Concurrent as terms are added while predicting.
      */
-    private HashMap<String, ArrayList<Long>> recentVolumes;
+    private ConcurrentHashMap<String, VolumeWindow> recentVolumes;
 
     /**
      * Map containing the term (either stocks or hashtags) for which a
-     * prediction model is available (along with the corresponding model)
+     * prediction model is available (along with the corresponding model).
+     * Replaced as a whole when the models are updated.
      */
-    private HashMap<String, Prediction> models;
+    private volatile ConcurrentHashMap<String, IVolumePrediction> models;
 
     /**
      * Map containing the term (either stocks or hashtags) for which a "blind"
-     * prediction model is available (along with the corresponding model)
+     * prediction model is available (along with the corresponding model).
+     * Replaced as a whole when the models are updated.
      */
-    private HashMap<String, BlindPrediction> blindModels;
+    private volatile ConcurrentHashMap<String, BlindPrediction> blindModels;
+
+    /** The number of predictions made so far */
+    private AtomicLong predictionCount = new AtomicLong();
+
+    /** The number of observations without an available prediction model */
+    private AtomicLong unavailableCount = new AtomicLong();
+
+    /** The number of ignored (first) observations */
+    private AtomicLong ignoredCount = new AtomicLong();
+
+    /** The number of alarms (per term) raised so far */
+    private AtomicLong alarmCount = new AtomicLong();
+
+    /** The number of models (monitored and blind) trained so far */
+    private AtomicLong trainingCount = new AtomicLong();
+
+    /** The shared pool for processing terms in parallel (lazily created) */
+    private static ForkJoinPool pool;
 
     /** The status of the component (whether it is running or not) */
     private boolean running;
@@ -112,6 +144,9 @@ public class VolumePredictor {
     /** Url used to retrieve historical data in test mode */
     private static final String TEST_URL = "test";
 
+    /** Name of the Weka forecaster, see {@link MonitoringConfiguration#getVolumeForecaster()}. */
+    private static final String WEKA_FORECASTER = "weka";
+
     private static final String TEST_HISTORICAL_FOLDER = "/historicalData/";
     private static final String TEST_WARMUP_FOLDER = "/warmupData/";
     private static final String TEST_STREAMING_FOLDER = "/streamingData/";
@@ -168,22 +203,30 @@ public class VolumePredictor {
             return;
         }
 
-        if (monitoredTerms != null)
-            this.monitoredTerms = new HashSet<>(monitoredTerms);
-        else
-            this.monitoredTerms = new HashSet<>();
-        if (blindTerms != null)
-            this.blindTerms = new HashSet<>(blindTerms);
-        else
-            this.blindTerms = new HashSet<>();
-        this.recentVolumes = new HashMap<>();
+        this.monitoredTerms = createTermSet(monitoredTerms);
+        this.blindTerms = createTermSet(blindTerms);
+        this.recentVolumes = new ConcurrentHashMap<>();
         for (String term : this.monitoredTerms)
-            this.recentVolumes.put(term, new ArrayList<Long>());
+            this.recentVolumes.put(term, new VolumeWindow(RECENT_HISTORY_SIZE));
         this.running = false;
         this.historicalDataFile = new File(filePath);
-        this.models = new HashMap<>();
-        this.blindModels = new HashMap<>();
-        initializeModels(this.models, this.blindModels);
+        this.models = new ConcurrentHashMap<>();
+        this.blindModels = new ConcurrentHashMap<>();
+        initializeModels(this.models, this.blindModels, 
+            new HashSet<>(this.monitoredTerms), new HashSet<>(this.blindTerms));
+    }
+
+    /**
+     * Creates a concurrent term set.
+     * 
+     * @param terms the initial terms (may be <b>null</b>)
+     * @return the term set
+     */
+    private static Set<String> createTermSet(Set<String> terms) {
+        Set<String> result = ConcurrentHashMap.newKeySet();
+        if (null != terms)
+            result.addAll(terms);
+        return result;
     }
 
     /**
@@ -240,10 +283,8 @@ public class VolumePredictor {
         if (model != null)
             return model.predictBlindly();
         else {
-            // add the term to the set of blind models with a null model, so
-            // that a model for this new term will be trained during the next
-            // update.
-            this.blindModels.put(termName, null);
+            // add the term to the blind terms, so that a model for this new 
+            // term will be trained during the next update.
             this.blindTerms.add(termName);
             return -1;
         }
@@ -251,16 +292,37 @@ public class VolumePredictor {
 
     /**
      * Processes the current set of observed volumes: prediction, evaluation,
-     * storage.
+     * storage. The terms are predicted and evaluated in parallel if there are
+     * enough of them (see 
+     * {@link MonitoringConfiguration#getVolumePredictionParallelThreshold()}).
      * 
      * @param observations the term-volume map containing the observed volumes
      *        for each term
      */
     public void handlePredictionStep(Map<String, Integer> observations) {
-//        System.out.println("Handling prediction step...");
-        String toPrint = "";
         String timestamp = getTimestamp();
-        toPrint += "measured timestamp = " + timestamp + "\t";
+        final List<TermStep> steps = new ArrayList<>(observations.size());
+        for (Map.Entry<String, Integer> entry : observations.entrySet()) {
+            long currVolume = (long) entry.getValue();
+            // ignore first monitoring (= 1)
+            if (currVolume == 1) {
+                this.ignoredCount.incrementAndGet();
+            } else {
+                steps.add(new TermStep(entry.getKey(), getTermName(entry.getKey()), currVolume, timestamp));
+            }
+        }
+
+        // use the same models for the entire step, even if they are replaced
+        final Map<String, IVolumePrediction> models = this.models;
+        forEach(steps.size(), new ITermProcessor() {
+
+            @Override
+            public void process(int index) {
+                predict(steps.get(index), models);
+            }
+
+        });
+
         HashMap<String, Double> alarms = new HashMap<>();
         HashMap<String, Double> normalizedAlarms = new HashMap<>();
         HashMap<String, Double> durations = new HashMap<>();
@@ -268,81 +330,31 @@ public class VolumePredictor {
         HashMap<String, Double> predictionsForEvent = new HashMap<>();
         HashMap<String, Double> thresholdsForEvent = new HashMap<>(); 
         ArrayList<String> unknownTerms = new ArrayList<>();
-        for (String termId : observations.keySet()) {
-//            System.out.println("Term id = " + termId);
-            // get the name of the source term from its id
-            String termName;
-            if (!this.idsToNamesMap.isEmpty())
-                termName = this.idsToNamesMap.get(termId);
-            else
-                termName = termId;
-            
-//            System.out.println("Term name = " + termName);
-
-            long currVolume = (long) observations.get(termId);
-            
-            // ignore first monitoring (= 1)
-            if(currVolume == 1){
-                System.out.println("First monitoring, it will be ignored.");
-                continue;
-            }
-            
-            toPrint += "current volume = " + currVolume + "\t";
-            Prediction model = null == this.models ? null : this.models.get(termName);
-
-            // add the current observation to the recent volumes for the current
-            // term
-            addRecentVolume(termName, currVolume);
-
-            if (model != null && model.getForecaster() != null) {
-                // for test cases, derive the current date by incrementing the
-                // date of the last observation by the desired granularity
-                if (this.test) {
-                    if(model.getRecentVolumes().size() > 0){
-                        long lastTime = (long) model.getRecentVolumes()
-                                .instance(model.getRecentVolumes().size() - 1)
-                                .value(0);
-                        timestamp = getTimestamp(lastTime + 30000);
-                    }
-                }
-                toPrint += "model timestamp = " + timestamp + "\t";
-
-                // update the recent values within the model
-                model.updateRecentVolumes(timestamp, currVolume);
-
-                // predict the volume within the next time step
-                double[] predictions = model.predict(POINTS_TO_FORECAST);
-                toPrint += "predicted volume = " + (int) predictions[0] + "\t";
-
-                // check whether the predicted volume is critical and, if so,
-                // include the term when raising the alarm
-                double[] alarm = evaluatePrediction(termName, predictions);
-                if (alarm[0] != -1) {
-                    alarms.put(termId, alarm[0]);
-                    normalizedAlarms.put(termId, alarm[0] / currVolume);
-                    durations.put(termId, alarm[1]);
-                    volumesForEvent.put(termId, currVolume);
-                    predictionsForEvent.put(termId, predictions[0]);
-                    thresholdsForEvent.put(termId, alarm[2]);
-                }
-                toPrint += "alarms = " + alarm[0] + "\t" + alarm[1] + "\t" + "|" + "\t";
-                System.out.println(toPrint);
-            } else {
-                System.out.println("No predictors available for term " + termName);
-                if (null != this.monitoredTerms && !this.monitoredTerms.contains(termName))
-                    unknownTerms.add(termName);
+        for (TermStep step : steps) {
+            String termId = step.termId;
+            if (null != step.alarm) {
+                alarms.put(termId, step.alarm[0]);
+                normalizedAlarms.put(termId, step.alarm[0] / step.volume);
+                durations.put(termId, step.alarm[1]);
+                volumesForEvent.put(termId, step.volume);
+                predictionsForEvent.put(termId, step.prediction);
+                thresholdsForEvent.put(termId, step.alarm[2]);
+            } else if (!step.predicted && null != this.monitoredTerms 
+                && !this.monitoredTerms.contains(step.termName)) {
+                unknownTerms.add(step.termName);
             }
 
             // store the current observation in the historical data of the
             // current term (only for twitter)
-            storeInHistoricalData(termName, timestamp, currVolume);
+            storeInHistoricalData(step.termName, step.timestamp, step.volume);
             
-            if(this.lastAlarm != null && currVolume < this.lastAlarm.getVolumes().get(termId)){
-                System.out.println("Critical period for term " + termId + " is over");
+            Long alarmVolume = null == this.lastAlarm ? null : this.lastAlarm.getVolumes().get(termId);
+            if(alarmVolume != null && step.volume < alarmVolume){
+                LOGGER.debug("Critical period for term " + termId + " is over");
                 this.lastAlarm = removeTermFromAlarm(this.lastAlarm, termId);
             }
         }
-        System.out.print("\n");
+        this.alarmCount.addAndGet(alarms.size());
 
         // raise an alarm to the adaptation layer containing all the critical
         // terms and their volumes
@@ -355,7 +367,7 @@ public class VolumePredictor {
         // check if the critical period is over for ALL the terms. If so, signal this
         // to the adaptation layer by sending an empty SourceVolumeAdaptationEvent
         if(this.lastAlarm != null && this.lastAlarm.getFindings().isEmpty()){
-            System.out.println("Critical period is over for all terms, sending signal to Adaptation Layer");
+            LOGGER.debug("Critical period is over for all terms, sending signal to Adaptation Layer");
             this.lastAlarm = null;
             EventManager.send(new SourceVolumeAdaptationEvent(this.pipeline, this.source));
         }
@@ -366,7 +378,112 @@ public class VolumePredictor {
             addMonitoredTerm(term);
     }
 
-    private String getTimestamp() {
+    /**
+     * Returns the name of a source term.
+     * 
+     * @param termId the id of the term
+     * @return the name of the term
+     */
+    private String getTermName(String termId) {
+        String termName;
+        if (!this.idsToNamesMap.isEmpty())
+            termName = this.idsToNamesMap.get(termId);
+        else
+            termName = termId;
+        return termName;
+    }
+
+    /**
+     * Predicts and evaluates the volume of a single term. As terms are
+     * processed in parallel, this method must only modify the state of 
+     * <code>step</code>, the model and the recent volumes of the term.
+     * 
+     * @param step the step to process, modified as a side effect
+     * @param models the models to use
+     */
+    private void predict(TermStep step, Map<String, IVolumePrediction> models) {
+        IVolumePrediction model = null == models ? null : models.get(step.termName);
+
+        // add the current observation to the recent volumes for the current
+        // term
+        addRecentVolume(step.termName, step.volume);
+
+        if (model != null && model.isAvailable()) {
+            // for test cases, derive the current date by incrementing the
+            // date of the last observation by the desired granularity
+            if (this.test) {
+                long lastTime = model.getLastTime();
+                if(lastTime >= 0){
+                    step.timestamp = getTimestamp(lastTime + 30000);
+                }
+            }
+
+            // update the recent values within the model
+            model.updateRecentVolumes(step.timestamp, step.volume);
+
+            // predict the volume within the next time step
+            double[] predictions = model.predict(POINTS_TO_FORECAST);
+            step.predicted = true;
+            if (null != predictions) {
+                this.predictionCount.incrementAndGet();
+                // check whether the predicted volume is critical and, if so,
+                // include the term when raising the alarm
+                double[] alarm = evaluatePrediction(step.termName, predictions);
+                if (alarm[0] != -1) {
+                    step.alarm = alarm;
+                    step.prediction = predictions[0];
+                }
+            }
+        } else {
+            this.unavailableCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Processes <code>count</code> terms, in parallel on the shared pool if 
+     * configured and if there are enough terms.
+     * 
+     * @param count the number of terms
+     * @param processor the processor for a single term
+     */
+    private static void forEach(int count, ITermProcessor processor) {
+        int threads = MonitoringConfiguration.getVolumePredictionThreads();
+        if (threads > 1 && count >= MonitoringConfiguration.getVolumePredictionParallelThreshold()) {
+            // split into a few more tasks than threads to balance the load
+            int batch = Math.max(1, count / (4 * threads));
+            getPool(threads).invoke(new TermTask(processor, 0, count, batch));
+        } else {
+            for (int i = 0; i < count; i++) {
+                processor.process(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the shared pool for processing terms in parallel and creates it
+     * if required.
+     * 
+     * @param threads the parallelism of the pool
+     * @return the pool
+     */
+    private static synchronized ForkJoinPool getPool(int threads) {
+        if (null == pool) {
+            pool = new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+
+    /**
+     * Shuts down the shared pool for processing terms in parallel.
+     */
+    static synchronized void shutdownPool() {
+        if (null != pool) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+        private String getTimestamp() {
         DateFormat format = new SimpleDateFormat(DATE_FORMAT_WEKA);
         Date date = new Date();
         return format.format(date);
@@ -383,20 +500,51 @@ public class VolumePredictor {
     }
 
     /**
-     * Updates the prediction models of each monitored and blind term.
+     * Updates the prediction models of each monitored and blind term. Online
+     * models of monitored terms are kept as they learn from each observation.
      */
     public void updatePrediction() {
+        // the terms to (re)train, terms may be added or removed meanwhile
+        Set<String> monitored = new HashSet<>(this.monitoredTerms);
+        Set<String> blind = new HashSet<>(this.blindTerms);
         // create the new models in separate objects not to interfere with any
         // prediction that might be running
-        HashMap<String, Prediction> newModels = new HashMap<>();
-        HashMap<String, BlindPrediction> newBlindModels = new HashMap<>();
-        initializeModels(newModels, newBlindModels);
+        ConcurrentHashMap<String, IVolumePrediction> newModels = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, BlindPrediction> newBlindModels = new ConcurrentHashMap<>();
+        initializeModels(newModels, newBlindModels, monitored, blind);
+
+        // swap the models, running predictions continue with the old ones
+        Map<String, IVolumePrediction> oldModels = this.models;
+        this.models = newModels;
+        Map<String, BlindPrediction> oldBlindModels = this.blindModels;
+        this.blindModels = newBlindModels;
+
+        // take over models of terms added meanwhile
+        takeOver(oldModels, newModels, monitored, this.monitoredTerms);
+        takeOver(oldBlindModels, newBlindModels, blind, this.blindTerms);
+    }
 
-        // change the models
-        this.models.clear();
-        this.models.putAll(newModels);
-        this.blindModels.clear();
-        this.blindModels.putAll(newBlindModels);
+    /**
+     * Takes over the models of terms that were added while updating the 
+     * models and removes the models of terms that were removed meanwhile.
+     * Old models of trained terms are not taken over, i.e., a term remains
+     * untrained if training did not result in a model.
+     * 
+     * @param <M> the model type
+     * @param oldModels the old models
+     * @param newModels the new models
+     * @param trained the terms that were (re)trained
+     * @param terms the actual terms
+     */
+    private static <M> void takeOver(Map<String, M> oldModels, Map<String, M> newModels, Set<String> trained, 
+        Set<String> terms) {
+        for (Map.Entry<String, M> entry : oldModels.entrySet()) {
+            String term = entry.getKey();
+            if (!trained.contains(term) && terms.contains(term)) {
+                newModels.putIfAbsent(term, entry.getValue());
+            }
+        }
+        newModels.keySet().retainAll(terms);
     }
 
     private double[] evaluatePrediction(String term, double[] predictions) {
@@ -411,8 +559,8 @@ public class VolumePredictor {
         // an alarm is made of a magnitude and a duration probability
         double[] alarm = new double[3];
         
-        // compute average and std deviation within the recent history
-        ArrayList<Long> recentVolumesForTerm = this.recentVolumes.get(term);
+        // average and std deviation within the recent history
+        VolumeWindow recentVolumesForTerm = this.recentVolumes.get(term);
         double[] stats = computeStatistics(recentVolumesForTerm);
 
         // compute alarm threshold from avg and std and compare it with the
@@ -420,10 +568,8 @@ public class VolumePredictor {
         double threshold = stats[0] + 2 * stats[1];
         // System.out.print((int)stats[0] + "\t");
         // System.out.print((int)stats[1] + "\t");
-        System.out.println("threshold = " + (int) threshold + "\t");
         if (predictions[0] > threshold) {
-            Long current = recentVolumesForTerm
-                    .get(recentVolumesForTerm.size() - 1);
+            long current = recentVolumesForTerm.last();
             if (predictions[0] > current){
                 alarm[0] = (double) (predictions[0] - current);
                 alarm[1] = estimateDuration(predictions, threshold, current);
@@ -470,45 +616,24 @@ public class VolumePredictor {
         return probability;
     }
 
-    private double[] computeStatistics(ArrayList<Long> data) {
+    private double[] computeStatistics(VolumeWindow data) {
         double[] stats = new double[2];
-        double avg, std;
-        double sum = 0;
-        double sumsq = 0;
 
         if (data == null || data.isEmpty())
             return stats;
 
-        // compute avg and standard deviation
-        for (int i = 0; i < data.size(); i++)
-            sum += data.get(i);
-        avg = (double) sum / data.size();
-        for (int i = 0; i < data.size(); i++)
-            sumsq = sumsq + ((data.get(i) - avg) * (data.get(i) - avg));
-        std = Math.sqrt((double) sumsq / data.size());
-
-        // store the statistics
-        stats[0] = avg;
-        stats[1] = std;
+        // running statistics, constant time
+        stats[0] = data.getMean();
+        stats[1] = data.getStandardDeviation();
 
         return stats;
     }
 
-    private boolean checkIncrease(ArrayList<Long> history, int size) {
-        if (size > history.size() - 1)
-            size = history.size() - 1;
-        int i = history.size() - 1;
-        int count = 0;
-        while (count < size) {
-            if (history.get(i) < history.get(i - 1))
-                return false;
-            i--;
-            count++;
-        }
-        return true;
+    private boolean checkIncrease(VolumeWindow history, int size) {
+        return history.isIncreasing(size);
     }
 
-    private int computeIncrease(ArrayList<Long> values) {
+    private int computeIncrease(VolumeWindow values) {
         int firstIndex = values.size() - REGULAR_INCREASE_SIZE;
         int lastIndex = values.size() - 1;
         return (int) (values.get(lastIndex) - values.get(firstIndex));
@@ -533,7 +658,7 @@ public class VolumePredictor {
         // send any alarm).
         svae = removeNotCriticalAlarms(svae);
         if(svae.getFindings().isEmpty()){
-            System.out.println("No new critical alarms found, nothing to signal");
+            LOGGER.debug("No new critical alarms found, nothing to signal");
             return;
         }
         
@@ -584,58 +709,129 @@ public class VolumePredictor {
         this.lastAlarm.getThresholds().putAll(event.getThresholds());
     }
 
-    private void addRecentVolume(String term, Long volume) {
-        if (null != this.recentVolumes && this.recentVolumes.containsKey(term)) {
-            if (this.recentVolumes.get(term).size() >= RECENT_HISTORY_SIZE)
-                this.recentVolumes.get(term).remove(0);
-            this.recentVolumes.get(term).add(volume);
-        }
+    private void addRecentVolume(String term, long volume) {
+        VolumeWindow window = null == this.recentVolumes ? null : this.recentVolumes.get(term);
+        if (null != window)
+            window.add(volume);
     }
 
-    private void initializeModels(HashMap<String, Prediction> models,
-            HashMap<String, BlindPrediction> blindModels) {
+    /**
+     * Initializes the models of all monitored and blind terms, in parallel if
+     * there are enough terms (see 
+     * {@link MonitoringConfiguration#getVolumePredictionParallelThreshold()}).
+     * 
+     * @param models the monitored models to be filled
+     * @param blindModels the blind models to be filled
+     * @param monitored the monitored terms to initialize the models for
+     * @param blind the blind terms to initialize the models for
+     */
+    private void initializeModels(final Map<String, IVolumePrediction> models,
+            final Map<String, BlindPrediction> blindModels, final Set<String> monitored, 
+            final Set<String> blind) {
         // make the union of monitored and blind terms to avoid getting
         // historical data twice (in case a term appears in both the sets)
         HashSet<String> allTerms = new HashSet<>();
-        allTerms.addAll(this.monitoredTerms);
-        allTerms.addAll(this.blindTerms);
+        allTerms.addAll(monitored);
+        allTerms.addAll(blind);
         this.historyProvider.setTest(this.test);
 
-        for (String term : allTerms) {
-            System.out.println("Term: " + term);
-            getHistoricalData(term, NUM_MONTHS, this.historicalDataFile);
+        final List<String> terms = new ArrayList<>(allTerms);
+        final Map<String, IVolumePrediction> current = this.models;
+        final Map<String, BlindPrediction> currentBlind = this.blindModels;
+        forEach(terms.size(), new ITermProcessor() {
+
+            @Override
+            public void process(int index) {
+                String term = terms.get(index);
+                // one data file per term as terms may be processed in parallel
+                File dataFile = new File(historicalDataFile.getPath() + "." + index);
+                initializeModel(term, monitored.contains(term) ? current : null, currentBlind,
+                    monitored.contains(term) ? models : null, blind.contains(term) ? blindModels : null, dataFile);
+                dataFile.delete();
+            }
 
-            // monitored models
-            if (this.monitoredTerms.contains(term)) {
-                Prediction model = new Prediction(term, this.historicalDataFile);
-                if (model.getForecaster() == null)
-                    model = null;
-                models.put(term, model);
+        });
+    }
+
+    /**
+     * Initializes the models of a single term.
+     * 
+     * @param term the term
+     * @param current the current monitored models (may be <b>null</b>)
+     * @param currentBlind the current blind models (may be <b>null</b>)
+     * @param models the monitored models to be filled, <b>null</b> if the
+     *        term is not monitored
+     * @param blindModels the blind models to be filled, <b>null</b> if the 
+     *        term is not blind
+     * @param dataFile the file to store the historical data into
+     */
+    private void initializeModel(String term, Map<String, IVolumePrediction> current, 
+        Map<String, BlindPrediction> currentBlind, Map<String, IVolumePrediction> models, 
+        Map<String, BlindPrediction> blindModels, File dataFile) {
+        // online models are updated continuously, no need to retrain them
+        IVolumePrediction model = null == current ? null : current.get(term);
+        boolean keep = null != models && model instanceof OnlinePrediction;
+        // as long as the online model is kept, the history of the term did not change for the blind model 
+        BlindPrediction blindModel = null;
+        if (keep && null != blindModels && null != currentBlind) {
+            blindModel = currentBlind.get(term);
+        }
+        boolean trainModel = null != models && !keep;
+        boolean trainBlindModel = null != blindModels && null == blindModel;
+        if (trainModel || trainBlindModel) {
+            getHistoricalData(term, NUM_MONTHS, dataFile);
+        }
+
+        // monitored models
+        if (null != models) {
+            if (trainModel) {
+                model = createModel(term, dataFile);
+                this.trainingCount.incrementAndGet();
             }
-            // blind models
-            if (this.blindTerms.contains(term)) {
-                BlindPrediction model = new BlindPrediction(term,
-                        this.historicalDataFile);
-                if (model.getHistoricalVolumes() == null)
-                    model = null;
-                blindModels.put(term, model);
+            if (model.isAvailable())
+                models.put(term, model);
+        }
+        // blind models
+        if (null != blindModels) {
+            if (trainBlindModel) {
+                blindModel = new BlindPrediction(term, dataFile);
+                this.trainingCount.incrementAndGet();
             }
+            if (blindModel.getHistoricalVolumes() != null)
+                blindModels.put(term, blindModel);
         }
     }
 
+    /**
+     * Creates a prediction model for a term from the historical data file 
+     * according to {@link MonitoringConfiguration#getVolumeForecaster()}.
+     * 
+     * @param term the term
+     * @param dataFile the file containing the historical data
+     * @return the model
+     */
+    private IVolumePrediction createModel(String term, File dataFile) {
+        IVolumePrediction model;
+        if (WEKA_FORECASTER.equals(MonitoringConfiguration.getVolumeForecaster()))
+            model = new Prediction(term, dataFile);
+        else
+            model = new OnlinePrediction(term, dataFile);
+        return model;
+    }
+
     private void getHistoricalData(String term, long months, File outputFile) {
         try {
             // if(this.test)
             // this.historyProvider.obtainHistoricalData(NUM_MONTHS, term,
             // this.historicalDataFile, TEST_URL);
             if (this.test)
-                this.historyProvider.obtainHistoricalData(NUM_MONTHS, term,
-                        this.historicalDataFile,
+                this.historyProvider.obtainHistoricalData(months, term,
+                        outputFile,
                         MonitoringConfiguration.getVolumeModelLocation()
                                 + TEST_HISTORICAL_FOLDER);
             else
-                this.historyProvider.obtainHistoricalData(NUM_MONTHS, term,
-                        this.historicalDataFile);
+                this.historyProvider.obtainHistoricalData(months, term,
+                        outputFile);
         } catch (Throwable t) { // catch more in case that the data provider fails
             // handle the absence of historical data:
             // clear the content of the historicalDataFile, because it refers to
@@ -644,7 +840,7 @@ public class VolumePredictor {
                     + term);
             try {
                 BufferedWriter writer = new BufferedWriter(new FileWriter(
-                        this.historicalDataFile));
+                        outputFile));
                 writer.write("");
                 writer.close();
             } catch (IOException e1) {
@@ -745,12 +941,14 @@ public class VolumePredictor {
     public void addMonitoredTerm(String term) {
         getHistoricalData(term, NUM_MONTHS, this.historicalDataFile);
 
-        Prediction model = new Prediction(term, this.historicalDataFile);
-        if (model.getForecaster() == null)
-            model = null;
-        this.models.put(term, model);
+        IVolumePrediction model = createModel(term, this.historicalDataFile);
+        this.trainingCount.incrementAndGet();
+        if (model.isAvailable())
+            this.models.put(term, model);
+        else
+            this.models.remove(term);
         this.monitoredTerms.add(term);
-        this.recentVolumes.put(term, new ArrayList<Long>());
+        this.recentVolumes.put(term, new VolumeWindow(RECENT_HISTORY_SIZE));
     }
 
     /**
@@ -775,9 +973,11 @@ public class VolumePredictor {
 
         BlindPrediction model = new BlindPrediction(term,
                 this.historicalDataFile);
-        if (model.getHistoricalVolumes() == null)
-            model = null;
-        this.blindModels.put(term, model);
+        this.trainingCount.incrementAndGet();
+        if (model.getHistoricalVolumes() != null)
+            this.blindModels.put(term, model);
+        else
+            this.blindModels.remove(term);
         this.blindTerms.add(term);
     }
 
@@ -831,29 +1031,29 @@ public class VolumePredictor {
     /**
      * @return the monitoredTerms
      */
-    public HashSet<String> getMonitoredTerms() {
+    public Set<String> getMonitoredTerms() {
         return monitoredTerms;
     }
 
     /**
      * @param monitoredTerms the monitoredTerms to set
      */
-    public void setMonitoredTerms(HashSet<String> monitoredTerms) {
-        this.monitoredTerms = monitoredTerms;
+    public void setMonitoredTerms(Set<String> monitoredTerms) {
+        this.monitoredTerms = createTermSet(monitoredTerms);
     }
 
     /**
      * @return the blindTerms
      */
-    public HashSet<String> getBlindTerms() {
+    public Set<String> getBlindTerms() {
         return blindTerms;
     }
 
     /**
      * @param blindTerms the blindTerms to set
      */
-    public void setBlindTerms(HashSet<String> blindTerms) {
-        this.blindTerms = blindTerms;
+    public void setBlindTerms(Set<String> blindTerms) {
+        this.blindTerms = createTermSet(blindTerms);
     }
 
     /**
@@ -887,7 +1087,7 @@ public class VolumePredictor {
     /**
      * @return the recentVolumes
      */
-    public HashMap<String, ArrayList<Long>> getRecentVolumes() {
+    public Map<String, VolumeWindow> getRecentVolumes() {
         return recentVolumes;
     }
 
@@ -918,4 +1118,124 @@ public class VolumePredictor {
     public Map<String, String> getIdsToNamesMap() {
         return this.idsToNamesMap;
     }
+
+    /**
+     * @return the number of predictions made so far
+     */
+    public long getPredictionCount() {
+        return this.predictionCount.get();
+    }
+
+    /**
+     * @return the number of observations without an available prediction model
+     */
+    public long getUnavailableCount() {
+        return this.unavailableCount.get();
+    }
+
+    /**
+     * @return the number of ignored (first) observations
+     */
+    public long getIgnoredCount() {
+        return this.ignoredCount.get();
+    }
+
+    /**
+     * @return the number of alarms (per term) raised so far
+     */
+    public long getAlarmCount() {
+        return this.alarmCount.get();
+    }
+
+    /**
+     * @return the number of models (monitored and blind) trained so far
+     */
+    public long getTrainingCount() {
+        return this.trainingCount.get();
+    }
+
+    /**
+     * Processes a single term.
+     */
+    private interface ITermProcessor {
+
+        /**
+         * Processes the term with the given index.
+         * 
+         * @param index the index of the term
+         */
+        public void process(int index);
+
+    }
+
+    /**
+     * A fork/join task processing a range of terms.
+     */
+    @SuppressWarnings("serial")
+    private static class TermTask extends RecursiveAction {
+
+        private ITermProcessor processor;
+        private int from;
+        private int to;
+        private int batch;
+
+        /**
+         * Creates a task.
+         * 
+         * @param processor the term processor
+         * @param from the first term index (inclusive)
+         * @param to the last term index (exclusive)
+         * @param batch the maximum number of terms to process without splitting
+         */
+        private TermTask(ITermProcessor processor, int from, int to, int batch) {
+            this.processor = processor;
+            this.from = from;
+            this.to = to;
+            this.batch = batch;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batch) {
+                for (int i = from; i < to; i++) {
+                    processor.process(i);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TermTask(processor, from, mid, batch), new TermTask(processor, mid, to, batch));
+            }
+        }
+
+    }
+
+    /**
+     * The data of a single term within a prediction step.
+     */
+    private static class TermStep {
+
+        private String termId;
+        private String termName;
+        private long volume;
+        private String timestamp;
+        private boolean predicted;
+        private double prediction;
+        private double[] alarm;
+
+        /**
+         * Creates a term step.
+         * 
+         * @param termId the id of the term
+         * @param termName the name of the term
+         * @param volume the observed volume
+         * @param timestamp the timestamp of the observation
+         */
+        private TermStep(String termId, String termName, long volume, String timestamp) {
+            this.termId = termId;
+            this.termName = termName;
+            this.volume = volume;
+            this.timestamp = timestamp;
+        }
+
+    }
+
 }
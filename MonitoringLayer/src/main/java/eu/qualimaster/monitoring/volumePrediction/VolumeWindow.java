@@ -0,0 +1,164 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.volumePrediction;
+
+/**
+ * A rolling window of the recent volumes of a term with running statistics, i.e., mean, standard deviation and the
+ * length of the recent non-decreasing trend are available in constant time. The volumes are kept in a ring buffer,
+ * the statistics are updated by a sliding-window variant of Welford's algorithm. They are recomputed from the buffer
+ * once per round through the buffer to avoid accumulating rounding errors and if the variance collapses, e.g., when
+ * a peak leaves the window, to avoid cancellation errors. Not thread-safe.
+ *
+ * @author Holger Eichelberger
+ */
+public class VolumeWindow {
+
+    private long[] values;
+    private static final double COLLAPSE = 1e-6;
+
+    private int count;
+    private int pos; // next position to write
+    private double mean;
+    private double m2; // sum of squared differences from the mean
+    private int increasing; // number of recent non-decreasing steps
+
+    /**
+     * Creates a window.
+     *
+     * @param capacity the maximum number of recent volumes
+     */
+    public VolumeWindow(int capacity) {
+        values = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * Adds a volume, replacing the oldest one if the window is full.
+     *
+     * @param volume the volume
+     */
+    public void add(long volume) {
+        if (count > 0) {
+            increasing = volume >= last() ? Math.min(increasing + 1, values.length) : 0;
+        }
+        if (count < values.length) {
+            count++;
+            double delta = volume - mean;
+            mean += delta / count;
+            m2 += delta * (volume - mean);
+            values[pos] = volume;
+            pos = (pos + 1) % values.length;
+        } else {
+            long old = values[pos];
+            double newMean = mean + (double) (volume - old) / count;
+            double oldM2 = m2;
+            m2 = Math.max(0, m2 + (volume - old) * (volume - newMean + old - mean));
+            mean = newMean;
+            values[pos] = volume;
+            pos = (pos + 1) % values.length;
+            if (0 == pos || m2 < oldM2 * COLLAPSE) {
+                recompute();
+            }
+        }
+    }
+
+    /**
+     * Recomputes the statistics from the buffer.
+     */
+    private void recompute() {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        mean = sum / count;
+        double sumsq = 0;
+        for (int i = 0; i < count; i++) {
+            double delta = values[i] - mean;
+            sumsq += delta * delta;
+        }
+        m2 = sumsq;
+    }
+
+    /**
+     * Returns the number of volumes in the window.
+     *
+     * @return the number of volumes
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns whether the window is empty.
+     *
+     * @return <code>true</code> if empty, <code>false</code> else
+     */
+    public boolean isEmpty() {
+        return 0 == count;
+    }
+
+    /**
+     * Returns a volume.
+     *
+     * @param index the index of the volume, <code>0</code> for the oldest
+     * @return the volume
+     * @throws IndexOutOfBoundsException if <code>index &lt; 0 || index &gt;= {@link #size()}</code>
+     */
+    public long get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + " size " + count);
+        }
+        return values[(pos - count + index + values.length) % values.length];
+    }
+
+    /**
+     * Returns the most recent volume.
+     *
+     * @return the most recent volume
+     * @throws IndexOutOfBoundsException if the window is empty
+     */
+    public long last() {
+        return get(count - 1);
+    }
+
+    /**
+     * Returns the mean of the volumes.
+     *
+     * @return the mean, <code>0</code> if empty
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Returns the (population) standard deviation of the volumes.
+     *
+     * @return the standard deviation, <code>0</code> if empty
+     */
+    public double getStandardDeviation() {
+        return count > 0 ? Math.sqrt(m2 / count) : 0;
+    }
+
+    /**
+     * Returns whether the most recent volumes are not decreasing.
+     *
+     * @param steps the number of recent steps to consider, limited to <code>{@link #size()} - 1</code>
+     * @return <code>true</code> if not decreasing, <code>false</code> else
+     */
+    public boolean isIncreasing(int steps) {
+        return Math.min(steps, count - 1) <= increasing;
+    }
+
+}
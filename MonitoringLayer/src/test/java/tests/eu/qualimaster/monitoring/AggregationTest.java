@@ -22,18 +22,25 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import eu.qualimaster.coordination.CoordinationManager;
 import eu.qualimaster.coordination.INameMapping;
 import eu.qualimaster.coordination.NameMapping;
 import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
+import eu.qualimaster.monitoring.MonitoringConfiguration;
 import eu.qualimaster.monitoring.MonitoringManager;
 import eu.qualimaster.monitoring.events.AlgorithmChangedMonitoringEvent;
+import eu.qualimaster.monitoring.events.CompactFrozenSystemState;
 import eu.qualimaster.monitoring.events.ComponentKey;
+import eu.qualimaster.monitoring.events.FrozenStateSymbols;
+import eu.qualimaster.monitoring.events.FrozenSystemState;
 import eu.qualimaster.monitoring.events.PipelineElementMultiObservationMonitoringEvent;
 import eu.qualimaster.monitoring.events.SubTopologyMonitoringEvent;
+import eu.qualimaster.monitoring.observations.AggregationEpoch;
 import eu.qualimaster.monitoring.systemState.NodeImplementationSystemPart;
 import eu.qualimaster.monitoring.systemState.PipelineNodeSystemPart;
 import eu.qualimaster.monitoring.systemState.PipelineSystemPart;
@@ -397,6 +404,162 @@ public class AggregationTest {
         return new PipelineTopology(processors);
     }
     
+    /**
+     * Tests and measures freezing a synthetic pipeline with hundreds of nodes, i.e., that memoized topology 
+     * aggregation (see {@link AggregationEpoch}) leads to the same values as calculating the aggregates on each 
+     * read.
+     */
+    @Test
+    public void testFreezeLargePipeline() {
+        final int nodeCount = 400;
+        final IObservable[] observables = {TimeBehavior.LATENCY, ResourceUsage.USED_MEMORY};
+        SystemState state = new SystemState();
+        createChainPipeline(state, "LargePip", nodeCount);
+
+        AggregationEpoch.setEnabled(false);
+        long start = System.currentTimeMillis();
+        FrozenSystemState expected = state.freeze();
+        long plain = System.currentTimeMillis() - start;
+        AggregationEpoch.setEnabled(true);
+        AggregationEpoch.resetStatistics();
+        start = System.currentTimeMillis();
+        FrozenSystemState actual = state.freeze();
+        long memoized = System.currentTimeMillis() - start;
+        System.out.println("Freezing " + nodeCount + " nodes: " + plain + " ms plain, " + memoized 
+            + " ms memoized, hit rate " + AggregationEpoch.getHitRate());
+        Assert.assertTrue(AggregationEpoch.getHitRate() > 0);
+
+        int count = 0;
+        for (Map.Entry<String, Double> entry : expected.getMapping().entrySet()) {
+            for (IObservable obs : observables) {
+                if (entry.getKey().endsWith(FrozenSystemState.SEPARATOR + obs.name())) {
+                    Double value = actual.getMapping().get(entry.getKey());
+                    Assert.assertNotNull(entry.getKey(), value);
+                    Assert.assertEquals(entry.getKey(), entry.getValue(), value, 0.0001);
+                    count++;
+                }
+            }
+        }
+        Assert.assertTrue(count >= 2 * nodeCount);
+        state.clear();
+    }
+
+    /**
+     * Tests and measures {@link SystemState#freeze()} in map-based and compact representation, i.e., that both lead
+     * to the same values, that the compact representation reuses the symbol table of the system state and that the 
+     * symbols of a removed pipeline are pruned.
+     */
+    @Test
+    public void testFreezeCompact() {
+        final int nodeCount = 50;
+        final int cycles = 100;
+        SystemState state = new SystemState();
+        createChainPipeline(state, "pip1", nodeCount);
+        createChainPipeline(state, "pip2", nodeCount);
+        Properties prop = new Properties();
+        long[] times = new long[2];
+        FrozenSystemState[] results = new FrozenSystemState[2];
+        for (int round = 0; round < 2; round++) { // first round warms up
+            for (int mode = 0; mode < 2; mode++) {
+                prop.put(MonitoringConfiguration.MONITORING_COMPACT_FROZEN_STATE, String.valueOf(1 == mode));
+                MonitoringConfiguration.configure(prop);
+                long start = System.currentTimeMillis();
+                for (int c = 0; c < cycles; c++) {
+                    results[mode] = state.freeze();
+                }
+                times[mode] = System.currentTimeMillis() - start;
+            }
+        }
+        System.out.println("Freezing " + cycles + " times: " + times[0] + " ms map-based, " + times[1] 
+            + " ms compact");
+        Assert.assertTrue(results[1] instanceof CompactFrozenSystemState);
+        Assert.assertEquals(results[0].getMapping().keySet(), results[1].getMapping().keySet());
+        for (Map.Entry<String, Double> entry : results[0].getMapping().entrySet()) {
+            if (entry.getKey().endsWith(FrozenSystemState.SEPARATOR + TimeBehavior.LATENCY.name())) { // not timed
+                Assert.assertEquals(entry.getValue(), results[1].getMapping().get(entry.getKey()));
+            }
+        }
+
+        FrozenStateSymbols symbols = ((CompactFrozenSystemState) results[1]).getSymbols();
+        Assert.assertSame(symbols, ((CompactFrozenSystemState) state.freeze()).getSymbols());
+        int size = symbols.size();
+        state.removePipeline("pip1");
+        CompactFrozenSystemState pruned = (CompactFrozenSystemState) state.freeze();
+        Assert.assertNotSame(symbols, pruned.getSymbols());
+        Assert.assertTrue(pruned.getSymbols().size() < size);
+        Assert.assertNull(pruned.getPipelineObservation("pip1", TimeBehavior.LATENCY));
+        Assert.assertEquals(results[1].getPipelineObservation("pip2", TimeBehavior.LATENCY), 
+            pruned.getPipelineObservation("pip2", TimeBehavior.LATENCY));
+
+        prop.put(MonitoringConfiguration.MONITORING_COMPACT_FROZEN_STATE, 
+            String.valueOf(MonitoringConfiguration.DEFAULT_MONITORING_COMPACT_FROZEN_STATE));
+        MonitoringConfiguration.configure(prop);
+        state.clear();
+    }
+
+    /**
+     * Tests that updates to one pipeline do not invalidate the memoized aggregates of another pipeline, but 
+     * those of the updated pipeline.
+     */
+    @Test
+    public void testAggregationScope() {
+        SystemState state = new SystemState();
+        PipelineSystemPart pip1 = createChainPipeline(state, "pip1", 10);
+        PipelineSystemPart pip2 = createChainPipeline(state, "pip2", 10);
+        Assert.assertSame(pip1.getAggregationScope(), 
+            pip1.obtainPipelineNode("node1").getAggregationScope());
+        Assert.assertNotSame(pip1.getAggregationScope(), pip2.getAggregationScope());
+
+        AggregationEpoch.resetStatistics();
+        AggregationEpoch.begin();
+        try {
+            double value = pip1.getObservedValue(TimeBehavior.LATENCY);
+            long misses = AggregationEpoch.getMissCount();
+            Assert.assertTrue(misses > 0);
+            StateUtils.setValue(pip2.obtainPipelineNode("node1"), TimeBehavior.LATENCY, 50, null);
+            Assert.assertEquals(value, pip1.getObservedValue(TimeBehavior.LATENCY), 0.0001);
+            Assert.assertEquals(misses, AggregationEpoch.getMissCount()); // other pipeline, still cached
+            Assert.assertTrue(AggregationEpoch.getHitCount() > 0);
+            StateUtils.setValue(pip1.obtainPipelineNode("node1"), TimeBehavior.LATENCY, 50, null);
+            Assert.assertNotEquals(value, pip1.getObservedValue(TimeBehavior.LATENCY), 0.0001);
+            Assert.assertTrue(AggregationEpoch.getMissCount() > misses); // own pipeline, recalculated
+        } finally {
+            AggregationEpoch.end();
+        }
+        state.clear();
+    }
+
+    /**
+     * Creates a pipeline consisting of a chain of nodes with initial values.
+     * 
+     * @param state the system state to create the pipeline within
+     * @param pipelineName the name of the pipeline
+     * @param nodeCount the number of nodes
+     * @return the pipeline
+     */
+    private static PipelineSystemPart createChainPipeline(SystemState state, String pipelineName, int nodeCount) {
+        List<Processor> procs = new ArrayList<Processor>();
+        Processor last = null;
+        for (int n = 0; n < nodeCount; n++) {
+            Processor proc = new TestProcessor("node" + n);
+            procs.add(proc);
+            if (null != last) {
+                Stream stream = new Stream("s" + n, last, proc);
+                last.setOutputs(stream);
+                proc.setInputs(stream);
+            }
+            last = proc;
+        }
+        PipelineSystemPart pip = state.obtainPipeline(pipelineName);
+        pip.setTopology(new PipelineTopology(procs));
+        for (int n = 0; n < nodeCount; n++) {
+            PipelineNodeSystemPart node = pip.obtainPipelineNode("node" + n);
+            StateUtils.setValue(node, TimeBehavior.LATENCY, n % 10, null);
+            StateUtils.setValue(node, ResourceUsage.USED_MEMORY, 100 + n, null);
+        }
+        return pip;
+    }
+
     /**
      * Loads and registers the given name mapping.
      * 
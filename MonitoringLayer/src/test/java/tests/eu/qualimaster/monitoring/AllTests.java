@@ -4,6 +4,9 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 import tests.eu.qualimaster.monitoring.profiling.ProfilingTests;
+import tests.eu.qualimaster.monitoring.volumePrediction.VolumeForecastingTest;
+import tests.eu.qualimaster.monitoring.volumePrediction.VolumePredictorTest;
+import tests.eu.qualimaster.monitoring.volumePrediction.VolumeWindowTest;
 
 /**
  * The test suite for the Monitoring Layer. Do not rename this class.<br/>
@@ -24,6 +27,8 @@ import tests.eu.qualimaster.monitoring.profiling.ProfilingTests;
     LogTest.class,
     TopologyTests.class,
     ReasoningTaskTests.class, 
+    LaneSchedulerTests.class,
+    ThriftSnapshotCacheTests.class,
     StormClusterMonitoringTest.class,
     ObservationTests.class, 
     CloudEnvironmentTests.class,
@@ -32,6 +37,9 @@ import tests.eu.qualimaster.monitoring.profiling.ProfilingTests;
     ProfilingTests.class,
     ResourceUnpackingTests.class,
     TracingTest.class,
+    VolumeForecastingTest.class,
+    VolumePredictorTest.class,
+    VolumeWindowTest.class,
     // must be last
     EnactingPipelineTests.class,
     MonitoringConfigurationTests.class})
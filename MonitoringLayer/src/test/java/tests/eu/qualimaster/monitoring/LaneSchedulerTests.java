@@ -0,0 +1,172 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring;
+
+import java.io.StringWriter;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.SimpleLayout;
+import org.apache.log4j.WriterAppender;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.utils.LaneScheduler;
+import eu.qualimaster.monitoring.utils.LaneScheduler.Lane;
+import eu.qualimaster.monitoring.utils.LaneScheduler.TaskStatistics;
+
+/**
+ * Tests the lane scheduler.
+ *
+ * @author Holger Eichelberger
+ */
+public class LaneSchedulerTests {
+
+    /**
+     * A counting test task.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class CountingTask extends TimerTask {
+
+        private AtomicInteger count = new AtomicInteger();
+        private long sleep;
+        private boolean fail;
+
+        /**
+         * Creates a counting task.
+         *
+         * @param sleep the time to sleep per execution
+         * @param fail whether the task shall throw an exception
+         */
+        private CountingTask(long sleep, boolean fail) {
+            this.sleep = sleep;
+            this.fail = fail;
+        }
+
+        @Override
+        public void run() {
+            count.incrementAndGet();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+            if (fail) {
+                throw new IllegalStateException("test");
+            }
+        }
+
+    }
+
+    /**
+     * Tests that a slow or failing task in one lane neither delays nor stops tasks in other lanes.
+     *
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 10000)
+    public void testLanes() throws InterruptedException {
+        LaneScheduler scheduler = new LaneScheduler();
+        CountingTask slow = new CountingTask(500, false);
+        CountingTask failing = new CountingTask(0, true);
+        CountingTask fast = new CountingTask(0, false);
+        scheduler.schedule(Lane.REASONING, "slow", slow, 0, 50);
+        scheduler.schedule(Lane.PREDICTION, "failing", failing, 0, 50);
+        scheduler.schedule(Lane.CLUSTER, "fast", fast, 0, 50);
+        try {
+            scheduler.schedule(Lane.CLUSTER, "fast", fast, 0, 50);
+            Assert.fail("no exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Thread.sleep(1200);
+        Assert.assertTrue(scheduler.cancel(slow));
+        Assert.assertFalse(scheduler.cancel(slow));
+
+        Assert.assertTrue(fast.count.get() >= 10);
+        Assert.assertTrue(failing.count.get() >= 10); // not stopped by exceptions
+        Assert.assertTrue(slow.count.get() <= 3); // no backlog
+
+        TaskStatistics stat = scheduler.getStatistics(failing);
+        Assert.assertNotNull(stat);
+        Assert.assertEquals(stat.getExecutions(), stat.getFailures());
+        stat = scheduler.getStatistics(fast);
+        Assert.assertEquals(Lane.CLUSTER, stat.getLane());
+        Assert.assertEquals(0, stat.getOverruns());
+        Assert.assertTrue(stat.getMaxLag() < 500); // not delayed by the slow task
+        Assert.assertEquals(2, scheduler.getStatistics().size());
+        Assert.assertNull(scheduler.getStatistics(slow));
+
+        scheduler.shutdown();
+        try {
+            scheduler.schedule(Lane.CLUSTER, "fast", fast, 0, 50);
+            Assert.fail("no exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests overrun detection and skip-if-busy.
+     *
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 10000)
+    public void testOverrun() throws InterruptedException {
+        LaneScheduler scheduler = new LaneScheduler();
+        CountingTask slow = new CountingTask(250, false);
+        scheduler.schedule(Lane.PIPELINE, "slow", slow, 0, 100);
+        Thread.sleep(1100);
+        TaskStatistics stat = scheduler.getStatistics(slow);
+        scheduler.shutdown();
+        Assert.assertTrue(stat.getOverruns() > 0);
+        Assert.assertTrue(stat.getSkipped() > 0);
+        Assert.assertTrue(stat.getMaxDuration() >= 250);
+        Assert.assertTrue(slow.count.get() <= 5);
+    }
+
+    /**
+     * Tests that the task statistics are exported to the log.
+     *
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 10000)
+    public void testLogStatistics() throws InterruptedException {
+        Logger logger = LogManager.getLogger(LaneScheduler.class);
+        Level level = logger.getLevel();
+        StringWriter out = new StringWriter();
+        WriterAppender appender = new WriterAppender(new SimpleLayout(), out);
+        logger.addAppender(appender);
+        logger.setLevel(Level.INFO);
+        LaneScheduler scheduler = new LaneScheduler();
+        CountingTask task = new CountingTask(0, false);
+        scheduler.schedule(Lane.CLUSTER, "counting", task, 0, 50);
+        Thread.sleep(300);
+        scheduler.logStatistics();
+        scheduler.shutdown();
+        logger.removeAppender(appender);
+        logger.setLevel(level);
+        String log = out.toString();
+        Assert.assertTrue(log, log.contains("counting@" + Lane.CLUSTER));
+        Assert.assertTrue(log, log.contains("executions"));
+    }
+
+}
@@ -15,15 +15,22 @@
  */
 package tests.eu.qualimaster.monitoring;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.Test;
 import org.junit.Assert;
 
 import eu.qualimaster.coordination.CoordinationManager;
 import eu.qualimaster.coordination.INameMapping;
 import eu.qualimaster.coordination.IdentityMapping;
+import eu.qualimaster.monitoring.observations.AggregatingCompoundObservation;
 import eu.qualimaster.monitoring.observations.DelegatingStatisticsObservation;
 import eu.qualimaster.monitoring.observations.DelegatingTimeFramedObservation;
 import eu.qualimaster.monitoring.observations.SingleObservation;
+import eu.qualimaster.monitoring.systemState.IAggregationFunction;
 import eu.qualimaster.monitoring.systemState.PipelineNodeSystemPart;
 import eu.qualimaster.monitoring.systemState.PipelineSystemPart;
 import eu.qualimaster.monitoring.systemState.StateUtils;
@@ -106,6 +113,107 @@ public class ObservationTests {
         CoordinationManager.unregisterNameMapping(mapping);
     }
 
+    /**
+     * Tests concurrent updates and aggregations of a compound observation. Failures in the updating and reading
+     * threads are collected and asserted by the test thread.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test
+    public void testConcurrentCompoundUpdates() throws InterruptedException {
+        final int threads = 8;
+        final int keys = 16;
+        final int updates = 100000;
+        final AggregatingCompoundObservation obs = new AggregatingCompoundObservation(IAggregationFunction.SUM);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] updaters = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            updaters[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < updates; i++) {
+                            obs.incrementValue(1, "key" + ((i + offset) % keys));
+                        }
+                    } catch (Throwable th) {
+                        failure.compareAndSet(null, th);
+                    }
+                }
+            };
+            updaters[t].start();
+        }
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (running.get()) {
+                        double value = obs.getValue();
+                        Assert.assertTrue("aggregated " + value, value <= threads * updates);
+                    }
+                } catch (Throwable th) {
+                    failure.compareAndSet(null, th);
+                }
+            }
+        };
+        reader.start();
+        start.countDown();
+        for (int t = 0; t < threads; t++) {
+            updaters[t].join();
+        }
+        running.set(false);
+        reader.join();
+        if (null != failure.get()) {
+            throw new AssertionError("Failure in concurrent thread: " + failure.get(), failure.get());
+        }
+        Assert.assertEquals(keys, obs.getComponentCount());
+        Assert.assertEquals(threads * updates, obs.getValue(), 0.001);
+    }
+
+    /**
+     * Tests concurrent first updates of the same new component, i.e., that no thread overwrites a component that
+     * was added concurrently by another thread.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test
+    public void testConcurrentFirstUpdates() throws InterruptedException {
+        final int threads = 4;
+        final int keys = 5000;
+        final AggregatingCompoundObservation obs = new AggregatingCompoundObservation(IAggregationFunction.SUM);
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] updaters = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            updaters[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int k = 0; k < keys; k++) {
+                            barrier.await(); // all threads add the same new key at once
+                            obs.incrementValue(1, "key" + k);
+                        }
+                    } catch (Throwable th) {
+                        failure.compareAndSet(null, th);
+                        barrier.reset();
+                    }
+                }
+            };
+            updaters[t].start();
+        }
+        for (int t = 0; t < threads; t++) {
+            updaters[t].join();
+        }
+        if (null != failure.get()) {
+            throw new AssertionError("Failure in concurrent thread: " + failure.get(), failure.get());
+        }
+        Assert.assertEquals(keys, obs.getComponentCount());
+        Assert.assertEquals(threads * keys, obs.getValue(), 0.001);
+    }
+
     /**
      * Sleeps for <code>ms</code>.
      * 
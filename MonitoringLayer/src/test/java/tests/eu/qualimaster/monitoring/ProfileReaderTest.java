@@ -17,6 +17,8 @@ package tests.eu.qualimaster.monitoring;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
@@ -25,7 +27,10 @@ import org.junit.Test;
 
 import eu.qualimaster.monitoring.profiling.ProfileReader;
 import eu.qualimaster.monitoring.tracing.TraceReader;
+import eu.qualimaster.monitoring.tracing.TraceReader.IPipelineEntryHandler;
 import eu.qualimaster.monitoring.tracing.TraceReader.PipelineEntry;
+import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.TimeBehavior;
 import tests.eu.qualimaster.coordination.Utils;
 
 /**
@@ -53,6 +58,44 @@ public class ProfileReaderTest {
         FileUtils.deleteQuietly(outputFolder);
     }
     
+    /**
+     * Tests streaming and parallel reading of a trace.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testStreamingTraceReader() throws IOException {
+        File input = new File(Utils.getTestdataDir(), "infraLog.csv");
+        TraceReader reader = new TraceReader();
+        List<PipelineEntry> expected = reader.read(input);
+        Assert.assertFalse(expected.isEmpty());
+        
+        reader.clear();
+        final List<PipelineEntry> actual = new ArrayList<PipelineEntry>();
+        reader.read(input, new IPipelineEntryHandler() {
+            
+            @Override
+            public void handle(PipelineEntry entry) {
+                actual.add(entry);
+            }
+        }, 4);
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int e = 0; e < expected.size(); e++) {
+            Assert.assertEquals(expected.get(e).toString(), actual.get(e).toString());
+        }
+        
+        reader.clear();
+        reader.setProjection(Arrays.asList(new IObservable[] {TimeBehavior.LATENCY}));
+        actual.clear();
+        actual.addAll(reader.read(input));
+        Assert.assertEquals(expected.size(), actual.size());
+        for (PipelineEntry entry : actual) {
+            for (IObservable obs : entry.observables()) {
+                Assert.assertEquals(TimeBehavior.LATENCY, obs);
+            }
+        }
+    }
+    
     /**
      * Just calling main without effects.
      * 
@@ -15,6 +15,9 @@
  */
 package tests.eu.qualimaster.monitoring;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -32,6 +35,7 @@ import eu.qualimaster.monitoring.MonitoringManager;
 import eu.qualimaster.monitoring.ReasoningTask;
 import eu.qualimaster.monitoring.ReasoningTask.IReasoningModelProvider;
 import eu.qualimaster.monitoring.ReasoningTask.PhaseReasoningModelProvider;
+import eu.qualimaster.monitoring.StateChangeDetector;
 import eu.qualimaster.monitoring.events.ConstraintViolationAdaptationEvent;
 import eu.qualimaster.monitoring.events.FrozenSystemState;
 import eu.qualimaster.monitoring.events.ViolatingClause;
@@ -260,6 +264,54 @@ public class ReasoningTaskTests {
         assertAlgorithmObservation(expected, state, alg, AnalysisObservables.IS_VALID, TRUE);
     }
 
+    /**
+     * Tests the change detection for change-driven reasoning.
+     */
+    @Test
+    public void testChangeDetector() {
+        Map<String, Double> tolerances = new HashMap<String, Double>();
+        tolerances.put(TimeBehavior.LATENCY.name(), 0.1);
+        StateChangeDetector detector = new StateChangeDetector(tolerances);
+        Map<String, PipelineLifecycleEvent.Status> status = new HashMap<String, PipelineLifecycleEvent.Status>();
+        status.put("pip", PipelineLifecycleEvent.Status.STARTED);
+        FrozenSystemState state = new FrozenSystemState();
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, "pip", "elt", TimeBehavior.LATENCY, 100.0);
+        state.setObservation(FrozenSystemState.PIPELINE, "pip", TimeBehavior.THROUGHPUT_ITEMS, 50.0);
+        state.setObservation(FrozenSystemState.MACHINE, "m1", ResourceUsage.AVAILABLE, 1.0);
+        Assert.assertTrue(detector.hasChanged(state, status)); // no reference
+        detector.update(state, status);
+        Assert.assertFalse(detector.hasChanged(state, status));
+
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, "pip", "elt", TimeBehavior.LATENCY, 105.0);
+        Assert.assertFalse(detector.hasChanged(state, status)); // within band
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, "pip", "elt", TimeBehavior.LATENCY, 115.0);
+        Assert.assertTrue(detector.hasChanged(state, status));
+        Assert.assertEquals(1, detector.getChangedPipelines().size());
+        Assert.assertTrue(detector.getChangedPipelines().contains("pip"));
+        Assert.assertFalse(detector.isInfrastructureChanged());
+        detector.update(state, status);
+
+        state.setObservation(FrozenSystemState.PIPELINE, "pip", TimeBehavior.THROUGHPUT_ITEMS, 50.5); // no band
+        Assert.assertTrue(detector.hasChanged(state, status));
+        detector.update(state, status);
+        state.setObservation(FrozenSystemState.MACHINE, "m1", ResourceUsage.AVAILABLE, 0.0);
+        Assert.assertTrue(detector.hasChanged(state, status));
+        Assert.assertTrue(detector.isInfrastructureChanged());
+        Assert.assertTrue(detector.getChangedPipelines().isEmpty());
+        detector.update(state, status);
+
+        status.put("pip", PipelineLifecycleEvent.Status.STOPPING);
+        Assert.assertTrue(detector.hasChanged(state, status));
+        Assert.assertTrue(detector.getChangedPipelines().contains("pip"));
+        detector.update(state, status);
+        state.getMapping().remove(FrozenSystemState.obtainKey(FrozenSystemState.MACHINE, "m1", 
+            ResourceUsage.AVAILABLE));
+        Assert.assertTrue(detector.hasChanged(state, status));
+        detector.update(state, status);
+        detector.reset();
+        Assert.assertTrue(detector.hasChanged(state, status));
+    }
+
     /**
      * Assert an algorithm observation. 
      * 
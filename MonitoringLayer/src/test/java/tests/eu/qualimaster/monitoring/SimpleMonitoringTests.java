@@ -26,6 +26,7 @@ import eu.qualimaster.monitoring.events.FrozenSystemState;
 import eu.qualimaster.monitoring.events.PipelineElementMultiObservationMonitoringEvent;
 import eu.qualimaster.monitoring.events.PipelineElementObservationMonitoringEvent;
 import eu.qualimaster.monitoring.events.PlatformMonitoringEvent;
+import eu.qualimaster.monitoring.events.ReplayMonitoringEvent;
 import eu.qualimaster.monitoring.systemState.NodeImplementationSystemPart;
 import eu.qualimaster.monitoring.systemState.PipelineNodeSystemPart;
 import eu.qualimaster.monitoring.systemState.PipelineSystemPart;
@@ -34,6 +35,7 @@ import eu.qualimaster.monitoring.systemState.SystemState;
 import eu.qualimaster.observables.CloudResourceUsage;
 import eu.qualimaster.observables.IObservable;
 import eu.qualimaster.observables.ResourceUsage;
+import eu.qualimaster.observables.Scalability;
 import eu.qualimaster.observables.TimeBehavior;
 
 /**
@@ -329,6 +331,43 @@ public class SimpleMonitoringTests {
         assertMultiObservation(new SystemState(state)); // also on copy
     }
     
+    /**
+     * Tests replay observations per ticket on pipeline elements, i.e., that they are kept separate from the live
+     * observations.
+     */
+    @Test
+    public void testReplayObservation() {
+        SystemState state = MonitoringManager.getSystemState();
+        PipelineSystemPart pPart = state.obtainPipeline(TestNameMapping.PIPELINE_NAME);
+        pPart.changeStatus(PipelineLifecycleEvent.Status.STARTED, false, null);
+        PipelineNodeSystemPart sinkPart = pPart.obtainPipelineNode(TestNameMapping.NODE_SINK);
+        double sinkItems = sinkPart.getObservedValue(TimeBehavior.THROUGHPUT_ITEMS);
+        double pipelineItems = pPart.getObservedValue(TimeBehavior.THROUGHPUT_ITEMS);
+        
+        Map<IObservable, Double> observations = new HashMap<IObservable, Double>();
+        observations.put(Scalability.VELOCITY, 100.0);
+        observations.put(TimeBehavior.THROUGHPUT_ITEMS, 1000.0);
+        MonitoringManager.handleEvent(new ReplayMonitoringEvent(TestNameMapping.PIPELINE_NAME, 
+            TestNameMapping.NODE_SINK, 1, observations));
+        observations = new HashMap<IObservable, Double>();
+        observations.put(Scalability.VELOCITY, Double.POSITIVE_INFINITY); // no time elapsed
+        observations.put(TimeBehavior.THROUGHPUT_ITEMS, 500.0);
+        MonitoringManager.handleEvent(new ReplayMonitoringEvent(TestNameMapping.PIPELINE_NAME, 
+            TestNameMapping.NODE_SINK, 2, observations));
+        Assert.assertEquals(100.0, sinkPart.getReplay(1).getObservedValue(Scalability.VELOCITY), 0.001);
+        Assert.assertEquals(1000.0, sinkPart.getReplay(1).getObservedValue(TimeBehavior.THROUGHPUT_ITEMS), 0.001);
+        Assert.assertFalse(sinkPart.getReplay(2).hasValue(Scalability.VELOCITY));
+        Assert.assertEquals(500.0, sinkPart.getReplay(2).getObservedValue(TimeBehavior.THROUGHPUT_ITEMS), 0.001);
+        // live observations are not affected
+        Assert.assertEquals(sinkItems, sinkPart.getObservedValue(TimeBehavior.THROUGHPUT_ITEMS), 0.001);
+        Assert.assertEquals(pipelineItems, pPart.getObservedValue(TimeBehavior.THROUGHPUT_ITEMS), 0.001);
+
+        MonitoringManager.handleEvent(new ReplayMonitoringEvent(TestNameMapping.PIPELINE_NAME, 
+            TestNameMapping.NODE_SINK, 1, null)); // ticket 1 ended
+        Assert.assertNull(sinkPart.getReplay(1));
+        Assert.assertNotNull(sinkPart.getReplay(2));
+    }
+
     /**
      * Implements the assertions of {@link #testMultiObservation()}.
      * 
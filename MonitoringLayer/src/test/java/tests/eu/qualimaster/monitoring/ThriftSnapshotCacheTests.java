@@ -0,0 +1,325 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.thrift7.TException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import backtype.storm.generated.ClusterSummary;
+import backtype.storm.generated.NotAliveException;
+import backtype.storm.generated.TopologyInfo;
+import backtype.storm.generated.TopologySummary;
+import eu.qualimaster.monitoring.storm.StormConnection;
+import eu.qualimaster.monitoring.storm.ThriftSnapshotCache;
+import eu.qualimaster.monitoring.storm.ThriftSnapshotCache.Snapshot;
+
+/**
+ * Tests the {@link ThriftSnapshotCache} on a simulated Nimbus.
+ *
+ * @author Holger Eichelberger
+ */
+public class ThriftSnapshotCacheTests {
+
+    private static final String[] TOPOLOGIES = {"pip1", "pip2", "pip3"};
+
+    /**
+     * Simulates Nimbus running {@link #TOPOLOGIES} and counts the calls.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class TestNimbus {
+
+        private AtomicInteger summaryCalls = new AtomicInteger();
+        private AtomicInteger infoCalls = new AtomicInteger();
+        private long delay;
+
+        /**
+         * Creates a simulated Nimbus.
+         *
+         * @param delay the time each call takes (in ms)
+         */
+        private TestNimbus(long delay) {
+            this.delay = delay;
+        }
+
+        /**
+         * Simulates the call time.
+         */
+        private void sleep() {
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                }
+            }
+        }
+
+        /**
+         * Returns the cluster summary.
+         *
+         * @return the cluster summary
+         */
+        private ClusterSummary getClusterSummary() {
+            summaryCalls.incrementAndGet();
+            sleep();
+            List<TopologySummary> topologies = new ArrayList<TopologySummary>();
+            for (String name : TOPOLOGIES) {
+                TopologySummary summary = new TopologySummary();
+                summary.set_id(getId(name));
+                summary.set_name(name);
+                topologies.add(summary);
+            }
+            ClusterSummary result = new ClusterSummary();
+            result.set_topologies(topologies);
+            return result;
+        }
+
+        /**
+         * Returns a topology info.
+         *
+         * @param id the topology id
+         * @return the topology info
+         */
+        private TopologyInfo getTopologyInfo(String id) {
+            infoCalls.incrementAndGet();
+            sleep();
+            TopologyInfo result = new TopologyInfo();
+            result.set_id(id);
+            return result;
+        }
+
+    }
+
+    /**
+     * A connection to the simulated Nimbus.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class TestConnection extends StormConnection {
+
+        private TestNimbus nimbus;
+
+        /**
+         * Creates a connection.
+         *
+         * @param nimbus the simulated Nimbus
+         */
+        private TestConnection(TestNimbus nimbus) {
+            super("localhost", 6627); // does not connect
+            this.nimbus = nimbus;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public boolean open() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public ClusterSummary getClusterSummary() throws TException {
+            return nimbus.getClusterSummary();
+        }
+
+        @Override
+        public TopologyInfo getTopologyInfo(String id) throws NotAliveException, TException {
+            return nimbus.getTopologyInfo(id);
+        }
+
+    }
+
+    /**
+     * A snapshot cache on the simulated Nimbus counting the created connections.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class TestCache extends ThriftSnapshotCache {
+
+        private TestNimbus nimbus;
+        private AtomicInteger connections = new AtomicInteger();
+
+        /**
+         * Creates a snapshot cache.
+         *
+         * @param nimbus the simulated Nimbus
+         * @param poolSize the maximum number of connections to Nimbus
+         * @param interval the time a snapshot remains valid (in ms)
+         */
+        private TestCache(TestNimbus nimbus, int poolSize, long interval) {
+            super(poolSize, interval);
+            this.nimbus = nimbus;
+        }
+
+        @Override
+        protected StormConnection createConnection() {
+            connections.incrementAndGet();
+            return new TestConnection(nimbus);
+        }
+
+    }
+
+    /**
+     * Returns the simulated topology id.
+     *
+     * @param name the topology name
+     * @return the topology id
+     */
+    private static String getId(String name) {
+        return name + "-1-1";
+    }
+
+    /**
+     * Tests that concurrent requests for an outdated snapshot cause a single refresh.
+     *
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 10000)
+    public void testSingleFlightRefresh() throws InterruptedException {
+        final int threads = 5;
+        TestNimbus nimbus = new TestNimbus(200);
+        final TestCache cache = new TestCache(nimbus, 2, 10000);
+        cache.register(Arrays.asList(TOPOLOGIES[0]));
+        final CountDownLatch start = new CountDownLatch(1);
+        final Snapshot[] snapshots = new Snapshot[threads];
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> callers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            Thread caller = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        snapshots[index] = cache.getSnapshot();
+                    } catch (Throwable th) {
+                        failure.compareAndSet(null, th);
+                    }
+                }
+
+            };
+            caller.start();
+            callers.add(caller);
+        }
+        start.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        cache.close();
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(1, nimbus.summaryCalls.get());
+        Assert.assertEquals(1, nimbus.infoCalls.get());
+        Assert.assertEquals(1, cache.getRefreshCount());
+        Assert.assertEquals(threads - 1, cache.getCacheHits());
+        for (int t = 0; t < threads; t++) {
+            Assert.assertNotNull(snapshots[t]);
+            Assert.assertSame(snapshots[0], snapshots[t]);
+        }
+        Assert.assertNotNull(snapshots[0].getTopologyInfo(getId(TOPOLOGIES[0])));
+    }
+
+    /**
+     * Tests that connections are pooled and reused across refreshes.
+     *
+     * @throws TException shall not occur
+     */
+    @Test(timeout = 10000)
+    public void testConnectionReuse() throws TException {
+        TestNimbus nimbus = new TestNimbus(0);
+        TestCache cache = new TestCache(nimbus, 3, 0); // refresh on each request
+        cache.register(Arrays.asList(TOPOLOGIES[0]));
+        for (int i = 0; i < 10; i++) {
+            cache.getSnapshot();
+        }
+        Assert.assertEquals(10, cache.getRefreshCount());
+        Assert.assertEquals(1, cache.connections.get()); // sequential calls on one connection
+
+        cache.register(Arrays.asList(TOPOLOGIES)); // infos are obtained in parallel
+        for (int i = 0; i < 10; i++) {
+            Snapshot snapshot = cache.getSnapshot();
+            for (String name : TOPOLOGIES) {
+                Assert.assertNotNull(snapshot.getTopologyInfo(getId(name)));
+            }
+        }
+        Assert.assertTrue(cache.connections.get() <= 3);
+        Assert.assertEquals(20 + 10 * (1 + TOPOLOGIES.length), cache.getNimbusCalls());
+        cache.close();
+        try {
+            cache.getSnapshot();
+            Assert.fail("No exception");
+        } catch (TException e) {
+            // expected, closed
+        }
+    }
+
+    /**
+     * Tests that registrations of topologies are counted, i.e., a topology remains in the snapshots until its
+     * last registration is released.
+     *
+     * @throws TException shall not occur
+     */
+    @Test(timeout = 10000)
+    public void testUnregister() throws TException {
+        TestNimbus nimbus = new TestNimbus(0);
+        TestCache cache = new TestCache(nimbus, 2, 0); // refresh on each request
+        List<String> task1 = Arrays.asList(TOPOLOGIES[0], TOPOLOGIES[1]);
+        List<String> task2 = Arrays.asList(TOPOLOGIES[1]);
+        cache.register(task1);
+        cache.register(task2);
+        assertSnapshot(cache.getSnapshot(), true, true, false);
+
+        cache.unregister(task1);
+        assertSnapshot(cache.getSnapshot(), false, true, false);
+        cache.unregister(Arrays.asList(TOPOLOGIES[2])); // not registered, no effect
+        assertSnapshot(cache.getSnapshot(), false, true, false);
+        cache.unregister(task2);
+        assertSnapshot(cache.getSnapshot(), false, false, false);
+        cache.unregister(task2); // unbalanced, no effect
+        cache.register(task2);
+        assertSnapshot(cache.getSnapshot(), false, true, false);
+        cache.close();
+    }
+
+    /**
+     * Asserts the topology infos contained in a snapshot.
+     *
+     * @param snapshot the snapshot
+     * @param expected whether the info of the respective topology in {@link #TOPOLOGIES} is expected
+     */
+    private static void assertSnapshot(Snapshot snapshot, boolean... expected) {
+        Assert.assertEquals(TOPOLOGIES.length, snapshot.getClusterSummary().get_topologies().size());
+        for (int t = 0; t < TOPOLOGIES.length; t++) {
+            TopologyInfo info = snapshot.getTopologyInfo(getId(TOPOLOGIES[t]));
+            Assert.assertEquals(TOPOLOGIES[t], expected[t], null != info);
+        }
+    }
+
+}
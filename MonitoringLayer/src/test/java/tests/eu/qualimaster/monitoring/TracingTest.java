@@ -15,9 +15,15 @@
  */
 package tests.eu.qualimaster.monitoring;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.List;
 import java.util.Map;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import eu.qualimaster.coordination.CoordinationManager;
@@ -28,10 +34,15 @@ import eu.qualimaster.monitoring.systemState.PipelineNodeSystemPart;
 import eu.qualimaster.monitoring.systemState.PipelineSystemPart;
 import eu.qualimaster.monitoring.systemState.StateUtils;
 import eu.qualimaster.monitoring.systemState.SystemState;
+import eu.qualimaster.monitoring.tracing.BinaryTraceWriter;
+import eu.qualimaster.monitoring.tracing.BinaryTraceWriter.Compression;
 import eu.qualimaster.monitoring.tracing.FileTrace;
 import eu.qualimaster.monitoring.tracing.IParameterProvider;
 import eu.qualimaster.monitoring.tracing.ITrace;
 import eu.qualimaster.monitoring.tracing.ReflectiveFileTrace;
+import eu.qualimaster.monitoring.tracing.TraceReader;
+import eu.qualimaster.monitoring.tracing.TraceReader.PipelineEntry;
+import eu.qualimaster.monitoring.tracing.Tracing;
 import eu.qualimaster.observables.TimeBehavior;
 
 /**
@@ -41,6 +52,14 @@ import eu.qualimaster.observables.TimeBehavior;
  */
 public class TracingTest {
 
+    private static final IParameterProvider NO_PARAMETERS = new IParameterProvider() {
+        
+        @Override
+        public Map<String, List<AlgorithmParameter>> getAlgorithmParameters() {
+            return null;
+        }
+    };
+
     /**
      * Tests the file tracer directly with one dynamically removed pipeline (case from loose sub-pipeline integration).
      */
@@ -53,13 +72,7 @@ public class TracingTest {
         INameMapping sub2Mapping = new IdentityMapping("subPip2");
         CoordinationManager.registerTestMapping(sub2Mapping); // avoid full startup
 
-        IParameterProvider paramProvider = new IParameterProvider() {
-            
-            @Override
-            public Map<String, List<AlgorithmParameter>> getAlgorithmParameters() {
-                return null;
-            }
-        };
+        IParameterProvider paramProvider = NO_PARAMETERS;
         
         ITrace[] tracers = {new FileTrace("test", System.out), new ReflectiveFileTrace("test", System.out)};
         
@@ -94,6 +107,79 @@ public class TracingTest {
         // it's more important that there is no exception
     }
 
+    /**
+     * Tests writing and reading back a binary trace in comparison to a CSV trace.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testBinaryTrace() throws IOException {
+        INameMapping mapping = new IdentityMapping("pip");
+        CoordinationManager.registerTestMapping(mapping); // avoid full startup
+        File csv = File.createTempFile("trace", Tracing.TRACE_FILE_SUFFIX);
+        File bin = File.createTempFile("trace", Tracing.BINARY_TRACE_FILE_SUFFIX);
+        ITrace[] tracers = {new FileTrace("csv", new PrintStream(new FileOutputStream(csv))), 
+            new FileTrace("bin", new BinaryTraceWriter(new FileOutputStream(bin), Compression.GZIP, 100))};
+        
+        SystemState state = new SystemState();
+        PipelineSystemPart pip = state.obtainPipeline(mapping.getPipelineName());
+        PipelineNodeSystemPart node = pip.obtainPipelineNode("node");
+        final int count = 10;
+        for (int i = 0; i < count; i++) {
+            StateUtils.setValue(node, TimeBehavior.LATENCY, 25 + i / 3.0, 0);
+            traceInfrastructure(tracers, state, NO_PARAMETERS);
+        }
+        for (ITrace trace : tracers) {
+            trace.close();
+        }
+        CoordinationManager.unregisterNameMapping(mapping);
+
+        TraceReader reader = new TraceReader();
+        List<PipelineEntry> csvEntries = reader.read(csv);
+        reader.clear();
+        List<PipelineEntry> binEntries = reader.read(bin);
+        Assert.assertEquals(count, csvEntries.size());
+        Assert.assertEquals(count, binEntries.size());
+        for (int i = 0; i < count; i++) {
+            PipelineEntry csvEntry = csvEntries.get(i);
+            PipelineEntry binEntry = binEntries.get(i);
+            Assert.assertEquals(csvEntry.getName(), binEntry.getName());
+            Assert.assertEquals(csvEntry.nodes(), binEntry.nodes());
+            Double latency = binEntry.getNodeEntry("node").getObservation(TimeBehavior.LATENCY);
+            Assert.assertNotNull(latency);
+            Assert.assertEquals(csvEntry.getNodeEntry("node").getObservation(TimeBehavior.LATENCY), latency, 0.0001);
+        }
+        csv.delete();
+        bin.delete();
+    }
+
+    /**
+     * Tests that a binary trace writer drops rows if its queue is full, and that a lossless writer drains and backs 
+     * off instead.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test(timeout = 20000)
+    public void testBinaryTraceQueueFull() throws IOException {
+        final int rows = 200;
+        ByteArrayOutputStream lossy = new ByteArrayOutputStream();
+        ByteArrayOutputStream lossless = new ByteArrayOutputStream();
+        BinaryTraceWriter lossyWriter = new BinaryTraceWriter(lossy, Compression.NONE, 60000, 16, 2);
+        BinaryTraceWriter losslessWriter = new BinaryTraceWriter(lossless, Compression.NONE, 60000, 16, 2);
+        losslessWriter.setLossless(true);
+        for (int r = 0; r < rows; r++) {
+            lossyWriter.add(r);
+            lossyWriter.endRow();
+            losslessWriter.add(r);
+            losslessWriter.endRow();
+        }
+        lossyWriter.close();
+        losslessWriter.close();
+        Assert.assertTrue(lossyWriter.getDroppedRows() > 0);
+        Assert.assertEquals(0, losslessWriter.getDroppedRows());
+        Assert.assertTrue(lossless.size() > lossy.size());
+    }
+
     /**
      * Applies the tracers to trace the infrastructure.
      * 
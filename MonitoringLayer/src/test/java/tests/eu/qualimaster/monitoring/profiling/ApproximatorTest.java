@@ -19,17 +19,20 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
 import eu.qualimaster.monitoring.profiling.DefaultStorageStrategy;
+import eu.qualimaster.monitoring.profiling.ProfilingRegistry;
 import eu.qualimaster.monitoring.profiling.approximation.HarmonicApacheMathApproximator;
 import eu.qualimaster.monitoring.profiling.approximation.IApproximator;
 import eu.qualimaster.monitoring.profiling.approximation.IApproximatorCreator;
 import eu.qualimaster.monitoring.profiling.approximation.IStorageStrategy;
 import eu.qualimaster.monitoring.profiling.approximation.PolynomialApacheMathApproximator;
+import eu.qualimaster.monitoring.profiling.approximation.RecursiveLeastSquaresPolynomialApproximator;
 import eu.qualimaster.monitoring.profiling.approximation.SplineInterpolationLinearExtrapolationApproximator;
 import eu.qualimaster.observables.TimeBehavior;
 
@@ -224,6 +227,104 @@ public class ApproximatorTest {
         test(PolynomialApacheMathApproximator.INSTANCE_3, data, null);
     }
 
+    /**
+     * Tests the recursive least squares polynomial approximator.
+     */
+    @Test
+    public void testRecursiveLeastSquaresApproximator() {
+        List<Point> data = createLinearDataset();
+        List<ExpectedApproximation> exp = new ArrayList<ExpectedApproximation>();
+        // inside, cubic through four points
+        exp.add(new ExpectedApproximation(100, 3, 200));
+        exp.add(new ExpectedApproximation(300, 11, 400));
+        exp.add(new ExpectedApproximation(299.9, 10, 300.1));
+        test(RecursiveLeastSquaresPolynomialApproximator.INSTANCE_3, data, exp);
+    }
+
+    /**
+     * Tests that the recursive least squares polynomial approximator delivers the same approximations as the 
+     * Math 3 polynomial approximator while data points are added and replaced. Prints the time per update and 
+     * approximation for both.
+     */
+    @Test
+    public void testRecursiveLeastSquaresEquivalence() {
+        File tmp = new File(FileUtils.getTempDirectory(), "approxRls");
+        FileUtils.deleteQuietly(tmp);
+        IStorageStrategy strategy = DefaultStorageStrategy.INSTANCE;
+        IApproximator expected = PolynomialApacheMathApproximator.INSTANCE_3.createApproximator(strategy, tmp, 
+            "key", TimeBehavior.LATENCY);
+        IApproximator actual = RecursiveLeastSquaresPolynomialApproximator.INSTANCE_3.createApproximator(strategy, 
+            tmp, "key", TimeBehavior.LATENCY);
+        Random rnd = new Random(1234);
+        for (int i = 0; i < 300; i++) {
+            int param = rnd.nextInt(40);
+            double value = 2 * param * param - 30 * param + 500 + rnd.nextGaussian() * 20;
+            expected.update(param, value, true);
+            actual.update(param, value, true);
+            if (i > 10 && i % 10 == 0) {
+                for (int p = 0; p < 50; p += 7) {
+                    double e = expected.approximate(p);
+                    Assert.assertEquals("step " + i + " param " + p, e, actual.approximate(p), 
+                        Math.max(1, Math.abs(e)) * 0.001);
+                }
+            }
+        }
+        long exp = measure(expected, rnd);
+        long act = measure(actual, rnd);
+        System.out.println("Update-approximate [ns/op] polynomial " + exp + " recursive least squares " + act);
+    }
+
+    /**
+     * Measures the average time of an update-approximate cycle.
+     * 
+     * @param approx the approximator
+     * @param rnd the random number generator for the data
+     * @return the average time in nanoseconds
+     */
+    private static long measure(IApproximator approx, Random rnd) {
+        final int runs = 2000;
+        double sum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            int param = rnd.nextInt(40);
+            approx.update(param, 3 * param + 100 + rnd.nextGaussian(), true);
+            sum += approx.approximate(param);
+        }
+        long time = System.nanoTime() - start;
+        Assert.assertFalse(Double.isNaN(sum));
+        return time / runs;
+    }
+
+    /**
+     * Tests switching the registered approximators to recursive least squares and back. As the persisted data 
+     * points are the same, an approximation stored in one mode shall be loadable in the other mode.
+     */
+    @Test
+    public void testIncrementalRegistration() {
+        Assert.assertSame(SplineInterpolationLinearExtrapolationApproximator.INSTANCE, 
+            ProfilingRegistry.getApproximatorCreator("key", TimeBehavior.LATENCY));
+        ProfilingRegistry.registerIncrementalApproximation(true);
+        Assert.assertSame(RecursiveLeastSquaresPolynomialApproximator.INSTANCE_3, 
+            ProfilingRegistry.getApproximatorCreator("key", TimeBehavior.LATENCY));
+        ProfilingRegistry.registerIncrementalApproximation(false);
+        Assert.assertSame(SplineInterpolationLinearExtrapolationApproximator.INSTANCE, 
+            ProfilingRegistry.getApproximatorCreator("key", TimeBehavior.LATENCY));
+
+        File tmp = new File(FileUtils.getTempDirectory(), "approx");
+        tmp.mkdirs();
+        IStorageStrategy strategy = DefaultStorageStrategy.INSTANCE;
+        IApproximator spline = SplineInterpolationLinearExtrapolationApproximator.INSTANCE.createApproximator(
+            strategy, tmp, "key", TimeBehavior.LATENCY);
+        for (Point p : createLinearDataset()) {
+            p.update(spline);
+        }
+        Assert.assertNotNull(spline.store(tmp));
+        IApproximator rls = RecursiveLeastSquaresPolynomialApproximator.INSTANCE_3.createApproximator(
+            strategy, tmp, "key", TimeBehavior.LATENCY);
+        Assert.assertTrue(rls.containsSameData(spline));
+        FileUtils.deleteQuietly(tmp);
+    }
+
     /**
      * Tests the Math 3 Spline approximator.
      * 
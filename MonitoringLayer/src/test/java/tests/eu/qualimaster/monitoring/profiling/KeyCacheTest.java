@@ -0,0 +1,229 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring.profiling;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.profiling.Constants;
+import eu.qualimaster.monitoring.profiling.KeyCache;
+import eu.qualimaster.monitoring.profiling.ProfilingRegistry;
+import eu.qualimaster.monitoring.profiling.quantizers.Quantizer;
+import eu.qualimaster.monitoring.profiling.quantizers.ScalingDoubleQuantizer;
+import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.ResourceUsage;
+import eu.qualimaster.observables.Scalability;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * Tests the profile key cache.
+ *
+ * @author Holger Eichelberger
+ */
+public class KeyCacheTest {
+
+    private static final String ALGORITHM = "alg";
+
+    /**
+     * Creates a key as done before introducing the key cache.
+     *
+     * @param algorithm the algorithm
+     * @param parameters the parameters
+     * @param override the overriding parameters (may be <b>null</b>)
+     * @return the key
+     */
+    private static Map<Object, Serializable> createKey(String algorithm, Map<Object, Serializable> parameters,
+        Map<Object, Serializable> override) {
+        Map<Object, Serializable> result = new HashMap<Object, Serializable>();
+        result.put(Constants.KEY_ALGORITHM, algorithm);
+        putAllForKey(result, parameters);
+        putAllForKey(result, override);
+        return result;
+    }
+
+    /**
+     * Puts all quantizable and quantized mappings from <code>source</code> into target.
+     *
+     * @param target the target map
+     * @param source the source map (may be <b>null</b>)
+     */
+    private static void putAllForKey(Map<Object, Serializable> target, Map<Object, Serializable> source) {
+        if (null != source) {
+            for (Map.Entry<Object, Serializable> ent : source.entrySet()) {
+                Object key = ent.getKey();
+                Serializable value = ent.getValue();
+                Quantizer<?> quantizer;
+                if (key instanceof IObservable) {
+                    quantizer = ProfilingRegistry.getQuantizer((IObservable) key, true);
+                } else {
+                    quantizer = ProfilingRegistry.getQuantizer(value, true);
+                }
+                if (null != quantizer) {
+                    target.put(key, quantizer.quantize(value));
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a typical parameter set.
+     *
+     * @param latency the latency
+     * @return the parameters
+     */
+    private static Map<Object, Serializable> createParameters(double latency) {
+        Map<Object, Serializable> result = new HashMap<Object, Serializable>();
+        result.put(Constants.KEY_INPUT_RATE, 120);
+        result.put(TimeBehavior.LATENCY, latency);
+        result.put(ResourceUsage.EXECUTORS, 4.0);
+        result.put(ResourceUsage.CAPACITY, 0.5); // not for key
+        result.put("param", "text"); // not quantizable
+        return result;
+    }
+
+    /**
+     * Tests creating, reusing and interning keys.
+     */
+    @Test
+    public void testKeys() {
+        KeyCache cache = new KeyCache();
+        Map<Object, Serializable> params = createParameters(12.3);
+        Map<Object, Serializable> expected = createKey(ALGORITHM, params, null);
+        Map<Object, Serializable> key = cache.getKey(ALGORITHM, params, null);
+        Assert.assertEquals(expected, key);
+        Assert.assertEquals(key, expected);
+        Assert.assertEquals(expected.hashCode(), key.hashCode());
+        Assert.assertEquals(4, key.size());
+        Assert.assertSame(key, cache.getKey(ALGORITHM, params, null));
+        Assert.assertEquals(1, cache.getHitCount());
+        try {
+            key.put("x", 1);
+            Assert.fail("no exception");
+        } catch (UnsupportedOperationException e) {
+            // expected, immutable
+        }
+
+        params.put(TimeBehavior.LATENCY, 12000.0);
+        Map<Object, Serializable> key2 = cache.getKey(ALGORITHM, params, null);
+        Assert.assertNotEquals(key, key2);
+        Assert.assertEquals(createKey(ALGORITHM, params, null), key2);
+        params.put(TimeBehavior.LATENCY, 12.3);
+        Assert.assertSame(key, cache.getKey(ALGORITHM, params, null)); // interned
+        params.put("param", "other");
+        Assert.assertSame(key, cache.getKey(ALGORITHM, params, null)); // not part of the key
+
+        Map<Object, Serializable> other = cache.getKey("other", params, null);
+        Assert.assertEquals(createKey("other", params, null), other);
+        Assert.assertNotEquals(key, other);
+        Assert.assertEquals(createKey(null, params, null), cache.getKey(null, params, null));
+
+        Map<Object, Serializable> override = new HashMap<Object, Serializable>();
+        override.put(Scalability.ITEMS, 5000.0);
+        Map<Object, Serializable> key3 = cache.getKey(ALGORITHM, params, override);
+        Assert.assertEquals(createKey(ALGORITHM, params, override), key3);
+        Assert.assertSame(key3, cache.getKey(ALGORITHM, params, override));
+        Assert.assertEquals(createKey(ALGORITHM, null, override), cache.getKey(ALGORITHM, null, override));
+        Assert.assertSame(key, cache.getKey(ALGORITHM, params, null));
+
+        // registering quantizers changes the keys
+        ProfilingRegistry.registerQuantizer(ResourceUsage.CAPACITY, ScalingDoubleQuantizer.INSTANCE, true);
+        try {
+            Map<Object, Serializable> key4 = cache.getKey(ALGORITHM, params, null);
+            Assert.assertEquals(5, key4.size());
+            Assert.assertEquals(createKey(ALGORITHM, params, null), key4);
+        } finally {
+            ProfilingRegistry.registerQuantizer(ResourceUsage.CAPACITY, ScalingDoubleQuantizer.INSTANCE, false);
+        }
+        Assert.assertEquals(expected, cache.getKey(ALGORITHM, params, null));
+    }
+
+    /**
+     * Compares creating keys and looking up profiles with and without the key cache in the style of a monitoring
+     * update. Prints time and allocated memory per update.
+     */
+    @Test
+    public void testPerformance() {
+        final int updates = 500000;
+        Map<Object, Serializable> params = createParameters(12.3);
+        Map<Map<Object, Serializable>, Object> profiles = new HashMap<Map<Object, Serializable>, Object>();
+        KeyCache cache = new KeyCache();
+        for (int round = 0; round < 2; round++) { // warm up
+            long[] start = measure();
+            int found = 0;
+            for (int u = 0; u < updates; u++) {
+                params.put(Constants.KEY_INPUT_RATE, 100 + u % 2); // recurring values
+                Map<Object, Serializable> key = createKey(ALGORITHM, params, null);
+                if (null == profiles.get(key)) {
+                    profiles.put(key, key);
+                } else {
+                    found++;
+                }
+            }
+            print("uncached", round, start, updates);
+            profiles.clear();
+            start = measure();
+            for (int u = 0; u < updates; u++) {
+                params.put(Constants.KEY_INPUT_RATE, 100 + u % 2);
+                Map<Object, Serializable> key = cache.getKey(ALGORITHM, params, null);
+                if (null == profiles.get(key)) {
+                    profiles.put(key, key);
+                } else {
+                    found--;
+                }
+            }
+            print("cached", round, start, updates);
+            Assert.assertEquals(0, found);
+            profiles.clear();
+        }
+    }
+
+    /**
+     * Returns the current time and the allocated bytes of the current thread.
+     *
+     * @return the current time in ns and the allocated bytes (-1 if unknown)
+     */
+    private static long[] measure() {
+        long allocated = -1;
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            allocated = ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+        }
+        return new long[] {System.nanoTime(), allocated};
+    }
+
+    /**
+     * Prints the measurements.
+     *
+     * @param text the text describing the measurement
+     * @param round the measurement round
+     * @param start the start measurement
+     * @param updates the number of updates
+     */
+    private static void print(String text, int round, long[] start, int updates) {
+        long[] end = measure();
+        String allocated = start[1] < 0 ? "?" : String.valueOf((end[1] - start[1]) / updates);
+        System.out.println("Keys " + text + " (round " + round + "): " + (end[0] - start[0]) / updates + " ns/update, "
+            + allocated + " bytes/update");
+    }
+
+}
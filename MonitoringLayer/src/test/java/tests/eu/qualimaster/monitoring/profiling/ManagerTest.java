@@ -19,9 +19,11 @@ import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
@@ -35,9 +37,12 @@ import eu.qualimaster.coordination.INameMapping;
 import eu.qualimaster.coordination.IdentityMapping;
 import eu.qualimaster.coordination.events.AlgorithmProfilingEvent;
 import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
+import eu.qualimaster.monitoring.MonitoringConfiguration;
 import eu.qualimaster.monitoring.events.AlgorithmChangedMonitoringEvent;
 import eu.qualimaster.monitoring.events.ParameterChangedMonitoringEvent;
 import eu.qualimaster.monitoring.profiling.AlgorithmProfilePredictionManager;
+import eu.qualimaster.monitoring.profiling.BatchPredictionResult;
+import eu.qualimaster.monitoring.profiling.Constants;
 import eu.qualimaster.monitoring.profiling.IAlgorithmProfile;
 import eu.qualimaster.monitoring.profiling.MapFile;
 import eu.qualimaster.monitoring.profiling.Pipeline;
@@ -125,6 +130,103 @@ public class ManagerTest {
         testLifecycle(true, 1);
     }
 
+    /**
+     * Tests batch predictions over a wide candidate set and compares the decision time with individual predictions.
+     */
+    @Test
+    public void testBatchPrediction() {
+        AlgorithmProfilePredictionManager.start();
+        PipelineDescriptor desc = new PipelineDescriptor(false);
+        desc.start();
+        double items = 10;
+        for (int i = 0; i < 8; i++) {
+            desc.monitor(100, items, 100, items - 1);
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+            }
+            items += 10;
+        }
+        List<String> algorithms = new ArrayList<String>();
+        List<Map<Object, Serializable>> targetValues = new ArrayList<Map<Object, Serializable>>();
+        algorithms.add(desc.algorithm);
+        targetValues.add(null);
+        for (int a = 0; a < 5; a++) {
+            for (int w = 1; w <= 40; w++) {
+                Map<Object, Serializable> tv = new HashMap<Object, Serializable>();
+                tv.put(desc.paramWindow, w * 100);
+                algorithms.add(0 == a ? desc.algorithm : "alg" + a);
+                targetValues.add(tv);
+            }
+        }
+        List<IObservable> observables = new ArrayList<IObservable>();
+        for (IObservable obs : OBSERVABLES) {
+            observables.add(obs);
+        }
+        
+        long start = System.currentTimeMillis();
+        for (int c = 0; c < algorithms.size(); c++) {
+            for (IObservable obs : observables) {
+                AlgorithmProfilePredictionManager.predict(desc.pipeline, desc.family, algorithms.get(c), obs, 
+                    targetValues.get(c));
+            }
+        }
+        long individual = System.currentTimeMillis() - start;
+        
+        Properties prop = new Properties();
+        prop.put(MonitoringConfiguration.PROFILE_PREDICTION_THREADS, "1");
+        MonitoringConfiguration.configure(prop);
+        start = System.currentTimeMillis();
+        BatchPredictionResult sequential = AlgorithmProfilePredictionManager.predictBatch(desc.pipeline, 
+            desc.family, algorithms, targetValues, observables);
+        long batch = System.currentTimeMillis() - start;
+        assertBatchPrediction(desc, sequential, algorithms.size());
+
+        prop.put(MonitoringConfiguration.PROFILE_PREDICTION_THREADS, "4");
+        prop.put(MonitoringConfiguration.PROFILE_PREDICTION_PARALLEL_THRESHOLD, "2");
+        MonitoringConfiguration.configure(prop);
+        start = System.currentTimeMillis();
+        BatchPredictionResult parallel = AlgorithmProfilePredictionManager.predictBatch(desc.pipeline, 
+            desc.family, algorithms, targetValues, observables);
+        long parallelBatch = System.currentTimeMillis() - start;
+        assertBatchPrediction(desc, parallel, algorithms.size());
+        System.out.println("Decision time for " + algorithms.size() + " candidates [ms]: individual " + individual 
+            + " batch " + batch + " parallel batch " + parallelBatch);
+
+        Assert.assertNull(AlgorithmProfilePredictionManager.predictBatch("abc", desc.family, algorithms, 
+            targetValues, observables));
+        prop.put(MonitoringConfiguration.PROFILE_PREDICTION_THREADS, 
+            String.valueOf(MonitoringConfiguration.DEFAULT_PROFILE_PREDICTION_THREADS));
+        prop.put(MonitoringConfiguration.PROFILE_PREDICTION_PARALLEL_THRESHOLD, 
+            String.valueOf(MonitoringConfiguration.DEFAULT_PROFILE_PREDICTION_PARALLEL_THRESHOLD));
+        MonitoringConfiguration.configure(prop);
+        desc.stop();
+        AlgorithmProfilePredictionManager.stop();
+    }
+
+    /**
+     * Asserts a batch prediction result.
+     * 
+     * @param desc the descriptor with the actual values
+     * @param result the result
+     * @param candidates the expected number of candidates
+     */
+    private void assertBatchPrediction(PipelineDescriptor desc, BatchPredictionResult result, int candidates) {
+        Assert.assertNotNull(result);
+        Assert.assertEquals(candidates, result.getCandidateCount());
+        Assert.assertEquals(OBSERVABLES.length, result.getObservableCount());
+        int latency = result.indexOf(TimeBehavior.LATENCY);
+        Assert.assertTrue(latency >= 0);
+        Assert.assertEquals(-1, result.indexOf(TimeBehavior.ENACTMENT_DELAY));
+        Assert.assertEquals(desc.algorithm, result.getAlgorithm(0));
+        Assert.assertNull(result.getTargetValues(0));
+        double predicted = result.get(0, latency);
+        Assert.assertTrue(Constants.NO_PREDICTION != predicted);
+        double observed = desc.getFamily().getObservedValue(TimeBehavior.LATENCY);
+        Assert.assertEquals(observed, predicted, observed * 0.2);
+        Assert.assertEquals(predicted, result.toMap(0).get(TimeBehavior.LATENCY), 0.001);
+    }
+
     /**
      * Represents a testing pipeline just for simulation.
      * 
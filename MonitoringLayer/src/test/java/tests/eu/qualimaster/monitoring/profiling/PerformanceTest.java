@@ -22,6 +22,7 @@ import org.junit.Test;
 
 import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
 import eu.qualimaster.monitoring.profiling.predictors.Kalman;
+import eu.qualimaster.monitoring.profiling.predictors.PrimitiveKalman;
 
 
 /**
@@ -37,6 +38,10 @@ import eu.qualimaster.monitoring.profiling.predictors.Kalman;
  */
 public class PerformanceTest {
 
+    private static final int WARMUP = 100000;
+    private static final int RUNS = 100000;
+    private static final double TOLERANCE = 1e-6;
+
     /**
      * Conducting a performance benchmark for multiple different input-sets.
      * It is measured how long the update/predict-cycle needs to run through the given data.
@@ -89,18 +94,73 @@ public class PerformanceTest {
       //TODO
     }
     /**
-     * Test the update-time for a single value.
+     * Test the update-time for a single value, i.e., that {@link PrimitiveKalman} predicts as {@link Kalman} after
+     * the same updates and is not considerably slower.
      */
     @Test
     public void testUpdate() {
-      //TODO
+        compare(false);
     }
     /**
-     * Test the prediction-time for one time-step ahead.
+     * Test the prediction-time for one time-step ahead, i.e., that {@link PrimitiveKalman} predicts as
+     * {@link Kalman} in each step and is not considerably slower.
      */
     @Test
     public void testPredict() {
-      //TODO
+        compare(true);
+    }
+
+    /**
+     * Runs the same updates or update-predict cycles on {@link Kalman} and {@link PrimitiveKalman}, asserts equal
+     * predictions and compares the average times relative to each other.
+     * 
+     * @param predict whether a prediction shall follow each update
+     */
+    private static void compare(boolean predict) {
+        IAlgorithmProfilePredictor kalman = new Kalman();
+        IAlgorithmProfilePredictor primitive = new PrimitiveKalman();
+        assertEquivalent(run(kalman, 0, WARMUP, predict), run(primitive, 0, WARMUP, predict));
+        long startTime = System.nanoTime();
+        double kalmanSum = run(kalman, WARMUP, RUNS, predict);
+        long kalmanTime = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        double primitiveSum = run(primitive, WARMUP, RUNS, predict);
+        long primitiveTime = System.nanoTime() - startTime;
+        assertEquivalent(kalmanSum, primitiveSum);
+        assertEquivalent(kalman.predict(0), primitive.predict(0));
+        Assert.assertTrue("PrimitiveKalman " + (primitiveTime / RUNS) + " ns/op, Kalman " + (kalmanTime / RUNS)
+            + " ns/op", primitiveTime <= 2 * kalmanTime); // relative only, absolute times depend on the system
+    }
+
+    /**
+     * Asserts that two predictions or sums of predictions are equal within a relative tolerance.
+     * 
+     * @param expected the expected value
+     * @param actual the actual value
+     */
+    private static void assertEquivalent(double expected, double actual) {
+        Assert.assertFalse(Double.isNaN(expected));
+        Assert.assertEquals(expected, actual, Math.max(1, Math.abs(expected)) * TOLERANCE);
+    }
+
+    /**
+     * Runs updates or update-predict cycles on <code>filter</code>.
+     * 
+     * @param filter the filter
+     * @param start the first time step
+     * @param count the number of time steps
+     * @param predict whether a prediction shall follow each update
+     * @return the sum of the predictions
+     */
+    private static double run(IAlgorithmProfilePredictor filter, int start, int count, boolean predict) {
+        double sum = 0;
+        for (int i = start; i < start + count; i++) {
+            filter.update(i, 100 + (i % 10));
+            if (predict) {
+                sum += filter.predict(0);
+            }
+        }
+        return sum;
     }
     /**
      * Test the prediction-time for multiple time-steps ahead.
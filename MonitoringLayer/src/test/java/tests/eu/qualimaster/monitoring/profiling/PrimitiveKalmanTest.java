@@ -0,0 +1,100 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring.profiling;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
+import eu.qualimaster.monitoring.profiling.predictors.Kalman;
+import eu.qualimaster.monitoring.profiling.predictors.PrimitiveKalman;
+
+/**
+ * Tests the equivalence of {@link PrimitiveKalman} and {@link Kalman}.
+ *
+ * @author Holger Eichelberger
+ */
+public class PrimitiveKalmanTest {
+
+    private static final double TOLERANCE = 0.0001;
+
+    /**
+     * Tests that both implementations produce the same predictions.
+     */
+    @Test
+    public void testEquivalence() {
+        Kalman expected = new Kalman();
+        PrimitiveKalman actual = new PrimitiveKalman();
+        assertEquivalent(expected, actual, 0, 500, new Random(1234));
+    }
+
+    /**
+     * Tests that both implementations read the stored state of each other.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testStorageCompatibility() throws IOException {
+        File f = new File(FileUtils.getTempDirectory(), "primitiveKalman.tmp");
+        f.delete();
+        Random rnd = new Random(4321);
+        Kalman kalman = new Kalman();
+        PrimitiveKalman primitive = new PrimitiveKalman();
+        assertEquivalent(kalman, primitive, 0, 100, rnd);
+
+        kalman.store(f, "kalman");
+        PrimitiveKalman primitive2 = new PrimitiveKalman();
+        primitive2.load(f, "kalman");
+        Assert.assertTrue(primitive.equals(primitive2, TOLERANCE));
+        f.delete();
+
+        primitive.store(f, "primitive");
+        Kalman kalman2 = new Kalman();
+        kalman2.load(f, "primitive");
+        Assert.assertTrue(kalman.equals(kalman2, TOLERANCE));
+        f.delete();
+
+        assertEquivalent(kalman2, primitive2, 100, 200, rnd);
+    }
+
+    /**
+     * Updates both predictors with the same values and asserts equal predictions.
+     *
+     * @param expected the expected predictor
+     * @param actual the actual predictor
+     * @param start the first time step
+     * @param end the last time step (exclusive)
+     * @param rnd the random number generator for the measurements
+     */
+    private static void assertEquivalent(IAlgorithmProfilePredictor expected, IAlgorithmProfilePredictor actual,
+        int start, int end, Random rnd) {
+        double value = 100;
+        for (int i = start; i < end; i++) {
+            value = Math.max(0, value + rnd.nextGaussian() * 5);
+            Assert.assertEquals(expected.update(i, value), actual.update(i, value));
+            if (i % 3 != 0) { // also test consecutive updates
+                double exp = expected.predict(0);
+                Assert.assertEquals("step " + i, exp, actual.predict(0), Math.max(1, Math.abs(exp)) * TOLERANCE);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring.profiling;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.profiling.BinaryProfileStore;
+import eu.qualimaster.monitoring.profiling.BinaryStorageStrategy;
+import eu.qualimaster.monitoring.profiling.DefaultStorageStrategy;
+import eu.qualimaster.monitoring.profiling.IAlgorithmProfileCreator;
+import eu.qualimaster.monitoring.profiling.KalmanProfileCreator;
+import eu.qualimaster.monitoring.profiling.ProfileMerger;
+import eu.qualimaster.monitoring.profiling.approximation.IProfileStore;
+import eu.qualimaster.monitoring.profiling.approximation.IStorageStrategy;
+import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
+import eu.qualimaster.monitoring.profiling.predictors.PrimitiveKalman;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * Tests the sequential and the parallel profile merger.
+ *
+ * @author Holger Eichelberger
+ */
+public class ProfileMergerTest {
+
+    private static final String PIPELINE = "pip";
+    private static final int HOSTS = 4;
+    private static final int ELEMENTS = 6;
+    private static final int ALGORITHMS = 3;
+    private static final int PARAMETERS = 20;
+
+    /**
+     * Merges the profiles of multiple hosts sequentially and in parallel and compares the results. Prints the 
+     * progress reports.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testMerge() throws IOException {
+        File base = new File(FileUtils.getTempDirectory(), "profileMerger");
+        FileUtils.deleteQuietly(base);
+        IAlgorithmProfileCreator creator = new KalmanProfileCreator();
+        File[] hosts = new File[HOSTS];
+        for (int h = 0; h < HOSTS; h++) {
+            hosts[h] = new File(base, "host" + h);
+            store(hosts[h], h, creator);
+        }
+        BinaryProfileStore.releaseAll();
+        File sequential = new File(base, "sequential");
+        File parallel = new File(base, "parallel");
+
+        ProfileMerger merger = new ProfileMerger();
+        for (File host : hosts) {
+            merger.index(host);
+        }
+        merger.merge(sequential);
+        System.out.println("Sequential merge: " + merger.getProgress());
+        Assert.assertEquals(merger.getProgress().getGroups(), merger.getProgress().getMergedGroups());
+
+        merger = new ProfileMerger(null, 4);
+        for (File host : hosts) {
+            merger.index(host);
+        }
+        merger.merge(parallel);
+        System.out.println("Parallel merge: " + merger.getProgress());
+        Assert.assertEquals(merger.getProgress().getGroups(), merger.getProgress().getMergedGroups());
+        Assert.assertTrue(merger.getProgress().getMergedFiles() > 0);
+
+        assertSame(sequential, parallel);
+        // the last host overrides, the first host contributes its additional parameter values
+        for (int e = 0; e < ELEMENTS; e++) {
+            IStorageStrategy strategy = getStrategy(e);
+            for (int a = 0; a < ALGORITHMS; a++) {
+                IProfileStore store = getStore(strategy, parallel, e, a, creator);
+                String prefix = getIdentifier(e, a, 0);
+                prefix = prefix.substring(0, prefix.indexOf(';'));
+                Assert.assertEquals(PARAMETERS + 1, store.keys(prefix).size());
+                IProfileStore last = getStore(strategy, hosts[HOSTS - 1], e, a, creator);
+                IProfileStore first = getStore(strategy, hosts[0], e, a, creator);
+                Assert.assertEquals(load(last, e, a, 0), load(store, e, a, 0), 0.001);
+                Assert.assertNotEquals(load(first, e, a, 0), load(store, e, a, 0), 0.001);
+                Assert.assertEquals(load(first, e, a, PARAMETERS), load(store, e, a, PARAMETERS), 0.001);
+            }
+        }
+        BinaryProfileStore.releaseAll();
+        FileUtils.deleteQuietly(base);
+    }
+
+    /**
+     * Stores the profiles of a host. Even elements use folders, odd elements use single-file stores. The first 
+     * host stores an additional parameter value.
+     *
+     * @param folder the profile folder of the host
+     * @param host the host number
+     * @param creator the profile creator
+     * @throws IOException shall not occur
+     */
+    private static void store(File folder, int host, IAlgorithmProfileCreator creator) throws IOException {
+        for (int e = 0; e < ELEMENTS; e++) {
+            IStorageStrategy strategy = getStrategy(e);
+            for (int a = 0; a < ALGORITHMS; a++) {
+                IProfileStore store = getStore(strategy, folder, e, a, creator);
+                int parameters = 0 == host ? PARAMETERS + 1 : PARAMETERS;
+                for (int p = 0; p < parameters; p++) {
+                    IAlgorithmProfilePredictor predictor = creator.createPredictor();
+                    double value = getValue(host, a, p);
+                    for (int t = 0; t < 10; t++) {
+                        predictor.update(t * 1000, value);
+                    }
+                    store.store(getIdentifier(e, a, p), predictor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a predictor and returns its prediction.
+     *
+     * @param store the store
+     * @param element the element number
+     * @param algorithm the algorithm number
+     * @param parameter the parameter value
+     * @return the prediction
+     * @throws IOException shall not occur
+     */
+    private static double load(IProfileStore store, int element, int algorithm, int parameter) throws IOException {
+        IAlgorithmProfilePredictor predictor = new PrimitiveKalman();
+        Assert.assertTrue(store.load(getIdentifier(element, algorithm, parameter), predictor));
+        return predictor.predict(0);
+    }
+
+    /**
+     * Returns the value stored for a host, algorithm and parameter value.
+     *
+     * @param host the host number
+     * @param algorithm the algorithm number
+     * @param parameter the parameter value
+     * @return the value
+     */
+    private static double getValue(int host, int algorithm, int parameter) {
+        return 1000 * host + 100 * algorithm + parameter;
+    }
+
+    /**
+     * Returns the storage strategy for an element.
+     *
+     * @param element the element number
+     * @return the storage strategy
+     */
+    private static IStorageStrategy getStrategy(int element) {
+        return 0 == element % 2 ? DefaultStorageStrategy.INSTANCE : BinaryStorageStrategy.INSTANCE;
+    }
+
+    /**
+     * Returns the profile store for an element and an algorithm.
+     *
+     * @param strategy the storage strategy
+     * @param folder the base folder
+     * @param element the element number
+     * @param algorithm the algorithm number
+     * @param creator the profile creator
+     * @return the profile store
+     */
+    private static IProfileStore getStore(IStorageStrategy strategy, File folder, int element, int algorithm, 
+        IAlgorithmProfileCreator creator) {
+        return strategy.getProfileStore(PIPELINE, "elt" + element, "alg" + algorithm, folder.getAbsolutePath(), 
+            TimeBehavior.LATENCY, creator);
+    }
+
+    /**
+     * Returns a profile identifier.
+     *
+     * @param element the element number
+     * @param algorithm the algorithm number
+     * @param parameter the parameter value
+     * @return the identifier
+     */
+    private static String getIdentifier(int element, int algorithm, int parameter) {
+        return "pipeline=" + PIPELINE + ":element=elt" + element + ":algorithm=alg" + algorithm + ":predicted="
+            + TimeBehavior.LATENCY.name() + ";parameters={param=" + parameter + "}";
+    }
+
+    /**
+     * Asserts that two folders have the same files with the same contents.
+     *
+     * @param expected the expected folder
+     * @param actual the actual folder
+     * @throws IOException shall not occur
+     */
+    private static void assertSame(File expected, File actual) throws IOException {
+        String[] expectedNames = expected.list();
+        String[] actualNames = actual.list();
+        Assert.assertNotNull(expectedNames);
+        Assert.assertNotNull(actualNames);
+        Arrays.sort(expectedNames);
+        Arrays.sort(actualNames);
+        Assert.assertArrayEquals(expectedNames, actualNames);
+        for (String name : expectedNames) {
+            File e = new File(expected, name);
+            File a = new File(actual, name);
+            if (e.isDirectory()) {
+                assertSame(e, a);
+            } else {
+                Assert.assertTrue(e + " " + a, FileUtils.contentEquals(e, a));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring.profiling;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.profiling.BinaryProfileStore;
+import eu.qualimaster.monitoring.profiling.BinaryStorageStrategy;
+import eu.qualimaster.monitoring.profiling.DefaultStorageStrategy;
+import eu.qualimaster.monitoring.profiling.IAlgorithmProfileCreator;
+import eu.qualimaster.monitoring.profiling.KalmanProfileCreator;
+import eu.qualimaster.monitoring.profiling.MapFileProfileStore;
+import eu.qualimaster.monitoring.profiling.ProfileStoreConverter;
+import eu.qualimaster.monitoring.profiling.approximation.IProfileStore;
+import eu.qualimaster.monitoring.profiling.approximation.IStorageStrategy;
+import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
+import eu.qualimaster.monitoring.profiling.predictors.PrimitiveKalman;
+import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * Tests the single-file profile store, the related storage strategy and the conversion of profiles.
+ *
+ * @author Holger Eichelberger
+ */
+public class ProfileStoreTest {
+
+    private static final String PIPELINE = "pip";
+    private static final String ELEMENT = "elt";
+    private static final IObservable OBSERVABLE = TimeBehavior.LATENCY;
+    private static final int ALGORITHMS = 5;
+    private static final int PARAMETERS = 100;
+
+    /**
+     * Tests reading, writing, superseding, re-opening and compacting a binary store.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testBinaryStore() throws IOException {
+        File file = new File(FileUtils.getTempDirectory(), "store" + BinaryProfileStore.SUFFIX);
+        file.delete();
+        BinaryProfileStore store = BinaryProfileStore.getInstance(file);
+        Assert.assertEquals(0, store.size());
+        Assert.assertNull(store.read("a"));
+        store.write("a", new byte[] {1, 2, 3});
+        store.write("b\u00E4", new byte[] {4});
+        store.write("a", new byte[] {5, 6});
+        Assert.assertEquals(2, store.size());
+        Assert.assertTrue(store.getGarbage() > 0);
+        assertRecord(store, "a", 5, 6);
+        assertRecord(store, "b\u00E4", 4);
+        Assert.assertEquals(2, store.keys("a").size() + store.keys("b").size());
+
+        store.close();
+        long length = file.length();
+        BinaryProfileStore.releaseAll();
+        store = BinaryProfileStore.getInstance(file); // re-open and re-index
+        Assert.assertEquals(2, store.size());
+        assertRecord(store, "a", 5, 6);
+        assertRecord(store, "b\u00E4", 4);
+
+        store.compact();
+        Assert.assertEquals(0, store.getGarbage());
+        Assert.assertTrue(file.length() < length);
+        assertRecord(store, "a", 5, 6);
+        assertRecord(store, "b\u00E4", 4);
+        store.write("c", new byte[] {7, 8, 9});
+        store.close();
+        length = file.length();
+
+        // simulate an interrupted write
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length - 2);
+        }
+        BinaryProfileStore.releaseAll();
+        store = BinaryProfileStore.getInstance(file);
+        Assert.assertEquals(2, store.size());
+        Assert.assertNull(store.read("c"));
+        store.write("c", new byte[] {10});
+        assertRecord(store, "a", 5, 6);
+        assertRecord(store, "c", 10);
+        BinaryProfileStore.releaseAll();
+        Assert.assertEquals(3, BinaryProfileStore.getInstance(file).size());
+        BinaryProfileStore.releaseAll();
+        file.delete();
+    }
+
+    /**
+     * Asserts the contents of a record.
+     *
+     * @param store the store
+     * @param identifier the identifier of the record
+     * @param expected the expected bytes
+     * @throws IOException shall not occur
+     */
+    private static void assertRecord(BinaryProfileStore store, String identifier, int... expected) throws IOException {
+        byte[] data = store.read(identifier);
+        Assert.assertNotNull(data);
+        Assert.assertEquals(expected.length, data.length);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], data[i]);
+        }
+    }
+
+    /**
+     * Tests storing predictors via the strategies, the conversion of folder-based profiles and the fallback of the
+     * binary strategy. Prints the startup and first prediction latency of both layouts.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testConversion() throws IOException {
+        File folder = new File(FileUtils.getTempDirectory(), "profileStore");
+        FileUtils.deleteQuietly(folder);
+        IAlgorithmProfileCreator creator = new KalmanProfileCreator();
+        IStorageStrategy folders = DefaultStorageStrategy.INSTANCE;
+        IStorageStrategy binary = BinaryStorageStrategy.INSTANCE;
+
+        Set<String> identifiers = store(folders, folder, creator);
+        Assert.assertEquals(ALGORITHMS * PARAMETERS, identifiers.size());
+        // fallback of the binary strategy to the existing folders
+        double expected = load(folders, folder, creator, identifiers);
+        Assert.assertEquals(expected, load(binary, folder, creator, identifiers), 0.0001);
+
+        long time = System.nanoTime();
+        load(folders, folder, creator, identifiers);
+        System.out.println("Startup/prediction (folders) " + (System.nanoTime() - time) / 1000000.0 + " ms for "
+            + identifiers.size() + " profiles");
+
+        ProfileStoreConverter converter = new ProfileStoreConverter(true);
+        Assert.assertEquals(identifiers.size(), converter.convert(folder));
+        File elementFolder = new File(folder, "pipeline=" + PIPELINE + "/element=" + ELEMENT);
+        File storeFile = new File(elementFolder, creator.getStorageSubFolder() + BinaryProfileStore.SUFFIX);
+        Assert.assertTrue(storeFile.exists());
+        Assert.assertFalse(new File(elementFolder, "algorithm=alg0/predicted=" + OBSERVABLE.name() + "/"
+            + creator.getStorageSubFolder()).exists());
+
+        BinaryProfileStore.releaseAll();
+        time = System.nanoTime();
+        Assert.assertEquals(expected, load(binary, folder, creator, identifiers), 0.0001);
+        System.out.println("Startup/prediction (binary) " + (System.nanoTime() - time) / 1000000.0 + " ms for "
+            + identifiers.size() + " profiles");
+
+        // continue storing into the binary store
+        identifiers = store(binary, folder, creator);
+        BinaryProfileStore.releaseAll();
+        Assert.assertEquals(ALGORITHMS * PARAMETERS, identifiers.size());
+        Assert.assertEquals(identifiers.size(), BinaryProfileStore.getInstance(storeFile).size());
+        BinaryProfileStore.releaseAll();
+        FileUtils.deleteQuietly(folder);
+    }
+
+    /**
+     * Tests storing into the same predictor folder via different map file stores in parallel, as done by concurrent 
+     * profiling runs of the same algorithm.
+     *
+     * @throws InterruptedException shall not occur
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testConcurrentMapFileStores() throws InterruptedException, IOException {
+        final File folder = new File(FileUtils.getTempDirectory(), "profileStoreConcurrent");
+        FileUtils.deleteQuietly(folder);
+        final List<IOException> errors = new ArrayList<IOException>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int a = 0; a < ALGORITHMS; a++) {
+            final String algorithm = "alg" + a;
+            Thread thread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    IProfileStore store = new MapFileProfileStore(folder);
+                    try {
+                        for (int p = 0; p < PARAMETERS; p++) {
+                            IAlgorithmProfilePredictor predictor = new PrimitiveKalman();
+                            predictor.update(0, p);
+                            store.store(getIdentifier(algorithm, p), predictor);
+                        }
+                    } catch (IOException e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        IProfileStore store = new MapFileProfileStore(folder);
+        Assert.assertEquals(ALGORITHMS * PARAMETERS, store.keys(null).size());
+        Assert.assertEquals(ALGORITHMS * PARAMETERS, folder.list().length - 1); // one file per id plus map file
+        for (int a = 0; a < ALGORITHMS; a++) {
+            Assert.assertTrue(store.load(getIdentifier("alg" + a, 0), new PrimitiveKalman()));
+        }
+        FileUtils.deleteQuietly(folder);
+    }
+
+    /**
+     * Creates and stores predictors for {@link #ALGORITHMS} algorithms and {@link #PARAMETERS} parameter values.
+     *
+     * @param strategy the storage strategy
+     * @param folder the base folder
+     * @param creator the profile creator
+     * @return the identifiers of the stored predictors
+     * @throws IOException shall not occur
+     */
+    private static Set<String> store(IStorageStrategy strategy, File folder, IAlgorithmProfileCreator creator)
+        throws IOException {
+        Set<String> result = new HashSet<String>();
+        for (int a = 0; a < ALGORITHMS; a++) {
+            String algorithm = "alg" + a;
+            IProfileStore store = getStore(strategy, folder, creator, algorithm);
+            for (int p = 0; p < PARAMETERS; p++) {
+                IAlgorithmProfilePredictor predictor = creator.createPredictor();
+                for (int t = 0; t < 10; t++) {
+                    predictor.update(t * 1000, a * 100 + p + t);
+                }
+                String identifier = getIdentifier(algorithm, p);
+                store.store(identifier, predictor);
+                result.add(identifier);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads all predictors and performs a prediction with each.
+     *
+     * @param strategy the storage strategy
+     * @param folder the base folder
+     * @param creator the profile creator
+     * @param identifiers the expected identifiers
+     * @return the sum of all predictions
+     * @throws IOException shall not occur
+     */
+    private static double load(IStorageStrategy strategy, File folder, IAlgorithmProfileCreator creator,
+        Set<String> identifiers) throws IOException {
+        double result = 0;
+        int count = 0;
+        for (int a = 0; a < ALGORITHMS; a++) {
+            String algorithm = "alg" + a;
+            IProfileStore store = getStore(strategy, folder, creator, algorithm);
+            for (String identifier : store.keys(null)) {
+                if (identifier.contains("algorithm=" + algorithm + ":")) {
+                    IAlgorithmProfilePredictor predictor = new PrimitiveKalman();
+                    Assert.assertTrue(store.load(identifier, predictor));
+                    result += predictor.predict(0);
+                    count++;
+                }
+            }
+        }
+        Assert.assertEquals(identifiers.size(), count);
+        return result;
+    }
+
+    /**
+     * Returns the profile store for an algorithm.
+     *
+     * @param strategy the storage strategy
+     * @param folder the base folder
+     * @param creator the profile creator
+     * @param algorithm the algorithm
+     * @return the profile store
+     */
+    private static IProfileStore getStore(IStorageStrategy strategy, File folder, IAlgorithmProfileCreator creator,
+        String algorithm) {
+        return strategy.getProfileStore(PIPELINE, ELEMENT, algorithm, folder.getAbsolutePath(), OBSERVABLE, creator);
+    }
+
+    /**
+     * Returns a profile identifier.
+     *
+     * @param algorithm the algorithm
+     * @param parameter the parameter value
+     * @return the identifier
+     */
+    private static String getIdentifier(String algorithm, int parameter) {
+        return "pipeline=" + PIPELINE + ":element=" + ELEMENT + ":algorithm=" + algorithm + ":predicted="
+            + OBSERVABLE.name() + ";parameters={param=" + parameter + "}";
+    }
+
+}
@@ -31,8 +31,12 @@ import tests.eu.qualimaster.monitoring.ProfileReaderTest;
     UtilsTest.class,
     InstantiationTest.class, 
     PerformanceTest.class, 
+    PrimitiveKalmanTest.class, 
+    ProfileStoreTest.class, 
+    ProfileMergerTest.class,
     QualityTest.class,
     QuantizerTest.class,
+    KeyCacheTest.class,
     ManagerTest.class, 
     SelectionTests.class, 
     ApproximatorTest.class, 
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring.volumePrediction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.volumePrediction.DataUtils;
+import eu.qualimaster.monitoring.volumePrediction.IVolumePrediction;
+import eu.qualimaster.monitoring.volumePrediction.OnlinePrediction;
+import eu.qualimaster.monitoring.volumePrediction.Prediction;
+
+/**
+ * Compares the online volume forecasting against the Weka-based forecasting and a naive (last value) forecast on
+ * the historical test data. Prints the mean absolute one-step-ahead error and the update time.
+ *
+ * @author Holger Eichelberger
+ */
+public class VolumeForecastingTest {
+
+    private static final String DATA_TERM = "AAPL";
+    private static final File DATA = new File("./testdata/volumePrediction/historicalData/201505_NASDAQ\u00B7"
+        + DATA_TERM + "\u00B7NoExpiry.his");
+    private static final double TRAINING = 0.8;
+    private static final int WEKA_STEPS = 100;
+
+    /**
+     * Seeds the models with the first part of the historical data and forecasts the remaining part step by step.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testForecasting() throws IOException {
+        TreeMap<String, Long> data = DataUtils.readData(DATA);
+        Assert.assertTrue(data.size() > 100);
+        List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(data.entrySet());
+        int split = (int) (entries.size() * TRAINING);
+        File seedFile = File.createTempFile("volume", ".his");
+        writeData(entries.subList(0, split), seedFile);
+
+        long time = System.nanoTime();
+        IVolumePrediction online = new OnlinePrediction(DATA_TERM, seedFile);
+        System.out.println("Online seeding " + (System.nanoTime() - time) / 1000000.0 + " ms for " + split
+            + " values");
+        Assert.assertTrue(online.isAvailable());
+        Assert.assertTrue(online.getLastTime() > 0);
+
+        double onlineError = 0;
+        double naiveError = 0;
+        long updateTime = 0;
+        int steps = entries.size() - split;
+        for (int i = split; i < entries.size(); i++) {
+            Map.Entry<String, Long> entry = entries.get(i);
+            double[] forecast = online.predict(1);
+            Assert.assertEquals(1, forecast.length);
+            onlineError += Math.abs(forecast[0] - entry.getValue());
+            naiveError += Math.abs(entries.get(i - 1).getValue() - entry.getValue());
+            time = System.nanoTime();
+            online.updateRecentVolumes(entry.getKey(), entry.getValue());
+            updateTime += System.nanoTime() - time;
+        }
+        onlineError /= steps;
+        naiveError /= steps;
+        System.out.println("Online MAE " + onlineError + " naive MAE " + naiveError + " over " + steps + " steps, "
+            + (updateTime / steps) + " ns/update");
+        Assert.assertTrue(onlineError < naiveError);
+        Assert.assertEquals(3, online.predict(3).length);
+
+        Prediction weka = new Prediction(DATA_TERM, seedFile);
+        if (weka.isAvailable()) {
+            double wekaError = 0;
+            updateTime = 0;
+            steps = Math.min(WEKA_STEPS, entries.size() - split);
+            for (int i = split - 12; i < split; i++) { // prime with the max lag
+                weka.updateRecentVolumes(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+            for (int i = split; i < split + steps; i++) {
+                Map.Entry<String, Long> entry = entries.get(i);
+                wekaError += Math.abs(weka.predict(1)[0] - entry.getValue());
+                time = System.nanoTime();
+                weka.updateRecentVolumes(entry.getKey(), entry.getValue());
+                updateTime += System.nanoTime() - time;
+            }
+            System.out.println("Weka MAE " + (wekaError / steps) + " over " + steps + " steps, "
+                + (updateTime / steps) + " ns/update");
+        }
+        FileUtils.deleteQuietly(seedFile);
+    }
+
+    /**
+     * Writes volume data in the format of the historical data files.
+     *
+     * @param entries the entries to write (key in format <code>yyyy-MM-dd'T'HH:mm:ss</code>)
+     * @param file the target file
+     * @throws IOException in case that writing fails
+     */
+    private static void writeData(List<Map.Entry<String, Long>> entries, File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (Map.Entry<String, Long> entry : entries) {
+                String key = entry.getKey();
+                String[] date = key.substring(0, key.indexOf('T')).split("-");
+                out.println(date[1] + "/" + date[2] + "/" + date[0] + "," + key.substring(key.indexOf('T') + 1) + ","
+                    + entry.getValue());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring.volumePrediction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.dataManagement.sources.IHistoricalDataProvider;
+import eu.qualimaster.monitoring.MonitoringConfiguration;
+import eu.qualimaster.monitoring.volumePrediction.VolumePredictor;
+
+/**
+ * Tests the sequential and parallel training and prediction of the volume predictor on synthetic data.
+ *
+ * @author Holger Eichelberger
+ */
+public class VolumePredictorTest {
+
+    private static final int TERMS = 500;
+    private static final int BLIND_TERMS = 50;
+    private static final int HISTORY = 300;
+    private static final int STEPS = 20;
+
+    /**
+     * Provides synthetic historical data.
+     *
+     * @author Holger Eichelberger
+     */
+    @SuppressWarnings("serial")
+    private static class SyntheticDataProvider implements IHistoricalDataProvider {
+
+        private boolean test;
+        private volatile boolean failing;
+        private AtomicInteger requests = new AtomicInteger();
+
+        @Override
+        public void obtainHistoricalData(long timeHorizon, String term, File target) throws IOException {
+            requests.incrementAndGet();
+            if (failing) {
+                throw new IOException("No history for " + term);
+            }
+            try (PrintWriter out = new PrintWriter(target)) {
+                int index = getIndex(term);
+                for (int i = 0; i < HISTORY; i++) {
+                    int seconds = i * 30;
+                    out.println(String.format("05/01/2015,%02d:%02d:%02d,%d", seconds / 3600, (seconds / 60) % 60,
+                        seconds % 60, getVolume(index, i)));
+                }
+            }
+        }
+
+        @Override
+        public void obtainHistoricalData(long timeHorizon, String term, File target, String dataUrl)
+            throws IOException {
+            obtainHistoricalData(timeHorizon, term, target);
+        }
+
+        @Override
+        public HashSet<String> getDefaultMonitoredTerms() {
+            return getTerms(0, TERMS);
+        }
+
+        @Override
+        public HashSet<String> getDefaultBlindTerms() {
+            return getTerms(TERMS - BLIND_TERMS / 2, BLIND_TERMS); // partially overlapping
+        }
+
+        @Override
+        public boolean isTest() {
+            return test;
+        }
+
+        @Override
+        public void setTest(boolean test) {
+            this.test = test;
+        }
+
+    }
+
+    /**
+     * Returns a set of terms.
+     *
+     * @param from the index of the first term
+     * @param count the number of terms
+     * @return the terms
+     */
+    private static HashSet<String> getTerms(int from, int count) {
+        HashSet<String> result = new HashSet<String>();
+        for (int t = from; t < from + count; t++) {
+            result.add("term" + t);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of a term.
+     *
+     * @param term the term
+     * @return the index
+     */
+    private static int getIndex(String term) {
+        return Integer.parseInt(term.substring(4));
+    }
+
+    /**
+     * Returns the synthetic volume of a term at a time step.
+     *
+     * @param index the index of the term
+     * @param step the time step
+     * @return the volume
+     */
+    private static long getVolume(int index, int step) {
+        return 1000 + (index % 7) * 100 + Math.round(300 * Math.sin((step + index) / 10.0));
+    }
+
+    /**
+     * Tests sequential and parallel training and prediction.
+     */
+    @Test
+    public void testParallel() {
+        long[] sequential = run(1);
+        long[] parallel = run(4);
+        Assert.assertArrayEquals(sequential, parallel);
+        Assert.assertTrue(sequential[1] > 0); // peaks raised alarms
+        resetConfiguration();
+    }
+
+    /**
+     * Tests that a term becomes untrained if retraining does not result in a model, i.e., that the old model 
+     * is not kept.
+     */
+    @Test
+    public void testFailedRetraining() {
+        configure(1);
+        File file = new File(FileUtils.getTempDirectory(), "volumePredictorTest");
+        SyntheticDataProvider provider = new SyntheticDataProvider();
+        VolumePredictor predictor = new VolumePredictor("pip", "src", provider, null);
+        predictor.initialize(file.getAbsolutePath());
+        String blindTerm = "term" + TERMS; // blind only, retrained upon each update
+        Assert.assertTrue(predictor.predictBlindly(blindTerm) > 0);
+
+        provider.failing = true;
+        predictor.updatePrediction();
+        Assert.assertEquals(-1, predictor.predictBlindly(blindTerm), 0);
+        Assert.assertTrue(predictor.getBlindTerms().contains(blindTerm));
+
+        provider.failing = false;
+        predictor.updatePrediction();
+        Assert.assertTrue(predictor.predictBlindly(blindTerm) > 0);
+        FileUtils.deleteQuietly(file);
+        resetConfiguration();
+    }
+
+    /**
+     * Configures the volume prediction for testing.
+     *
+     * @param threads the number of threads
+     */
+    private static void configure(int threads) {
+        Properties prop = new Properties();
+        prop.put(MonitoringConfiguration.VOLUME_PREDICTION_THREADS, String.valueOf(threads));
+        prop.put(MonitoringConfiguration.VOLUME_PREDICTION_PARALLEL_THRESHOLD, "2");
+        prop.put(MonitoringConfiguration.VOLUME_FORECASTER, "online"); // opt-in
+        MonitoringConfiguration.configure(prop);
+    }
+
+    /**
+     * Resets the volume prediction configuration to its defaults.
+     */
+    private static void resetConfiguration() {
+        Properties prop = new Properties();
+        prop.put(MonitoringConfiguration.VOLUME_PREDICTION_THREADS,
+            String.valueOf(MonitoringConfiguration.DEFAULT_VOLUME_PREDICTION_THREADS));
+        prop.put(MonitoringConfiguration.VOLUME_PREDICTION_PARALLEL_THRESHOLD,
+            String.valueOf(MonitoringConfiguration.DEFAULT_VOLUME_PREDICTION_PARALLEL_THRESHOLD));
+        prop.put(MonitoringConfiguration.VOLUME_FORECASTER, MonitoringConfiguration.DEFAULT_VOLUME_FORECASTER);
+        MonitoringConfiguration.configure(prop);
+    }
+
+    /**
+     * Trains, predicts and updates a predictor.
+     *
+     * @param threads the number of threads
+     * @return the counters of the predictor
+     */
+    private static long[] run(int threads) {
+        configure(threads);
+        File file = new File(FileUtils.getTempDirectory(), "volumePredictorTest");
+        SyntheticDataProvider provider = new SyntheticDataProvider();
+        VolumePredictor predictor = new VolumePredictor("pip", "src", provider, null);
+
+        long time = System.nanoTime();
+        predictor.initialize(file.getAbsolutePath());
+        Assert.assertEquals(TERMS + BLIND_TERMS, predictor.getTrainingCount());
+        Assert.assertEquals(TERMS + BLIND_TERMS / 2, provider.requests.get()); // history once per term
+        Assert.assertTrue(predictor.predictBlindly("term" + TERMS) > 0);
+        System.out.println("Training " + TERMS + " terms with " + threads + " threads: " 
+            + (System.nanoTime() - time) / 1000000 + " ms");
+
+        time = System.nanoTime();
+        for (int s = 0; s < STEPS; s++) {
+            Map<String, Integer> observations = new HashMap<String, Integer>();
+            for (int t = 0; t < TERMS; t++) {
+                long volume = getVolume(t, HISTORY + s);
+                if (s == STEPS - 1 && t % 10 == 0) {
+                    volume *= 3; // peak
+                }
+                observations.put("term" + t, (int) volume);
+            }
+            predictor.handlePredictionStep(observations);
+        }
+        System.out.println("Predicting " + STEPS + " steps for " + TERMS + " terms with " + threads + " threads: " 
+            + (System.nanoTime() - time) / 1000000 + " ms");
+        Assert.assertEquals(STEPS * TERMS, predictor.getPredictionCount());
+        Assert.assertEquals(0, predictor.getUnavailableCount());
+
+        // online models are kept, only blind models of unmonitored terms are retrained
+        predictor.updatePrediction();
+        Assert.assertEquals(TERMS + BLIND_TERMS + BLIND_TERMS / 2, predictor.getTrainingCount());
+        Assert.assertEquals(TERMS + BLIND_TERMS, provider.requests.get());
+        predictor.handlePredictionStep(new HashMap<String, Integer>());
+        FileUtils.deleteQuietly(file);
+        return new long[] {predictor.getPredictionCount(), predictor.getAlarmCount(), predictor.getIgnoredCount()};
+    }
+
+}
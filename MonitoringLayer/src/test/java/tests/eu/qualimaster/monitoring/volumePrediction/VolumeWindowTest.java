@@ -0,0 +1,124 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring.volumePrediction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.volumePrediction.VolumeWindow;
+
+/**
+ * Tests {@link VolumeWindow}.
+ *
+ * @author Holger Eichelberger
+ */
+public class VolumeWindowTest {
+
+    /**
+     * Compares the running statistics of the window with the statistics computed from a list.
+     */
+    @Test
+    public void testStatistics() {
+        Random random = new Random(42);
+        for (int capacity = 1; capacity <= 12; capacity++) {
+            VolumeWindow window = new VolumeWindow(capacity);
+            List<Long> expected = new ArrayList<Long>();
+            Assert.assertTrue(window.isEmpty());
+            Assert.assertEquals(0, window.getMean(), 0);
+            Assert.assertEquals(0, window.getStandardDeviation(), 0);
+            for (int i = 0; i < 1000; i++) {
+                long volume = i % 50 < 10 ? 1000 + i : random.nextInt(Integer.MAX_VALUE); // trends, large values
+                window.add(volume);
+                if (expected.size() >= capacity) {
+                    expected.remove(0);
+                }
+                expected.add(volume);
+                Assert.assertEquals(expected.size(), window.size());
+                Assert.assertEquals(volume, window.last());
+                for (int j = 0; j < expected.size(); j++) {
+                    Assert.assertEquals(expected.get(j).longValue(), window.get(j));
+                }
+                double mean = 0;
+                for (Long v : expected) {
+                    mean += v;
+                }
+                mean /= expected.size();
+                double sumsq = 0;
+                for (Long v : expected) {
+                    sumsq += (v - mean) * (v - mean);
+                }
+                double std = Math.sqrt(sumsq / expected.size());
+                Assert.assertEquals(mean, window.getMean(), Math.abs(mean) * 1e-9);
+                Assert.assertEquals(std, window.getStandardDeviation(), Math.max(1e-3, mean * 1e-6));
+                for (int steps = 0; steps <= capacity + 1; steps++) {
+                    Assert.assertEquals(isIncreasing(expected, steps), window.isIncreasing(steps));
+                }
+            }
+        }
+        try {
+            new VolumeWindow(3).get(0);
+            Assert.fail("no exception");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Returns whether the most recent values in <code>history</code> are not decreasing (as implemented before
+     * in the volume predictor).
+     *
+     * @param history the values
+     * @param size the number of recent steps to consider
+     * @return <code>true</code> if not decreasing, <code>false</code> else
+     */
+    private static boolean isIncreasing(List<Long> history, int size) {
+        if (size > history.size() - 1) {
+            size = history.size() - 1;
+        }
+        boolean result = true;
+        for (int i = history.size() - 1, count = 0; result && count < size; i--, count++) {
+            result = history.get(i) >= history.get(i - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Measures the time for adding and evaluating for different window sizes. The time shall not depend on the
+     * window size.
+     */
+    @Test
+    public void testTiming() {
+        int[] capacities = {10, 100, 10000};
+        for (int c = 0; c < capacities.length; c++) {
+            VolumeWindow window = new VolumeWindow(capacities[c]);
+            double sum = 0;
+            long time = System.nanoTime();
+            int steps = 1000000;
+            for (int i = 0; i < steps; i++) {
+                window.add(1000 + (i % 97));
+                sum += window.getMean() + 2 * window.getStandardDeviation();
+            }
+            Assert.assertTrue(sum > 0);
+            System.out.println("Window " + capacities[c] + ": " + (System.nanoTime() - time) / steps 
+                + " ns/step");
+        }
+    }
+
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.events;
+
+import java.io.ObjectStreamException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import eu.qualimaster.common.QMInternal;
+import eu.qualimaster.observables.IObservable;
+
+/**
+ * A frozen system state storing the values in a primitive array indexed via a {@link FrozenStateSymbols symbol
+ * table}. Setting and reading observations via their key segments does neither compose key strings nor box
+ * values in the map. The string-based API of {@link FrozenSystemState} including {@link #getMapping()} is
+ * provided as a view. Absent values are represented by NaN, i.e., setting <b>null</b> or NaN removes a value.
+ * Serialized as {@link FrozenSystemState}. Not thread-safe, as {@link FrozenSystemState}.
+ *
+ * @author Holger Eichelberger
+ */
+@QMInternal
+public class CompactFrozenSystemState extends FrozenSystemState {
+
+    private static final long serialVersionUID = -3914405876310427571L;
+    private transient FrozenStateSymbols symbols;
+    private transient double[] data;
+    private transient int count;
+
+    /**
+     * Creates a compact frozen system state on an own symbol table, i.e., symbols are scoped to this state. Long-living
+     * producers such as the system state shall rather pass a shared table.
+     */
+    public CompactFrozenSystemState() {
+        this(new FrozenStateSymbols());
+    }
+
+    /**
+     * Creates a compact frozen system state. Sharing a symbol table among states avoids re-registering the keys, 
+     * but the table grows with all keys ever set through it.
+     *
+     * @param symbols the symbol table to use
+     */
+    public CompactFrozenSystemState(FrozenStateSymbols symbols) {
+        this(symbols, new ValueView());
+    }
+
+    /**
+     * Creates a compact frozen system state and binds the view.
+     *
+     * @param symbols the symbol table to use
+     * @param view the map view passed to the super class
+     */
+    private CompactFrozenSystemState(FrozenStateSymbols symbols, ValueView view) {
+        super(view);
+        view.state = this;
+        this.symbols = symbols;
+        this.data = new double[16]; // grows with the symbols actually used
+        Arrays.fill(data, Double.NaN);
+    }
+
+    /**
+     * Returns the symbol table of this state.
+     *
+     * @return the symbol table
+     */
+    public FrozenStateSymbols getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Returns the value at the given index.
+     *
+     * @param index the index (may be negative)
+     * @return the value, NaN if absent
+     */
+    private double get(int index) {
+        return index >= 0 && index < data.length ? data[index] : Double.NaN;
+    }
+
+    /**
+     * Changes the value at the given index.
+     *
+     * @param index the index
+     * @param value the value, NaN for absent
+     * @return the previous value, NaN if absent
+     */
+    private double set(int index, double value) {
+        if (index >= data.length) {
+            int oldLength = data.length;
+            data = Arrays.copyOf(data, Math.max(index + 1, 2 * oldLength));
+            Arrays.fill(data, oldLength, data.length, Double.NaN);
+        }
+        double result = data[index];
+        data[index] = value;
+        if (Double.isNaN(result) != Double.isNaN(value)) {
+            count += Double.isNaN(value) ? -1 : 1;
+        }
+        return result;
+    }
+
+    /**
+     * Turns a stored value into a result value.
+     *
+     * @param value the stored value
+     * @param dflt the default value to return if <code>value</code> is absent
+     * @return the value or <code>dflt</code>
+     */
+    private static Double toResult(double value, Double dflt) {
+        return Double.isNaN(value) ? dflt : Double.valueOf(value);
+    }
+
+    /**
+     * Turns a given value into a value to be stored.
+     *
+     * @param value the value (may be <b>null</b>)
+     * @return the value to be stored
+     */
+    private static double toStored(Double value) {
+        return null == value ? Double.NaN : value.doubleValue();
+    }
+
+    @Override
+    public void setObservation(String prefix, String name, IObservable observable, double value) {
+        set(symbols.obtainIndex(prefix, name, observable), value);
+    }
+
+    @Override
+    public void setObservation(String prefix, String name, IObservable observable, Double value) {
+        set(symbols.obtainIndex(prefix, name, observable), toStored(value));
+    }
+
+    @Override
+    public void setObservation(String prefix, String pipeline, String element, IObservable observable, Double value) {
+        set(symbols.obtainIndex(prefix, pipeline, element, observable), toStored(value));
+    }
+
+    /**
+     * Returns an observation without boxing.
+     *
+     * @param prefix the prefix denoting the type
+     * @param name the name of the individual element
+     * @param observable the observable
+     * @return the observed value, NaN if nothing was observed (so far)
+     */
+    public double getObservationValue(String prefix, String name, IObservable observable) {
+        return get(symbols.indexOf(prefix, name, observable));
+    }
+
+    @Override
+    public Double getObservation(String prefix, String name, IObservable observable, Double dflt) {
+        return toResult(get(symbols.indexOf(prefix, name, observable)), dflt);
+    }
+
+    @Override
+    public Double getObservation(String prefix, String pipeline, String element, IObservable observable, Double dflt) {
+        return toResult(get(symbols.indexOf(prefix, pipeline, element, observable)), dflt);
+    }
+
+    @Override
+    public Double getObservation(String key, Double dflt) {
+        return toResult(get(symbols.indexOf(key)), dflt);
+    }
+
+    /**
+     * Replaces this instance by a map-based frozen system state for serialization as the symbol table is
+     * local to this JVM.
+     *
+     * @return the replacing instance
+     * @throws ObjectStreamException shall not occur
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        return new FrozenSystemState(new HashMap<String, Double>(getMapping()));
+    }
+
+    /**
+     * Implements the string-keyed map view on the values of a compact frozen system state.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class ValueView extends AbstractMap<String, Double> {
+
+        private CompactFrozenSystemState state;
+        private Set<Map.Entry<String, Double>> entries;
+
+        @Override
+        public Double get(Object key) {
+            return toResult(state.get(state.symbols.indexOf(key)), null);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return !Double.isNaN(state.get(state.symbols.indexOf(key)));
+        }
+
+        @Override
+        public Double put(String key, Double value) {
+            return toResult(state.set(state.symbols.obtainIndex(key), toStored(value)), null);
+        }
+
+        @Override
+        public Double remove(Object key) {
+            int index = state.symbols.indexOf(key);
+            return index < 0 ? null : toResult(state.set(index, Double.NaN), null);
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(state.data, Double.NaN);
+            state.count = 0;
+        }
+
+        @Override
+        public int size() {
+            return state.count;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Double>> entrySet() {
+            if (null == entries) {
+                entries = new AbstractSet<Map.Entry<String, Double>>() {
+
+                    @Override
+                    public Iterator<Map.Entry<String, Double>> iterator() {
+                        return new EntryIterator(state);
+                    }
+
+                    @Override
+                    public int size() {
+                        return ValueView.this.size();
+                    }
+
+                };
+            }
+            return entries;
+        }
+
+    }
+
+    /**
+     * Iterates over the present values of a compact frozen system state.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class EntryIterator implements Iterator<Map.Entry<String, Double>> {
+
+        private CompactFrozenSystemState state;
+        private int next = -1;
+        private int last = -1;
+
+        /**
+         * Creates an iterator.
+         *
+         * @param state the state to iterate over
+         */
+        private EntryIterator(CompactFrozenSystemState state) {
+            this.state = state;
+            advance();
+        }
+
+        /**
+         * Advances {@link #next} to the next present value.
+         */
+        private void advance() {
+            double[] data = state.data;
+            do {
+                next++;
+            } while (next < data.length && Double.isNaN(data[next]));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < state.data.length;
+        }
+
+        @Override
+        public Map.Entry<String, Double> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            final int index = last;
+            return new AbstractMap.SimpleEntry<String, Double>(state.symbols.getKey(index), state.data[index]) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Double setValue(Double value) {
+                    super.setValue(value);
+                    return toResult(state.set(index, toStored(value)), null);
+                }
+
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            state.set(last, Double.NaN);
+            last = -1;
+        }
+
+    }
+
+}
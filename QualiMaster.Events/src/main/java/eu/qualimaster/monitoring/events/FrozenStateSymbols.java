@@ -0,0 +1,309 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.events;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import eu.qualimaster.observables.IObservable;
+
+/**
+ * A symbol table mapping the keys of a {@link FrozenSystemState} to dense indexes. Keys can be accessed by their
+ * segments (scope, element names, observable) without composing the key string. A table only grows, i.e.,
+ * indexes remain stable as long as the table is used. A long-lived table shall be {@link #prune(String, String...)
+ * pruned} when elements such as pipelines go away. Lookups are thread-safe and do not lock, registration of new 
+ * keys is synchronized.
+ *
+ * @author Holger Eichelberger
+ */
+public class FrozenStateSymbols {
+
+    private Node root = new Node();
+    private Map<String, Integer> indexes = new ConcurrentHashMap<String, Integer>();
+    private volatile String[] keys = new String[64];
+    private volatile int size;
+
+    /**
+     * Implements a node in the segment tree. Leaf nodes carry an index.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class Node {
+
+        private ConcurrentHashMap<Object, Node> children = new ConcurrentHashMap<Object, Node>();
+        private volatile Node elements;
+        private volatile int index = -1;
+
+        /**
+         * Returns the child node for <code>segment</code>.
+         *
+         * @param segment the segment (may be <b>null</b>)
+         * @return the child node, <b>null</b> if there is none
+         */
+        private Node get(Object segment) {
+            return children.get(null == segment ? Node.class : segment);
+        }
+
+        /**
+         * Returns or creates the child node for <code>segment</code>.
+         *
+         * @param segment the segment (may be <b>null</b>)
+         * @return the child node
+         */
+        private Node obtain(Object segment) {
+            Object key = null == segment ? Node.class : segment; // no null keys in concurrent maps
+            Node result = children.get(key);
+            if (null == result) {
+                result = new Node();
+                Node tmp = children.putIfAbsent(key, result);
+                if (null != tmp) {
+                    result = tmp;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the node holding the pipeline elements as children, i.e., separates pipeline element keys from 
+         * simple keys with the same names.
+         *
+         * @param create whether the node shall be created if it does not exist
+         * @return the elements node, may be <b>null</b> if <code>create</code> is <code>false</code>
+         */
+        private Node elements(boolean create) {
+            Node result = elements;
+            if (null == result && create) {
+                synchronized (this) {
+                    result = elements;
+                    if (null == result) {
+                        result = new Node();
+                        elements = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Returns the number of symbols.
+     *
+     * @return the number of symbols
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the key for the given index.
+     *
+     * @param index the index (shall be in [0;{@link #size()})
+     * @return the key
+     */
+    public String getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the index for a key string.
+     *
+     * @param key the key (see {@link FrozenSystemState#obtainKey(String, String, IObservable)})
+     * @return the index, negative if the key is not known
+     */
+    public int indexOf(Object key) {
+        Integer result = null == key ? null : indexes.get(key);
+        return null == result ? -1 : result;
+    }
+
+    /**
+     * Returns the index for the given key segments.
+     *
+     * @param prefix the prefix denoting the type
+     * @param name the name of the individual element
+     * @param observable the observable
+     * @return the index, negative if the key is not known
+     */
+    public int indexOf(String prefix, String name, IObservable observable) {
+        int result = -1;
+        Node node = root.get(prefix);
+        if (null != node) {
+            node = node.get(name);
+            if (null != node) {
+                node = node.get(observable);
+                if (null != node) {
+                    result = node.index;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index for the given key segments of a pipeline element.
+     *
+     * @param prefix the prefix denoting the type
+     * @param pipeline the pipeline name
+     * @param element the element name
+     * @param observable the observable
+     * @return the index, negative if the key is not known
+     */
+    public int indexOf(String prefix, String pipeline, String element, IObservable observable) {
+        int result = -1;
+        Node node = root.get(prefix);
+        if (null != node) {
+            node = node.get(pipeline);
+            if (null != node) {
+                node = node.elements(false);
+            }
+            if (null != node) {
+                node = node.get(element);
+                if (null != node) {
+                    node = node.get(observable);
+                    if (null != node) {
+                        result = node.index;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index for the given key segments, registers the key if required.
+     *
+     * @param prefix the prefix denoting the type
+     * @param name the name of the individual element
+     * @param observable the observable
+     * @return the index
+     */
+    public int obtainIndex(String prefix, String name, IObservable observable) {
+        Node node = root.obtain(prefix).obtain(name).obtain(observable);
+        int result = node.index;
+        if (result < 0) {
+            result = obtainIndex(FrozenSystemState.obtainKey(prefix, name, observable));
+            node.index = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index for the given key segments of a pipeline element, registers the key if required.
+     *
+     * @param prefix the prefix denoting the type
+     * @param pipeline the pipeline name
+     * @param element the element name
+     * @param observable the observable
+     * @return the index
+     */
+    public int obtainIndex(String prefix, String pipeline, String element, IObservable observable) {
+        Node node = root.obtain(prefix).obtain(pipeline).elements(true).obtain(element).obtain(observable);
+        int result = node.index;
+        if (result < 0) {
+            result = obtainIndex(FrozenSystemState.obtainKey(prefix,
+                FrozenSystemState.obtainPipelineElementSubkey(pipeline, element), observable));
+            node.index = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of this table without the symbols of <code>name</code> in the given scopes, e.g., without the
+     * symbols of a pipeline that was removed. Removed are the symbols for <code>name</code> itself as well as for 
+     * the {@link FrozenSystemState#obtainPipelineElementSubkey(String, String) pipeline element sub-keys} of 
+     * <code>name</code>. This table remains unchanged so that the indexes of states created on it stay valid. Symbols 
+     * registered only via {@link #obtainIndex(String)} are not copied and registered again on demand.
+     *
+     * @param name the name of the element to remove
+     * @param prefixes the prefixes denoting the scopes to remove <code>name</code> from
+     * @return the pruned table
+     */
+    public FrozenStateSymbols prune(String name, String... prefixes) {
+        String subkeyPrefix = FrozenSystemState.obtainPipelineElementSubkey(name, "");
+        Set<Node> skip = new HashSet<Node>();
+        for (String prefix : prefixes) {
+            Node node = root.get(prefix);
+            if (null != node) {
+                for (Map.Entry<Object, Node> entry : node.children.entrySet()) {
+                    Object segment = entry.getKey();
+                    if (segment instanceof String && (name.equals(segment) 
+                        || ((String) segment).startsWith(subkeyPrefix))) {
+                        skip.add(entry.getValue());
+                    }
+                }
+            }
+        }
+        FrozenStateSymbols result = new FrozenStateSymbols();
+        copy(root, result.root, skip, result);
+        return result;
+    }
+
+    /**
+     * Copies the segment tree starting at <code>source</code> into <code>target</code>.
+     *
+     * @param source the source node
+     * @param target the target node in <code>symbols</code>
+     * @param skip the nodes to be skipped including their children
+     * @param symbols the target table
+     */
+    private void copy(Node source, Node target, Set<Node> skip, FrozenStateSymbols symbols) {
+        if (source.index >= 0) {
+            target.index = symbols.obtainIndex(keys[source.index]);
+        }
+        for (Map.Entry<Object, Node> entry : source.children.entrySet()) {
+            Node child = entry.getValue();
+            if (!skip.contains(child)) {
+                copy(child, target.obtain(entry.getKey()), skip, symbols);
+            }
+        }
+        Node elements = source.elements;
+        if (null != elements) {
+            copy(elements, target.elements(true), skip, symbols);
+        }
+    }
+
+    /**
+     * Returns the index for a key string, registers the key if required.
+     *
+     * @param key the key
+     * @return the index
+     */
+    public int obtainIndex(String key) {
+        Integer result = indexes.get(key);
+        if (null == result) {
+            synchronized (this) {
+                result = indexes.get(key);
+                if (null == result) {
+                    int idx = size;
+                    String[] tmp = keys;
+                    if (idx == tmp.length) {
+                        tmp = Arrays.copyOf(tmp, 2 * tmp.length);
+                    }
+                    tmp[idx] = key;
+                    keys = tmp;
+                    result = idx;
+                    indexes.put(key, result);
+                    size = idx + 1;
+                }
+            }
+        }
+        return result;
+    }
+
+}
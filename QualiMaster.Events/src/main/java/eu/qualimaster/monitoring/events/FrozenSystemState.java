@@ -137,6 +137,19 @@ public class FrozenSystemState implements Serializable {
         values.put(obtainKey(prefix, name, observable), value);
     }
     
+    /**
+     * Defines the value for an observation.
+     * 
+     * @param prefix the prefix denoting the type
+     * @param name the name of the individual element
+     * @param observable the observable
+     * @param value the actual value
+     */
+    @QMInternal
+    public void setObservation(String prefix, String name, IObservable observable, double value) {
+        setObservation(prefix, name, observable, Double.valueOf(value));
+    }
+    
     /**
      * Defines the value of an observation for a pipeline element.
      * 
@@ -229,6 +242,21 @@ public class FrozenSystemState implements Serializable {
         return getObservation(obtainKey(prefix, name, observable), dflt);
     }
     
+    /**
+     * Returns an observation for a pipeline element.
+     * 
+     * @param prefix the prefix denoting the type
+     * @param pipeline the pipeline name
+     * @param element the element name
+     * @param observable the observable
+     * @param dflt the default value to return if nothing was observed (so far)
+     * @return the observed value or <code>dflt</code> if nothing was observed (so far)
+     */
+    @QMInternal
+    public Double getObservation(String prefix, String pipeline, String element, IObservable observable, Double dflt) {
+        return getObservation(prefix, obtainPipelineElementSubkey(pipeline, element), observable, dflt);
+    }
+    
     /**
      * Returns an observation.
      * 
@@ -354,7 +382,7 @@ public class FrozenSystemState implements Serializable {
      * @return the observed value or <code>dflt</code> if nothing was observed (so far)
      */
     public Double getDataSourceObservation(String pipeline, String name, IObservable observable, Double dflt) {
-        return getObservation(DATASOURCE, obtainPipelineElementSubkey(pipeline, name), observable, dflt);
+        return getObservation(DATASOURCE, pipeline, name, observable, dflt);
     }
 
     /**
@@ -379,7 +407,7 @@ public class FrozenSystemState implements Serializable {
      * @return the observed value or <code>dflt</code> if nothing was observed (so far)
      */
     public Double getDataSinkObservation(String pipeline, String name, IObservable observable, Double dflt) {
-        return getObservation(DATASINK, obtainPipelineElementSubkey(pipeline, name), observable, dflt);
+        return getObservation(DATASINK, pipeline, name, observable, dflt);
     }
 
     /**
@@ -427,7 +455,7 @@ public class FrozenSystemState implements Serializable {
      * @return the observed value or <code>dflt</code> if nothing was observed (so far)
      */
     public Double getPipelineElementObservation(String pipeline, String element, IObservable observable, Double dflt) {
-        return getObservation(PIPELINE_ELEMENT, obtainPipelineElementSubkey(pipeline, element), observable, dflt);
+        return getObservation(PIPELINE_ELEMENT, pipeline, element, observable, dflt);
     }
    
     /**
@@ -452,7 +480,7 @@ public class FrozenSystemState implements Serializable {
      * @return the observed value or <code>dflt</code> if nothing was observed (so far)
      */
     public Double getAlgorithmObservation(String pipeline, String algorithm, IObservable observable, Double dflt) {
-        return getObservation(ALGORITHM, obtainPipelineElementSubkey(pipeline, algorithm), observable, dflt);
+        return getObservation(ALGORITHM, pipeline, algorithm, observable, dflt);
     }
 
     /**
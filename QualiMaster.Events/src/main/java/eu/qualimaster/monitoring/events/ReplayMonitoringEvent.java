@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.events;
+
+import java.util.Map;
+
+import eu.qualimaster.observables.IObservable;
+
+/**
+ * Reports the observations of an individual replay ticket of a replay sink, e.g., the replay throughput in items 
+ * per second ({@link eu.qualimaster.observables.TimeBehavior#THROUGHPUT_ITEMS}) or the lag between fetching and 
+ * emitting replayed items in milliseconds ({@link eu.qualimaster.observables.TimeBehavior#LATENCY}). An event 
+ * without observations indicates that replaying the ticket ended.
+ * 
+ * @author Holger Eichelberger
+ */
+public class ReplayMonitoringEvent extends AbstractPipelineElementMonitoringEvent {
+
+    private static final long serialVersionUID = -4301718812447349610L;
+    private int ticket;
+    private Map<IObservable, Double> observations;
+
+    /**
+     * Creates a replay monitoring event.
+     * 
+     * @param pipeline the pipeline name
+     * @param pipelineElement the pipeline element name
+     * @param ticket the replay ticket number
+     * @param observations the observations made for <code>ticket</code>, <b>null</b> if replaying 
+     *   <code>ticket</code> ended
+     */
+    public ReplayMonitoringEvent(String pipeline, String pipelineElement, int ticket, 
+        Map<IObservable, Double> observations) {
+        super(pipeline, pipelineElement, null);
+        this.ticket = ticket;
+        this.observations = observations;
+    }
+
+    /**
+     * The ticket id.
+     * 
+     * @return the ticket id
+     */
+    public int getTicket() {
+        return ticket;
+    }
+
+    /**
+     * Returns all observations.
+     * 
+     * @return the observations, <b>null</b> if replaying the ticket ended
+     */
+    public Map<IObservable, Double> getObservations() {
+        return observations;
+    }
+
+}
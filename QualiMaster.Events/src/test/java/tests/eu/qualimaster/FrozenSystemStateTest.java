@@ -15,19 +15,28 @@
  */
 package tests.eu.qualimaster;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Map;
 import java.util.Properties;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import eu.qualimaster.monitoring.events.CompactFrozenSystemState;
+import eu.qualimaster.monitoring.events.FrozenStateSymbols;
 import eu.qualimaster.monitoring.events.FrozenSystemState;
 import eu.qualimaster.observables.IObservable;
 import eu.qualimaster.observables.Scalability;
 import eu.qualimaster.observables.TimeBehavior;
 
 /**
- * Tests {@link FrozenSystemState}.
+ * Tests {@link FrozenSystemState} and {@link CompactFrozenSystemState}.
  * 
  * @author Holger Eichelberger
  */
@@ -38,7 +47,208 @@ public class FrozenSystemStateTest {
      */
     @Test
     public void testFrozenSystemState() {
-        FrozenSystemState state = new FrozenSystemState();
+        assertFrozenSystemState(new FrozenSystemState());
+    }
+
+    /**
+     * Tests {@link CompactFrozenSystemState}.
+     * 
+     * @throws IOException shall not occur
+     * @throws ClassNotFoundException shall not occur
+     */
+    @Test
+    public void testCompactFrozenSystemState() throws IOException, ClassNotFoundException {
+        FrozenStateSymbols symbols = new FrozenStateSymbols();
+        assertFrozenSystemState(new CompactFrozenSystemState(symbols));
+        
+        CompactFrozenSystemState state = new CompactFrozenSystemState(symbols); // known symbols
+        state.setObservation(FrozenSystemState.PIPELINE, "pip", Scalability.VARIETY, 10.0);
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, "pip", "elt", Scalability.VELOCITY, 9.0);
+        state.setObservation(FrozenSystemState.PIPELINE, "pip2", Scalability.VARIETY, 11.0); // new symbol
+        state.setActiveAlgorithm("pip", "elt", "alg");
+        Assert.assertEquals(4, state.getMapping().size());
+        assertEquals(10.0, state.getObservationValue(FrozenSystemState.PIPELINE, "pip", Scalability.VARIETY));
+        Assert.assertTrue(Double.isNaN(state.getObservationValue(FrozenSystemState.PIPELINE, "pip", 
+            Scalability.VELOCITY)));
+        assertEquals(9.0, state.getObservation(FrozenSystemState.obtainKey(FrozenSystemState.PIPELINE_ELEMENT, 
+            FrozenSystemState.obtainPipelineElementSubkey("pip", "elt"), Scalability.VELOCITY), null));
+        Assert.assertEquals("alg", state.getActiveAlgorithm("pip", "elt"));
+        Assert.assertTrue(state.hasActiveAlgorithm("pip", "elt", "alg"));
+        state.setObservation(FrozenSystemState.PIPELINE, "pip2", Scalability.VARIETY, (Double) null);
+        Assert.assertNull(state.getPipelineObservation("pip2", Scalability.VARIETY));
+        Assert.assertEquals(3, state.getMapping().size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObjectOutputStream oOut = new ObjectOutputStream(out);
+        oOut.writeObject(state);
+        oOut.close();
+        ObjectInputStream oIn = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
+        Object read = oIn.readObject();
+        oIn.close();
+        Assert.assertEquals(FrozenSystemState.class, read.getClass());
+        Assert.assertEquals(state.getMapping(), ((FrozenSystemState) read).getMapping());
+    }
+
+    /**
+     * Tests that the symbols of {@link CompactFrozenSystemState} are scoped to a freeze by default and that a state
+     * on a shared symbol table only contains the values it actually sets.
+     */
+    @Test
+    public void testCompactFrozenSystemStateSymbolScope() {
+        CompactFrozenSystemState state1 = new CompactFrozenSystemState();
+        for (int p = 0; p < 100; p++) {
+            state1.setObservation(FrozenSystemState.PIPELINE, "pip" + p, Scalability.VARIETY, p);
+        }
+        Assert.assertEquals(100, state1.getMapping().size());
+        CompactFrozenSystemState state2 = new CompactFrozenSystemState();
+        Assert.assertNull(state2.getPipelineObservation("pip1", Scalability.VARIETY));
+        Assert.assertTrue(state2.getMapping().isEmpty());
+        Assert.assertFalse(state2.getMapping().entrySet().iterator().hasNext());
+
+        FrozenStateSymbols symbols = new FrozenStateSymbols();
+        CompactFrozenSystemState state3 = new CompactFrozenSystemState(symbols);
+        for (int p = 0; p < 100; p++) {
+            state3.setObservation(FrozenSystemState.PIPELINE, "pip" + p, Scalability.VARIETY, p);
+        }
+        Assert.assertEquals(100, symbols.size());
+        CompactFrozenSystemState state4 = new CompactFrozenSystemState(symbols);
+        state4.setObservation(FrozenSystemState.PIPELINE, "pip99", Scalability.VARIETY, 99.0);
+        Assert.assertEquals(1, state4.getMapping().size());
+        Assert.assertEquals(1, state4.getMapping().entrySet().size());
+        state4.setObservation(FrozenSystemState.PIPELINE, "pip99", Scalability.VARIETY, (Double) null);
+        Assert.assertTrue(state4.getMapping().isEmpty());
+        state3.getMapping().clear();
+        Assert.assertTrue(state3.getMapping().isEmpty());
+    }
+
+    /**
+     * Tests pruning the symbols of a pipeline from a long-living {@link FrozenStateSymbols symbol table}.
+     */
+    @Test
+    public void testFrozenStateSymbolsPrune() {
+        FrozenStateSymbols symbols = new FrozenStateSymbols();
+        CompactFrozenSystemState state = new CompactFrozenSystemState(symbols);
+        state.setObservation(FrozenSystemState.PIPELINE, "pip1", Scalability.VARIETY, 1);
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, "pip1", "elt", Scalability.VARIETY, 2.0);
+        state.setObservation(FrozenSystemState.PIPELINE, "pip2", Scalability.VARIETY, 3);
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, "pip2", "elt", Scalability.VARIETY, 4.0);
+        state.setObservation(FrozenSystemState.ALGORITHM, "pip1", "alg", Scalability.VARIETY, 5.0);
+        String subkey = FrozenSystemState.obtainPipelineElementSubkey("pip1", "elt2"); // as used by freezing
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, subkey, Scalability.VARIETY, 6.0);
+        state.setObservation(FrozenSystemState.PIPELINE, "pip10", Scalability.VARIETY, 7.0);
+        Assert.assertEquals(7, symbols.size());
+
+        FrozenStateSymbols pruned = symbols.prune("pip1", FrozenSystemState.PIPELINE, 
+            FrozenSystemState.PIPELINE_ELEMENT);
+        Assert.assertEquals(7, symbols.size()); // unchanged, state still valid
+        assertEquals(1.0, state.getPipelineObservation("pip1", Scalability.VARIETY));
+        Assert.assertEquals(4, pruned.size());
+        Assert.assertTrue(pruned.indexOf(FrozenSystemState.PIPELINE_ELEMENT, subkey, Scalability.VARIETY) < 0);
+        Assert.assertTrue(pruned.indexOf(FrozenSystemState.PIPELINE, "pip10", Scalability.VARIETY) >= 0);
+        Assert.assertTrue(pruned.indexOf(FrozenSystemState.PIPELINE, "pip1", Scalability.VARIETY) < 0);
+        Assert.assertTrue(pruned.indexOf(FrozenSystemState.PIPELINE_ELEMENT, "pip1", "elt", Scalability.VARIETY) < 0);
+        int index = pruned.indexOf(FrozenSystemState.PIPELINE_ELEMENT, "pip2", "elt", Scalability.VARIETY);
+        Assert.assertTrue(index >= 0);
+        Assert.assertEquals(FrozenSystemState.obtainKey(FrozenSystemState.PIPELINE_ELEMENT, 
+            FrozenSystemState.obtainPipelineElementSubkey("pip2", "elt"), Scalability.VARIETY), pruned.getKey(index));
+        Assert.assertTrue(pruned.indexOf(FrozenSystemState.PIPELINE, "pip2", Scalability.VARIETY) >= 0);
+        Assert.assertTrue(pruned.indexOf(FrozenSystemState.ALGORITHM, "pip1", "alg", Scalability.VARIETY) >= 0);
+
+        CompactFrozenSystemState next = new CompactFrozenSystemState(pruned);
+        next.setObservation(FrozenSystemState.PIPELINE, "pip2", Scalability.VARIETY, 6);
+        assertEquals(6.0, next.getPipelineObservation("pip2", Scalability.VARIETY));
+        Assert.assertNull(next.getPipelineObservation("pip1", Scalability.VARIETY));
+        Assert.assertEquals(4, pruned.size());
+    }
+
+    /**
+     * Measures freezing and reading a frozen system state of a larger synthetic system in map-based and compact
+     * representation, i.e., time and (if supported by the JVM) allocated bytes.
+     */
+    @Test
+    public void testFrozenSystemStatePerformance() {
+        final int pipelines = 10;
+        final int elements = 50;
+        final int cycles = 200;
+        final IObservable[] observables = {TimeBehavior.LATENCY, TimeBehavior.THROUGHPUT_ITEMS, 
+            TimeBehavior.THROUGHPUT_VOLUME, Scalability.ITEMS, Scalability.VELOCITY};
+        String[] pipNames = new String[pipelines];
+        for (int p = 0; p < pipelines; p++) {
+            pipNames[p] = "pip" + p;
+        }
+        String[] eltNames = new String[elements];
+        for (int e = 0; e < elements; e++) {
+            eltNames[e] = "elt" + e;
+        }
+        FrozenStateSymbols symbols = new FrozenStateSymbols();
+        double[] sums = new double[2];
+        for (int round = 0; round < 2; round++) { // first round warms up
+            for (int mode = 0; mode < 2; mode++) {
+                long start = System.nanoTime();
+                long bytes = getAllocatedBytes();
+                double sum = 0;
+                for (int c = 0; c < cycles; c++) {
+                    FrozenSystemState state = 0 == mode ? new FrozenSystemState() 
+                        : new CompactFrozenSystemState(symbols);
+                    for (int p = 0; p < pipelines; p++) {
+                        String pip = pipNames[p];
+                        for (int e = 0; e < elements; e++) {
+                            String elt = eltNames[e];
+                            for (IObservable obs : observables) {
+                                state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, pip, elt, obs, 
+                                    Double.valueOf(e));
+                            }
+                        }
+                        for (IObservable obs : observables) {
+                            state.setObservation(FrozenSystemState.PIPELINE, pip, obs, c);
+                        }
+                    }
+                    for (int p = 0; p < pipelines; p++) {
+                        String pip = pipNames[p];
+                        for (int e = 0; e < elements; e++) {
+                            String elt = eltNames[e];
+                            for (IObservable obs : observables) {
+                                sum += state.getPipelineElementObservation(pip, elt, obs, 0.0);
+                            }
+                        }
+                        for (IObservable obs : observables) {
+                            sum += state.getPipelineObservation(pip, obs, 0.0);
+                        }
+                    }
+                }
+                sums[mode] = sum;
+                if (round > 0) {
+                    bytes = getAllocatedBytes() - bytes;
+                    System.out.println((0 == mode ? "map-based" : "compact") + " frozen state: " 
+                        + ((System.nanoTime() - start) / 1000000) + " ms" 
+                        + (bytes > 0 ? ", " + (bytes / cycles) + " bytes allocated per cycle" : ""));
+                }
+            }
+            Assert.assertEquals(sums[0], sums[1], 0.001);
+        }
+    }
+    
+    /**
+     * Returns the bytes allocated so far by the current thread if supported by the JVM.
+     * 
+     * @return the allocated bytes, negative if not supported
+     */
+    private static long getAllocatedBytes() {
+        long result = -1;
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            result = ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+        }
+        return result;
+    }
+
+    /**
+     * Asserts the basic functionality of a frozen system state.
+     * 
+     * @param state the (empty) state to test
+     */
+    private static void assertFrozenSystemState(FrozenSystemState state) {
         Assert.assertNull(state.getAlgorithmObservation(null, null, (IObservable) null));
         Assert.assertNull(state.getAlgorithmObservation("pip", "elt", TimeBehavior.LATENCY));
         Assert.assertNull(state.getDataSinkObservation("pip", "elt", TimeBehavior.LATENCY));
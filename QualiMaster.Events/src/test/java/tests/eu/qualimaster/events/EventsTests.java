@@ -37,6 +37,7 @@ import eu.qualimaster.monitoring.events.PipelineElementMultiObservationMonitorin
 import eu.qualimaster.monitoring.events.PipelineElementObservationMonitoringEvent;
 import eu.qualimaster.monitoring.events.PlatformMonitoringEvent;
 import eu.qualimaster.monitoring.events.ReplayChangedMonitoringEvent;
+import eu.qualimaster.monitoring.events.ReplayMonitoringEvent;
 import eu.qualimaster.monitoring.events.SourceVolumeMonitoringEvent;
 import eu.qualimaster.monitoring.events.SubTopologyMonitoringEvent;
 import eu.qualimaster.observables.IObservable;
@@ -327,6 +328,14 @@ public class EventsTests {
         Assert.assertEquals(true, rEvent.getStartReplay());
         Assert.assertEquals(msgId, rEvent.getCauseMessageId());
         
+        Map<IObservable, Double> replayObs = new HashMap<IObservable, Double>();
+        replayObs.put(TimeBehavior.THROUGHPUT_ITEMS, 100.0);
+        ReplayMonitoringEvent rmEvent = new ReplayMonitoringEvent(pipeline, pipelineElement, 2, replayObs);
+        Assert.assertEquals(pipeline, rmEvent.getPipeline());
+        Assert.assertEquals(pipelineElement, rmEvent.getPipelineElement());
+        Assert.assertEquals(2, rmEvent.getTicket());
+        Assert.assertEquals(replayObs, rmEvent.getObservations());
+        
         LoadSheddingChangedMonitoringEvent lEvent = new LoadSheddingChangedMonitoringEvent(pipeline, pipelineElement, 
             "aaa", "bbb", msgId);
         Assert.assertEquals(pipeline, lEvent.getPipeline());
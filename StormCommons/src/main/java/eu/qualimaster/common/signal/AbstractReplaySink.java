@@ -16,10 +16,11 @@
 package eu.qualimaster.common.signal;
 
 import java.io.IOException;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -32,6 +33,10 @@ import eu.qualimaster.dataManagement.sinks.replay.ReplayStreamer;
 import eu.qualimaster.dataManagement.strategies.IStorageStrategyDescriptor;
 import eu.qualimaster.events.EventManager;
 import eu.qualimaster.monitoring.events.ReplayChangedMonitoringEvent;
+import eu.qualimaster.monitoring.events.ReplayMonitoringEvent;
+import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.Scalability;
+import eu.qualimaster.observables.TimeBehavior;
 
 /**
  * The base bolt class for replay sinks. Implementing classes shall register the
@@ -43,6 +48,10 @@ import eu.qualimaster.monitoring.events.ReplayChangedMonitoringEvent;
 public abstract class AbstractReplaySink extends BaseSignalBolt implements IReplayListener {
 
     private static final long serialVersionUID = 2348634834739948474L;
+    private static final IObservable[] REPLAY_OBSERVABLES = {TimeBehavior.THROUGHPUT_ITEMS, TimeBehavior.LATENCY, 
+        Scalability.ITEMS, Scalability.VELOCITY};
+    private static final long MONITORING_INTERVAL = 1000;
+    private static final long IDLE_PARK_NANOS = 500000L;
     private transient Map<Class<?>, TupleHandler<?>> handlers = new HashMap<Class<?>, TupleHandler<?>>();
     private transient ReplayRunnable replayRunnable;
     
@@ -58,8 +67,7 @@ public abstract class AbstractReplaySink extends BaseSignalBolt implements IRepl
 
         private Class<T> tupleClass;
         private Tuple schema;
-        private Map<Integer, ReplayStreamer<T>> streamers = Collections
-                        .synchronizedMap(new HashMap<Integer, ReplayStreamer<T>>());
+        private Map<Integer, ReplayStreamer<T>> streamers = new ConcurrentHashMap<Integer, ReplayStreamer<T>>();
         private ReplayRecorder<T> recorder;
         private String location;
         private IStorageStrategyDescriptor strategy;
@@ -136,11 +144,12 @@ public abstract class AbstractReplaySink extends BaseSignalBolt implements IRepl
                 }
                 recorder = null;
             }
-            for (Map.Entry<Integer, ReplayStreamer<T>> entry : streamers.entrySet()) {
-                close(entry.getValue());
-                entry.setValue(null);
+            synchronized (this) {
+                for (ReplayStreamer<T> streamer : streamers.values()) {
+                    close(streamer);
+                }
+                streamers.clear();
             }
-            streamers.clear();
         }
 
         /**
@@ -169,7 +178,8 @@ public abstract class AbstractReplaySink extends BaseSignalBolt implements IRepl
         }
 
         /**
-         * Notifies this tuple handler about a received replay signal.
+         * Notifies this tuple handler about a received replay signal. Only structural changes
+         * of the streamers are synchronized, streaming itself is not blocked.
          * 
          * @param signal
          *            the signal
@@ -177,22 +187,20 @@ public abstract class AbstractReplaySink extends BaseSignalBolt implements IRepl
          */
         private int notifyReplay(ReplaySignal signal) {
             int result;
-            synchronized (streamers) {
+            synchronized (this) {
                 ReplayStreamer<T> streamer = streamers.get(signal.getTicket());
                 if (signal.getStartReplay()) {
-                    // create streamer for ticket, configure stream
+                    // create streamer for ticket, configure stream at once
                     if (null == streamer) {
                         streamer = new ReplayStreamer<T>(tupleClass, schema, location, strategy);
                         streamers.put(signal.getTicket(), streamer);
                     }
-                    streamer.setStart(signal.getStart());
-                    streamer.setEnd(signal.getEnd());
-                    streamer.setSpeed(signal.getSpeed());
-                    streamer.setQuery(signal.getQuery());
+                    streamer.configure(signal.getStart(), signal.getEnd(), signal.getSpeed(), signal.getQuery());
                 } else {
                     streamers.remove(signal.getTicket());
                     if (null != streamer) {
                         close(streamer);
+                        sendEnded(signal.getTicket());
                     }
                 }
                 EventManager.send(new ReplayChangedMonitoringEvent(sink.getPipeline(), sink.getName(),
@@ -203,25 +211,57 @@ public abstract class AbstractReplaySink extends BaseSignalBolt implements IRepl
         }
 
         /**
-         * Streams the tuple for replay.
+         * Streams the tuples for replay without blocking. Finished streamers are removed.
+         * 
+         * @return the number of emitted tuples
          */
-        private void stream() {
-            synchronized (streamers) {
-                Iterator<Map.Entry<Integer, ReplayStreamer<T>>> iter = streamers.entrySet().iterator();
-                while (iter.hasNext()) {
-                    Map.Entry<Integer, ReplayStreamer<T>> entry = iter.next();
-                    ReplayStreamer<T> streamer = entry.getValue();
-                    if (!streamer.isEOD()) {
-                        iter.remove();
+        private int stream() {
+            int result = 0;
+            Iterator<Map.Entry<Integer, ReplayStreamer<T>>> iter = streamers.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<Integer, ReplayStreamer<T>> entry = iter.next();
+                ReplayStreamer<T> streamer = entry.getValue();
+                if (streamer.isFinished()) {
+                    if (streamers.remove(entry.getKey(), streamer)) {
                         close(streamer);
-                    } else {
-                        T tuple = entry.getValue().getData();
-                        if (null != tuple) {
-                            emitter.emit(entry.getKey(), tuple);
-                        }
+                        sendEnded(entry.getKey());
+                    }
+                } else {
+                    T tuple = streamer.poll();
+                    if (null != tuple) {
+                        emitter.emit(entry.getKey(), tuple);
+                        result++;
                     }
                 }
             }
+            return result;
+        }
+
+        /**
+         * Sends the replay monitoring events, i.e., throughput and lag per ticket.
+         */
+        private void sendMonitoring() {
+            for (Map.Entry<Integer, ReplayStreamer<T>> entry : streamers.entrySet()) {
+                ReplayStreamer<T> streamer = entry.getValue();
+                Map<IObservable, Double> observations = new HashMap<IObservable, Double>();
+                for (IObservable observable : REPLAY_OBSERVABLES) {
+                    Double value = streamer.getMeasurement(observable);
+                    if (null != value) {
+                        observations.put(observable, value);
+                    }
+                }
+                EventManager.asyncSend(new ReplayMonitoringEvent(sink.getPipeline(), sink.getName(), entry.getKey(), 
+                    observations));
+            }
+        }
+
+        /**
+         * Sends a replay monitoring event indicating that replaying <code>ticket</code> ended.
+         * 
+         * @param ticket the ticket
+         */
+        private void sendEnded(int ticket) {
+            EventManager.asyncSend(new ReplayMonitoringEvent(sink.getPipeline(), sink.getName(), ticket, null));
         }
 
     }
@@ -399,19 +439,27 @@ public abstract class AbstractReplaySink extends BaseSignalBolt implements IRepl
      */
     private class ReplayRunnable implements Runnable {
 
-        private boolean running = true;
+        private volatile boolean running = true;
 
         @Override
         public void run() {
+            long lastMonitoring = System.currentTimeMillis();
             while (running) {
+                int emitted = 0;
                 if (null != handlers) {
                     for (TupleHandler<?> handler : handlers.values()) {
-                        handler.stream();
+                        emitted += handler.stream();
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastMonitoring >= MONITORING_INTERVAL) {
+                        for (TupleHandler<?> handler : handlers.values()) {
+                            handler.sendMonitoring();
+                        }
+                        lastMonitoring = now;
                     }
                 }
-                try {
-                    Thread.sleep(1);
-                } catch (InterruptedException e) {
+                if (0 == emitted) { // idle, do not spin
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
                 }
             }
         }